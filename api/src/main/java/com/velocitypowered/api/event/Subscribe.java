@@ -29,9 +29,11 @@ public @interface Subscribe {
   /**
    * Whether the handler must be called asynchronously.
    *
-   * <p><strong>This option currently has no effect, but in the future it will. In Velocity 3.0.0,
-   * all event handlers run asynchronously by default. You are encouraged to determine whether or
-   * not to enable it now. This option is being provided as a migration aid.</strong></p>
+   * <p>In Velocity 3.0.0, all event handlers run asynchronously by default. If every handler
+   * targeting an event type opts out, the event is fired on the thread that called
+   * {@link EventManager#fire(Object)}, which is often a Netty event loop. Such handlers must
+   * not block; they can still return {@link EventTask#async(Runnable)} to move the remaining
+   * work off that thread.</p>
    *
    * <p>If this method returns {@code true}, the method is guaranteed to be executed
    * asynchronously. Otherwise, the handler may be executed on the current thread or
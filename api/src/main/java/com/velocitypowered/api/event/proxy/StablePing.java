@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2018-2023 Velocity Contributors
+ *
+ * The Velocity API is licensed under the terms of the MIT License. For more details,
+ * reference the LICENSE file in the api top-level directory.
+ */
+
+package com.velocitypowered.api.event.proxy;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link ProxyPingEvent} listener whose changes to the ping only depend on the protocol
+ * version and the virtual host of the connection, and may be reused for a short while.
+ *
+ * <p>The proxy can answer server list pings from a cache of serialized responses, but only while
+ * every listener of {@link ProxyPingEvent} carries this annotation. Such a listener is then not
+ * called for pings answered from the cache, so it must not depend on the address of the client or
+ * count pings. The cache is refreshed whenever the number of players changes.</p>
+ *
+ * @since 3.3.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StablePing {
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * The Velocity API is licensed under the terms of the MIT License. For more details,
+ * reference the LICENSE file in the api top-level directory.
+ */
+
+package com.velocitypowered.api.network;
+
+/**
+ * Counts the traffic on a connection, or on many connections combined. All counters only ever
+ * increase. They are updated by the network threads and may lag slightly behind when read from
+ * any other thread.
+ */
+public interface ConnectionMetrics {
+
+  /**
+   * Returns the number of packets received.
+   *
+   * @return the number of packets received
+   */
+  long getPacketsReceived();
+
+  /**
+   * Returns the number of packets sent.
+   *
+   * @return the number of packets sent
+   */
+  long getPacketsSent();
+
+  /**
+   * Returns the number of bytes received, as they were sent over the network.
+   *
+   * @return the number of bytes received
+   */
+  long getBytesReceived();
+
+  /**
+   * Returns the number of bytes sent, as they were sent over the network.
+   *
+   * @return the number of bytes sent
+   */
+  long getBytesSent();
+
+  /**
+   * Returns the size of the packets received after decompression. If compression is not enabled,
+   * this is about the same as {@link #getBytesReceived()}.
+   *
+   * @return the number of bytes received before compression
+   */
+  long getUncompressedBytesReceived();
+
+  /**
+   * Returns the size of the packets sent before compression. If compression is not enabled, this
+   * is about the same as {@link #getBytesSent()}.
+   *
+   * @return the number of bytes sent before compression
+   */
+  long getUncompressedBytesSent();
+
+  /**
+   * Returns the time spent decompressing packets, in nanoseconds.
+   *
+   * @return the time spent decompressing packets
+   */
+  long getInflateNanos();
+
+  /**
+   * Returns the time spent compressing packets, in nanoseconds.
+   *
+   * @return the time spent compressing packets
+   */
+  long getDeflateNanos();
+
+  /**
+   * Returns the time spent encrypting and decrypting packets, in nanoseconds. Packets that are
+   * compressed and encrypted in a single pass count towards both this and
+   * {@link #getDeflateNanos()}.
+   *
+   * @return the time spent on encryption
+   */
+  long getCipherNanos();
+
+  /**
+   * Returns how many times the connection stopped being writable, because more data was queued
+   * to be sent than the write buffer high water mark allows. This usually means the other side
+   * can't keep up with the data sent to it.
+   *
+   * @return the number of times the write buffer high water mark was exceeded
+   */
+  long getWriteBufferHighWaterMarkEvents();
+
+  /**
+   * Returns how many times packets sent by the proxy itself, rather than relayed, were flushed to
+   * the network.
+   *
+   * @return the number of flushes
+   */
+  long getFlushes();
+
+  /**
+   * Returns how many packets sent by the proxy itself were flushed along with an earlier packet
+   * rather than on their own. Each of them saved a flush, and usually a write system call.
+   *
+   * @return the number of flushes saved by coalescing writes
+   */
+  long getCoalescedWrites();
+}
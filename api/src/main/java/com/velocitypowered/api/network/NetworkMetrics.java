@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * The Velocity API is licensed under the terms of the MIT License. For more details,
+ * reference the LICENSE file in the api top-level directory.
+ */
+
+package com.velocitypowered.api.network;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import java.util.Optional;
+
+/**
+ * Provides the traffic metrics of the proxy, both for individual connections and for all
+ * connections combined.
+ */
+public interface NetworkMetrics {
+
+  /**
+   * Returns the combined metrics of all connections the proxy has handled since it started,
+   * including connections that are closed already.
+   *
+   * @return the combined metrics of all connections
+   */
+  ConnectionMetrics getTotals();
+
+  /**
+   * Returns the metrics of the connection between the proxy and the {@code player}.
+   *
+   * @param player the player
+   * @return the metrics of the connection, if the player is still connected
+   */
+  Optional<ConnectionMetrics> getMetrics(Player player);
+
+  /**
+   * Returns the metrics of the connection between the proxy and a server.
+   *
+   * @param connection the connection to the server
+   * @return the metrics of the connection, if it is still open
+   */
+  Optional<ConnectionMetrics> getMetrics(ServerConnection connection);
+
+  /**
+   * Returns the distribution of the size of all packets received, in bytes, as they were sent
+   * over the network.
+   *
+   * @return the sizes of the packets received
+   */
+  Histogram getPacketSizesReceived();
+
+  /**
+   * Returns the distribution of the size of all packets sent, in bytes, as they were sent over the
+   * network.
+   *
+   * @return the sizes of the packets sent
+   */
+  Histogram getPacketSizesSent();
+
+  /**
+   * Returns the distribution of the time it took to compress or decompress a single packet, in
+   * nanoseconds.
+   *
+   * @return the time spent on compressing or decompressing a packet
+   */
+  Histogram getCompressionTimes();
+
+  /**
+   * An approximate distribution of values. Values are grouped in buckets that are a power of two
+   * wide, so percentiles are only accurate to within a factor of two.
+   */
+  interface Histogram {
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the number of values recorded
+     */
+    long getCount();
+
+    /**
+     * Returns the sum of all values recorded.
+     *
+     * @return the sum of all values recorded
+     */
+    long getSum();
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the largest value recorded, or {@code 0} if no values were recorded
+     */
+    long getMax();
+
+    /**
+     * Returns an upper bound for the value below which the given {@code percentile} of all values
+     * recorded fall.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the approximate value at the percentile, or {@code 0} if no values were recorded
+     */
+    long getValueAtPercentile(double percentile);
+  }
+}
@@ -10,6 +10,7 @@ package com.velocitypowered.api.proxy;
 import com.velocitypowered.api.command.CommandManager;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.event.EventManager;
+import com.velocitypowered.api.network.NetworkMetrics;
 import com.velocitypowered.api.plugin.PluginManager;
 import com.velocitypowered.api.proxy.config.ProxyConfig;
 import com.velocitypowered.api.proxy.messages.ChannelRegistrar;
@@ -201,6 +202,13 @@ public interface ProxyServer extends Audience {
    */
   ProxyVersion getVersion();
 
+  /**
+   * Returns the traffic metrics of the connections handled by the proxy.
+   *
+   * @return the network metrics
+   */
+  NetworkMetrics getNetworkMetrics();
+
   /**
    * Creates a builder to build a {@link ResourcePackInfo} instance for use with
    * {@link com.velocitypowered.api.proxy.Player#sendResourcePackOffer(ResourcePackInfo)}.
@@ -0,0 +1,26 @@
+plugins {
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    jmh(project(":velocity-api"))
+    jmh(project(":velocity-native"))
+    jmh(project(":velocity-proxy"))
+
+    jmh(libs.netty.codec)
+    jmh(libs.netty.handler)
+    jmh(libs.netty.transport.native.epoll)
+    jmh(variantOf(libs.netty.transport.native.epoll) { classifier("linux-x86_64") })
+    jmh(libs.netty.transport.native.io.uring)
+    jmh(variantOf(libs.netty.transport.native.io.uring) { classifier("linux-x86_64") })
+    jmh(platform(libs.adventure.bom))
+    jmh("net.kyori:adventure-api")
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // The GC profiler reports gc.alloc.rate.norm, the number of heap bytes allocated per operation.
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
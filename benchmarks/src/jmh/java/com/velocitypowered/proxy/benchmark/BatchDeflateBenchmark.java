@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.natives.compression.BatchingCompressor;
+import com.velocitypowered.natives.compression.DeflateBatch;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares compressing the packets written before a flush one at a time with compressing them
+ * in a single {@link BatchingCompressor#deflateBatch} call, as the compression encoder does with
+ * {@code -Dvelocity.batch-deflate=true}.
+ *
+ * <p>One operation compresses {@code packets} packets of {@code size} bytes each. Batching saves a
+ * roughly constant amount per packet, so it matters most for small packets just above the default
+ * threshold of 256 bytes and stops mattering once compressing a packet dwarfs the cost of calling
+ * into native code. Where that happens for both {@code size} and {@code packets} is what this
+ * benchmark is for.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BatchDeflateBenchmark {
+
+  @Param({"JAVA", "NATIVE"})
+  public NativeVariant variant;
+
+  @Param({"260", "512", "1024", "4096", "16384"})
+  public int size;
+
+  @Param({"1", "4", "16", "64"})
+  public int packets;
+
+  private VelocityCompressor compressor;
+  private ByteBuf[] sources;
+  private DeflateBatch batch;
+  private ByteBuf out;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    compressor = variant.compressor().create(-1);
+    Random random = new Random(0x56454c4fL);
+    sources = new ByteBuf[packets];
+    batch = new DeflateBatch();
+    for (int i = 0; i < packets; i++) {
+      // Entity metadata and the like: some structure, but far from all zeroes.
+      byte[] payload = new byte[size];
+      for (int j = 0; j < size; j++) {
+        payload[j] = (byte) (random.nextInt(4) == 0 ? random.nextInt() : j % 16);
+      }
+      sources[i] = Unpooled.directBuffer(size).writeBytes(payload);
+      batch.add(sources[i], 4, true);
+    }
+    out = Unpooled.directBuffer(packets * (size + 64));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (ByteBuf source : sources) {
+      source.release();
+    }
+    out.release();
+    compressor.close();
+  }
+
+  @Benchmark
+  public void perPacket(Blackhole bh) throws DataFormatException {
+    out.clear();
+    for (ByteBuf source : sources) {
+      out.writerIndex(out.writerIndex() + 4);
+      compressor.deflate(source.duplicate(), out);
+    }
+    bh.consume(out.writerIndex());
+  }
+
+  @Benchmark
+  public void batched(Blackhole bh) throws DataFormatException {
+    out.clear();
+    ((BatchingCompressor) compressor).deflateBatch(batch, out);
+    bh.consume(out.writerIndex());
+  }
+}
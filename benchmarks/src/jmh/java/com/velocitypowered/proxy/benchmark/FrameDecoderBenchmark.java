@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.netty.MinecraftVarintFrameDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.ByteProcessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link MinecraftVarintFrameDecoder} with the frame decoder it replaced, which
+ * allocated a byte processor for every frame and always merged incoming data into one buffer.
+ *
+ * <p>One operation frames 256 KiB worth of {@code frameSize}-byte packets, arriving in reads of
+ * {@code readSize} bytes. Small frames model a flood of movement and keep-alive packets, 128 KiB
+ * frames model chunk data spanning many reads.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FrameDecoderBenchmark {
+
+  private static final int TOTAL_SIZE = 256 * 1024;
+
+  @Param({"16", "256", "131072"})
+  public int frameSize;
+
+  @Param({"1460", "65536"})
+  public int readSize;
+
+  private ByteBuf wire;
+  private List<ByteBuf> reads;
+  private EmbeddedChannel current;
+  private EmbeddedChannel legacy;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    wire = Unpooled.directBuffer(TOTAL_SIZE + 3);
+    byte[] body = new byte[frameSize];
+    while (wire.readableBytes() < TOTAL_SIZE) {
+      ProtocolUtils.writeVarInt(wire, frameSize);
+      wire.writeBytes(body);
+    }
+    reads = new ArrayList<>();
+    for (int offset = 0; offset < wire.readableBytes(); offset += readSize) {
+      reads.add(wire.slice(offset, Math.min(readSize, wire.readableBytes() - offset)));
+    }
+
+    current = new EmbeddedChannel(new MinecraftVarintFrameDecoder());
+    legacy = new EmbeddedChannel(new LegacyFrameDecoder());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    current.finishAndReleaseAll();
+    legacy.finishAndReleaseAll();
+    wire.release();
+  }
+
+  @Benchmark
+  public void current(Blackhole bh) {
+    frame(current, bh);
+  }
+
+  @Benchmark
+  public void legacy(Blackhole bh) {
+    frame(legacy, bh);
+  }
+
+  private void frame(EmbeddedChannel channel, Blackhole bh) {
+    for (ByteBuf read : reads) {
+      channel.writeInbound(read.retainedDuplicate());
+    }
+    PipelineFixtures.drainInbound(channel, bh);
+  }
+
+  /**
+   * The frame decoder before it was reworked, without metrics.
+   */
+  private static final class LegacyFrameDecoder extends ByteToMessageDecoder {
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+      if (!ctx.channel().isActive()) {
+        in.clear();
+        return;
+      }
+
+      final VarintByteDecoder reader = new VarintByteDecoder();
+
+      int varintEnd = in.forEachByte(reader);
+      if (varintEnd == -1) {
+        if (reader.result == DecodeResult.RUN_OF_ZEROES) {
+          in.clear();
+        }
+        return;
+      }
+
+      if (reader.result == DecodeResult.RUN_OF_ZEROES) {
+        in.readerIndex(varintEnd);
+      } else if (reader.result == DecodeResult.SUCCESS) {
+        int readVarint = reader.readVarint;
+        int bytesRead = reader.bytesRead;
+        if (readVarint < 0) {
+          in.clear();
+          throw new CorruptedFrameException("Bad packet length");
+        } else if (readVarint == 0) {
+          in.readerIndex(varintEnd + 1);
+        } else {
+          int minimumRead = bytesRead + readVarint;
+          if (in.isReadable(minimumRead)) {
+            out.add(in.retainedSlice(varintEnd + 1, readVarint));
+            in.skipBytes(minimumRead);
+          }
+        }
+      } else if (reader.result == DecodeResult.TOO_BIG) {
+        in.clear();
+        throw new CorruptedFrameException("VarInt too big");
+      }
+    }
+  }
+
+  private static final class VarintByteDecoder implements ByteProcessor {
+
+    private int readVarint;
+    private int bytesRead;
+    private DecodeResult result = DecodeResult.TOO_SHORT;
+
+    @Override
+    public boolean process(byte k) {
+      if (k == 0 && bytesRead == 0) {
+        result = DecodeResult.RUN_OF_ZEROES;
+        return true;
+      }
+      if (result == DecodeResult.RUN_OF_ZEROES) {
+        return false;
+      }
+      readVarint |= (k & 0x7F) << bytesRead++ * 7;
+      if (bytesRead > 3) {
+        result = DecodeResult.TOO_BIG;
+        return false;
+      }
+      if ((k & 0x80) != 128) {
+        result = DecodeResult.SUCCESS;
+        return false;
+      }
+      return true;
+    }
+  }
+
+  private enum DecodeResult {
+    SUCCESS,
+    TOO_SHORT,
+    TOO_BIG,
+    RUN_OF_ZEROES
+  }
+}
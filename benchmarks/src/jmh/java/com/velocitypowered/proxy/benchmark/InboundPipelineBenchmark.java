@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.netty.MinecraftCipherDecoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftCompressDecoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftCompressorAndLengthEncoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftDecoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftVarintFrameDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures each stage of the inbound pipeline of a backend connection, and the stages chained
+ * together the way {@code BackendChannelInitializer} and {@code MinecraftConnection} set them up.
+ *
+ * <p>One operation processes one tick of {@link PlayTraffic}, except for
+ * {@link #compressDecoderLargePacket}, which inflates a single packet larger than the scratch
+ * buffer of the compression decoder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InboundPipelineBenchmark {
+
+  @Param({"MINECRAFT_1_12_2", "MINECRAFT_1_16_4", "MINECRAFT_1_20_3"})
+  public ProtocolVersion version;
+
+  @Param({"JAVA", "NATIVE"})
+  public NativeVariant variant;
+
+  @Param({"256"})
+  public int threshold;
+
+  private PlayTraffic traffic;
+  private ByteBuf wire;
+  private ByteBuf cipherInput;
+  private List<ByteBuf> compressedFrames;
+
+  private EmbeddedChannel frameChannel;
+  private EmbeddedChannel cipherChannel;
+  private EmbeddedChannel compressChannel;
+  private EmbeddedChannel decodeChannel;
+  private EmbeddedChannel fullChannel;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    traffic = PlayTraffic.generate(version, 0x56454c4fL);
+    wire = PipelineFixtures.toWire(traffic, variant, threshold);
+    cipherInput = wire.copy();
+    compressedFrames = PipelineFixtures.toFrameBodies(wire);
+
+    frameChannel = new EmbeddedChannel(new MinecraftVarintFrameDecoder());
+    cipherChannel = new EmbeddedChannel(
+        new MinecraftCipherDecoder(variant.cipher().forDecryption(NativeVariant.KEY)));
+    compressChannel = new EmbeddedChannel(
+        new MinecraftCompressDecoder(threshold, variant.compressor().create(-1)));
+    decodeChannel = new EmbeddedChannel(createDecoder());
+    fullChannel = new EmbeddedChannel(
+        new MinecraftVarintFrameDecoder(),
+        new MinecraftCompressDecoder(threshold, variant.compressor().create(-1)),
+        createDecoder());
+  }
+
+  private MinecraftDecoder createDecoder() {
+    MinecraftDecoder decoder = new MinecraftDecoder(ProtocolUtils.Direction.CLIENTBOUND);
+    decoder.setProtocolVersion(version);
+    decoder.setState(StateRegistry.PLAY);
+    return decoder;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    frameChannel.finishAndReleaseAll();
+    cipherChannel.finishAndReleaseAll();
+    compressChannel.finishAndReleaseAll();
+    decodeChannel.finishAndReleaseAll();
+    fullChannel.finishAndReleaseAll();
+    for (ByteBuf frame : compressedFrames) {
+      frame.release();
+    }
+    wire.release();
+    cipherInput.release();
+    traffic.release();
+  }
+
+  @Benchmark
+  public void frameDecoder(Blackhole bh) {
+    frameChannel.writeInbound(wire.retainedDuplicate());
+    PipelineFixtures.drainInbound(frameChannel, bh);
+  }
+
+  @Benchmark
+  public void cipherDecoder(Blackhole bh) {
+    // The cipher decrypts in place and is a stream cipher, so the input turns into garbage after
+    // the first invocation. The cost of decryption only depends on the amount of data, though.
+    cipherChannel.writeInbound(cipherInput.retainedDuplicate());
+    PipelineFixtures.drainInbound(cipherChannel, bh);
+  }
+
+  @Benchmark
+  public void compressDecoder(Blackhole bh) {
+    for (ByteBuf frame : compressedFrames) {
+      compressChannel.writeInbound(frame.retainedDuplicate());
+    }
+    PipelineFixtures.drainInbound(compressChannel, bh);
+  }
+
+  @Benchmark
+  public void minecraftDecoder(Blackhole bh) {
+    for (ByteBuf packet : traffic.getPackets()) {
+      decodeChannel.writeInbound(packet.retainedDuplicate());
+    }
+    PipelineFixtures.drainInbound(decodeChannel, bh);
+  }
+
+  @Benchmark
+  public void fullPipeline(Blackhole bh) {
+    fullChannel.writeInbound(wire.retainedDuplicate());
+    PipelineFixtures.drainInbound(fullChannel, bh);
+  }
+
+  /**
+   * The same as {@link #fullPipeline}, with adjacent codec stages fused.
+   */
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = "-Dvelocity.fused-codec=true")
+  public void fullPipelineFused(Blackhole bh) {
+    fullChannel.writeInbound(wire.retainedDuplicate());
+    PipelineFixtures.drainInbound(fullChannel, bh);
+  }
+
+  @Benchmark
+  public void compressDecoderLargePacket(LargePacket large, Blackhole bh) {
+    large.channel.writeInbound(large.body.retainedDuplicate());
+    PipelineFixtures.drainInbound(large.channel, bh);
+  }
+
+  /**
+   * A compressed packet between 64 KiB and 8 MiB, the largest size a vanilla client accepts.
+   */
+  @State(Scope.Thread)
+  public static class LargePacket {
+
+    @Param({"262144", "2097152", "8388608"})
+    public int size;
+
+    private ByteBuf body;
+    private EmbeddedChannel channel;
+
+    @Setup(Level.Trial)
+    public void setup(InboundPipelineBenchmark benchmark) {
+      // Compresses to about half its size, much like chunk data.
+      byte[] data = new byte[size];
+      Random random = new Random(0x56454c4fL);
+      for (int i = 0; i < data.length; i++) {
+        data[i] = (byte) random.nextInt(16);
+      }
+
+      EmbeddedChannel encoder = new EmbeddedChannel(new MinecraftCompressorAndLengthEncoder(
+          benchmark.threshold, benchmark.variant.compressor().create(-1)));
+      encoder.writeOutbound(Unpooled.wrappedBuffer(data));
+      ByteBuf wire = Unpooled.directBuffer();
+      ByteBuf frame;
+      while ((frame = encoder.readOutbound()) != null) {
+        wire.writeBytes(frame);
+        frame.release();
+      }
+      encoder.finishAndReleaseAll();
+      body = PipelineFixtures.toFrameBodies(wire).get(0);
+      wire.release();
+
+      channel = new EmbeddedChannel(new MinecraftCompressDecoder(benchmark.threshold,
+          benchmark.variant.compressor().create(-1)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      channel.finishAndReleaseAll();
+      body.release();
+    }
+  }
+}
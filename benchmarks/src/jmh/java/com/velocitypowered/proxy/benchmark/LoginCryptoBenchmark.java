@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.proxy.crypto.CryptoExecutor;
+import com.velocitypowered.proxy.crypto.EncryptionUtils;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how many logins per second a single core can do the proxy side of the crypto for:
+ * decrypting the verify token and the shared secret with the 1024-bit server key, deriving the
+ * server ID and signing modern forwarding data for the backend server.
+ *
+ * <p>{@code cached} uses the per-thread instances of {@link EncryptionUtils}, {@code uncached}
+ * looks up a new {@link Cipher}, {@link MessageDigest} and {@link Mac} for every login as the
+ * proxy used to. {@code pooled} hands the RSA part to a {@link CryptoExecutor} from every
+ * benchmark thread, to show the throughput of the whole pool.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LoginCryptoBenchmark {
+
+  private KeyPair keyPair;
+  private byte[] encryptedVerifyToken;
+  private byte[] encryptedSharedSecret;
+  private byte[] forwardingSecret;
+  private byte[] forwardingData;
+  private CryptoExecutor executor;
+
+  @Setup(Level.Trial)
+  public void setup() throws GeneralSecurityException {
+    keyPair = EncryptionUtils.createRsaKeyPair(1024);
+    Cipher cipher = Cipher.getInstance("RSA");
+    cipher.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
+    encryptedVerifyToken = cipher.doFinal(randomBytes(4));
+    encryptedSharedSecret = cipher.doFinal(randomBytes(16));
+    forwardingSecret = randomBytes(12);
+    forwardingData = randomBytes(512);
+    executor = new CryptoExecutor();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  private static byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    return bytes;
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void cached(Blackhole bh) throws GeneralSecurityException {
+    bh.consume(EncryptionUtils.decryptRsa(keyPair, encryptedVerifyToken));
+    byte[] sharedSecret = EncryptionUtils.decryptRsa(keyPair, encryptedSharedSecret);
+    bh.consume(EncryptionUtils.generateServerId(sharedSecret, keyPair.getPublic()));
+    bh.consume(EncryptionUtils.hmacSha256(forwardingSecret, forwardingData, 0,
+        forwardingData.length));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void uncached(Blackhole bh) throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance("RSA");
+    cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
+    bh.consume(cipher.doFinal(encryptedVerifyToken));
+    cipher = Cipher.getInstance("RSA");
+    cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
+    byte[] sharedSecret = cipher.doFinal(encryptedSharedSecret);
+
+    MessageDigest digest = MessageDigest.getInstance("SHA-1");
+    digest.update(sharedSecret);
+    digest.update(keyPair.getPublic().getEncoded());
+    bh.consume(new BigInteger(digest.digest()).toString(16));
+
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(forwardingSecret, "HmacSHA256"));
+    mac.update(forwardingData, 0, forwardingData.length);
+    bh.consume(mac.doFinal());
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public void pooled(Blackhole bh) {
+    bh.consume(executor.submit(() -> {
+      EncryptionUtils.decryptRsa(keyPair, encryptedVerifyToken);
+      return EncryptionUtils.decryptRsa(keyPair, encryptedSharedSecret);
+    }).join());
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.natives.compression.JavaVelocityCompressor;
+import com.velocitypowered.natives.compression.VelocityCompressorFactory;
+import com.velocitypowered.natives.encryption.JavaVelocityCipher;
+import com.velocitypowered.natives.encryption.VelocityCipherFactory;
+import com.velocitypowered.natives.util.Natives;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Selects between the pure Java implementations and the best native implementations available
+ * in {@link Natives}. Benchmarks take the variant as a {@code @Param} so both are measured in the
+ * same run.
+ *
+ * <p>If no native library is available for the current platform, {@link #NATIVE} falls back to
+ * the Java implementation, exactly like the proxy does, and reports the same numbers as
+ * {@link #JAVA}.
+ */
+public enum NativeVariant {
+  JAVA {
+    @Override
+    public VelocityCompressorFactory compressor() {
+      return JavaVelocityCompressor.FACTORY;
+    }
+
+    @Override
+    public VelocityCipherFactory cipher() {
+      return JavaVelocityCipher.FACTORY;
+    }
+  },
+  NATIVE {
+    @Override
+    public VelocityCompressorFactory compressor() {
+      return Natives.compress.get();
+    }
+
+    @Override
+    public VelocityCipherFactory cipher() {
+      return Natives.cipher.get();
+    }
+  };
+
+  /**
+   * A fixed AES key, so that runs are comparable between builds.
+   */
+  public static final SecretKey KEY = new SecretKeySpec(new byte[] {
+      0x56, 0x65, 0x6c, 0x6f, 0x63, 0x69, 0x74, 0x79, 0x20, 0x42, 0x65, 0x6e, 0x63, 0x68, 0x21, 0x21
+  }, "AES");
+
+  public abstract VelocityCompressorFactory compressor();
+
+  public abstract VelocityCipherFactory cipher();
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.netty.MinecraftCipherEncoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftCompressorAndLengthEncoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures each stage of the outbound pipeline of a player connection, and the stages chained
+ * together the way {@code MinecraftConnection} sets them up once compression is enabled.
+ *
+ * <p>One operation writes one tick of {@link PlayTraffic}, in the form the backend play session
+ * handler forwards it: decoded packets for what the proxy understands and raw buffers for the
+ * rest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OutboundPipelineBenchmark {
+
+  @Param({"MINECRAFT_1_12_2", "MINECRAFT_1_16_4", "MINECRAFT_1_20_3"})
+  public ProtocolVersion version;
+
+  @Param({"JAVA", "NATIVE"})
+  public NativeVariant variant;
+
+  @Param({"256"})
+  public int threshold;
+
+  private PlayTraffic traffic;
+  private List<Object> forwarded;
+  private ByteBuf wire;
+
+  private EmbeddedChannel encodeChannel;
+  private EmbeddedChannel compressChannel;
+  private EmbeddedChannel cipherChannel;
+  private EmbeddedChannel fullChannel;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    traffic = PlayTraffic.generate(version, 0x56454c4fL);
+    forwarded = PipelineFixtures.toForwardedMessages(traffic);
+    wire = PipelineFixtures.toWire(traffic, variant, threshold);
+
+    encodeChannel = new EmbeddedChannel(createEncoder());
+    compressChannel = new EmbeddedChannel(
+        new MinecraftCompressorAndLengthEncoder(threshold, variant.compressor().create(-1)));
+    cipherChannel = new EmbeddedChannel(
+        new MinecraftCipherEncoder(variant.cipher().forEncryption(NativeVariant.KEY)));
+    fullChannel = new EmbeddedChannel(
+        new MinecraftCompressorAndLengthEncoder(threshold, variant.compressor().create(-1)),
+        createEncoder());
+  }
+
+  private MinecraftEncoder createEncoder() {
+    MinecraftEncoder encoder = new MinecraftEncoder(ProtocolUtils.Direction.CLIENTBOUND);
+    encoder.setProtocolVersion(version);
+    encoder.setState(StateRegistry.PLAY);
+    return encoder;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    encodeChannel.finishAndReleaseAll();
+    compressChannel.finishAndReleaseAll();
+    cipherChannel.finishAndReleaseAll();
+    fullChannel.finishAndReleaseAll();
+    for (Object msg : forwarded) {
+      ReferenceCountUtil.release(msg);
+    }
+    wire.release();
+    traffic.release();
+  }
+
+  @Benchmark
+  public void minecraftEncoder(Blackhole bh) {
+    for (Object msg : forwarded) {
+      encodeChannel.write(PipelineFixtures.freshCopy(msg));
+    }
+    encodeChannel.flush();
+    PipelineFixtures.drainOutbound(encodeChannel, bh);
+  }
+
+  @Benchmark
+  public void compressorAndLengthEncoder(Blackhole bh) {
+    for (ByteBuf packet : traffic.getPackets()) {
+      compressChannel.write(packet.retainedDuplicate());
+    }
+    compressChannel.flush();
+    PipelineFixtures.drainOutbound(compressChannel, bh);
+  }
+
+  @Benchmark
+  public void cipherEncoder(Blackhole bh) {
+    cipherChannel.writeOutbound(wire.retainedDuplicate());
+    PipelineFixtures.drainOutbound(cipherChannel, bh);
+  }
+
+  @Benchmark
+  public void fullPipeline(Blackhole bh) {
+    for (Object msg : forwarded) {
+      fullChannel.write(PipelineFixtures.freshCopy(msg));
+    }
+    fullChannel.flush();
+    PipelineFixtures.drainOutbound(fullChannel, bh);
+  }
+
+  /**
+   * The same as {@link #fullPipeline}, with adjacent codec stages fused.
+   */
+  @Benchmark
+  @Fork(value = 2, jvmArgsAppend = "-Dvelocity.fused-codec=true")
+  public void fullPipelineFused(Blackhole bh) {
+    for (Object msg : forwarded) {
+      fullChannel.write(PipelineFixtures.freshCopy(msg));
+    }
+    fullChannel.flush();
+    PipelineFixtures.drainOutbound(fullChannel, bh);
+  }
+}
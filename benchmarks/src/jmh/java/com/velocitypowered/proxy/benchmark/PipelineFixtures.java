@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.netty.MinecraftCompressorAndLengthEncoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftDecoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftVarintFrameDecoder;
+import com.velocitypowered.proxy.protocol.packet.PluginMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Helpers shared by the pipeline benchmarks.
+ */
+final class PipelineFixtures {
+
+  private PipelineFixtures() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Frames and compresses the {@code traffic} exactly like the proxy would put it on the wire.
+   * The result is a single direct buffer, like the ones a socket read hands to the pipeline.
+   */
+  static ByteBuf toWire(PlayTraffic traffic, NativeVariant variant, int threshold) {
+    EmbeddedChannel channel = new EmbeddedChannel(
+        new MinecraftCompressorAndLengthEncoder(threshold, variant.compressor().create(-1)));
+    ByteBuf wire = Unpooled.directBuffer();
+    for (ByteBuf packet : traffic.getPackets()) {
+      channel.writeOutbound(packet.retainedDuplicate());
+    }
+    ByteBuf frame;
+    while ((frame = channel.readOutbound()) != null) {
+      wire.writeBytes(frame);
+      frame.release();
+    }
+    channel.finishAndReleaseAll();
+    return wire;
+  }
+
+  /**
+   * Splits the {@code wire} into frame bodies (everything after the length prefix).
+   */
+  static List<ByteBuf> toFrameBodies(ByteBuf wire) {
+    EmbeddedChannel channel = new EmbeddedChannel(new MinecraftVarintFrameDecoder());
+    channel.writeInbound(wire.retainedDuplicate());
+    List<ByteBuf> bodies = new ArrayList<>();
+    ByteBuf frame;
+    while ((frame = channel.readInbound()) != null) {
+      bodies.add(Unpooled.directBuffer(frame.readableBytes()).writeBytes(frame));
+      frame.release();
+    }
+    channel.finishAndReleaseAll();
+    return bodies;
+  }
+
+  /**
+   * Decodes the {@code traffic} the way a backend connection would, yielding the messages that
+   * {@code BackendPlaySessionHandler} forwards to the player: decoded packets for the packets the
+   * proxy knows about and raw buffers for everything else.
+   */
+  static List<Object> toForwardedMessages(PlayTraffic traffic) {
+    MinecraftDecoder decoder = new MinecraftDecoder(ProtocolUtils.Direction.CLIENTBOUND);
+    decoder.setProtocolVersion(traffic.getVersion());
+    decoder.setState(StateRegistry.PLAY);
+    EmbeddedChannel channel = new EmbeddedChannel(decoder);
+    for (ByteBuf packet : traffic.getPackets()) {
+      channel.writeInbound(packet.retainedDuplicate());
+    }
+    List<Object> messages = new ArrayList<>();
+    Object msg;
+    while ((msg = channel.readInbound()) != null) {
+      messages.add(msg);
+    }
+    channel.finishAndReleaseAll();
+    return messages;
+  }
+
+  /**
+   * Returns a copy of a forwarded message that can be written to a channel once, since encoders
+   * consume and release what they are handed.
+   */
+  static Object freshCopy(Object msg) {
+    if (msg instanceof ByteBuf) {
+      return ((ByteBuf) msg).retainedDuplicate();
+    }
+    if (msg instanceof PluginMessage) {
+      PluginMessage message = (PluginMessage) msg;
+      return new PluginMessage(message.getChannel(), message.content().retainedDuplicate());
+    }
+    return msg;
+  }
+
+  static void drainInbound(EmbeddedChannel channel, Blackhole bh) {
+    Object msg;
+    while ((msg = channel.readInbound()) != null) {
+      bh.consume(msg);
+      ReferenceCountUtil.release(msg);
+    }
+  }
+
+  static void drainOutbound(EmbeddedChannel channel, Blackhole bh) {
+    Object msg;
+    while ((msg = channel.readOutbound()) != null) {
+      bh.consume(msg);
+      ReferenceCountUtil.release(msg);
+    }
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.protocol.MinecraftPacket;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.packet.BossBar;
+import com.velocitypowered.proxy.protocol.packet.KeepAlive;
+import com.velocitypowered.proxy.protocol.packet.PluginMessage;
+import com.velocitypowered.proxy.protocol.packet.chat.ComponentHolder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import net.kyori.adventure.text.Component;
+
+/**
+ * A deterministic stream of clientbound PLAY packets, shaped like the traffic a backend server
+ * sends through the proxy during regular gameplay.
+ *
+ * <p>One "tick" of traffic contains a couple of large, compressible chunk payloads, a burst of
+ * tiny entity movement packets, some medium-sized metadata/sound packets and a handful of packets
+ * the proxy actually decodes (keep-alives, boss bars and plugin messages). Packets the proxy does
+ * not know about are given packet IDs that are not registered in {@link StateRegistry#PLAY} for
+ * the chosen version, so they take the same {@code handleUnknown} path as real chunk data.
+ */
+public final class PlayTraffic {
+
+  private static final int CHUNKS_PER_TICK = 2;
+  private static final int MOVES_PER_TICK = 40;
+  private static final int METADATA_PER_TICK = 16;
+
+  private final ProtocolVersion version;
+  private final List<ByteBuf> packets;
+
+  private PlayTraffic(ProtocolVersion version, List<ByteBuf> packets) {
+    this.version = version;
+    this.packets = packets;
+  }
+
+  /**
+   * Generates one tick worth of PLAY traffic for the specified {@code version}.
+   *
+   * @param version the protocol version to generate packets for
+   * @param seed the seed to use, so that runs are comparable between builds
+   * @return the generated traffic
+   */
+  public static PlayTraffic generate(ProtocolVersion version, long seed) {
+    StateRegistry.PacketRegistry.ProtocolRegistry registry = StateRegistry.PLAY
+        .getProtocolRegistry(ProtocolUtils.Direction.CLIENTBOUND, version);
+    int[] opaqueIds = findOpaqueIds(registry, 3);
+    Random random = new Random(seed);
+    List<ByteBuf> packets = new ArrayList<>();
+
+    for (int i = 0; i < CHUNKS_PER_TICK; i++) {
+      packets.add(opaque(opaqueIds[0], chunkLikePayload(random, 6144 + random.nextInt(6144))));
+    }
+    for (int i = 0; i < MOVES_PER_TICK; i++) {
+      packets.add(opaque(opaqueIds[1], randomPayload(random, 8 + random.nextInt(8))));
+      if (i % (MOVES_PER_TICK / METADATA_PER_TICK) == 0) {
+        packets.add(opaque(opaqueIds[2], randomPayload(random, 24 + random.nextInt(48))));
+      }
+    }
+
+    KeepAlive keepAlive = new KeepAlive();
+    keepAlive.setRandomId(random.nextLong());
+    packets.add(known(registry, keepAlive));
+
+    BossBar bossBar = new BossBar();
+    bossBar.setUuid(new UUID(random.nextLong(), random.nextLong()));
+    bossBar.setAction(BossBar.ADD);
+    bossBar.setName(new ComponentHolder(version, Component.text("Velocity benchmark")));
+    bossBar.setPercent(0.5f);
+    packets.add(known(registry, bossBar));
+
+    for (int i = 0; i < 2; i++) {
+      ByteBuf data = Unpooled.wrappedBuffer(randomPayload(random, 32 + random.nextInt(96)));
+      packets.add(known(registry, new PluginMessage("velocity:benchmark", data)));
+    }
+
+    return new PlayTraffic(version, packets);
+  }
+
+  private static int[] findOpaqueIds(StateRegistry.PacketRegistry.ProtocolRegistry registry,
+      int count) {
+    int[] ids = new int[count];
+    int found = 0;
+    for (int id = 0x20; found < count; id++) {
+      if (registry.createPacket(id) == null) {
+        ids[found++] = id;
+      }
+    }
+    return ids;
+  }
+
+  private static ByteBuf opaque(int id, byte[] payload) {
+    ByteBuf buf = Unpooled.buffer(payload.length + 5);
+    ProtocolUtils.writeVarInt(buf, id);
+    buf.writeBytes(payload);
+    return buf;
+  }
+
+  private static ByteBuf known(StateRegistry.PacketRegistry.ProtocolRegistry registry,
+      MinecraftPacket packet) {
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeVarInt(buf, registry.getPacketId(packet));
+    packet.encode(buf, ProtocolUtils.Direction.CLIENTBOUND, registry.version);
+    if (packet instanceof PluginMessage) {
+      ((PluginMessage) packet).release();
+    }
+    return buf;
+  }
+
+  private static byte[] chunkLikePayload(Random random, int length) {
+    // Chunk sections are dominated by small palette indices and long runs of the same block,
+    // which makes them compress roughly as well as real chunk data does.
+    byte[] payload = new byte[length];
+    int i = 0;
+    while (i < length) {
+      byte value = (byte) random.nextInt(8);
+      int run = Math.min(length - i, 1 + random.nextInt(32));
+      for (int j = 0; j < run; j++) {
+        payload[i++] = value;
+      }
+    }
+    return payload;
+  }
+
+  private static byte[] randomPayload(Random random, int length) {
+    byte[] payload = new byte[length];
+    random.nextBytes(payload);
+    return payload;
+  }
+
+  public ProtocolVersion getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the uncompressed packets (packet ID followed by the packet body). The returned buffers
+   * are shared and must not be released or modified by the caller.
+   *
+   * @return the uncompressed packets
+   */
+  public List<ByteBuf> getPackets() {
+    return packets;
+  }
+
+  /**
+   * Releases all packets held by this traffic sample.
+   */
+  public void release() {
+    for (ByteBuf packet : packets) {
+      packet.release();
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.velocitypowered.api.plugin.PluginContainer;
+import com.velocitypowered.api.plugin.PluginDescription;
+import com.velocitypowered.api.plugin.PluginManager;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import com.velocitypowered.proxy.scheduler.VelocityScheduler;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link VelocityScheduler} with the scheduler it replaced, a single-threaded
+ * {@link ScheduledThreadPoolExecutor} with tasks tracked in a synchronized multimap.
+ *
+ * <p>The scenario is the one plugins put the scheduler through the most: per-player timers, such
+ * as cooldowns, that are scheduled for a few seconds and usually cancelled before they run. One
+ * operation schedules {@code tasks} such timers and then cancels all of them, while
+ * {@code background} other timers are already pending.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SchedulerBenchmark {
+
+  private static final Object PLUGIN = new Object();
+
+  @Param({"1000"})
+  public int tasks;
+
+  @Param({"0", "50000"})
+  public int background;
+
+  private VelocityScheduler scheduler;
+  private DelayQueueScheduler delayQueueScheduler;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    scheduler = new VelocityScheduler(new SinglePluginManager());
+    delayQueueScheduler = new DelayQueueScheduler();
+    for (int i = 0; i < background; i++) {
+      scheduler.buildTask(PLUGIN, () -> { }).delay(1, TimeUnit.HOURS).schedule();
+      delayQueueScheduler.schedule(() -> { }, TimeUnit.HOURS.toMillis(1));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    scheduler.shutdown();
+    delayQueueScheduler.shutdown();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void wheel() {
+    scheduleAndCancelWheel();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void wheelContended() {
+    scheduleAndCancelWheel();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void delayQueue() {
+    scheduleAndCancelDelayQueue();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void delayQueueContended() {
+    scheduleAndCancelDelayQueue();
+  }
+
+  private void scheduleAndCancelWheel() {
+    List<ScheduledTask> scheduled = new ArrayList<>(tasks);
+    for (int i = 0; i < tasks; i++) {
+      scheduled.add(scheduler.buildTask(PLUGIN, () -> { }).delay(5, TimeUnit.SECONDS).schedule());
+    }
+    for (ScheduledTask task : scheduled) {
+      task.cancel();
+    }
+  }
+
+  private void scheduleAndCancelDelayQueue() {
+    List<DelayQueueScheduler.Task> scheduled = new ArrayList<>(tasks);
+    for (int i = 0; i < tasks; i++) {
+      scheduled.add(delayQueueScheduler.schedule(() -> { }, TimeUnit.SECONDS.toMillis(5)));
+    }
+    for (DelayQueueScheduler.Task task : scheduled) {
+      task.cancel();
+    }
+  }
+
+  /**
+   * The data structures of the scheduler before it moved to a timing wheel.
+   */
+  private static final class DelayQueueScheduler {
+
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+    private final Multimap<Object, Task> tasksByPlugin = Multimaps.synchronizedMultimap(
+        Multimaps.newSetMultimap(new IdentityHashMap<>(), HashSet::new));
+
+    Task schedule(Runnable runnable, long delay) {
+      Task task = new Task(runnable);
+      tasksByPlugin.put(PLUGIN, task);
+      task.future = timer.schedule(task, delay, TimeUnit.MILLISECONDS);
+      return task;
+    }
+
+    void shutdown() {
+      timer.shutdownNow();
+    }
+
+    private final class Task implements Runnable {
+
+      private final Runnable runnable;
+      private ScheduledFuture<?> future;
+
+      private Task(Runnable runnable) {
+        this.runnable = runnable;
+      }
+
+      @Override
+      public void run() {
+        ForkJoinPool.commonPool().execute(runnable);
+        tasksByPlugin.remove(PLUGIN, this);
+      }
+
+      void cancel() {
+        future.cancel(false);
+        tasksByPlugin.remove(PLUGIN, this);
+      }
+    }
+  }
+
+  private static final class SinglePluginManager implements PluginManager {
+
+    private final PluginContainer container = new PluginContainer() {
+      @Override
+      public PluginDescription getDescription() {
+        return () -> "benchmark";
+      }
+
+      @Override
+      public Optional<?> getInstance() {
+        return Optional.of(PLUGIN);
+      }
+
+      @Override
+      public ExecutorService getExecutorService() {
+        return ForkJoinPool.commonPool();
+      }
+    };
+
+    @Override
+    public Optional<PluginContainer> fromInstance(Object instance) {
+      return instance == PLUGIN ? Optional.of(container) : Optional.empty();
+    }
+
+    @Override
+    public Optional<PluginContainer> getPlugin(String id) {
+      return id.equals("benchmark") ? Optional.of(container) : Optional.empty();
+    }
+
+    @Override
+    public Collection<PluginContainer> getPlugins() {
+      return List.of(container);
+    }
+
+    @Override
+    public boolean isLoaded(String id) {
+      return id.equals("benchmark");
+    }
+
+    @Override
+    public void addToClasspath(Object plugin, Path path) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.benchmark;
+
+import com.velocitypowered.proxy.network.TransportType;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the epoll and io_uring transports on the traffic pattern of a proxy: many small writes,
+ * each flushed on its own, over loopback.
+ *
+ * <p>One operation writes and flushes {@code messages} buffers of {@code size} bytes to an echo
+ * server and waits until all of them came back. Both transports need Linux, and io_uring also
+ * needs a kernel recent enough to support it; the trial fails if the transport is not
+ * available.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TransportBenchmark {
+
+  @Param({"EPOLL", "IO_URING"})
+  public Transport transport;
+
+  @Param({"64"})
+  public int size;
+
+  @Param({"1", "64"})
+  public int messages;
+
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Channel server;
+  private Channel client;
+  private Receiver receiver;
+  private ByteBuf payload;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException {
+    if (!transport.type.isAvailable()) {
+      throw new IllegalStateException("The " + transport.type + " transport is not available");
+    }
+    bossGroup = transport.type.createEventLoopGroup(TransportType.Type.BOSS);
+    workerGroup = transport.type.createEventLoopGroup(TransportType.Type.WORKER);
+    payload = Unpooled.unreleasableBuffer(Unpooled.directBuffer(size).writeZero(size));
+
+    server = new ServerBootstrap()
+        .group(bossGroup, workerGroup)
+        .channel(transport.serverChannel)
+        .childOption(ChannelOption.TCP_NODELAY, true)
+        .childHandler(new Echo())
+        .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+        .sync()
+        .channel();
+
+    receiver = new Receiver();
+    client = new Bootstrap()
+        .group(workerGroup)
+        .channel(transport.channel)
+        .option(ChannelOption.TCP_NODELAY, true)
+        .handler(receiver)
+        .connect(server.localAddress())
+        .sync()
+        .channel();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    client.close().sync();
+    server.close().sync();
+    workerGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    bossGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+  }
+
+  @Benchmark
+  public void smallWrites() throws InterruptedException {
+    Promise<Void> done = client.eventLoop().newPromise();
+    client.eventLoop().execute(() -> {
+      receiver.expect((long) messages * size, done);
+      for (int i = 0; i < messages; i++) {
+        client.writeAndFlush(payload.duplicate(), client.voidPromise());
+      }
+    });
+    done.sync();
+  }
+
+  /**
+   * The transports under comparison.
+   */
+  public enum Transport {
+    EPOLL(TransportType.EPOLL, EpollServerSocketChannel.class, EpollSocketChannel.class),
+    IO_URING(TransportType.IO_URING, IOUringServerSocketChannel.class,
+        IOUringSocketChannel.class);
+
+    final TransportType type;
+    final Class<? extends ServerChannel> serverChannel;
+    final Class<? extends Channel> channel;
+
+    Transport(TransportType type, Class<? extends ServerChannel> serverChannel,
+        Class<? extends Channel> channel) {
+      this.type = type;
+      this.serverChannel = serverChannel;
+      this.channel = channel;
+    }
+  }
+
+  @ChannelHandler.Sharable
+  private static final class Echo extends ChannelInboundHandlerAdapter {
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      ctx.write(msg, ctx.voidPromise());
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+      ctx.flush();
+    }
+  }
+
+  private static final class Receiver extends ChannelInboundHandlerAdapter {
+
+    private long remaining;
+    private Promise<Void> done;
+
+    void expect(long bytes, Promise<Void> done) {
+      this.remaining = bytes;
+      this.done = done;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      remaining -= ((ByteBuf) msg).readableBytes();
+      ReferenceCountUtil.release(msg);
+      if (remaining <= 0 && done != null) {
+        Promise<Void> finished = done;
+        done = null;
+        finished.setSuccess(null);
+      }
+    }
+  }
+}
@@ -63,4 +63,18 @@ Java_com_velocitypowered_natives_encryption_OpenSslCipherImpl_process(JNIEnv *en
     jlong dest)
 {
     CCCryptorUpdate((CCCryptorRef) ptr, (byte*) source, len, (byte*) dest, len, NULL);
+}
+
+static void
+velocity_cipher_process(void *ctx, unsigned char *buf, int len)
+{
+    CCCryptorUpdate((CCCryptorRef) ctx, buf, len, buf, len, NULL);
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_velocitypowered_natives_encryption_OpenSslCipherImpl_processFunction(JNIEnv *env,
+    jclass clazz)
+{
+    velocity_cipher_fn fn = &velocity_cipher_process;
+    return (jlong) fn;
 }
\ No newline at end of file
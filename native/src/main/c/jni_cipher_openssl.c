@@ -59,4 +59,18 @@ Java_com_velocitypowered_natives_encryption_OpenSslCipherImpl_process(JNIEnv *en
     jlong dest)
 {
     EVP_CipherUpdate((EVP_CIPHER_CTX*) ptr, (byte*) dest, &len, (byte*) source, len);
+}
+
+static void
+velocity_cipher_process(void *ctx, unsigned char *buf, int len)
+{
+    EVP_CipherUpdate((EVP_CIPHER_CTX*) ctx, buf, &len, buf, len);
+}
+
+JNIEXPORT jlong JNICALL
+Java_com_velocitypowered_natives_encryption_OpenSslCipherImpl_processFunction(JNIEnv *env,
+    jclass clazz)
+{
+    velocity_cipher_fn fn = &velocity_cipher_process;
+    return (jlong) fn;
 }
\ No newline at end of file
@@ -1,4 +1,9 @@
 #include <jni.h>
 
 JNIEXPORT void JNICALL
-throwException(JNIEnv *env, const char *type, const char *msg);
\ No newline at end of file
+throwException(JNIEnv *env, const char *type, const char *msg);
+
+// Processes len bytes at buf in place with the cipher context ctx. Cipher libraries hand out a
+// pointer to such a function so that other natives can encrypt or decrypt without going back
+// through Java.
+typedef void (*velocity_cipher_fn)(void *ctx, unsigned char *buf, int len);
\ No newline at end of file
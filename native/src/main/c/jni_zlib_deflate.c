@@ -2,6 +2,7 @@
 #include <jni.h>
 #include <stdbool.h>
 #include <stdlib.h>
+#include <string.h>
 #include <libdeflate.h>
 #include "jni_util.h"
 
@@ -40,4 +41,117 @@ Java_com_velocitypowered_natives_compression_NativeZlibDeflate_process(JNIEnv *e
     size_t produced = libdeflate_zlib_compress(compressor, (void *) sourceAddress, sourceLength,
         (void *) destinationAddress, destinationLength);
     return (jlong) produced;
-}
\ No newline at end of file
+}
+
+JNIEXPORT jint JNICALL
+Java_com_velocitypowered_natives_compression_NativeZlibDeflate_processAndEncrypt(JNIEnv *env,
+    jclass clazz,
+    jlong ctx,
+    jlong sourceAddress,
+    jint sourceLength,
+    jlong frameAddress,
+    jint headerLength,
+    jint frameCapacity,
+    jlong cipherCtx,
+    jlong cipherFunction)
+{
+    struct libdeflate_compressor *compressor = (struct libdeflate_compressor *) ctx;
+    unsigned char *frame = (unsigned char *) frameAddress;
+    size_t produced = libdeflate_zlib_compress(compressor, (void *) sourceAddress, sourceLength,
+        frame + headerLength, frameCapacity - headerLength);
+    if (produced == 0) {
+        // Insufficient room - the caller will enlarge the buffer and try again.
+        return 0;
+    }
+
+    // The frame starts with a placeholder for its length, a VarInt padded to three bytes.
+    size_t length = headerLength - 3 + produced;
+    if (length >= (1 << 21)) {
+        throwException(env, "java/util/zip/DataFormatException", "compressed frame is too large");
+        return 0;
+    }
+    frame[0] = (unsigned char) ((length & 0x7F) | 0x80);
+    frame[1] = (unsigned char) (((length >> 7) & 0x7F) | 0x80);
+    frame[2] = (unsigned char) (length >> 14);
+
+    ((velocity_cipher_fn) cipherFunction)((void *) cipherCtx, frame, headerLength + produced);
+    return (jint) produced;
+}
+
+// The layout of a packet in a batch, see DeflateBatch.
+#define BATCH_SOURCE_ADDRESS 0
+#define BATCH_SOURCE_LENGTH 1
+#define BATCH_HEADER_LENGTH 2
+#define BATCH_COMPRESS 3
+#define BATCH_WRITTEN_LENGTH 4
+#define BATCH_ENTRY_SIZE 5
+
+JNIEXPORT jint JNICALL
+Java_com_velocitypowered_natives_compression_NativeZlibDeflate_processBatch(JNIEnv *env,
+    jclass clazz,
+    jlong ctx,
+    jlongArray entries,
+    jint start,
+    jint end,
+    jlong destinationAddress,
+    jint destinationLength)
+{
+    struct libdeflate_compressor *compressor = (struct libdeflate_compressor *) ctx;
+    unsigned char *destination = (unsigned char *) destinationAddress;
+    size_t remaining = (size_t) destinationLength;
+
+    // Copy the entries out instead of pinning the array: compressing a whole batch can take a
+    // while, and holding a critical region for that long would stall the garbage collector.
+    size_t count = (size_t) (end - start) * BATCH_ENTRY_SIZE;
+    jlong *batch = malloc(count * sizeof(jlong));
+    if (batch == NULL) {
+        throwException(env, "java/lang/OutOfMemoryError", "libdeflate batch entries");
+        return start;
+    }
+    (*env)->GetLongArrayRegion(env, entries, start * BATCH_ENTRY_SIZE, (jsize) count, batch);
+    if ((*env)->ExceptionCheck(env)) {
+        free(batch);
+        return start;
+    }
+
+    jint i;
+    for (i = start; i < end; i++) {
+        jlong *entry = batch + (size_t) (i - start) * BATCH_ENTRY_SIZE;
+        size_t headerLength = (size_t) entry[BATCH_HEADER_LENGTH];
+        size_t sourceLength = (size_t) entry[BATCH_SOURCE_LENGTH];
+        if (remaining < headerLength) {
+            break;
+        }
+
+        unsigned char *out = destination + headerLength;
+        size_t written;
+        if (entry[BATCH_COMPRESS]) {
+            written = libdeflate_zlib_compress(compressor, (void *) entry[BATCH_SOURCE_ADDRESS],
+                sourceLength, out, remaining - headerLength);
+            if (written == 0) {
+                break;
+            }
+        } else {
+            if (remaining - headerLength < sourceLength) {
+                break;
+            }
+            memcpy(out, (void *) entry[BATCH_SOURCE_ADDRESS], sourceLength);
+            written = sourceLength;
+        }
+
+        entry[BATCH_WRITTEN_LENGTH] = (jlong) written;
+        destination = out + written;
+        remaining -= headerLength + written;
+    }
+
+    // Hand back the written lengths of the packets that made it into the buffer.
+    if (i > start) {
+        (*env)->SetLongArrayRegion(env, entries, start * BATCH_ENTRY_SIZE,
+            (i - start) * BATCH_ENTRY_SIZE, batch);
+    }
+    free(batch);
+
+    // Insufficient room for the packet at i - the caller will enlarge the buffer and go on from
+    // there.
+    return i;
+}
@@ -27,17 +27,14 @@ Java_com_velocitypowered_natives_compression_NativeZlibInflate_free(JNIEnv *env,
     libdeflate_free_decompressor((struct libdeflate_decompressor *) ctx);
 }
 
-JNIEXPORT jboolean JNICALL
-Java_com_velocitypowered_natives_compression_NativeZlibInflate_process(JNIEnv *env,
-    jclass clazz,
-    jlong ctx,
+static jboolean
+inflate_fully(JNIEnv *env,
+    struct libdeflate_decompressor *decompress,
     jlong sourceAddress,
     jint sourceLength,
     jlong destinationAddress,
-    jint destinationLength,
-    jlong maximumSize)
+    jint destinationLength)
 {
-    struct libdeflate_decompressor *decompress = (struct libdeflate_decompressor *) ctx;
     enum libdeflate_result result = libdeflate_zlib_decompress(decompress, (void *) sourceAddress,
         sourceLength, (void *) destinationAddress, destinationLength, NULL);
 
@@ -58,4 +55,35 @@ Java_com_velocitypowered_natives_compression_NativeZlibInflate_process(JNIEnv *e
             throwException(env, "java/util/zip/DataFormatException", "unknown libdeflate return code");
             return JNI_FALSE;
     }
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_velocitypowered_natives_compression_NativeZlibInflate_process(JNIEnv *env,
+    jclass clazz,
+    jlong ctx,
+    jlong sourceAddress,
+    jint sourceLength,
+    jlong destinationAddress,
+    jint destinationLength,
+    jlong maximumSize)
+{
+    return inflate_fully(env, (struct libdeflate_decompressor *) ctx, sourceAddress, sourceLength,
+        destinationAddress, destinationLength);
+}
+
+JNIEXPORT jboolean JNICALL
+Java_com_velocitypowered_natives_compression_NativeZlibInflate_decryptAndProcess(JNIEnv *env,
+    jclass clazz,
+    jlong ctx,
+    jlong sourceAddress,
+    jint sourceLength,
+    jlong destinationAddress,
+    jint destinationLength,
+    jlong cipherCtx,
+    jlong cipherFunction)
+{
+    ((velocity_cipher_fn) cipherFunction)((void *) cipherCtx, (unsigned char *) sourceAddress,
+        sourceLength);
+    return inflate_fully(env, (struct libdeflate_decompressor *) ctx, sourceAddress, sourceLength,
+        destinationAddress, destinationLength);
 }
\ No newline at end of file
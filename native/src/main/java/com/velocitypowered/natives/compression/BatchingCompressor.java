@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.natives.compression;
+
+import io.netty.buffer.ByteBuf;
+import java.util.zip.DataFormatException;
+
+/**
+ * A {@link VelocityCompressor} that can compress many packets at once. Native implementations do
+ * so in a single call, so the cost of calling into native code is paid once per batch instead of
+ * once per packet.
+ */
+public interface BatchingCompressor extends VelocityCompressor {
+
+  /**
+   * Writes the packets in the {@code batch} one after another to {@code destination}, starting at
+   * its writer index. For each packet, the number of bytes given as its header length is skipped
+   * first. The buffers in the batch must be compatible with this compressor, and are not
+   * consumed.
+   *
+   * @param batch the packets to write
+   * @param destination the buffer to write to, enlarged as needed
+   * @throws DataFormatException if a packet could not be compressed
+   */
+  void deflateBatch(DeflateBatch batch, ByteBuf destination) throws DataFormatException;
+}
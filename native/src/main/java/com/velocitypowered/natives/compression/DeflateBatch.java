@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.natives.compression;
+
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+/**
+ * A batch of packets to be compressed, or copied as they are, one after another into the same
+ * buffer by a {@link BatchingCompressor}. Room is left in front of each packet for a header the
+ * caller fills in afterwards, once it knows how many bytes were written for the packet.
+ *
+ * <p>A batch is meant to be reused. It does not take ownership of the buffers added to it.</p>
+ */
+public final class DeflateBatch {
+
+  // Each packet is described by ENTRY_SIZE longs, so that native code reads them in one go.
+  static final int ENTRY_SIZE = 5;
+  static final int SOURCE_ADDRESS = 0;
+  static final int SOURCE_LENGTH = 1;
+  static final int HEADER_LENGTH = 2;
+  static final int COMPRESS = 3;
+  static final int WRITTEN_LENGTH = 4;
+
+  private ByteBuf[] sources = new ByteBuf[16];
+  private long[] entries = new long[16 * ENTRY_SIZE];
+  private int size;
+
+  /**
+   * Adds a packet to the batch.
+   *
+   * @param source the data of the packet
+   * @param headerLength the number of bytes to leave free in front of the packet
+   * @param compress whether to compress the packet, or copy it as it is
+   */
+  public void add(ByteBuf source, int headerLength, boolean compress) {
+    Preconditions.checkArgument(headerLength >= 0, "headerLength");
+    if (size == sources.length) {
+      sources = Arrays.copyOf(sources, size * 2);
+      entries = Arrays.copyOf(entries, size * 2 * ENTRY_SIZE);
+    }
+    int base = size * ENTRY_SIZE;
+    entries[base + SOURCE_LENGTH] = source.readableBytes();
+    entries[base + HEADER_LENGTH] = headerLength;
+    entries[base + COMPRESS] = compress ? 1 : 0;
+    entries[base + WRITTEN_LENGTH] = 0;
+    sources[size++] = source;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public ByteBuf getSource(int index) {
+    return sources[Preconditions.checkElementIndex(index, size)];
+  }
+
+  public int getHeaderLength(int index) {
+    return (int) entries[Preconditions.checkElementIndex(index, size) * ENTRY_SIZE
+        + HEADER_LENGTH];
+  }
+
+  public boolean isCompressed(int index) {
+    return entries[Preconditions.checkElementIndex(index, size) * ENTRY_SIZE + COMPRESS] != 0;
+  }
+
+  /**
+   * Returns the number of bytes written for the packet at {@code index}, not counting its header.
+   *
+   * @param index the index of the packet
+   * @return the number of bytes written
+   */
+  public int getWrittenLength(int index) {
+    return (int) entries[Preconditions.checkElementIndex(index, size) * ENTRY_SIZE
+        + WRITTEN_LENGTH];
+  }
+
+  void setWrittenLength(int index, int length) {
+    entries[index * ENTRY_SIZE + WRITTEN_LENGTH] = length;
+  }
+
+  long[] entries() {
+    return entries;
+  }
+
+  /**
+   * Writes the packets from {@code start} on by calling the {@code compressor} for each one.
+   */
+  void deflateEach(VelocityCompressor compressor, int start, ByteBuf destination)
+      throws DataFormatException {
+    for (int i = start; i < size; i++) {
+      ByteBuf source = sources[i];
+      int headerLength = getHeaderLength(i);
+      destination.ensureWritable(headerLength);
+      destination.writerIndex(destination.writerIndex() + headerLength);
+
+      int startPacket = destination.writerIndex();
+      if (isCompressed(i)) {
+        int readerIndex = source.readerIndex();
+        compressor.deflate(source, destination);
+        source.readerIndex(readerIndex);
+      } else {
+        destination.writeBytes(source, source.readerIndex(), source.readableBytes());
+      }
+      setWrittenLength(i, destination.writerIndex() - startPacket);
+    }
+  }
+
+  /**
+   * Removes all packets from the batch. The buffers are not released.
+   */
+  public void clear() {
+    Arrays.fill(sources, 0, size, null);
+    size = 0;
+  }
+}
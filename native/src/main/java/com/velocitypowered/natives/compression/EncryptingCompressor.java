@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.natives.compression;
+
+import com.velocitypowered.natives.encryption.VelocityCipher;
+import io.netty.buffer.ByteBuf;
+import java.util.zip.DataFormatException;
+
+/**
+ * A {@link VelocityCompressor} that can also encrypt what it deflates, or decrypt what it
+ * inflates, in the same pass. This saves a trip into native code and a pass over the data for
+ * every compressed packet on an encrypted connection.
+ */
+public interface EncryptingCompressor extends VelocityCompressor {
+
+  /**
+   * Returns whether this compressor can run the specified {@code cipher} itself.
+   *
+   * @param cipher the cipher to check
+   * @return whether {@link #deflateAndEncrypt} and {@link #decryptAndInflate} may be used with it
+   */
+  boolean canFuse(VelocityCipher cipher);
+
+  /**
+   * Appends a compressed frame to {@code destination} and encrypts it. The frame starts at
+   * {@code frameStart} and already contains its header up to the writer index of
+   * {@code destination}, beginning with three bytes reserved for its length. The compressed
+   * {@code source} is appended to the header, the length of everything following the reserved
+   * bytes is written into them as a three byte VarInt, and the whole frame is encrypted in place.
+   *
+   * @param source the data to compress
+   * @param destination the buffer holding the frame
+   * @param frameStart the index of the start of the frame in {@code destination}
+   * @param cipher the cipher to encrypt the frame with
+   * @throws DataFormatException if the frame is too large for its length to fit in three bytes
+   */
+  void deflateAndEncrypt(ByteBuf source, ByteBuf destination, int frameStart,
+      VelocityCipher cipher) throws DataFormatException;
+
+  /**
+   * Decrypts {@code source} in place and inflates it into {@code destination}.
+   *
+   * @param source the encrypted, compressed data
+   * @param destination the buffer to inflate into
+   * @param uncompressedSize the size of the data once inflated
+   * @param cipher the cipher to decrypt the data with
+   * @throws DataFormatException if the data could not be inflated
+   */
+  void decryptAndInflate(ByteBuf source, ByteBuf destination, int uncompressedSize,
+      VelocityCipher cipher) throws DataFormatException;
+}
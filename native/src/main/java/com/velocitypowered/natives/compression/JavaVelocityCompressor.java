@@ -31,7 +31,7 @@ import java.util.zip.Inflater;
 /**
  * Implements deflate compression by wrapping {@link Deflater} and {@link Inflater}.
  */
-public class JavaVelocityCompressor implements VelocityCompressor {
+public class JavaVelocityCompressor implements BatchingCompressor {
 
   public static final VelocityCompressorFactory FACTORY = JavaVelocityCompressor::new;
 
@@ -105,6 +105,11 @@ public class JavaVelocityCompressor implements VelocityCompressor {
     deflater.reset();
   }
 
+  @Override
+  public void deflateBatch(DeflateBatch batch, ByteBuf destination) throws DataFormatException {
+    batch.deflateEach(this, 0, destination);
+  }
+
   @Override
   public void close() {
     disposed = true;
@@ -18,6 +18,8 @@
 package com.velocitypowered.natives.compression;
 
 import com.google.common.base.Preconditions;
+import com.velocitypowered.natives.encryption.FusableCipher;
+import com.velocitypowered.natives.encryption.VelocityCipher;
 import com.velocitypowered.natives.util.BufferPreference;
 import io.netty.buffer.ByteBuf;
 import java.util.zip.DataFormatException;
@@ -25,10 +27,14 @@ import java.util.zip.DataFormatException;
 /**
  * Implements deflate compression using the {@code libdeflate} native C library.
  */
-public class LibdeflateVelocityCompressor implements VelocityCompressor {
+public class LibdeflateVelocityCompressor implements EncryptingCompressor, BatchingCompressor {
 
   public static final VelocityCompressorFactory FACTORY = LibdeflateVelocityCompressor::new;
 
+  // Cleared if the loaded library was built before the combined functions were added.
+  private static volatile boolean fusionAvailable = true;
+  private static volatile boolean batchAvailable = true;
+
   private final long inflateCtx;
   private final long deflateCtx;
   private boolean disposed = false;
@@ -83,6 +89,153 @@ public class LibdeflateVelocityCompressor implements VelocityCompressor {
     }
   }
 
+  @Override
+  public void deflateBatch(DeflateBatch batch, ByteBuf destination) throws DataFormatException {
+    ensureNotDisposed();
+    long[] entries = batch.entries();
+    for (int i = 0; i < batch.size(); i++) {
+      ByteBuf source = batch.getSource(i);
+      int base = i * DeflateBatch.ENTRY_SIZE;
+      entries[base + DeflateBatch.SOURCE_ADDRESS] = source.memoryAddress() + source.readerIndex();
+      entries[base + DeflateBatch.SOURCE_LENGTH] = source.readableBytes();
+    }
+
+    int next = 0;
+    while (next < batch.size()) {
+      if (!batchAvailable) {
+        batch.deflateEach(this, next, destination);
+        return;
+      }
+      long destinationAddress = destination.memoryAddress() + destination.writerIndex();
+      int done;
+      try {
+        done = NativeZlibDeflate.processBatch(deflateCtx, entries, next, batch.size(),
+            destinationAddress, destination.writableBytes());
+      } catch (UnsatisfiedLinkError e) {
+        batchAvailable = false;
+        continue;
+      }
+      int writerIndex = destination.writerIndex();
+      for (int i = next; i < done; i++) {
+        writerIndex += batch.getHeaderLength(i) + batch.getWrittenLength(i);
+      }
+      destination.writerIndex(writerIndex);
+      if (done < batch.size()) {
+        // Insufficient room for the next packet - enlarge the buffer.
+        destination.capacity(destination.capacity() * 2);
+      }
+      next = done;
+    }
+  }
+
+  @Override
+  public boolean canFuse(VelocityCipher cipher) {
+    return fusionAvailable && cipher instanceof FusableCipher
+        && ((FusableCipher) cipher).nativeProcessFunction() != 0;
+  }
+
+  @Override
+  public void deflateAndEncrypt(ByteBuf source, ByteBuf destination, int frameStart,
+      VelocityCipher cipher) throws DataFormatException {
+    ensureNotDisposed();
+    Preconditions.checkArgument(cipher instanceof FusableCipher,
+        "Cipher can not be combined with compression");
+    int headerLength = destination.writerIndex() - frameStart;
+    Preconditions.checkArgument(headerLength >= 3, "No room reserved for the frame length");
+    FusableCipher fusable = (FusableCipher) cipher;
+    if (!canFuse(fusable)) {
+      deflateThenEncrypt(source, destination, frameStart, cipher);
+      return;
+    }
+
+    while (true) {
+      long sourceAddress = source.memoryAddress() + source.readerIndex();
+      long frameAddress = destination.memoryAddress() + frameStart;
+
+      int produced;
+      try {
+        produced = NativeZlibDeflate.processAndEncrypt(deflateCtx, sourceAddress,
+            source.readableBytes(), frameAddress, headerLength, destination.capacity() - frameStart,
+            fusable.nativeContext(), fusable.nativeProcessFunction());
+      } catch (UnsatisfiedLinkError e) {
+        fusionAvailable = false;
+        deflateThenEncrypt(source, destination, frameStart, cipher);
+        return;
+      }
+      if (produced > 0) {
+        destination.writerIndex(destination.writerIndex() + produced);
+        break;
+      } else if (produced == 0) {
+        // Insufficient room - enlarge the buffer.
+        destination.capacity(destination.capacity() * 2);
+      } else {
+        throw new DataFormatException("libdeflate returned unknown code " + produced);
+      }
+    }
+  }
+
+  @Override
+  public void decryptAndInflate(ByteBuf source, ByteBuf destination, int uncompressedSize,
+      VelocityCipher cipher) throws DataFormatException {
+    ensureNotDisposed();
+    Preconditions.checkArgument(cipher instanceof FusableCipher,
+        "Cipher can not be combined with compression");
+    FusableCipher fusable = (FusableCipher) cipher;
+    if (!canFuse(fusable)) {
+      cipher.process(source);
+      inflate(source, destination, uncompressedSize);
+      return;
+    }
+    destination.ensureWritable(uncompressedSize);
+
+    long sourceAddress = source.memoryAddress() + source.readerIndex();
+    long destinationAddress = destination.memoryAddress() + destination.writerIndex();
+
+    try {
+      NativeZlibInflate.decryptAndProcess(inflateCtx, sourceAddress, source.readableBytes(),
+          destinationAddress, uncompressedSize, fusable.nativeContext(),
+          fusable.nativeProcessFunction());
+    } catch (UnsatisfiedLinkError e) {
+      fusionAvailable = false;
+      cipher.process(source);
+      inflate(source, destination, uncompressedSize);
+      return;
+    }
+    destination.writerIndex(destination.writerIndex() + uncompressedSize);
+  }
+
+  /**
+   * Does the same as {@link #deflateAndEncrypt} in separate steps, for native libraries built
+   * before the combined functions were added.
+   */
+  private void deflateThenEncrypt(ByteBuf source, ByteBuf destination, int frameStart,
+      VelocityCipher cipher) throws DataFormatException {
+    deflate(source, destination);
+    int length = destination.writerIndex() - frameStart - 3;
+    if (length >= 1 << 21) {
+      throw new DataFormatException("compressed frame is too large");
+    }
+    destination.setMedium(frameStart,
+        (length & 0x7F | 0x80) << 16 | ((length >>> 7) & 0x7F | 0x80) << 8 | (length >>> 14));
+    cipher.process(destination.slice(frameStart, destination.writerIndex() - frameStart));
+  }
+
+  /**
+   * Returns whether the loaded library has the combined deflate and encrypt functions. This is
+   * only known for sure once they have been called.
+   */
+  static boolean isFusionAvailable() {
+    return fusionAvailable;
+  }
+
+  /**
+   * Returns whether the loaded library has the batch deflate function. This is only known for sure
+   * once it has been called.
+   */
+  static boolean isBatchAvailable() {
+    return batchAvailable;
+  }
+
   private void ensureNotDisposed() {
     Preconditions.checkState(!disposed, "Object already disposed");
   }
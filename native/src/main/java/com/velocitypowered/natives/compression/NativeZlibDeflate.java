@@ -17,6 +17,8 @@
 
 package com.velocitypowered.natives.compression;
 
+import java.util.zip.DataFormatException;
+
 /**
  * Represents a native interface for zlib's deflate functions.
  */
@@ -28,4 +30,11 @@ class NativeZlibDeflate {
 
   static native int process(long ctx, long sourceAddress, int sourceLength, long destinationAddress,
       int destinationLength);
+
+  static native int processAndEncrypt(long ctx, long sourceAddress, int sourceLength,
+      long frameAddress, int headerLength, int frameCapacity, long cipherCtx,
+      long cipherFunction) throws DataFormatException;
+
+  static native int processBatch(long ctx, long[] entries, int start, int end,
+      long destinationAddress, int destinationLength);
 }
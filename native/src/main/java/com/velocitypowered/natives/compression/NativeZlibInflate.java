@@ -30,4 +30,8 @@ class NativeZlibInflate {
 
   static  native boolean process(long ctx, long sourceAddress, int sourceLength,
       long destinationAddress, int destinationLength) throws DataFormatException;
+
+  static native boolean decryptAndProcess(long ctx, long sourceAddress, int sourceLength,
+      long destinationAddress, int destinationLength, long cipherCtx, long cipherFunction)
+      throws DataFormatException;
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.natives.encryption;
+
+/**
+ * A {@link VelocityCipher} that native code can run directly, so that it can be combined with
+ * other native work on the same buffer, such as compression, in a single call.
+ */
+public interface FusableCipher extends VelocityCipher {
+
+  /**
+   * Returns the address of the native cipher context.
+   *
+   * @return the address of the context
+   */
+  long nativeContext();
+
+  /**
+   * Returns the address of a native function that processes a buffer in place, with the signature
+   * {@code void (void *ctx, unsigned char *buf, int len)}.
+   *
+   * @return the address of the function, or {@code 0} if the loaded native library does not
+   *         provide one
+   */
+  long nativeProcessFunction();
+}
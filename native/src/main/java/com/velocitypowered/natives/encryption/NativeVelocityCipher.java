@@ -26,7 +26,7 @@ import javax.crypto.SecretKey;
 /**
  * Implements AES-CFB8 encryption/decryption using a native library.
  */
-public class NativeVelocityCipher implements VelocityCipher {
+public class NativeVelocityCipher implements FusableCipher {
 
   public static final VelocityCipherFactory FACTORY = new VelocityCipherFactory() {
     @Override
@@ -40,10 +40,21 @@ public class NativeVelocityCipher implements VelocityCipher {
     }
   };
   private final long ctx;
+  private final long processFunction;
   private boolean disposed = false;
 
   private NativeVelocityCipher(boolean encrypt, SecretKey key) throws GeneralSecurityException {
     this.ctx = OpenSslCipherImpl.init(key.getEncoded(), encrypt);
+    this.processFunction = findProcessFunction();
+  }
+
+  private static long findProcessFunction() {
+    try {
+      return OpenSslCipherImpl.processFunction();
+    } catch (UnsatisfiedLinkError e) {
+      // Built before the function was added, so it can't be combined with other natives.
+      return 0;
+    }
   }
 
   @Override
@@ -56,6 +67,17 @@ public class NativeVelocityCipher implements VelocityCipher {
     OpenSslCipherImpl.process(ctx, base, len, base);
   }
 
+  @Override
+  public long nativeContext() {
+    ensureNotDisposed();
+    return ctx;
+  }
+
+  @Override
+  public long nativeProcessFunction() {
+    return processFunction;
+  }
+
   @Override
   public void close() {
     if (!disposed) {
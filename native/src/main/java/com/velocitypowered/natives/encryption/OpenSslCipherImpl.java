@@ -26,4 +26,6 @@ class OpenSslCipherImpl {
   static native void process(long ctx, long source, int len, long dest);
 
   static native void free(long ptr);
+
+  static native long processFunction();
 }
@@ -55,8 +55,9 @@ public class MoreByteBufUtils {
     switch (preferred) {
       case DIRECT_PREFERRED:
       case HEAP_PREFERRED:
-        // The native prefers this type, but doesn't strictly require we provide it.
-        return true;
+        // The native prefers this type, but doesn't strictly require we provide it. It does need
+        // a single backing buffer, which a composite buffer may not have.
+        return buf.nioBufferCount() == 1;
       case DIRECT_REQUIRED:
         return buf.hasMemoryAddress();
       case HEAP_REQUIRED:
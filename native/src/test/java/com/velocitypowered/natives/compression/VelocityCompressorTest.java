@@ -17,21 +17,29 @@
 
 package com.velocitypowered.natives.compression;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.junit.jupiter.api.condition.OS.LINUX;
 
+import com.velocitypowered.natives.encryption.FusableCipher;
+import com.velocitypowered.natives.encryption.JavaVelocityCipher;
+import com.velocitypowered.natives.encryption.VelocityCipher;
+import com.velocitypowered.natives.encryption.VelocityCipherFactory;
 import com.velocitypowered.natives.util.BufferPreference;
 import com.velocitypowered.natives.util.Natives;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.util.Random;
 import java.util.function.Supplier;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import javax.crypto.spec.SecretKeySpec;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledOnOs;
@@ -77,6 +85,204 @@ class VelocityCompressorTest {
     check(compressor, () -> Unpooled.buffer(TEST_DATA.length + 32));
   }
 
+  @Test
+  @EnabledOnOs({LINUX})
+  void nativeBatchIntegrityCheck() throws DataFormatException {
+    VelocityCompressor compressor = Natives.compress.get().create(Deflater.DEFAULT_COMPRESSION);
+    assumeTrue(compressor instanceof BatchingCompressor);
+    checkBatch((BatchingCompressor) compressor, Unpooled::directBuffer);
+  }
+
+  @Test
+  void javaBatchIntegrityCheck() throws DataFormatException {
+    checkBatch((BatchingCompressor) JavaVelocityCompressor.FACTORY
+        .create(Deflater.DEFAULT_COMPRESSION), Unpooled::buffer);
+  }
+
+  @Test
+  @EnabledOnOs({LINUX})
+  void nativeBatchMatchesDeflate() throws DataFormatException {
+    VelocityCompressor compressor = Natives.compress.get().create(Deflater.DEFAULT_COMPRESSION);
+    int[] sizes = {300, 17, 4096, 0, TEST_DATA.length, 1};
+    DeflateBatch batch = new DeflateBatch();
+    for (int i = 0; i < sizes.length; i++) {
+      batch.add(Unpooled.directBuffer().writeBytes(TEST_DATA, 0, sizes[i]), i % 4, i != 1);
+    }
+    ByteBuf dest = Unpooled.directBuffer(TEST_DATA.length * 2);
+    ByteBuf single = Unpooled.directBuffer(TEST_DATA.length + 32);
+
+    try {
+      assumeTrue(compressor instanceof BatchingCompressor, "No native compression");
+      ((BatchingCompressor) compressor).deflateBatch(batch, dest);
+      assertTrue(LibdeflateVelocityCompressor.isBatchAvailable(),
+          "velocity-compress lacks processBatch, rebuild it with compile-linux.sh");
+
+      // Each packet must sit right after its header, where deflating it on its own would put it.
+      int offset = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        ByteBuf source = batch.getSource(i);
+        single.clear();
+        if (batch.isCompressed(i)) {
+          compressor.deflate(source.duplicate(), single);
+        } else {
+          single.writeBytes(source, source.readerIndex(), source.readableBytes());
+        }
+        offset += batch.getHeaderLength(i);
+        assertEquals(single.readableBytes(), batch.getWrittenLength(i));
+        assertTrue(ByteBufUtil.equals(single, dest.slice(offset, batch.getWrittenLength(i))),
+            "packet " + i + " differs from deflating it on its own");
+        offset += batch.getWrittenLength(i);
+      }
+      assertEquals(offset, dest.writerIndex());
+    } finally {
+      for (int i = 0; i < batch.size(); i++) {
+        batch.getSource(i).release();
+      }
+      dest.release();
+      single.release();
+      compressor.close();
+    }
+  }
+
+  private void checkBatch(BatchingCompressor compressor, Supplier<ByteBuf> bufSupplier)
+      throws DataFormatException {
+    int[] sizes = {300, 17, 4096, 0, TEST_DATA.length};
+    DeflateBatch batch = new DeflateBatch();
+    for (int i = 0; i < sizes.length; i++) {
+      ByteBuf source = bufSupplier.get().writeBytes(TEST_DATA, 0, sizes[i]);
+      batch.add(source, i, i % 2 == 0);
+    }
+    // Start out too small, so that the compressor has to enlarge the buffer in the middle.
+    ByteBuf dest = bufSupplier.get().capacity(64);
+    ByteBuf decompressed = bufSupplier.get();
+
+    try {
+      compressor.deflateBatch(batch, dest);
+      for (int i = 0; i < batch.size(); i++) {
+        ByteBuf source = batch.getSource(i);
+        assertEquals(sizes[i], source.readableBytes());
+        dest.skipBytes(batch.getHeaderLength(i));
+        ByteBuf written = dest.readSlice(batch.getWrittenLength(i));
+        if (batch.isCompressed(i)) {
+          decompressed.clear();
+          compressor.inflate(written, decompressed, sizes[i]);
+          assertTrue(ByteBufUtil.equals(source, decompressed));
+        } else {
+          assertTrue(ByteBufUtil.equals(source, written));
+        }
+      }
+      assertEquals(0, dest.readableBytes());
+    } finally {
+      for (int i = 0; i < batch.size(); i++) {
+        batch.getSource(i).release();
+      }
+      dest.release();
+      decompressed.release();
+      compressor.close();
+    }
+  }
+
+  @Test
+  @EnabledOnOs({LINUX})
+  void nativeEncryptingIntegrityCheck() throws DataFormatException, GeneralSecurityException {
+    VelocityCompressor compressor = Natives.compress.get().create(Deflater.DEFAULT_COMPRESSION);
+    VelocityCipherFactory ciphers = Natives.cipher.get();
+    SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+    VelocityCipher encrypt = ciphers.forEncryption(key);
+    VelocityCipher decrypt = ciphers.forDecryption(key);
+
+    ByteBuf source = Unpooled.directBuffer(TEST_DATA.length).writeBytes(TEST_DATA);
+    ByteBuf frame = Unpooled.directBuffer(TEST_DATA.length + 32);
+    ByteBuf decompressed = Unpooled.directBuffer(TEST_DATA.length);
+    try {
+      assumeTrue(compressor instanceof EncryptingCompressor
+          && ((EncryptingCompressor) compressor).canFuse(encrypt));
+      EncryptingCompressor encrypting = (EncryptingCompressor) compressor;
+
+      frame.writeMedium(0); // room for the length
+      encrypting.deflateAndEncrypt(source, frame, 0, encrypt);
+
+      // Like the proxy would, decrypt the length first and the rest of the frame after it.
+      ByteBuf length = frame.readSlice(3);
+      decrypt.process(length);
+      int frameLength = (length.getByte(0) & 0x7F) | (length.getByte(1) & 0x7F) << 7
+          | (length.getByte(2) & 0x7F) << 14;
+      assertEquals(frame.readableBytes(), frameLength);
+
+      encrypting.decryptAndInflate(frame, decompressed, TEST_DATA.length, decrypt);
+      assertTrue(ByteBufUtil.equals(source, decompressed));
+    } finally {
+      source.release();
+      frame.release();
+      decompressed.release();
+      compressor.close();
+      encrypt.close();
+      decrypt.close();
+    }
+  }
+
+  @Test
+  @EnabledOnOs({LINUX})
+  void nativeEncryptingMatchesJava() throws DataFormatException, GeneralSecurityException {
+    VelocityCompressor compressor = Natives.compress.get().create(Deflater.DEFAULT_COMPRESSION);
+    VelocityCompressor javaCompressor = JavaVelocityCompressor.FACTORY
+        .create(Deflater.DEFAULT_COMPRESSION);
+    SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+    VelocityCipher nativeEncrypt = Natives.cipher.get().forEncryption(key);
+    VelocityCipher nativeDecrypt = Natives.cipher.get().forDecryption(key);
+    VelocityCipher javaEncrypt = JavaVelocityCipher.FACTORY.forEncryption(key);
+    VelocityCipher javaDecrypt = JavaVelocityCipher.FACTORY.forDecryption(key);
+
+    ByteBuf source = Unpooled.directBuffer(TEST_DATA.length).writeBytes(TEST_DATA);
+    ByteBuf frame = Unpooled.directBuffer(TEST_DATA.length + 32);
+    ByteBuf compressed = Unpooled.directBuffer(TEST_DATA.length + 32);
+    ByteBuf decompressed = Unpooled.directBuffer(TEST_DATA.length);
+    try {
+      assumeTrue(compressor instanceof EncryptingCompressor, "No native compression");
+      assumeTrue(nativeEncrypt instanceof FusableCipher, "No native encryption");
+      EncryptingCompressor encrypting = (EncryptingCompressor) compressor;
+      assertTrue(encrypting.canFuse(nativeEncrypt),
+          "velocity-cipher lacks processFunction, rebuild it with compile-linux.sh");
+
+      // Deflated and encrypted natively, decrypted and inflated by Java.
+      frame.writeMedium(0); // room for the length
+      encrypting.deflateAndEncrypt(source.duplicate(), frame, 0, nativeEncrypt);
+      assertTrue(LibdeflateVelocityCompressor.isFusionAvailable(),
+          "velocity-compress lacks processAndEncrypt, rebuild it with compile-linux.sh");
+      ByteBuf heapFrame = Unpooled.copiedBuffer(frame);
+      javaDecrypt.process(heapFrame);
+      int frameLength = (heapFrame.getByte(0) & 0x7F) | (heapFrame.getByte(1) & 0x7F) << 7
+          | (heapFrame.getByte(2) & 0x7F) << 14;
+      assertEquals(heapFrame.readableBytes() - 3, frameLength);
+      javaCompressor.inflate(heapFrame.skipBytes(3), decompressed, TEST_DATA.length);
+      heapFrame.release();
+      assertTrue(ByteBufUtil.equals(source, decompressed));
+
+      // Deflated and encrypted by Java, decrypted and inflated natively.
+      javaCompressor.deflate(source.duplicate(), compressed);
+      ByteBuf heapCompressed = Unpooled.copiedBuffer(compressed);
+      javaEncrypt.process(heapCompressed);
+      compressed.clear().writeBytes(heapCompressed);
+      heapCompressed.release();
+      decompressed.clear();
+      encrypting.decryptAndInflate(compressed, decompressed, TEST_DATA.length, nativeDecrypt);
+      assertTrue(LibdeflateVelocityCompressor.isFusionAvailable(),
+          "velocity-compress lacks decryptAndProcess, rebuild it with compile-linux.sh");
+      assertTrue(ByteBufUtil.equals(source, decompressed));
+    } finally {
+      source.release();
+      frame.release();
+      compressed.release();
+      decompressed.release();
+      compressor.close();
+      javaCompressor.close();
+      nativeEncrypt.close();
+      nativeDecrypt.close();
+      javaEncrypt.close();
+      javaDecrypt.close();
+    }
+  }
+
   private void check(VelocityCompressor compressor, Supplier<ByteBuf> bufSupplier)
       throws DataFormatException {
     ByteBuf source = bufSupplier.get();
@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyPingEvent;
 import com.velocitypowered.api.event.proxy.ProxyReloadEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.network.ProtocolVersion;
@@ -44,14 +45,22 @@ import com.velocitypowered.proxy.command.builtin.ShutdownCommand;
 import com.velocitypowered.proxy.command.builtin.VelocityCommand;
 import com.velocitypowered.proxy.config.VelocityConfiguration;
 import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import com.velocitypowered.proxy.connection.client.SessionServerClient;
 import com.velocitypowered.proxy.connection.player.VelocityResourcePackInfo;
+import com.velocitypowered.proxy.connection.util.BackendPingPoller;
+import com.velocitypowered.proxy.connection.util.BroadcastPacketCache;
+import com.velocitypowered.proxy.connection.util.CompressorPool;
 import com.velocitypowered.proxy.connection.util.ServerListPingHandler;
+import com.velocitypowered.proxy.connection.util.StatusResponseCache;
 import com.velocitypowered.proxy.console.VelocityConsole;
+import com.velocitypowered.proxy.crypto.CryptoExecutor;
 import com.velocitypowered.proxy.crypto.EncryptionUtils;
 import com.velocitypowered.proxy.event.VelocityEventManager;
 import com.velocitypowered.proxy.network.ConnectionManager;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics;
 import com.velocitypowered.proxy.plugin.VelocityPluginManager;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.packet.chat.ChatType;
 import com.velocitypowered.proxy.protocol.util.FaviconSerializer;
 import com.velocitypowered.proxy.protocol.util.GameProfileSerializer;
 import com.velocitypowered.proxy.scheduler.VelocityScheduler;
@@ -61,6 +70,8 @@ import com.velocitypowered.proxy.util.ClosestLocaleMatcher;
 import com.velocitypowered.proxy.util.ResourceUtils;
 import com.velocitypowered.proxy.util.VelocityChannelRegistrar;
 import com.velocitypowered.proxy.util.bossbar.AdventureBossBarManager;
+import com.velocitypowered.proxy.util.concurrent.PinnedThreadMonitor;
+import com.velocitypowered.proxy.util.concurrent.VirtualThreads;
 import com.velocitypowered.proxy.util.ratelimit.Ratelimiter;
 import com.velocitypowered.proxy.util.ratelimit.Ratelimiters;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -76,6 +87,7 @@ import java.nio.file.Path;
 import java.security.AccessController;
 import java.security.KeyPair;
 import java.security.PrivilegedAction;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Locale;
@@ -94,6 +106,8 @@ import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.audience.ForwardingAudience;
+import net.kyori.adventure.audience.MessageType;
+import net.kyori.adventure.identity.Identity;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.translation.GlobalTranslator;
@@ -156,10 +170,15 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
   private final Map<String, ConnectedPlayer> connectionsByName = new ConcurrentHashMap<>();
   private final VelocityConsole console;
   private @MonotonicNonNull Ratelimiter ipAttemptLimiter;
+  private @MonotonicNonNull SessionServerClient sessionServerClient;
+  private @MonotonicNonNull StatusResponseCache statusResponseCache;
   private final VelocityEventManager eventManager;
   private final VelocityScheduler scheduler;
   private final VelocityChannelRegistrar channelRegistrar = new VelocityChannelRegistrar();
   private ServerListPingHandler serverListPingHandler;
+  private @Nullable PinnedThreadMonitor pinnedThreadMonitor;
+  private final CryptoExecutor cryptoExecutor = new CryptoExecutor();
+  private final CompressorPool broadcastCompressors = new CompressorPool();
 
   VelocityServer(final ProxyOptions options) {
     pluginManager = new VelocityPluginManager(this);
@@ -169,9 +188,10 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
     console = new VelocityConsole(this);
     cm = new ConnectionManager(this);
     servers = new ServerMap(this);
-    serverListPingHandler = new ServerListPingHandler(this);
+    serverListPingHandler = new ServerListPingHandler(this,
+        new BackendPingPoller(this, cm.getWorkerGroup()));
     this.options = options;
-    this.bossBarManager = new AdventureBossBarManager();
+    this.bossBarManager = new AdventureBossBarManager(this);
   }
 
   public KeyPair getServerKeyPair() {
@@ -183,6 +203,20 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
     return this.configuration;
   }
 
+  @Override
+  public VelocityNetworkMetrics getNetworkMetrics() {
+    return this.cm.getNetworkMetrics();
+  }
+
+  /**
+   * Returns the monitor watching for pinned virtual threads.
+   *
+   * @return the monitor, or {@code null} if virtual threads are not enabled
+   */
+  public @Nullable PinnedThreadMonitor getPinnedThreadMonitor() {
+    return pinnedThreadMonitor;
+  }
+
   @Override
   public ProxyVersion getVersion() {
     Package pkg = VelocityServer.class.getPackage();
@@ -222,6 +256,10 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
     serverKeyPair = EncryptionUtils.createRsaKeyPair(1024);
 
     cm.logChannelInformation();
+    if (VirtualThreads.isEnabled()) {
+      logger.info("Event handlers and plugin tasks will run on virtual threads.");
+      pinnedThreadMonitor = PinnedThreadMonitor.start();
+    }
 
     // Initialize commands first
     commandManager.register("velocity", new VelocityCommand(this));
@@ -238,6 +276,8 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
     }
 
     ipAttemptLimiter = Ratelimiters.createWithMilliseconds(configuration.getLoginRatelimit());
+    sessionServerClient = createSessionServerClient(configuration);
+    statusResponseCache = createStatusResponseCache(configuration);
     loadPlugins();
 
     // Go ahead and fire the proxy initialization event. We block since plugins should have a chance
@@ -259,6 +299,11 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
       this.cm.queryBind(configuration.getBind().getHostString(), configuration.getQueryPort());
     }
 
+    eventManager.setTimingEnabled(configuration.getPrometheus().isEnabled());
+    if (configuration.getPrometheus().isEnabled()) {
+      this.cm.metricsBind(configuration.getPrometheus().getBind());
+    }
+
     Metrics.VelocityMetrics.startMetrics(this, configuration.getMetrics());
   }
 
@@ -480,8 +525,22 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
           newConfiguration.getQueryPort());
     }
 
+    boolean metricsAlreadyEnabled = configuration.getPrometheus().isEnabled();
+    boolean metricsEnabled = newConfiguration.getPrometheus().isEnabled();
+    boolean metricsBindChanged = !configuration.getPrometheus().getBind()
+        .equals(newConfiguration.getPrometheus().getBind());
+    if (metricsAlreadyEnabled && (!metricsEnabled || metricsBindChanged)) {
+      this.cm.close(configuration.getPrometheus().getBind());
+    }
+    if (metricsEnabled && (!metricsAlreadyEnabled || metricsBindChanged)) {
+      this.cm.metricsBind(newConfiguration.getPrometheus().getBind());
+    }
+    eventManager.setTimingEnabled(metricsEnabled);
+
     commandManager.setAnnounceProxyCommands(newConfiguration.isAnnounceProxyCommands());
     ipAttemptLimiter = Ratelimiters.createWithMilliseconds(newConfiguration.getLoginRatelimit());
+    sessionServerClient = createSessionServerClient(newConfiguration);
+    statusResponseCache = createStatusResponseCache(newConfiguration);
     this.configuration = newConfiguration;
     eventManager.fireAndForget(new ProxyReloadEvent());
     return true;
@@ -538,6 +597,12 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
         timedOut = !eventManager.shutdown() || timedOut;
         timedOut = !scheduler.shutdown() || timedOut;
 
+        if (pinnedThreadMonitor != null) {
+          pinnedThreadMonitor.close();
+        }
+        cryptoExecutor.shutdown();
+        broadcastCompressors.close();
+
         if (timedOut) {
           logger.error("Your plugins took over 10 seconds to shut down.");
         }
@@ -603,6 +668,30 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
     return ipAttemptLimiter;
   }
 
+  public CryptoExecutor getCryptoExecutor() {
+    return cryptoExecutor;
+  }
+
+  public SessionServerClient getSessionServerClient() {
+    return sessionServerClient;
+  }
+
+  private SessionServerClient createSessionServerClient(VelocityConfiguration configuration) {
+    return new SessionServerClient(cm.getHttpClient(), SessionServerClient.DEFAULT_ENDPOINT,
+        configuration.shouldPreventClientProxyConnections(),
+        Duration.ofMillis(configuration.getSessionServerCacheTtl()),
+        configuration.isSessionServerFallback());
+  }
+
+  public StatusResponseCache getStatusResponseCache() {
+    return statusResponseCache;
+  }
+
+  private StatusResponseCache createStatusResponseCache(VelocityConfiguration configuration) {
+    return new StatusResponseCache(Duration.ofMillis(configuration.getStatusCacheTtl()),
+        () -> eventManager.areAllSubscribersStable(ProxyPingEvent.class));
+  }
+
   /**
    * Checks if the {@code connection} can be registered with the proxy.
    *
@@ -766,6 +855,43 @@ public class VelocityServer implements ProxyServer, ForwardingAudience {
     return audiences;
   }
 
+  @Override
+  public void sendMessage(@NonNull Component message) {
+    this.sendMessage(Identity.nil(), message);
+  }
+
+  @Override
+  public void sendMessage(@NonNull Identity source, @NonNull Component message) {
+    this.console.sendMessage(source, message);
+    this.broadcastMessage(source, message, null);
+  }
+
+  @Override
+  public void sendMessage(@NonNull Identity source, @NonNull Component message,
+      @NonNull MessageType type) {
+    this.console.sendMessage(source, message, type);
+    this.broadcastMessage(source, message,
+        type == MessageType.CHAT ? ChatType.CHAT : ChatType.SYSTEM);
+  }
+
+  private void broadcastMessage(Identity source, Component message, @Nullable ChatType type) {
+    try (BroadcastPacketCache cache = createBroadcastPacketCache()) {
+      for (ConnectedPlayer player : connectionsByUuid.values()) {
+        player.sendMessage(source, message, type, cache);
+      }
+    }
+  }
+
+  /**
+   * Creates a cache for packets that are sent to many players at once. The cache must be closed
+   * once the packets have been sent.
+   *
+   * @return a new broadcast packet cache
+   */
+  public BroadcastPacketCache createBroadcastPacketCache() {
+    return new BroadcastPacketCache(broadcastCompressors, configuration.getCompressionLevel());
+  }
+
   public AdventureBossBarManager getBossBarManager() {
     return bossBarManager;
   }
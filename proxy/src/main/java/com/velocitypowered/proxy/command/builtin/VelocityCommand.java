@@ -24,9 +24,12 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
+import com.velocitypowered.api.network.ConnectionMetrics;
+import com.velocitypowered.api.network.NetworkMetrics;
 import com.velocitypowered.api.permission.Tristate;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.PluginDescription;
+import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.util.ProxyVersion;
@@ -43,13 +46,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
@@ -93,6 +102,7 @@ public class VelocityCommand implements SimpleCommand {
         .put("reload", new Reload(server))
         .put("dump", new Dump(server))
         .put("heap", new Heap())
+        .put("metrics", new Metrics(server))
         .build();
   }
 
@@ -485,4 +495,141 @@ public class VelocityCommand implements SimpleCommand {
     }
 
   }
+
+  private static class Metrics implements SubCommand {
+
+    private static final int TOP_CONNECTIONS = 5;
+    private final ProxyServer server;
+
+    private Metrics(ProxyServer server) {
+      this.server = server;
+    }
+
+    @Override
+    public void execute(CommandSource source, String @NonNull [] args) {
+      if (args.length != 0) {
+        source.sendMessage(Component.text("/velocity metrics", NamedTextColor.RED));
+        return;
+      }
+
+      NetworkMetrics metrics = server.getNetworkMetrics();
+      ConnectionMetrics totals = metrics.getTotals();
+      source.sendMessage(Component.text("Network totals", NamedTextColor.YELLOW));
+      source.sendMessage(Component.text("Received: " + totals.getPacketsReceived() + " packets, "
+          + formatBytes(totals.getBytesReceived()) + " ("
+          + formatBytes(totals.getUncompressedBytesReceived()) + " uncompressed)"));
+      source.sendMessage(Component.text("Sent: " + totals.getPacketsSent() + " packets, "
+          + formatBytes(totals.getBytesSent()) + " ("
+          + formatBytes(totals.getUncompressedBytesSent()) + " uncompressed)"));
+      source.sendMessage(Component.text("Time spent: "
+          + formatNanos(totals.getInflateNanos()) + " inflating, "
+          + formatNanos(totals.getDeflateNanos()) + " deflating, "
+          + formatNanos(totals.getCipherNanos()) + " on encryption"));
+      source.sendMessage(Component.text("Write buffer high water mark exceeded "
+          + totals.getWriteBufferHighWaterMarkEvents() + " times"));
+      source.sendMessage(Component.text("Flushes: " + totals.getFlushes() + ", "
+          + totals.getCoalescedWrites() + " saved by coalescing writes"));
+
+      source.sendMessage(Component.text("Distributions (p50 / p99 / max)",
+          NamedTextColor.YELLOW));
+      source.sendMessage(Component.text("Packet size received: "
+          + formatHistogram(metrics.getPacketSizesReceived(), Metrics::formatBytes)));
+      source.sendMessage(Component.text("Packet size sent: "
+          + formatHistogram(metrics.getPacketSizesSent(), Metrics::formatBytes)));
+      source.sendMessage(Component.text("Compression time: "
+          + formatHistogram(metrics.getCompressionTimes(), Metrics::formatNanos)));
+
+      List<PlayerMetrics> players = new ArrayList<>();
+      for (Player player : server.getAllPlayers()) {
+        metrics.getMetrics(player).ifPresent(client -> players.add(new PlayerMetrics(player,
+            client, player.getCurrentServer().flatMap(metrics::getMetrics))));
+      }
+      if (players.isEmpty()) {
+        return;
+      }
+
+      source.sendMessage(Component.text("Top players by traffic", NamedTextColor.YELLOW));
+      sendTop(source, players, PlayerMetrics::bytes);
+      source.sendMessage(Component.text("Top players by CPU time", NamedTextColor.YELLOW));
+      sendTop(source, players, PlayerMetrics::nanos);
+    }
+
+    private static void sendTop(CommandSource source, List<PlayerMetrics> players,
+        ToLongFunction<PlayerMetrics> key) {
+      players.stream()
+          .sorted(Comparator.comparingLong(key).reversed())
+          .limit(TOP_CONNECTIONS)
+          .forEach(player -> source.sendMessage(Component.text()
+              .content(player.player.getUsername() + ": ")
+              .append(Component.text(formatConnection(player.client), NamedTextColor.GRAY)
+                  .hoverEvent(HoverEvent.showText(Component.text("Player connection"))))
+              .append(Component.text(player.server.map(server -> " | " + formatConnection(server))
+                  .orElse(""), NamedTextColor.DARK_GRAY)
+                  .hoverEvent(HoverEvent.showText(Component.text("Server connection"))))
+              .build()));
+    }
+
+    private static String formatConnection(ConnectionMetrics metrics) {
+      return formatBytes(metrics.getBytesReceived()) + " in, "
+          + formatBytes(metrics.getBytesSent()) + " out, "
+          + formatNanos(cpuNanos(metrics)) + " CPU";
+    }
+
+    private static String formatHistogram(NetworkMetrics.Histogram histogram,
+        LongFunction<String> format) {
+      return format.apply(histogram.getValueAtPercentile(50)) + " / "
+          + format.apply(histogram.getValueAtPercentile(99)) + " / "
+          + format.apply(histogram.getMax());
+    }
+
+    private static long cpuNanos(ConnectionMetrics metrics) {
+      return metrics.getInflateNanos() + metrics.getDeflateNanos() + metrics.getCipherNanos();
+    }
+
+    private static String formatBytes(long bytes) {
+      if (bytes < 1024) {
+        return bytes + " B";
+      }
+      int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+      return String.format(Locale.ROOT, "%.1f %siB", bytes / (double) (1L << (unit * 10)),
+          "KMGTPE".charAt(unit - 1));
+    }
+
+    private static String formatNanos(long nanos) {
+      if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+        return String.format(Locale.ROOT, "%.1f µs", nanos / 1e3);
+      } else if (nanos < TimeUnit.SECONDS.toNanos(1)) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+      }
+      return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+    }
+
+    @Override
+    public boolean hasPermission(final CommandSource source, final String @NonNull [] args) {
+      return source.getPermissionValue("velocity.command.metrics") == Tristate.TRUE;
+    }
+
+    private static final class PlayerMetrics {
+
+      private final Player player;
+      private final ConnectionMetrics client;
+      private final Optional<ConnectionMetrics> server;
+
+      private PlayerMetrics(Player player, ConnectionMetrics client,
+          Optional<ConnectionMetrics> server) {
+        this.player = player;
+        this.client = client;
+        this.server = server;
+      }
+
+      private long bytes() {
+        return client.getBytesReceived() + client.getBytesSent()
+            + server.map(s -> s.getBytesReceived() + s.getBytesSent()).orElse(0L);
+      }
+
+      private long nanos() {
+        return cpuNanos(client) + server.map(Metrics::cpuNanos).orElse(0L);
+      }
+    }
+  }
 }
@@ -82,6 +82,7 @@ public class VelocityConfiguration implements ProxyConfig {
   @Expose
   private final Query query;
   private final Metrics metrics;
+  private final Prometheus prometheus;
   @Expose
   private boolean enablePlayerAddressLogging = true;
   private net.kyori.adventure.text.@MonotonicNonNull Component motdAsComponent;
@@ -90,12 +91,13 @@ public class VelocityConfiguration implements ProxyConfig {
   private boolean forceKeyAuthentication = true; // Added in 1.19
 
   private VelocityConfiguration(Servers servers, ForcedHosts forcedHosts, Advanced advanced,
-      Query query, Metrics metrics) {
+      Query query, Metrics metrics, Prometheus prometheus) {
     this.servers = servers;
     this.forcedHosts = forcedHosts;
     this.advanced = advanced;
     this.query = query;
     this.metrics = metrics;
+    this.prometheus = prometheus;
   }
 
   private VelocityConfiguration(String bind, String motd, int showMaxPlayers, boolean onlineMode,
@@ -103,7 +105,8 @@ public class VelocityConfiguration implements ProxyConfig {
       PlayerInfoForwarding playerInfoForwardingMode, byte[] forwardingSecret,
       boolean onlineModeKickExistingPlayers, PingPassthroughMode pingPassthrough,
       boolean enablePlayerAddressLogging, Servers servers, ForcedHosts forcedHosts,
-      Advanced advanced, Query query, Metrics metrics, boolean forceKeyAuthentication) {
+      Advanced advanced, Query query, Metrics metrics, Prometheus prometheus,
+      boolean forceKeyAuthentication) {
     this.bind = bind;
     this.motd = motd;
     this.showMaxPlayers = showMaxPlayers;
@@ -120,6 +123,7 @@ public class VelocityConfiguration implements ProxyConfig {
     this.advanced = advanced;
     this.query = query;
     this.metrics = metrics;
+    this.prometheus = prometheus;
     this.forceKeyAuthentication = forceKeyAuthentication;
   }
 
@@ -356,10 +360,38 @@ public class VelocityConfiguration implements ProxyConfig {
     return advanced.tcpFastOpen;
   }
 
+  public int getBackendConnectionPoolSize() {
+    return advanced.backendConnectionPoolSize;
+  }
+
+  public int getBackendConnectionPoolIdleTimeout() {
+    return advanced.backendConnectionPoolIdleTimeout;
+  }
+
+  public int getSessionServerCacheTtl() {
+    return advanced.sessionServerCacheTtl;
+  }
+
+  public boolean isSessionServerFallback() {
+    return advanced.sessionServerFallback;
+  }
+
+  public int getStatusCacheTtl() {
+    return advanced.statusCacheTtl;
+  }
+
+  public int getPingPassthroughInterval() {
+    return advanced.pingPassthroughInterval;
+  }
+
   public Metrics getMetrics() {
     return metrics;
   }
 
+  public Prometheus getPrometheus() {
+    return prometheus;
+  }
+
   public PingPassthroughMode getPingPassthrough() {
     return pingPassthrough;
   }
@@ -410,6 +442,7 @@ public class VelocityConfiguration implements ProxyConfig {
         .add("forcedHosts", forcedHosts)
         .add("advanced", advanced)
         .add("query", query)
+        .add("prometheus", prometheus)
         .add("favicon", favicon)
         .add("enablePlayerAddressLogging", enablePlayerAddressLogging)
         .add("forceKeyAuthentication", forceKeyAuthentication)
@@ -550,6 +583,7 @@ public class VelocityConfiguration implements ProxyConfig {
     CommentedConfig advancedConfig = config.get("advanced");
     CommentedConfig queryConfig = config.get("query");
     CommentedConfig metricsConfig = config.get("metrics");
+    CommentedConfig prometheusConfig = config.get("prometheus");
     PlayerInfoForwarding forwardingMode = config.getEnumOrElse("player-info-forwarding-mode",
         PlayerInfoForwarding.NONE);
     PingPassthroughMode pingPassthroughMode = config.getEnumOrElse("ping-passthrough",
@@ -590,6 +624,7 @@ public class VelocityConfiguration implements ProxyConfig {
         new Advanced(advancedConfig),
         new Query(queryConfig),
         new Metrics(metricsConfig),
+        new Prometheus(prometheusConfig),
         forceKeyAuthentication
     );
   }
@@ -758,6 +793,18 @@ public class VelocityConfiguration implements ProxyConfig {
     private boolean logCommandExecutions = false;
     @Expose
     private boolean logPlayerConnections = true;
+    @Expose
+    private int backendConnectionPoolSize = 0;
+    @Expose
+    private int backendConnectionPoolIdleTimeout = 10000;
+    @Expose
+    private int sessionServerCacheTtl = 30000;
+    @Expose
+    private boolean sessionServerFallback = false;
+    @Expose
+    private int statusCacheTtl = 1000;
+    @Expose
+    private int pingPassthroughInterval = 5000;
 
     private Advanced() {
     }
@@ -782,6 +829,13 @@ public class VelocityConfiguration implements ProxyConfig {
         this.announceProxyCommands = config.getOrElse("announce-proxy-commands", true);
         this.logCommandExecutions = config.getOrElse("log-command-executions", false);
         this.logPlayerConnections = config.getOrElse("log-player-connections", true);
+        this.backendConnectionPoolSize = config.getIntOrElse("backend-connection-pool-size", 0);
+        this.backendConnectionPoolIdleTimeout = config.getIntOrElse(
+            "backend-connection-pool-idle-timeout", 10000);
+        this.sessionServerCacheTtl = config.getIntOrElse("session-server-cache-ttl", 30000);
+        this.sessionServerFallback = config.getOrElse("session-server-fallback", false);
+        this.statusCacheTtl = config.getIntOrElse("status-cache-ttl", 1000);
+        this.pingPassthroughInterval = config.getIntOrElse("ping-passthrough-interval", 5000);
       }
     }
 
@@ -837,6 +891,30 @@ public class VelocityConfiguration implements ProxyConfig {
       return logPlayerConnections;
     }
 
+    public int getBackendConnectionPoolSize() {
+      return backendConnectionPoolSize;
+    }
+
+    public int getBackendConnectionPoolIdleTimeout() {
+      return backendConnectionPoolIdleTimeout;
+    }
+
+    public int getSessionServerCacheTtl() {
+      return sessionServerCacheTtl;
+    }
+
+    public boolean isSessionServerFallback() {
+      return sessionServerFallback;
+    }
+
+    public int getStatusCacheTtl() {
+      return statusCacheTtl;
+    }
+
+    public int getPingPassthroughInterval() {
+      return pingPassthroughInterval;
+    }
+
     @Override
     public String toString() {
       return "Advanced{"
@@ -853,6 +931,12 @@ public class VelocityConfiguration implements ProxyConfig {
           + ", announceProxyCommands=" + announceProxyCommands
           + ", logCommandExecutions=" + logCommandExecutions
           + ", logPlayerConnections=" + logPlayerConnections
+          + ", backendConnectionPoolSize=" + backendConnectionPoolSize
+          + ", backendConnectionPoolIdleTimeout=" + backendConnectionPoolIdleTimeout
+          + ", sessionServerCacheTtl=" + sessionServerCacheTtl
+          + ", sessionServerFallback=" + sessionServerFallback
+          + ", statusCacheTtl=" + statusCacheTtl
+          + ", pingPassthroughInterval=" + pingPassthroughInterval
           + '}';
     }
   }
@@ -931,4 +1015,36 @@ public class VelocityConfiguration implements ProxyConfig {
       return enabled;
     }
   }
+
+  /**
+   * Configuration for the Prometheus metrics endpoint.
+   */
+  public static class Prometheus {
+
+    private boolean enabled = false;
+    private String bind = "127.0.0.1:9225";
+
+    private Prometheus(CommentedConfig toml) {
+      if (toml != null) {
+        this.enabled = toml.getOrElse("enabled", false);
+        this.bind = toml.getOrElse("bind", "127.0.0.1:9225");
+      }
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public InetSocketAddress getBind() {
+      return AddressUtil.parseAndResolveAddress(bind);
+    }
+
+    @Override
+    public String toString() {
+      return "Prometheus{"
+          + "enabled=" + enabled
+          + ", bind='" + bind + '\''
+          + '}';
+    }
+  }
 }
@@ -33,10 +33,13 @@ import com.velocitypowered.natives.encryption.VelocityCipher;
 import com.velocitypowered.natives.encryption.VelocityCipherFactory;
 import com.velocitypowered.natives.util.Natives;
 import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
 import com.velocitypowered.proxy.connection.client.HandshakeSessionHandler;
 import com.velocitypowered.proxy.connection.client.InitialLoginSessionHandler;
 import com.velocitypowered.proxy.connection.client.StatusSessionHandler;
 import com.velocitypowered.proxy.network.Connections;
+import com.velocitypowered.proxy.network.SpliceRelay;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
 import com.velocitypowered.proxy.protocol.MinecraftPacket;
 import com.velocitypowered.proxy.protocol.StateRegistry;
 import com.velocitypowered.proxy.protocol.VelocityConnectionEvent;
@@ -47,6 +50,7 @@ import com.velocitypowered.proxy.protocol.netty.MinecraftCompressorAndLengthEnco
 import com.velocitypowered.proxy.protocol.netty.MinecraftDecoder;
 import com.velocitypowered.proxy.protocol.netty.MinecraftEncoder;
 import com.velocitypowered.proxy.protocol.netty.MinecraftVarintLengthEncoder;
+import com.velocitypowered.proxy.protocol.netty.OpaqueCompressedPacket;
 import com.velocitypowered.proxy.protocol.netty.PlayPacketQueueHandler;
 import com.velocitypowered.proxy.util.except.QuietDecoderException;
 import io.netty.buffer.ByteBuf;
@@ -71,6 +75,7 @@ import javax.crypto.spec.SecretKeySpec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
 
 /**
  * A utility class to make working with the pipeline a little less painful and transparently handles
@@ -80,6 +85,19 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
 
   private static final Logger logger = LogManager.getLogger(MinecraftConnection.class);
 
+  // Packets passed to write() are flushed together once the event loop is done with its current
+  // batch of work, rather than one flush (and write syscall) per packet.
+  private static final boolean COALESCE_WRITES =
+      Boolean.parseBoolean(System.getProperty("velocity.coalesce-writes", "true"));
+  // Past this many packets, flush right away, so that a burst does not pile up in memory.
+  private static final int MAX_COALESCED_WRITES =
+      Integer.getInteger("velocity.max-coalesced-writes", 64);
+  // The flush of players with a high latency may be held back for up to 1% of their latency, so
+  // that more packets make it into it. Nobody notices 2 ms on a 200 ms connection.
+  private static final long MAX_FLUSH_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(
+      Long.getLong("velocity.max-flush-delay-micros", 2000));
+  private static final long MIN_FLUSH_DELAY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
   private final Channel channel;
   private SocketAddress remoteAddress;
   private StateRegistry state;
@@ -90,6 +108,11 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
   public final VelocityServer server;
   private ConnectionType connectionType = ConnectionTypes.UNDETERMINED;
   private boolean knownDisconnect = false;
+  private volatile boolean spliced = false;
+  private final VelocityConnectionMetrics metrics;
+  private final Runnable flushTask = this::flushCoalescedWrites;
+  private int coalescedWrites;
+  private boolean flushScheduled;
 
   /**
    * Initializes a new {@link MinecraftConnection} instance.
@@ -104,10 +127,20 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
     this.state = StateRegistry.HANDSHAKE;
 
     this.sessionHandlers = new HashMap<>();
+    this.metrics = server.getNetworkMetrics().track(channel);
   }
 
   @Override
   public void channelActive(ChannelHandlerContext ctx) throws Exception {
+    connected();
+  }
+
+  /**
+   * Tells the active session handler that the connection is established. This happens when the
+   * channel becomes active, and must be done by hand for a channel that was already active before
+   * this connection was added to its pipeline.
+   */
+  public void connected() {
     if (activeSessionHandler != null) {
       activeSessionHandler.connected();
     }
@@ -157,6 +190,8 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
             proxyMessage.sourcePort());
       } else if (msg instanceof ByteBuf) {
         activeSessionHandler.handleUnknown((ByteBuf) msg);
+      } else if (msg instanceof OpaqueCompressedPacket) {
+        activeSessionHandler.handleUnknownCompressed((OpaqueCompressedPacket) msg);
       }
     } finally {
       ReferenceCountUtil.release(msg);
@@ -207,6 +242,11 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
 
   @Override
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    if (!ctx.channel().isWritable()) {
+      metrics.recordWriteBufferHighWaterMark();
+      // Holding writes back only makes the backlog worse.
+      flushCoalescedWrites();
+    }
     if (activeSessionHandler != null) {
       activeSessionHandler.writabilityChanged();
     }
@@ -221,25 +261,67 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
   }
 
   /**
-   * Writes and immediately flushes a message to the connection.
+   * Writes and flushes a message to the connection. Messages written during the same iteration of
+   * the event loop are flushed together, at the end of the iteration.
    *
    * @param msg the message to write
    */
   public void write(Object msg) {
-    if (channel.isActive()) {
-      channel.writeAndFlush(msg, channel.voidPromise());
+    if (channel.isActive() && !spliced) {
+      if (!COALESCE_WRITES) {
+        channel.writeAndFlush(msg, channel.voidPromise());
+      } else if (channel.eventLoop().inEventLoop()) {
+        coalescedWrite(msg);
+      } else {
+        channel.eventLoop().execute(() -> coalescedWrite(msg));
+      }
     } else {
       ReferenceCountUtil.release(msg);
     }
   }
 
+  private void coalescedWrite(Object msg) {
+    channel.write(msg, channel.voidPromise());
+    if (++coalescedWrites >= MAX_COALESCED_WRITES || !channel.isWritable()) {
+      flushCoalescedWrites();
+    } else if (!flushScheduled) {
+      flushScheduled = true;
+      long delay = flushDelayNanos();
+      if (delay < MIN_FLUSH_DELAY_NANOS) {
+        channel.eventLoop().execute(flushTask);
+      } else {
+        channel.eventLoop().schedule(flushTask, delay, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  long flushDelayNanos() {
+    if (association instanceof ConnectedPlayer) {
+      long ping = ((ConnectedPlayer) association).getPing();
+      if (ping > 0) {
+        return Math.min(MAX_FLUSH_DELAY_NANOS, TimeUnit.MILLISECONDS.toNanos(ping) / 100);
+      }
+    }
+    return 0;
+  }
+
+  private void flushCoalescedWrites() {
+    flushScheduled = false;
+    if (coalescedWrites > 0) {
+      metrics.recordFlush(coalescedWrites);
+      coalescedWrites = 0;
+      channel.flush();
+    }
+  }
+
   /**
    * Writes, but does not flush, a message to the connection.
    *
    * @param msg the message to write
    */
   public void delayedWrite(Object msg) {
-    if (channel.isActive()) {
+    if (channel.isActive() && !spliced) {
       channel.write(msg, channel.voidPromise());
     } else {
       ReferenceCountUtil.release(msg);
@@ -251,6 +333,11 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
    */
   public void flush() {
     if (channel.isActive()) {
+      if (coalescedWrites > 0 && channel.eventLoop().inEventLoop()) {
+        // Any pending coalesced writes are taken care of by this flush.
+        metrics.recordFlush(coalescedWrites);
+        coalescedWrites = 0;
+      }
       channel.flush();
     }
   }
@@ -261,7 +348,11 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
    * @param msg the message to write
    */
   public void closeWith(Object msg) {
-    if (channel.isActive()) {
+    if (spliced) {
+      // We can't write anything into a spliced stream.
+      ReferenceCountUtil.release(msg);
+      close();
+    } else if (channel.isActive()) {
       boolean is17 = this.getProtocolVersion().compareTo(ProtocolVersion.MINECRAFT_1_8) < 0
           && this.getProtocolVersion().compareTo(ProtocolVersion.MINECRAFT_1_7_2) >= 0;
       if (is17 && this.getState() != StateRegistry.STATUS) {
@@ -296,12 +387,14 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
         if (markKnown) {
           knownDisconnect = true;
         }
+        flushCoalescedWrites();
         channel.close();
       } else {
         channel.eventLoop().execute(() -> {
           if (markKnown) {
             knownDisconnect = true;
           }
+          flushCoalescedWrites();
           channel.close();
         });
       }
@@ -316,6 +409,23 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
     return !channel.isActive();
   }
 
+  public VelocityConnectionMetrics getMetrics() {
+    return metrics;
+  }
+
+  public boolean isSpliced() {
+    return spliced;
+  }
+
+  /**
+   * Marks this connection as receiving data spliced from another connection by {@link SpliceRelay}.
+   * From now on, any messages written to this connection are discarded.
+   */
+  public void markSpliced() {
+    ensureInEventLoop();
+    this.spliced = true;
+  }
+
   public SocketAddress getRemoteAddress() {
     return remoteAddress;
   }
@@ -371,6 +481,11 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
     } else if (this.channel.pipeline().get(Connections.PLAY_PACKET_QUEUE) != null) {
       // Remove the queue
       this.channel.pipeline().remove(Connections.PLAY_PACKET_QUEUE);
+      Connections.pipelineChanged(channel);
+    }
+
+    if (state != StateRegistry.PLAY) {
+      setOpaquePassthrough(false);
     }
   }
 
@@ -382,6 +497,7 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
       this.channel.pipeline().addAfter(Connections.MINECRAFT_ENCODER, Connections.PLAY_PACKET_QUEUE,
            new PlayPacketQueueHandler(this.protocolVersion,
                 channel.pipeline().get(MinecraftEncoder.class).getDirection()));
+      Connections.pipelineChanged(channel);
     }
   }
 
@@ -406,6 +522,7 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
       // Legacy handshake handling
       this.channel.pipeline().remove(MINECRAFT_ENCODER);
       this.channel.pipeline().remove(MINECRAFT_DECODER);
+      Connections.pipelineChanged(channel);
     }
 
     if (changed) {
@@ -502,6 +619,7 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
       if (removedDecoder != null && removedEncoder != null) {
         channel.pipeline().addBefore(MINECRAFT_DECODER, FRAME_ENCODER,
             MinecraftVarintLengthEncoder.INSTANCE);
+        Connections.pipelineChanged(channel);
         channel.pipeline().fireUserEventTriggered(VelocityConnectionEvent.COMPRESSION_DISABLED);
       }
     } else {
@@ -522,12 +640,48 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
         channel.pipeline().remove(FRAME_ENCODER);
         channel.pipeline().addBefore(MINECRAFT_DECODER, COMPRESSION_DECODER, decoder);
         channel.pipeline().addBefore(MINECRAFT_ENCODER, COMPRESSION_ENCODER, encoder);
+        Connections.pipelineChanged(channel);
 
         channel.pipeline().fireUserEventTriggered(VelocityConnectionEvent.COMPRESSION_ENABLED);
       }
     }
   }
 
+  /**
+   * Returns the compression threshold in use on the connection.
+   *
+   * @return the compression threshold, or {@code -1} if compression is not enabled
+   */
+  public int getCompressionThreshold() {
+    ChannelHandler decoder = channel.pipeline().get(COMPRESSION_DECODER);
+    if (decoder instanceof MinecraftCompressDecoder) {
+      return ((MinecraftCompressDecoder) decoder).getThreshold();
+    }
+    return -1;
+  }
+
+  /**
+   * Enables or disables opaque pass-through of compressed PLAY packets. While enabled, compressed
+   * packets the proxy does not decode are not inflated, and are passed to the session handler as
+   * {@link OpaqueCompressedPacket}s instead. Whoever receives them must only write them to a
+   * connection that has compression enabled. This does nothing if compression is not enabled.
+   *
+   * @param enabled whether to enable opaque pass-through
+   */
+  public void setOpaquePassthrough(boolean enabled) {
+    ensureInEventLoop();
+
+    ChannelHandler decoder = channel.pipeline().get(COMPRESSION_DECODER);
+    if (decoder instanceof MinecraftCompressDecoder) {
+      StateRegistry.PacketRegistry.ProtocolRegistry registry = null;
+      if (enabled) {
+        registry = StateRegistry.PLAY.getProtocolRegistry(
+            channel.pipeline().get(MinecraftDecoder.class).getDirection(), protocolVersion);
+      }
+      ((MinecraftCompressDecoder) decoder).setPassthroughRegistry(registry);
+    }
+  }
+
   /**
    * Enables encryption on the connection.
    *
@@ -547,6 +701,7 @@ public class MinecraftConnection extends ChannelInboundHandlerAdapter {
         .addBefore(FRAME_DECODER, CIPHER_DECODER, new MinecraftCipherDecoder(decryptionCipher));
     channel.pipeline()
         .addBefore(FRAME_ENCODER, CIPHER_ENCODER, new MinecraftCipherEncoder(encryptionCipher));
+    Connections.pipelineChanged(channel);
 
     channel.pipeline().fireUserEventTriggered(VelocityConnectionEvent.ENCRYPTION_ENABLED);
   }
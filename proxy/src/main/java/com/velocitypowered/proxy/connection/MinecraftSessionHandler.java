@@ -18,6 +18,7 @@
 package com.velocitypowered.proxy.connection;
 
 import com.velocitypowered.proxy.protocol.MinecraftPacket;
+import com.velocitypowered.proxy.protocol.netty.OpaqueCompressedPacket;
 import com.velocitypowered.proxy.protocol.packet.AvailableCommands;
 import com.velocitypowered.proxy.protocol.packet.BossBar;
 import com.velocitypowered.proxy.protocol.packet.ClientSettings;
@@ -89,6 +90,10 @@ public interface MinecraftSessionHandler {
 
   }
 
+  default void handleUnknownCompressed(OpaqueCompressedPacket packet) {
+
+  }
+
   default void connected() {
 
   }
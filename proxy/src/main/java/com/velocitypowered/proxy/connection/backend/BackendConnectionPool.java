@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.backend;
+
+import static com.velocitypowered.proxy.network.Connections.POOL_GUARD;
+import static com.velocitypowered.proxy.network.Connections.READ_TIMEOUT;
+
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.network.Connections;
+import com.velocitypowered.proxy.server.VelocityRegisteredServer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps connections to a backend server open ahead of time, so that players switching to the
+ * server skip opening a connection.
+ *
+ * <p>Pooled connections already run the backend pipeline and have not sent anything yet, so they
+ * are still in the handshake state. They are kept per event loop, and only for event loops that
+ * recently connected a player to the server: taking a connection from the pool, or finding it
+ * empty, tops up the pool of that event loop to
+ * {@link com.velocitypowered.proxy.config.VelocityConfiguration#getBackendConnectionPoolSize()}
+ * connections. Connections that stay unused for longer than the idle timeout are closed and not
+ * replaced, so that the backend does not time them out first.</p>
+ *
+ * <p>The idle connections of an event loop are only ever touched on that event loop.</p>
+ */
+public final class BackendConnectionPool {
+
+  private static final AttributeKey<Boolean> POOLED = AttributeKey.valueOf("velocity-pooled");
+
+  private final VelocityServer server;
+  private final VelocityRegisteredServer registeredServer;
+  private final Map<EventLoop, LoopPool> pools = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private volatile boolean closed;
+
+  public BackendConnectionPool(VelocityServer server, VelocityRegisteredServer registeredServer) {
+    this.server = server;
+    this.registeredServer = registeredServer;
+  }
+
+  /**
+   * Returns a connection to the server on the specified event {@code loop}, from the pool if
+   * possible. The connection runs the backend pipeline and nothing has been sent on it yet.
+   *
+   * @param loop the event loop the connection should use
+   * @return the connection
+   */
+  public Future<Channel> acquire(EventLoop loop) {
+    Promise<Channel> promise = loop.newPromise();
+    if (loop.inEventLoop()) {
+      acquire(loop, promise);
+    } else {
+      loop.execute(() -> acquire(loop, promise));
+    }
+    return promise;
+  }
+
+  private void acquire(EventLoop loop, Promise<Channel> promise) {
+    int size = server.getConfiguration().getBackendConnectionPoolSize();
+    if (size <= 0 || closed) {
+      connect(loop, promise);
+      return;
+    }
+
+    LoopPool pool = pools.computeIfAbsent(loop, LoopPool::new);
+    Channel channel = pool.take();
+    if (channel != null) {
+      hits.increment();
+      promise.setSuccess(channel);
+    } else {
+      misses.increment();
+      connect(loop, promise);
+    }
+    pool.fill(size);
+  }
+
+  private void connect(EventLoop loop, Promise<Channel> promise) {
+    connect(loop).addListener((ChannelFutureListener) future -> {
+      if (future.isSuccess()) {
+        promise.setSuccess(future.channel());
+      } else {
+        promise.setFailure(future.cause());
+      }
+    });
+  }
+
+  private ChannelFuture connect(EventLoop loop) {
+    SocketAddress address = registeredServer.getServerInfo().getSocketAddress();
+    Bootstrap bootstrap;
+    if (address instanceof DomainSocketAddress) {
+      bootstrap = server.createDomainBootstrap(loop);
+    } else {
+      bootstrap = server.createBootstrap(loop);
+    }
+    return bootstrap.handler(server.getBackendChannelInitializer()).connect(address);
+  }
+
+  /**
+   * Returns whether the {@code channel} was taken from a pool. Such a channel became active before
+   * its new owner was added to the pipeline, so the owner does not see {@code channelActive}.
+   *
+   * @param channel the channel
+   * @return whether the channel was pooled
+   */
+  static boolean isPooled(Channel channel) {
+    return channel.hasAttr(POOLED);
+  }
+
+  /**
+   * Closes all idle connections and stops pooling connections.
+   */
+  public void close() {
+    closed = true;
+    for (LoopPool pool : pools.values()) {
+      pool.loop.execute(pool::clear);
+    }
+  }
+
+  /**
+   * Returns how many connections were taken from the pool.
+   *
+   * @return the number of pool hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns how many connections had to be opened because the pool was empty.
+   *
+   * @return the number of pool misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns how many idle connections were closed because they were not used in time.
+   *
+   * @return the number of evicted connections
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns how many idle connections are currently pooled. The count is read without
+   * synchronization and may be slightly out of date.
+   *
+   * @return the number of idle connections
+   */
+  public int getIdleConnections() {
+    int idle = 0;
+    for (LoopPool pool : pools.values()) {
+      idle += pool.idleCount;
+    }
+    return idle;
+  }
+
+  /**
+   * The idle connections of a single event loop.
+   */
+  private final class LoopPool {
+
+    private final EventLoop loop;
+    private final ArrayDeque<Channel> idle = new ArrayDeque<>();
+    private int connecting;
+    private volatile int idleCount;
+
+    private LoopPool(EventLoop loop) {
+      this.loop = loop;
+    }
+
+    private Channel take() {
+      Channel channel;
+      while ((channel = idle.pollLast()) != null) {
+        ((IdleGuard) channel.pipeline().remove(POOL_GUARD)).eviction.cancel(false);
+        if (channel.isActive()) {
+          break;
+        }
+      }
+      idleCount = idle.size();
+      if (channel != null) {
+        // The read timeout has been running since the connection was opened, restart it.
+        channel.pipeline().replace(READ_TIMEOUT, READ_TIMEOUT, new ReadTimeoutHandler(
+            server.getConfiguration().getReadTimeout(), TimeUnit.MILLISECONDS));
+        Connections.pipelineChanged(channel);
+        channel.attr(POOLED).set(Boolean.TRUE);
+      }
+      return channel;
+    }
+
+    private void fill(int size) {
+      while (!closed && idle.size() + connecting < size) {
+        connecting++;
+        connect(loop).addListener((ChannelFutureListener) future -> {
+          connecting--;
+          if (!future.isSuccess()) {
+            return;
+          }
+          if (closed) {
+            future.channel().close();
+          } else {
+            park(future.channel());
+          }
+        });
+      }
+    }
+
+    private void park(Channel channel) {
+      ScheduledFuture<?> eviction = loop.schedule(() -> {
+        if (idle.remove(channel)) {
+          idleCount = idle.size();
+          evictions.increment();
+          channel.close();
+        }
+      }, server.getConfiguration().getBackendConnectionPoolIdleTimeout(), TimeUnit.MILLISECONDS);
+      channel.pipeline().addLast(POOL_GUARD, new IdleGuard(this, eviction));
+      idle.addLast(channel);
+      idleCount = idle.size();
+    }
+
+    private void discard(Channel channel) {
+      if (idle.remove(channel)) {
+        idleCount = idle.size();
+      }
+    }
+
+    private void clear() {
+      Channel channel;
+      while ((channel = idle.pollFirst()) != null) {
+        channel.close();
+      }
+      idleCount = 0;
+    }
+  }
+
+  /**
+   * Sits at the end of the pipeline of an idle connection. The backend has no reason to send
+   * anything before the handshake, so any data or error closes the connection, as does the backend
+   * closing it.
+   */
+  private static final class IdleGuard extends ChannelInboundHandlerAdapter {
+
+    private final LoopPool pool;
+    private final ScheduledFuture<?> eviction;
+
+    private IdleGuard(LoopPool pool, ScheduledFuture<?> eviction) {
+      this.pool = pool;
+      this.eviction = eviction;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      ctx.close();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      eviction.cancel(false);
+      pool.discard(ctx.channel());
+      super.channelInactive(ctx);
+    }
+  }
+}
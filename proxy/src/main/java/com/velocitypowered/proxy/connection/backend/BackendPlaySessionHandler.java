@@ -27,6 +27,7 @@ import com.velocitypowered.api.event.command.PlayerAvailableCommandsEvent;
 import com.velocitypowered.api.event.connection.PluginMessageEvent;
 import com.velocitypowered.api.event.player.PlayerResourcePackStatusEvent;
 import com.velocitypowered.api.event.player.ServerResourcePackSendEvent;
+import com.velocitypowered.api.event.player.TabCompleteEvent;
 import com.velocitypowered.api.event.proxy.ProxyPingEvent;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
 import com.velocitypowered.api.proxy.player.ResourcePackInfo;
@@ -37,9 +38,11 @@ import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
 import com.velocitypowered.proxy.connection.client.ClientPlaySessionHandler;
 import com.velocitypowered.proxy.connection.player.VelocityResourcePackInfo;
 import com.velocitypowered.proxy.connection.util.ConnectionMessages;
+import com.velocitypowered.proxy.network.SpliceRelay;
 import com.velocitypowered.proxy.protocol.MinecraftPacket;
 import com.velocitypowered.proxy.protocol.StateRegistry;
 import com.velocitypowered.proxy.protocol.netty.MinecraftDecoder;
+import com.velocitypowered.proxy.protocol.netty.OpaqueCompressedPacket;
 import com.velocitypowered.proxy.protocol.packet.AvailableCommands;
 import com.velocitypowered.proxy.protocol.packet.BossBar;
 import com.velocitypowered.proxy.protocol.packet.ClientSettings;
@@ -62,6 +65,7 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.handler.timeout.ReadTimeoutException;
+import java.util.List;
 import java.util.regex.Pattern;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -77,6 +81,13 @@ public class BackendPlaySessionHandler implements MinecraftSessionHandler {
       Boolean.getBoolean("velocity.log-server-backpressure");
   private static final int MAXIMUM_PACKETS_TO_FLUSH =
       Integer.getInteger("velocity.max-packets-per-flush", 8192);
+  private static final boolean OPAQUE_COMPRESSED_PASSTHROUGH =
+      Boolean.getBoolean("velocity.opaque-compressed-passthrough");
+  // Events that are fired in response to clientbound packets, which can't be seen anymore once
+  // spliced.
+  private static final List<Class<?>> PACKET_EVENTS = List.of(
+      PlayerAvailableCommandsEvent.class, PluginMessageEvent.class,
+      ServerResourcePackSendEvent.class, TabCompleteEvent.class);
 
   private final VelocityServer server;
   private final VelocityServerConnection serverConn;
@@ -113,6 +124,23 @@ public class BackendPlaySessionHandler implements MinecraftSessionHandler {
       ));
     }
 
+    if (OPAQUE_COMPRESSED_PASSTHROUGH) {
+      // Packets compressed by the server can be sent to the player as-is as long as the player's
+      // threshold is not higher than the server's, which is always the case when they match.
+      int serverThreshold = serverMc.getCompressionThreshold();
+      int playerThreshold = playerConnection.getCompressionThreshold();
+      if (playerThreshold >= 0 && serverThreshold >= playerThreshold) {
+        serverMc.setOpaquePassthrough(true);
+      }
+    }
+  }
+
+  @Override
+  public void deactivated() {
+    MinecraftConnection serverMc = serverConn.getConnection();
+    if (serverMc != null && !serverMc.isClosed()) {
+      serverMc.setOpaquePassthrough(false);
+    }
   }
 
   @Override
@@ -131,6 +159,7 @@ public class BackendPlaySessionHandler implements MinecraftSessionHandler {
     smc.setAutoReading(false);
     // Even when not auto reading messages are still decoded. Decode them with the correct state
     smc.getChannel().pipeline().get(MinecraftDecoder.class).setState(StateRegistry.CONFIG);
+    smc.setOpaquePassthrough(false);
     serverConn.getPlayer().switchToConfigState();
     return true;
   }
@@ -342,10 +371,40 @@ public class BackendPlaySessionHandler implements MinecraftSessionHandler {
     }
   }
 
+  @Override
+  public void handleUnknownCompressed(OpaqueCompressedPacket packet) {
+    playerConnection.delayedWrite(packet.retain());
+    if (++packetsFlushed >= MAXIMUM_PACKETS_TO_FLUSH) {
+      playerConnection.flush();
+      packetsFlushed = 0;
+    }
+  }
+
   @Override
   public void readCompleted() {
     playerConnection.flush();
     packetsFlushed = 0;
+
+    if (SpliceRelay.ENABLED && !isInterceptionNeeded()) {
+      SpliceRelay.trySplice(playerConnection, serverConn.ensureConnected());
+    }
+  }
+
+  private boolean isInterceptionNeeded() {
+    if (playerConnection.isSpliced() || !serverConn.hasCompletedJoin()
+        || serverConn.getPlayer().getConnectionInFlight() != null) {
+      return true;
+    }
+    // Messages sent over the BungeeCord channel have to be seen by the proxy to be answered.
+    if (server.getConfiguration().isBungeePluginChannelEnabled()) {
+      return true;
+    }
+    for (Class<?> eventClass : PACKET_EVENTS) {
+      if (server.getEventManager().hasSubscribers(eventClass)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
@@ -362,6 +421,11 @@ public class BackendPlaySessionHandler implements MinecraftSessionHandler {
   @Override
   public void disconnected() {
     serverConn.getServer().removePlayer(serverConn.getPlayer());
+    if (playerConnection.isSpliced()) {
+      // The player can't be moved to another server once spliced.
+      playerConnection.close();
+      return;
+    }
     if (!serverConn.isGracefulDisconnect() && !exceptionTriggered) {
       if (server.getConfiguration().isFailoverOnUnexpectedServerDisconnect()) {
         serverConn.getPlayer().handleConnectionException(serverConn.getServer(),
@@ -41,11 +41,12 @@ import com.velocitypowered.proxy.protocol.StateRegistry;
 import com.velocitypowered.proxy.protocol.packet.Handshake;
 import com.velocitypowered.proxy.protocol.packet.PluginMessage;
 import com.velocitypowered.proxy.protocol.packet.ServerLogin;
+import com.velocitypowered.proxy.protocol.util.LazyCompoundBinaryTag;
 import com.velocitypowered.proxy.server.VelocityRegisteredServer;
-import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.FutureListener;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -76,7 +77,7 @@ public class VelocityServerConnection implements MinecraftConnectionAssociation,
   private boolean gracefulDisconnect = false;
   private BackendConnectionPhase connectionPhase = BackendConnectionPhases.UNKNOWN;
   private final Map<Long, Long> pendingPings = new HashMap<>();
-  private @MonotonicNonNull CompoundBinaryTag activeDimensionRegistry;
+  private @MonotonicNonNull LazyCompoundBinaryTag activeDimensionRegistry;
 
   /**
    * Initializes a new server connection.
@@ -105,20 +106,13 @@ public class VelocityServerConnection implements MinecraftConnectionAssociation,
     CompletableFuture<Impl> result = new CompletableFuture<>();
     // Note: we use the event loop for the connection the player is on. This reduces context
     // switches.
-    SocketAddress address = registeredServer.getServerInfo().getSocketAddress();
-    Bootstrap bootstrap;
-    if (address instanceof DomainSocketAddress) {
-      bootstrap = server.createDomainBootstrap(proxyPlayer.getConnection().eventLoop());
-    } else {
-      bootstrap = server.createBootstrap(proxyPlayer.getConnection().eventLoop());
-    }
-    bootstrap.handler(server.getBackendChannelInitializer())
-            .connect(address)
-            .addListener((ChannelFutureListener) future -> {
+    registeredServer.getConnectionPool().acquire(proxyPlayer.getConnection().eventLoop())
+            .addListener((FutureListener<Channel>) future -> {
               if (future.isSuccess()) {
-                connection = new MinecraftConnection(future.channel(), server);
+                Channel channel = future.getNow();
+                connection = new MinecraftConnection(channel, server);
                 connection.setAssociation(VelocityServerConnection.this);
-                future.channel().pipeline().addLast(HANDLER, connection);
+                channel.pipeline().addLast(HANDLER, connection);
 
                 // Kick off the connection process
                 if (!connection.setActiveSessionHandler(StateRegistry.HANDSHAKE)) {
@@ -128,6 +122,11 @@ public class VelocityServerConnection implements MinecraftConnectionAssociation,
                   connection.addSessionHandler(StateRegistry.LOGIN, handler);
                 }
 
+                // A pooled connection is already active, so channelActive will not be called.
+                if (BackendConnectionPool.isPooled(channel) && channel.isActive()) {
+                  connection.connected();
+                }
+
                 // Set the connection phase, which may, for future forge (or whatever), be
                 // determined
                 // at this point already
@@ -381,10 +380,10 @@ public class VelocityServerConnection implements MinecraftConnectionAssociation,
   }
 
   public CompoundBinaryTag getActiveDimensionRegistry() {
-    return activeDimensionRegistry;
+    return activeDimensionRegistry == null ? null : activeDimensionRegistry.get();
   }
 
-  public void setActiveDimensionRegistry(CompoundBinaryTag activeDimensionRegistry) {
+  public void setActiveDimensionRegistry(LazyCompoundBinaryTag activeDimensionRegistry) {
     this.activeDimensionRegistry = activeDimensionRegistry;
   }
 }
@@ -38,6 +38,7 @@ import com.velocitypowered.proxy.config.VelocityConfiguration;
 import com.velocitypowered.proxy.connection.MinecraftConnection;
 import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
 import com.velocitypowered.proxy.crypto.IdentifiedKeyImpl;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics.LoginStage;
 import com.velocitypowered.proxy.protocol.StateRegistry;
 import com.velocitypowered.proxy.protocol.packet.LoginAcknowledged;
 import com.velocitypowered.proxy.protocol.packet.ServerLoginSuccess;
@@ -85,6 +86,7 @@ public class AuthSessionHandler implements MinecraftSessionHandler {
     GameProfileRequestEvent profileRequestEvent = new GameProfileRequestEvent(inbound, profile,
         onlineMode);
     final GameProfile finalProfile = profile;
+    final long gameProfileStart = System.nanoTime();
 
     server.getEventManager().fire(profileRequestEvent).thenComposeAsync(profileEvent -> {
       if (mcConnection.isClosed()) {
@@ -120,6 +122,8 @@ public class AuthSessionHandler implements MinecraftSessionHandler {
               } else {
                 player.setPermissionFunction(function);
               }
+              server.getNetworkMetrics().getLoginStageTimes(LoginStage.GAME_PROFILE)
+                  .record(System.nanoTime() - gameProfileStart);
               startLoginCompletion(player);
             }
           }, mcConnection.eventLoop());
@@ -191,7 +195,10 @@ public class AuthSessionHandler implements MinecraftSessionHandler {
   private void completeLoginProtocolPhaseAndInitialize(ConnectedPlayer player) {
     mcConnection.setAssociation(player);
 
+    long loginEventStart = System.nanoTime();
     server.getEventManager().fire(new LoginEvent(player)).thenAcceptAsync(event -> {
+      server.getNetworkMetrics().getLoginStageTimes(LoginStage.LOGIN_EVENT)
+          .record(System.nanoTime() - loginEventStart);
       if (mcConnection.isClosed()) {
         // The player was disconnected
         server.getEventManager().fireAndForget(new DisconnectEvent(player,
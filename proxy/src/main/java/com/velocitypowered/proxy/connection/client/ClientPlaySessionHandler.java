@@ -175,7 +175,13 @@ public class ClientPlaySessionHandler implements MinecraftSessionHandler {
     VelocityServerConnection serverConnection = player.getConnectedServer();
     if (serverConnection != null) {
       Long sentTime = serverConnection.getPendingPings().remove(packet.getRandomId());
-      if (sentTime != null) {
+      if (sentTime == null && player.getConnection().isSpliced()) {
+        // The keep-alive was spliced through to the player, so we never saw it being sent.
+        MinecraftConnection smc = serverConnection.getConnection();
+        if (smc != null) {
+          smc.write(packet);
+        }
+      } else if (sentTime != null) {
         MinecraftConnection smc = serverConnection.getConnection();
         if (smc != null) {
           player.setPing(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentTime));
@@ -524,7 +530,7 @@ public class ClientPlaySessionHandler implements MinecraftSessionHandler {
       }
     }
 
-    destination.setActiveDimensionRegistry(joinGame.getRegistry()); // 1.16
+    destination.setActiveDimensionRegistry(joinGame.getLazyRegistry()); // 1.16
 
     // Remove previous boss bars. These don't get cleared when sending JoinGame, thus the need to
     // track them.
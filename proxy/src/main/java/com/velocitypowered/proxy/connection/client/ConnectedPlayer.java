@@ -54,6 +54,7 @@ import com.velocitypowered.proxy.connection.MinecraftConnection;
 import com.velocitypowered.proxy.connection.MinecraftConnectionAssociation;
 import com.velocitypowered.proxy.connection.backend.VelocityServerConnection;
 import com.velocitypowered.proxy.connection.player.VelocityResourcePackInfo;
+import com.velocitypowered.proxy.connection.util.BroadcastPacketCache;
 import com.velocitypowered.proxy.connection.util.ConnectionMessages;
 import com.velocitypowered.proxy.connection.util.ConnectionRequestResults.Impl;
 import com.velocitypowered.proxy.connection.util.VelocityInboundConnection;
@@ -69,6 +70,7 @@ import com.velocitypowered.proxy.protocol.packet.chat.ChatQueue;
 import com.velocitypowered.proxy.protocol.packet.chat.ChatType;
 import com.velocitypowered.proxy.protocol.packet.chat.ComponentHolder;
 import com.velocitypowered.proxy.protocol.packet.chat.builder.ChatBuilderFactory;
+import com.velocitypowered.proxy.protocol.packet.chat.builder.ChatBuilderV2;
 import com.velocitypowered.proxy.protocol.packet.chat.legacy.LegacyChat;
 import com.velocitypowered.proxy.protocol.packet.config.StartUpdate;
 import com.velocitypowered.proxy.protocol.packet.title.GenericTitlePacket;
@@ -367,6 +369,30 @@ public class ConnectedPlayer implements MinecraftConnectionAssociation, Player,
         .toClient());
   }
 
+  /**
+   * Sends a chat message to the player as part of a broadcast. The chat packet is shared with
+   * every other recipient of the broadcast that uses the same protocol version and sees the same
+   * translated message.
+   *
+   * @param identity the identity of the sender
+   * @param message the message to send
+   * @param type the type of the message, or {@code null} for the default type
+   * @param cache the cache of the broadcast
+   */
+  public void sendMessage(Identity identity, Component message, @Nullable ChatType type,
+      BroadcastPacketCache cache) {
+    Component translated = translateMessage(message);
+
+    cache.write(connection, translated, version -> {
+      ChatBuilderV2 builder = getChatBuilderFactory().builder()
+          .component(translated).forIdentity(identity);
+      if (type != null) {
+        builder.setType(type);
+      }
+      return builder.toClient();
+    });
+  }
+
   @Override
   public void sendActionBar(net.kyori.adventure.text.@NonNull Component message) {
     Component translated = translateMessage(message);
@@ -1225,6 +1251,16 @@ public class ConnectedPlayer implements MinecraftConnectionAssociation, Player,
             return completedFuture(plainResult(check.get(), realDestination));
           }
 
+          if (connection.isSpliced()) {
+            // The client is wired straight to its current server, so it can't be moved. Tear the
+            // splice down by disconnecting the player instead of leaving the request hanging.
+            logger.info("{} can't be moved to {} while spliced to their server, disconnecting",
+                ConnectedPlayer.this, realDestination.getServerInfo().getName());
+            connection.close();
+            return completedFuture(
+                plainResult(ConnectionRequestBuilder.Status.CONNECTION_CANCELLED, realDestination));
+          }
+
           VelocityRegisteredServer vrs = (VelocityRegisteredServer) realDestination;
           VelocityServerConnection con =
               new VelocityServerConnection(vrs, previousServer, ConnectedPlayer.this, server);
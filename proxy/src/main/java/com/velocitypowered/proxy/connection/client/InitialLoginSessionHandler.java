@@ -17,8 +17,6 @@
 
 package com.velocitypowered.proxy.connection.client;
 
-import static com.google.common.net.UrlEscapers.urlFormParameterEscaper;
-import static com.velocitypowered.proxy.VelocityServer.GENERAL_GSON;
 import static com.velocitypowered.proxy.connection.VelocityConstants.EMPTY_BYTE_ARRAY;
 import static com.velocitypowered.proxy.crypto.EncryptionUtils.decryptRsa;
 import static com.velocitypowered.proxy.crypto.EncryptionUtils.generateServerId;
@@ -34,6 +32,7 @@ import com.velocitypowered.proxy.VelocityServer;
 import com.velocitypowered.proxy.connection.MinecraftConnection;
 import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
 import com.velocitypowered.proxy.crypto.IdentifiedKeyImpl;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics.LoginStage;
 import com.velocitypowered.proxy.protocol.StateRegistry;
 import com.velocitypowered.proxy.protocol.netty.MinecraftDecoder;
 import com.velocitypowered.proxy.protocol.packet.EncryptionRequest;
@@ -47,14 +46,13 @@ import java.security.KeyPair;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.asynchttpclient.ListenableFuture;
-import org.asynchttpclient.Response;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 
 /**
@@ -63,10 +61,6 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 public class InitialLoginSessionHandler implements MinecraftSessionHandler {
 
   private static final Logger logger = LogManager.getLogger(InitialLoginSessionHandler.class);
-  private static final String MOJANG_HASJOINED_URL =
-      System.getProperty("mojang.sessionserver",
-              "https://sessionserver.mojang.com/session/minecraft/hasJoined")
-          .concat("?username=%s&serverId=%s");
 
   private final VelocityServer server;
   private final MinecraftConnection mcConnection;
@@ -121,7 +115,10 @@ public class InitialLoginSessionHandler implements MinecraftSessionHandler {
     this.login = packet;
 
     PreLoginEvent event = new PreLoginEvent(inbound, login.getUsername());
+    long preLoginStart = System.nanoTime();
     server.getEventManager().fire(event).thenRunAsync(() -> {
+      server.getNetworkMetrics().getLoginStageTimes(LoginStage.PRE_LOGIN)
+          .record(System.nanoTime() - preLoginStart);
       if (mcConnection.isClosed()) {
         // The player was disconnected
         return;
@@ -174,6 +171,7 @@ public class InitialLoginSessionHandler implements MinecraftSessionHandler {
   public boolean handle(EncryptionResponse packet) {
     assertState(LoginState.ENCRYPTION_REQUEST_SENT);
     this.currentState = LoginState.ENCRYPTION_RESPONSE_RECEIVED;
+    long authenticationStart = System.nanoTime();
     ServerLogin login = this.login;
     if (login == null) {
       throw new IllegalStateException("No ServerLogin packet received yet.");
@@ -183,10 +181,13 @@ public class InitialLoginSessionHandler implements MinecraftSessionHandler {
       throw new IllegalStateException("No EncryptionRequest packet sent yet.");
     }
 
-    try {
-      KeyPair serverKeyPair = server.getServerKeyPair();
-      if (inbound.getIdentifiedKey() != null) {
-        IdentifiedKey playerKey = inbound.getIdentifiedKey();
+    // Decrypting the shared secret is slow enough to stall the other players on this event loop
+    // during a login storm, so it is done on a crypto thread.
+    KeyPair serverKeyPair = server.getServerKeyPair();
+    IdentifiedKey playerKey = inbound.getIdentifiedKey();
+    byte[] verify = this.verify;
+    server.getCryptoExecutor().submit(() -> {
+      if (playerKey != null) {
         if (!playerKey.verifyDataSignature(packet.getVerifyToken(), verify,
             Longs.toByteArray(packet.getSalt()))) {
           throw new IllegalStateException("Invalid client public signature.");
@@ -197,80 +198,87 @@ public class InitialLoginSessionHandler implements MinecraftSessionHandler {
           throw new IllegalStateException("Unable to successfully decrypt the verification token.");
         }
       }
+      return decryptRsa(serverKeyPair, packet.getSharedSecret());
+    }).whenCompleteAsync((decryptedSharedSecret, cause) -> {
+      if (mcConnection.isClosed()) {
+        return;
+      }
+      if (cause instanceof GeneralSecurityException) {
+        logger.error("Unable to enable encryption", cause);
+        mcConnection.close(true);
+      } else if (cause instanceof RejectedExecutionException) {
+        logger.warn("Too many players are logging in at once, disconnecting {}",
+            login.getUsername());
+        mcConnection.close(true);
+      } else if (cause != null) {
+        mcConnection.getChannel().pipeline().fireExceptionCaught(cause);
+      } else {
+        authenticate(login, serverKeyPair, decryptedSharedSecret, authenticationStart);
+      }
+    }, mcConnection.eventLoop());
+    return true;
+  }
 
-      byte[] decryptedSharedSecret = decryptRsa(serverKeyPair, packet.getSharedSecret());
-      String serverId = generateServerId(decryptedSharedSecret, serverKeyPair.getPublic());
-
-      String playerIp = ((InetSocketAddress) mcConnection.getRemoteAddress()).getHostString();
-      String url = String.format(MOJANG_HASJOINED_URL,
-          urlFormParameterEscaper().escape(login.getUsername()), serverId);
+  private void authenticate(ServerLogin login, KeyPair serverKeyPair,
+      byte[] decryptedSharedSecret, long authenticationStart) {
+    String serverId = generateServerId(decryptedSharedSecret, serverKeyPair.getPublic());
 
-      if (server.getConfiguration().shouldPreventClientProxyConnections()) {
-        url += "&ip=" + urlFormParameterEscaper().escape(playerIp);
+    String playerIp = ((InetSocketAddress) mcConnection.getRemoteAddress()).getHostString();
+    CompletableFuture<SessionServerClient.Result> hasJoined = server.getSessionServerClient()
+        .hasJoined(login.getUsername(), serverId, playerIp);
+    hasJoined.whenCompleteAsync((result, cause) -> {
+      server.getNetworkMetrics().getLoginStageTimes(LoginStage.AUTHENTICATION)
+          .record(System.nanoTime() - authenticationStart);
+      if (mcConnection.isClosed()) {
+        // The player disconnected after we authenticated them.
+        return;
       }
 
-      ListenableFuture<Response> hasJoinedResponse = server.getAsyncHttpClient().prepareGet(url)
-          .execute();
-      hasJoinedResponse.addListener(() -> {
-        if (mcConnection.isClosed()) {
-          // The player disconnected after we authenticated them.
-          return;
-        }
+      // Go ahead and enable encryption. Once the client sends EncryptionResponse, encryption
+      // is enabled.
+      try {
+        mcConnection.enableEncryption(decryptedSharedSecret);
+      } catch (GeneralSecurityException e) {
+        logger.error("Unable to enable encryption for connection", e);
+        // At this point, the connection is encrypted, but something's wrong on our side and
+        // we can't do anything about it.
+        mcConnection.close(true);
+        return;
+      }
 
-        // Go ahead and enable encryption. Once the client sends EncryptionResponse, encryption
-        // is enabled.
-        try {
-          mcConnection.enableEncryption(decryptedSharedSecret);
-        } catch (GeneralSecurityException e) {
-          logger.error("Unable to enable encryption for connection", e);
-          // At this point, the connection is encrypted, but something's wrong on our side and
-          // we can't do anything about it.
-          mcConnection.close(true);
-          return;
-        }
+      if (cause != null) {
+        logger.error("Unable to authenticate with Mojang", cause);
+        inbound.disconnect(Component.translatable("multiplayer.disconnect.authservers_down"));
+        return;
+      }
 
-        try {
-          Response profileResponse = hasJoinedResponse.get();
-          if (profileResponse.getStatusCode() == 200) {
-            final GameProfile profile = GENERAL_GSON.fromJson(profileResponse.getResponseBody(),
-                GameProfile.class);
-            // Not so fast, now we verify the public key for 1.19.1+
-            if (inbound.getIdentifiedKey() != null
-                && inbound.getIdentifiedKey().getKeyRevision() == IdentifiedKey.Revision.LINKED_V2
-                && inbound.getIdentifiedKey() instanceof IdentifiedKeyImpl) {
-              IdentifiedKeyImpl key = (IdentifiedKeyImpl) inbound.getIdentifiedKey();
-              if (!key.internalAddHolder(profile.getId())) {
-                inbound.disconnect(
-                    Component.translatable("multiplayer.disconnect.invalid_public_key"));
-              }
-            }
-            // All went well, initialize the session.
-            mcConnection.setActiveSessionHandler(StateRegistry.LOGIN,
-                new AuthSessionHandler(server, inbound, profile, true));
-          } else if (profileResponse.getStatusCode() == 204) {
-            // Apparently an offline-mode user logged onto this online-mode proxy.
+      final GameProfile profile = result.getProfile();
+      if (profile != null) {
+        // Not so fast, now we verify the public key for 1.19.1+
+        if (inbound.getIdentifiedKey() != null
+            && inbound.getIdentifiedKey().getKeyRevision() == IdentifiedKey.Revision.LINKED_V2
+            && inbound.getIdentifiedKey() instanceof IdentifiedKeyImpl) {
+          IdentifiedKeyImpl key = (IdentifiedKeyImpl) inbound.getIdentifiedKey();
+          if (!key.internalAddHolder(profile.getId())) {
             inbound.disconnect(
-                Component.translatable("velocity.error.online-mode-only", NamedTextColor.RED));
-          } else {
-            // Something else went wrong
-            logger.error(
-                "Got an unexpected error code {} whilst contacting Mojang to log in {} ({})",
-                profileResponse.getStatusCode(), login.getUsername(), playerIp);
-            inbound.disconnect(Component.translatable("multiplayer.disconnect.authservers_down"));
+                Component.translatable("multiplayer.disconnect.invalid_public_key"));
           }
-        } catch (ExecutionException e) {
-          logger.error("Unable to authenticate with Mojang", e);
-          inbound.disconnect(Component.translatable("multiplayer.disconnect.authservers_down"));
-        } catch (InterruptedException e) {
-          // not much we can do usefully
-          Thread.currentThread().interrupt();
         }
-      }, mcConnection.eventLoop());
-    } catch (GeneralSecurityException e) {
-      logger.error("Unable to enable encryption", e);
-      mcConnection.close(true);
-    }
-    return true;
+        // All went well, initialize the session.
+        mcConnection.setActiveSessionHandler(StateRegistry.LOGIN,
+            new AuthSessionHandler(server, inbound, profile, true));
+      } else if (result.getStatusCode() == 204) {
+        // Apparently an offline-mode user logged onto this online-mode proxy.
+        inbound.disconnect(
+            Component.translatable("velocity.error.online-mode-only", NamedTextColor.RED));
+      } else {
+        // Something else went wrong
+        logger.error(
+            "Got an unexpected error code {} whilst contacting Mojang to log in {} ({})",
+            result.getStatusCode(), login.getUsername(), playerIp);
+        inbound.disconnect(Component.translatable("multiplayer.disconnect.authservers_down"));
+      }
+    }, mcConnection.eventLoop());
   }
 
   private EncryptionRequest generateEncryptionRequest() {
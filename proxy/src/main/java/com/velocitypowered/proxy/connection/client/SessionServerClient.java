@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.client;
+
+import static com.google.common.net.UrlEscapers.urlFormParameterEscaper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.velocitypowered.api.util.GameProfile;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.Response;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Asks the Mojang session server whether a player has joined the proxy, as the last step of
+ * authenticating them.
+ *
+ * <p>Every lookup is sent to the session server: the server ID is derived from a secret the
+ * client picks for every login, so no two logins can share an answer. If the fallback is enabled,
+ * verified profiles are kept for a short while, keyed by username and address, so that a player
+ * who was verified from the same address a moment ago can log in again while the session server
+ * is failing. Such a player is let in without their server ID being checked.</p>
+ */
+public final class SessionServerClient {
+
+  private static final Logger logger = LogManager.getLogger(SessionServerClient.class);
+
+  /**
+   * The endpoint of the Mojang session server, which can be replaced with
+   * {@code -Dmojang.sessionserver}.
+   */
+  public static final String DEFAULT_ENDPOINT = System.getProperty("mojang.sessionserver",
+      "https://sessionserver.mojang.com/session/minecraft/hasJoined");
+
+  private final AsyncHttpClient httpClient;
+  private final String endpoint;
+  private final boolean sendAddress;
+  private final @Nullable Cache<String, GameProfile> verified;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+
+  /**
+   * Creates a session server client.
+   *
+   * @param httpClient the HTTP client to send requests with
+   * @param endpoint the URL of the {@code hasJoined} endpoint
+   * @param sendAddress whether to send the address of the player, so the session server checks
+   *                    it is the same as the one the client authenticated from
+   * @param cacheTtl how long verified profiles are kept for the fallback, or {@link Duration#ZERO}
+   *                 to not keep them
+   * @param fallback whether to use a kept profile when the session server fails
+   */
+  public SessionServerClient(AsyncHttpClient httpClient, String endpoint, boolean sendAddress,
+      Duration cacheTtl, boolean fallback) {
+    this.httpClient = httpClient;
+    this.endpoint = endpoint;
+    this.sendAddress = sendAddress;
+    this.verified = fallback && !cacheTtl.isZero() && !cacheTtl.isNegative()
+        ? Caffeine.newBuilder().expireAfterWrite(cacheTtl).build()
+        : null;
+  }
+
+  /**
+   * Checks whether the player has joined the proxy with the specified server ID.
+   *
+   * @param username the username of the player
+   * @param serverId the server ID derived from the shared secret
+   * @param address the address the player connected from
+   * @return the result of the lookup, which fails if the session server could not be reached and
+   *         no profile to fall back on is kept
+   */
+  public CompletableFuture<Result> hasJoined(String username, String serverId, String address) {
+    String url = endpoint + "?username=" + urlFormParameterEscaper().escape(username)
+        + "&serverId=" + serverId;
+    if (sendAddress) {
+      url += "&ip=" + urlFormParameterEscaper().escape(address);
+    }
+
+    requests.increment();
+    String key = username.toLowerCase(Locale.ROOT) + '\0' + address;
+    CompletableFuture<Result> lookup = new CompletableFuture<>();
+    httpClient.prepareGet(url).execute().toCompletableFuture()
+        .handle((response, cause) -> {
+          Result result = null;
+          Throwable failure = cause;
+          if (failure == null) {
+            try {
+              result = toResult(response);
+            } catch (IOException | RuntimeException e) {
+              failure = e;
+            }
+          }
+
+          if (verified != null) {
+            if (result != null && result.getProfile() != null) {
+              verified.put(key, result.getProfile());
+            } else if (isFailure(result)) {
+              GameProfile profile = verified.getIfPresent(key);
+              if (profile != null) {
+                fallbacks.increment();
+                logger.warn("The session server is unavailable, letting {} ({}) log in again as "
+                    + "they did a moment ago", username, address);
+                result = new Result(200, profile, true);
+                failure = null;
+              }
+            }
+          }
+
+          if (failure != null) {
+            lookup.completeExceptionally(failure);
+          } else {
+            lookup.complete(result);
+          }
+          return null;
+        });
+    return lookup;
+  }
+
+  private static boolean isFailure(@Nullable Result result) {
+    return result == null || (result.getProfile() == null && result.getStatusCode() != 204);
+  }
+
+  private static Result toResult(Response response) throws IOException {
+    if (response.getStatusCode() != 200) {
+      return new Result(response.getStatusCode(), null, false);
+    }
+    try (JsonReader reader = new JsonReader(
+        new InputStreamReader(response.getResponseBodyAsStream(), StandardCharsets.UTF_8))) {
+      return new Result(200, readProfile(reader), false);
+    }
+  }
+
+  /**
+   * Reads a game profile without building a tree of the whole response first.
+   *
+   * @param reader the reader to read from
+   * @return the profile
+   * @throws IOException if the profile could not be read
+   */
+  static GameProfile readProfile(JsonReader reader) throws IOException {
+    String id = null;
+    String name = null;
+    ImmutableList.Builder<GameProfile.Property> properties = ImmutableList.builder();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextString();
+          break;
+        case "name":
+          name = reader.nextString();
+          break;
+        case "properties":
+          reader.beginArray();
+          while (reader.hasNext()) {
+            properties.add(readProperty(reader));
+          }
+          reader.endArray();
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (id == null || name == null) {
+      throw new IOException("The session server returned a profile without an id or name");
+    }
+    return new GameProfile(id, name, properties.build());
+  }
+
+  private static GameProfile.Property readProperty(JsonReader reader) throws IOException {
+    String name = null;
+    String value = null;
+    // Signatures are only left out when asked for, and an empty one is never forwarded.
+    String signature = "";
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String field = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
+      }
+      switch (field) {
+        case "name":
+          name = reader.nextString();
+          break;
+        case "value":
+          value = reader.nextString();
+          break;
+        case "signature":
+          signature = reader.nextString();
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+
+    if (name == null || value == null) {
+      throw new IOException("The session server returned a property without a name or value");
+    }
+    return new GameProfile.Property(name, value, signature);
+  }
+
+  /**
+   * Returns how many requests were sent to the session server.
+   *
+   * @return the number of requests
+   */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /**
+   * Returns how many players were let in with a kept profile because the session server failed.
+   *
+   * @return the number of fallbacks
+   */
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  /**
+   * The answer of the session server to a {@code hasJoined} lookup.
+   */
+  public static final class Result {
+
+    private final int statusCode;
+    private final @Nullable GameProfile profile;
+    private final boolean cached;
+
+    Result(int statusCode, @Nullable GameProfile profile, boolean cached) {
+      this.statusCode = statusCode;
+      this.profile = profile;
+      this.cached = cached;
+    }
+
+    /**
+     * Returns the HTTP status code of the response: 200 if the player was verified, 204 if they
+     * were not.
+     *
+     * @return the status code
+     */
+    public int getStatusCode() {
+      return statusCode;
+    }
+
+    /**
+     * Returns the profile of the player, if they were verified.
+     *
+     * @return the profile, or {@code null} if the player was not verified
+     */
+    public @Nullable GameProfile getProfile() {
+      return profile;
+    }
+
+    /**
+     * Returns whether the profile was kept from an earlier lookup rather than just returned by the
+     * session server.
+     *
+     * @return whether the result was cached
+     */
+    public boolean isCached() {
+      return cached;
+    }
+  }
+}
@@ -18,9 +18,11 @@
 package com.velocitypowered.proxy.connection.client;
 
 import com.velocitypowered.api.event.proxy.ProxyPingEvent;
+import com.velocitypowered.api.network.ProtocolVersion;
 import com.velocitypowered.proxy.VelocityServer;
 import com.velocitypowered.proxy.connection.MinecraftConnection;
 import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
+import com.velocitypowered.proxy.connection.util.StatusResponseCache;
 import com.velocitypowered.proxy.connection.util.VelocityInboundConnection;
 import com.velocitypowered.proxy.protocol.packet.LegacyDisconnect;
 import com.velocitypowered.proxy.protocol.packet.LegacyPing;
@@ -29,6 +31,7 @@ import com.velocitypowered.proxy.protocol.packet.StatusRequest;
 import com.velocitypowered.proxy.protocol.packet.StatusResponse;
 import com.velocitypowered.proxy.util.except.QuietRuntimeException;
 import io.netty.buffer.ByteBuf;
+import java.net.InetSocketAddress;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -91,14 +94,26 @@ public class StatusSessionHandler implements MinecraftSessionHandler {
     }
     this.pingReceived = true;
 
+    StatusResponseCache cache = server.getStatusResponseCache();
+    ProtocolVersion version = connection.getProtocolVersion();
+    String virtualHost = inbound.getVirtualHost().map(InetSocketAddress::getHostString)
+        .orElse(null);
+    int playerCount = server.getPlayerCount();
+    String cached = cache.get(version, virtualHost, playerCount);
+    if (cached != null) {
+      connection.write(new StatusResponse(cached));
+      return true;
+    }
+
     this.server.getServerListPingHandler().getInitialPing(inbound)
         .thenCompose(ping -> server.getEventManager().fire(new ProxyPingEvent(inbound, ping)))
         .thenAcceptAsync(
             (event) -> {
               StringBuilder json = new StringBuilder();
-              VelocityServer.getPingGsonInstance(connection.getProtocolVersion())
-                  .toJson(event.getPing(), json);
-              connection.write(new StatusResponse(json));
+              VelocityServer.getPingGsonInstance(version).toJson(event.getPing(), json);
+              String response = json.toString();
+              cache.put(version, virtualHost, playerCount, response);
+              connection.write(new StatusResponse(response));
             },
             connection.eventLoop())
         .exceptionally((ex) -> {
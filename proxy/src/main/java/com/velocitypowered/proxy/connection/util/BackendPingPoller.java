@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.server.PingOptions;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.server.VelocityRegisteredServer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+/**
+ * Keeps the latest ping of every backend server used for ping passthrough, so that a server list
+ * ping does not open a connection to every backend server.
+ *
+ * <p>A server is pinged the first time its ping is needed for a protocol version, and then again
+ * every {@code ping-passthrough-interval} milliseconds in the background. Servers that nobody
+ * asked about for a while are no longer pinged. If the interval is 0, every server list ping
+ * pings the backend servers directly.</p>
+ */
+public final class BackendPingPoller {
+
+  private static final long MINIMUM_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final VelocityServer server;
+  private final EventLoop loop;
+  private final ConcurrentMap<Key, Snapshot> snapshots = new ConcurrentHashMap<>();
+  private final AtomicBoolean polling = new AtomicBoolean();
+
+  public BackendPingPoller(VelocityServer server, EventLoopGroup group) {
+    this.server = server;
+    this.loop = group.next();
+  }
+
+  /**
+   * Returns the latest ping of the specified server.
+   *
+   * @param target the server to ping
+   * @param version the protocol version to ping the server with
+   * @param eventLoop the event loop to ping the server on if polling is disabled
+   * @return a future with the latest ping, which fails if the latest ping failed
+   */
+  public CompletableFuture<ServerPing> ping(VelocityRegisteredServer target,
+      ProtocolVersion version, EventLoop eventLoop) {
+    if (interval() <= 0) {
+      return target.ping(eventLoop, PingOptions.builder().version(version).build());
+    }
+
+    Snapshot snapshot = snapshots.computeIfAbsent(new Key(target, version),
+        key -> new Snapshot(target, version));
+    snapshot.lastRequested = System.nanoTime();
+    if (polling.compareAndSet(false, true)) {
+      schedule();
+    }
+    return snapshot.latest();
+  }
+
+  private long interval() {
+    return server.getConfiguration().getPingPassthroughInterval();
+  }
+
+  private void schedule() {
+    long interval = interval();
+    if (interval <= 0) {
+      stop();
+      return;
+    }
+    try {
+      loop.schedule(this::poll, interval, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // The proxy is shutting down.
+      stop();
+    }
+  }
+
+  private void stop() {
+    snapshots.clear();
+    polling.set(false);
+  }
+
+  private void poll() {
+    poll(System.nanoTime());
+    schedule();
+  }
+
+  /**
+   * Forgets the servers that are idle or no longer registered at {@code now}, and refreshes the
+   * ping of the others. This must be called from the poller's event loop.
+   *
+   * @param now the current {@link System#nanoTime()}
+   */
+  @VisibleForTesting
+  void poll(long now) {
+    long interval = interval();
+    long idleNanos = Math.max(MINIMUM_IDLE_NANOS, TimeUnit.MILLISECONDS.toNanos(interval * 3));
+    for (Iterator<Map.Entry<Key, Snapshot>> it = snapshots.entrySet().iterator(); it.hasNext(); ) {
+      Snapshot snapshot = it.next().getValue();
+      Optional<RegisteredServer> registered = server.getServer(
+          snapshot.target.getServerInfo().getName());
+      if (now - snapshot.lastRequested > idleNanos
+          || registered.isEmpty() || registered.get() != snapshot.target) {
+        it.remove();
+      } else {
+        snapshot.refresh();
+      }
+    }
+  }
+
+  private final class Snapshot {
+
+    private final VelocityRegisteredServer target;
+    private final PingOptions options;
+    private volatile long lastRequested;
+    private volatile @Nullable CompletableFuture<ServerPing> latest;
+    private @Nullable CompletableFuture<ServerPing> refreshing;
+
+    private Snapshot(VelocityRegisteredServer target, ProtocolVersion version) {
+      this.target = target;
+      this.options = PingOptions.builder().version(version).build();
+    }
+
+    private CompletableFuture<ServerPing> latest() {
+      CompletableFuture<ServerPing> latest = this.latest;
+      if (latest == null) {
+        synchronized (this) {
+          latest = this.latest;
+          if (latest == null) {
+            // Everybody asking before the first ping completes waits for it.
+            latest = target.ping(loop, options);
+            this.latest = latest;
+          }
+        }
+      }
+      return latest;
+    }
+
+    private void refresh() {
+      // Runs on the poller loop only, and keeps answering with the previous ping until the new
+      // one completes.
+      if (refreshing != null || latest == null || !latest.isDone()) {
+        return;
+      }
+      CompletableFuture<ServerPing> ping = target.ping(loop, options);
+      refreshing = ping;
+      ping.whenCompleteAsync((result, cause) -> {
+        latest = ping;
+        refreshing = null;
+      }, loop);
+    }
+  }
+
+  private static final class Key {
+
+    private final VelocityRegisteredServer target;
+    private final ProtocolVersion version;
+
+    private Key(VelocityRegisteredServer target, ProtocolVersion version) {
+      this.target = target;
+      this.version = version;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return target == key.target && version == key.version;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(target), version);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.proxy.connection.MinecraftConnection;
+import com.velocitypowered.proxy.protocol.MinecraftPacket;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.netty.PreparedPacket;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCounted;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Encodes a packet that is sent to many players only once for every combination of protocol
+ * version and compression threshold, and hands every player a duplicate of the same encoded
+ * packet.
+ *
+ * <p>A cache is meant to live for the duration of a single broadcast, and must be closed
+ * afterwards. It is not thread-safe. The compressor it needs is borrowed from a
+ * {@link CompressorPool} and handed back on close.
+ */
+public final class BroadcastPacketCache implements AutoCloseable {
+
+  private final ByteBufAllocator alloc;
+  private final CompressorPool compressors;
+  private final int compressionLevel;
+  private final Map<Key, PreparedPacket> prepared = new HashMap<>();
+  private @Nullable VelocityCompressor compressor;
+
+  public BroadcastPacketCache(CompressorPool compressors, int compressionLevel) {
+    this(ByteBufAllocator.DEFAULT, compressors, compressionLevel);
+  }
+
+  /**
+   * Creates a cache for a broadcast.
+   *
+   * @param alloc the allocator to encode packets with
+   * @param compressors the pool to borrow a compressor from
+   * @param compressionLevel the compression level to compress packets with
+   */
+  public BroadcastPacketCache(ByteBufAllocator alloc, CompressorPool compressors,
+      int compressionLevel) {
+    this.alloc = alloc;
+    this.compressors = compressors;
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * Writes a packet to the {@code connection}. The packet is created by {@code factory} and
+   * encoded only if no packet was prepared for the same {@code content}, protocol version and
+   * compression threshold yet.
+   *
+   * @param connection the connection to write to
+   * @param content identifies the packet, together with the protocol version. Two packets created
+   *        for equal contents and the same protocol version must be identical
+   * @param factory creates the packet for a protocol version
+   */
+  public void write(MinecraftConnection connection, Object content,
+      Function<ProtocolVersion, ? extends MinecraftPacket> factory) {
+    ProtocolVersion version = connection.getProtocolVersion();
+    if (connection.getState() != StateRegistry.PLAY) {
+      // The packet would end up in the queue of PLAY packets for clients in the CONFIG state.
+      connection.write(factory.apply(version));
+      return;
+    }
+
+    int threshold = connection.getCompressionThreshold();
+    Key key = new Key(content, version, threshold);
+    PreparedPacket packet = prepared.get(key);
+    if (packet == null) {
+      MinecraftPacket created = factory.apply(version);
+      if (created instanceof ReferenceCounted) {
+        connection.write(created);
+        return;
+      }
+      packet = PreparedPacket.prepare(alloc, created, version, threshold,
+          threshold < 0 ? null : compressor());
+      prepared.put(key, packet);
+    }
+    connection.write(packet.retainedDuplicate());
+  }
+
+  private VelocityCompressor compressor() {
+    if (compressor == null) {
+      compressor = compressors.acquire(compressionLevel);
+    }
+    return compressor;
+  }
+
+  @Override
+  public void close() {
+    for (PreparedPacket packet : prepared.values()) {
+      packet.release();
+    }
+    prepared.clear();
+    if (compressor != null) {
+      compressors.release(compressor, compressionLevel);
+      compressor = null;
+    }
+  }
+
+  private static final class Key {
+
+    private final Object content;
+    private final ProtocolVersion version;
+    private final int threshold;
+
+    private Key(Object content, ProtocolVersion version, int threshold) {
+      this.content = content;
+      this.version = version;
+      this.threshold = threshold;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return threshold == key.threshold
+          && version == key.version
+          && content.equals(key.content);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(content, version, threshold);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.natives.compression.VelocityCompressorFactory;
+import com.velocitypowered.natives.util.Natives;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps a few compressors around for {@link BroadcastPacketCache}s, so that a broadcast does not
+ * have to allocate (and free) a native compressor every time.
+ *
+ * <p>Compressors are handed out for a compression level. Idle compressors for another level are
+ * freed, which happens when the level is changed by reloading the configuration.</p>
+ */
+public final class CompressorPool implements AutoCloseable {
+
+  private static final int MAXIMUM_IDLE = 4;
+
+  private final VelocityCompressorFactory factory;
+  private final Deque<VelocityCompressor> idle = new ArrayDeque<>();
+  private int idleLevel;
+  private boolean closed;
+
+  public CompressorPool() {
+    this(Natives.compress.get());
+  }
+
+  public CompressorPool(VelocityCompressorFactory factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * Takes an idle compressor for the specified compression level from the pool, or creates one
+   * if there is none. The compressor must be handed back with {@link #release(VelocityCompressor,
+   * int)} once it is no longer used.
+   *
+   * @param level the compression level
+   * @return a compressor
+   */
+  public VelocityCompressor acquire(int level) {
+    synchronized (idle) {
+      if (level == idleLevel && !idle.isEmpty()) {
+        return idle.pop();
+      }
+    }
+    return factory.create(level);
+  }
+
+  /**
+   * Hands a compressor back to the pool. The compressor is freed if the pool is closed or already
+   * holds enough idle compressors.
+   *
+   * @param compressor the compressor
+   * @param level the compression level the compressor was acquired for
+   */
+  public void release(VelocityCompressor compressor, int level) {
+    synchronized (idle) {
+      if (!closed) {
+        if (level != idleLevel) {
+          closeIdle();
+          idleLevel = level;
+        }
+        if (idle.size() < MAXIMUM_IDLE) {
+          idle.push(compressor);
+          return;
+        }
+      }
+    }
+    compressor.close();
+  }
+
+  private void closeIdle() {
+    VelocityCompressor compressor;
+    while ((compressor = idle.poll()) != null) {
+      compressor.close();
+    }
+  }
+
+  /**
+   * Frees all idle compressors. Compressors handed back afterwards are freed right away.
+   */
+  @Override
+  public void close() {
+    synchronized (idle) {
+      closed = true;
+      closeIdle();
+    }
+  }
+}
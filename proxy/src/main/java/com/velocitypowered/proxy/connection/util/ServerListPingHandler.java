@@ -20,7 +20,6 @@ package com.velocitypowered.proxy.connection.util;
 import com.google.common.collect.ImmutableList;
 import com.spotify.futures.CompletableFutures;
 import com.velocitypowered.api.network.ProtocolVersion;
-import com.velocitypowered.api.proxy.server.PingOptions;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import com.velocitypowered.api.proxy.server.ServerPing;
 import com.velocitypowered.api.util.ModInfo;
@@ -41,9 +40,11 @@ import java.util.concurrent.CompletableFuture;
 public class ServerListPingHandler {
 
   private final VelocityServer server;
+  private final BackendPingPoller pingPoller;
 
-  public ServerListPingHandler(VelocityServer server) {
+  public ServerListPingHandler(VelocityServer server, BackendPingPoller pingPoller) {
     this.server = server;
+    this.pingPoller = pingPoller;
   }
 
   private ServerPing constructLocalPing(ProtocolVersion version) {
@@ -72,8 +73,8 @@ public class ServerListPingHandler {
         continue;
       }
       VelocityRegisteredServer vrs = (VelocityRegisteredServer) rs.get();
-      pings.add(vrs.ping(connection.getConnection().eventLoop(), PingOptions.builder()
-              .version(responseProtocolVersion).build()));
+      pings.add(pingPoller.ping(vrs, responseProtocolVersion,
+          connection.getConnection().eventLoop()));
     }
     if (pings.isEmpty()) {
       return CompletableFuture.completedFuture(fallback);
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.velocitypowered.api.event.proxy.StablePing;
+import com.velocitypowered.api.network.ProtocolVersion;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps serialized status responses for a short while, keyed by protocol version and virtual
+ * host, so that a burst of server list pings does not build and serialize the same response again
+ * for every ping.
+ *
+ * <p>A response is only reused while the number of players is the same as when it was kept, and
+ * responses are only kept while every listener of the ping event is a {@link StablePing}
+ * listener.</p>
+ */
+public final class StatusResponseCache {
+
+  private static final int MAXIMUM_SIZE = 1024;
+
+  private final @Nullable Cache<Key, Response> responses;
+  private final BooleanSupplier stable;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a status response cache.
+   *
+   * @param ttl how long responses are kept, or {@link Duration#ZERO} to not keep them
+   * @param stable whether every listener of the ping event is a {@link StablePing} listener
+   */
+  public StatusResponseCache(Duration ttl, BooleanSupplier stable) {
+    this.stable = stable;
+    this.responses = ttl.isZero() || ttl.isNegative() ? null : Caffeine.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(MAXIMUM_SIZE)
+        .build();
+  }
+
+  /**
+   * Returns the kept response for the specified protocol version and virtual host.
+   *
+   * @param version the protocol version of the client
+   * @param virtualHost the host the client connected to, if known
+   * @param playerCount the number of players connected to the proxy
+   * @return the serialized response, or {@code null} if none can be reused
+   */
+  public @Nullable String get(ProtocolVersion version, @Nullable String virtualHost,
+      int playerCount) {
+    if (responses == null || !stable.getAsBoolean()) {
+      return null;
+    }
+    Response response = responses.getIfPresent(new Key(version, virtualHost));
+    if (response == null || response.playerCount != playerCount) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return response.json;
+  }
+
+  /**
+   * Keeps a response for the specified protocol version and virtual host.
+   *
+   * @param version the protocol version of the client
+   * @param virtualHost the host the client connected to, if known
+   * @param playerCount the number of players the response was built for
+   * @param json the serialized response
+   */
+  public void put(ProtocolVersion version, @Nullable String virtualHost, int playerCount,
+      String json) {
+    if (responses == null || !stable.getAsBoolean()) {
+      return;
+    }
+    responses.put(new Key(version, virtualHost), new Response(playerCount, json));
+  }
+
+  /**
+   * Returns how many pings were answered with a kept response.
+   *
+   * @return the number of cache hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns how many pings had their response built because none could be reused.
+   *
+   * @return the number of cache misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  private static final class Key {
+
+    private final ProtocolVersion version;
+    private final @Nullable String virtualHost;
+
+    private Key(ProtocolVersion version, @Nullable String virtualHost) {
+      this.version = version;
+      this.virtualHost = virtualHost == null ? null : virtualHost.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return version == key.version && Objects.equals(virtualHost, key.virtualHost);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(version, virtualHost);
+    }
+  }
+
+  private static final class Response {
+
+    private final int playerCount;
+    private final String json;
+
+    private Response(int playerCount, String json) {
+      this.playerCount = playerCount;
+      this.json = json;
+    }
+  }
+}
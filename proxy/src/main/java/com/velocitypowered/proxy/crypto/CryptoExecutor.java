@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.crypto;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.velocitypowered.proxy.network.metrics.PowerOfTwoHistogram;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the expensive public key operations of logins, such as decrypting the shared secret, on a
+ * small pool of threads of their own. An RSA decryption takes about a millisecond, so doing them
+ * on the network threads during a login storm would stall every player sharing those threads.
+ *
+ * <p>The pool has {@code velocity.crypto-threads} threads (half the processors by default) and
+ * queues at most {@code velocity.crypto-queue-size} tasks (1024 by default). Once the queue is
+ * full, new tasks fail with a {@link RejectedExecutionException} instead of piling up.</p>
+ */
+public final class CryptoExecutor {
+
+  private static final int THREADS = Integer.getInteger("velocity.crypto-threads",
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  private static final int QUEUE_SIZE = Integer.getInteger("velocity.crypto-queue-size", 1024);
+
+  private final ThreadPoolExecutor executor;
+  private final PowerOfTwoHistogram queueTimes = new PowerOfTwoHistogram();
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Creates the crypto executor.
+   */
+  public CryptoExecutor() {
+    this(THREADS, QUEUE_SIZE);
+  }
+
+  CryptoExecutor(int threads, int queueSize) {
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueSize),
+        new ThreadFactoryBuilder()
+            .setNameFormat("Velocity Crypto Worker #%d")
+            .setDaemon(true)
+            .build());
+  }
+
+  /**
+   * Runs the specified task on a crypto thread.
+   *
+   * @param task the task to run
+   * @param <T> the type of the result
+   * @return a future completed with the result of the task, or failed if the task threw or the
+   *         queue was full
+   */
+  public <T> CompletableFuture<T> submit(Callable<T> task) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    long queuedAt = System.nanoTime();
+    try {
+      executor.execute(() -> {
+        queueTimes.record(System.nanoTime() - queuedAt);
+        try {
+          future.complete(task.call());
+        } catch (Throwable e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Returns how many tasks are waiting for a crypto thread.
+   *
+   * @return the number of queued tasks
+   */
+  public int getQueuedTasks() {
+    return executor.getQueue().size();
+  }
+
+  /**
+   * Returns how many crypto threads are running a task.
+   *
+   * @return the number of active threads
+   */
+  public int getActiveThreads() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * Returns for how long tasks waited for a crypto thread, in nanoseconds.
+   *
+   * @return the queue times
+   */
+  public PowerOfTwoHistogram getQueueTimes() {
+    return queueTimes;
+  }
+
+  /**
+   * Returns how many tasks were rejected because the queue was full.
+   *
+   * @return the number of rejected tasks
+   */
+  public long getRejectedTasks() {
+    return rejected.sum();
+  }
+
+  /**
+   * Stops the crypto threads. Queued tasks are not run.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
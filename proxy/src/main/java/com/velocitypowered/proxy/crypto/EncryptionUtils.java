@@ -27,6 +27,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.KeyPair;
@@ -40,6 +41,8 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Generic utilities for dealing with encryption operations in Minecraft.
@@ -66,6 +69,30 @@ public enum EncryptionUtils {
   private static final Base64.Encoder MIME_SPECIAL_ENCODER
       = Base64.getMimeEncoder(76, "\n".getBytes(StandardCharsets.UTF_8));
 
+  // Looking up a provider for every login shows up in profiles of login storms, so each thread
+  // keeps its own instances. Cipher, Mac and MessageDigest are not thread-safe.
+  private static final ThreadLocal<Cipher> RSA_CIPHER = ThreadLocal.withInitial(() -> {
+    try {
+      return Cipher.getInstance("RSA");
+    } catch (GeneralSecurityException e) {
+      throw new AssertionError(e);
+    }
+  });
+  private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
+    try {
+      return Mac.getInstance("HmacSHA256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  });
+  private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  });
+
   static {
     try {
       RSA_KEY_FACTORY = KeyFactory.getInstance("RSA");
@@ -242,11 +269,29 @@ public enum EncryptionUtils {
    * @throws GeneralSecurityException if the message couldn't be decoded
    */
   public static byte[] decryptRsa(KeyPair keyPair, byte[] bytes) throws GeneralSecurityException {
-    Cipher cipher = Cipher.getInstance("RSA");
+    Cipher cipher = RSA_CIPHER.get();
     cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
     return cipher.doFinal(bytes);
   }
 
+  /**
+   * Computes the HMAC-SHA256 of a message.
+   *
+   * @param secret the secret key
+   * @param bytes  the array holding the message
+   * @param offset the offset of the message in the array
+   * @param length the length of the message
+   * @return the message authentication code
+   * @throws InvalidKeyException if the secret can't be used as a key
+   */
+  public static byte[] hmacSha256(byte[] secret, byte[] bytes, int offset, int length)
+      throws InvalidKeyException {
+    Mac mac = HMAC_SHA256.get();
+    mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+    mac.update(bytes, offset, length);
+    return mac.doFinal();
+  }
+
   /**
    * Generates the server ID for the hasJoined endpoint.
    *
@@ -255,13 +300,9 @@ public enum EncryptionUtils {
    * @return the server ID
    */
   public static String generateServerId(byte[] sharedSecret, PublicKey key) {
-    try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-1");
-      digest.update(sharedSecret);
-      digest.update(key.getEncoded());
-      return twosComplementHexdigest(digest.digest());
-    } catch (NoSuchAlgorithmException e) {
-      throw new AssertionError(e);
-    }
+    MessageDigest digest = SHA1.get();
+    digest.update(sharedSecret);
+    digest.update(key.getEncoded());
+    return twosComplementHexdigest(digest.digest());
   }
 }
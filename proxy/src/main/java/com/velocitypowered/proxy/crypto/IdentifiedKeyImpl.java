@@ -116,7 +116,17 @@ public class IdentifiedKeyImpl implements IdentifiedKey {
   }
 
   private Boolean validateData(@Nullable UUID verify) {
-    if (revision == Revision.GENERIC_V1) {
+    if (revision != Revision.GENERIC_V1 && verify == null) {
+      return null;
+    }
+    // Generic keys are not linked to a player, so whoever presents them makes no difference.
+    UUID linkedTo = revision == Revision.GENERIC_V1 ? null : verify;
+    return VerifiedKeyCache.INSTANCE.verify(revision, publicKey.getEncoded(),
+        expiryTemporal.toEpochMilli(), signature, linkedTo, () -> checkSignature(linkedTo));
+  }
+
+  private boolean checkSignature(@Nullable UUID verify) {
+    if (verify == null) {
       String pemKey = EncryptionUtils.pemEncodeRsaKey(publicKey);
       long expires = expiryTemporal.toEpochMilli();
       byte[] toVerify = ("" + expires + pemKey).getBytes(StandardCharsets.US_ASCII);
@@ -124,9 +134,6 @@ public class IdentifiedKeyImpl implements IdentifiedKey {
           EncryptionUtils.SHA1_WITH_RSA, EncryptionUtils.getYggdrasilSessionKey(), signature,
           toVerify);
     } else {
-      if (verify == null) {
-        return null;
-      }
       byte[] keyBytes = publicKey.getEncoded();
       byte[] toVerify = new byte[keyBytes.length + 24]; // length long * 3
       ByteBuffer fixedDataSet = ByteBuffer.wrap(toVerify).order(ByteOrder.BIG_ENDIAN);
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.crypto;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.velocitypowered.api.proxy.crypto.IdentifiedKey;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Remembers player keys whose Mojang signature was already checked, so a player reconnecting
+ * with the same key does not have it verified again.
+ *
+ * <p>An entry covers everything the signature is checked against: the key, its expiry, the
+ * signature and, for linked keys, the UUID of the player. Only keys that passed are remembered,
+ * and only until they expire. At most {@code velocity.verified-key-cache-size} keys (4096 by
+ * default) are kept.</p>
+ */
+public final class VerifiedKeyCache {
+
+  public static final VerifiedKeyCache INSTANCE = new VerifiedKeyCache(
+      Integer.getInteger("velocity.verified-key-cache-size", 4096));
+
+  private final Cache<Entry, Boolean> verified;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  VerifiedKeyCache(int maximumSize) {
+    this.verified = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new Expiry<Entry, Boolean>() {
+          @Override
+          public long expireAfterCreate(Entry key, Boolean value, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, key.expiry - System.currentTimeMillis()));
+          }
+
+          @Override
+          public long expireAfterUpdate(Entry key, Boolean value, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+
+          @Override
+          public long expireAfterRead(Entry key, Boolean value, long currentTime,
+              long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Checks the Mojang signature of a player key, unless the same key was checked before.
+   *
+   * @param revision the revision of the key
+   * @param keyBytes the encoded key
+   * @param expiry when the key expires, in milliseconds since the epoch
+   * @param signature the Mojang signature of the key
+   * @param holder the UUID the key is linked to, if any
+   * @param check checks the signature
+   * @return whether the signature is valid
+   */
+  boolean verify(IdentifiedKey.Revision revision, byte[] keyBytes, long expiry,
+      byte[] signature, @Nullable UUID holder, BooleanSupplier check) {
+    Entry entry = new Entry(revision, keyBytes, expiry, signature, holder);
+    if (verified.getIfPresent(entry) != null) {
+      hits.increment();
+      return true;
+    }
+    misses.increment();
+    boolean valid = check.getAsBoolean();
+    if (valid && expiry > System.currentTimeMillis()) {
+      verified.put(entry, Boolean.TRUE);
+    }
+    return valid;
+  }
+
+  /**
+   * Returns how many key checks were skipped because the key was verified before.
+   *
+   * @return the number of cache hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns how many keys had their signature checked.
+   *
+   * @return the number of cache misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  private static final class Entry {
+
+    private final IdentifiedKey.Revision revision;
+    private final byte[] keyBytes;
+    private final long expiry;
+    private final byte[] signature;
+    private final @Nullable UUID holder;
+    private final int hashCode;
+
+    private Entry(IdentifiedKey.Revision revision, byte[] keyBytes, long expiry, byte[] signature,
+        @Nullable UUID holder) {
+      this.revision = revision;
+      this.keyBytes = keyBytes;
+      this.expiry = expiry;
+      this.signature = signature;
+      this.holder = holder;
+      this.hashCode = Objects.hash(revision, Arrays.hashCode(keyBytes), expiry,
+          Arrays.hashCode(signature), holder);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry that = (Entry) o;
+      return revision == that.revision
+          && expiry == that.expiry
+          && Objects.equals(holder, that.holder)
+          && Arrays.equals(keyBytes, that.keyBytes)
+          && Arrays.equals(signature, that.signature);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -32,11 +32,14 @@ import com.velocitypowered.api.event.EventManager;
 import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.StablePing;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.PluginManager;
 import com.velocitypowered.proxy.event.UntargetedEventHandler.EventTaskHandler;
 import com.velocitypowered.proxy.event.UntargetedEventHandler.VoidHandler;
 import com.velocitypowered.proxy.event.UntargetedEventHandler.WithContinuationHandler;
+import com.velocitypowered.proxy.network.metrics.PowerOfTwoHistogram;
+import com.velocitypowered.proxy.util.concurrent.VirtualThreads;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
@@ -54,8 +57,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -102,7 +107,10 @@ public class VelocityEventManager implements EventManager {
   private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
   private final List<CustomHandlerAdapter<?>> handlerAdapters = new ArrayList<>();
+  private final Map<Class<?>, PowerOfTwoHistogram> fireTimes = new ConcurrentHashMap<>();
+  private final Map<PluginContainer, Semaphore> handlerLimiters = new ConcurrentHashMap<>();
   private final EventTypeTracker eventTypeTracker = new EventTypeTracker();
+  private volatile boolean timingEnabled;
 
   /**
    * Initializes the Velocity event manager.
@@ -111,9 +119,14 @@ public class VelocityEventManager implements EventManager {
    */
   public VelocityEventManager(final PluginManager pluginManager) {
     this.pluginManager = pluginManager;
-    this.asyncExecutor = Executors
-        .newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder()
-            .setNameFormat("Velocity Async Event Executor - #%d").setDaemon(true).build());
+    if (VirtualThreads.isEnabled()) {
+      this.asyncExecutor =
+          VirtualThreads.newThreadPerTaskExecutor("Velocity Async Event Executor - #");
+    } else {
+      this.asyncExecutor = Executors
+          .newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactoryBuilder()
+              .setNameFormat("Velocity Async Event Executor - #%d").setDaemon(true).build());
+    }
   }
 
   /**
@@ -139,19 +152,28 @@ public class VelocityEventManager implements EventManager {
     final short order;
     final Class<?> eventType;
     final EventHandler<Object> handler;
+    final AsyncType asyncType;
 
     /**
      * The instance of the {@link EventHandler} or the listener instance that was registered.
      */
     final Object instance;
 
+    /**
+     * Whether the handler is a listener method annotated with {@link StablePing}.
+     */
+    final boolean stable;
+
     public HandlerRegistration(final PluginContainer plugin, final short order,
-        final Class<?> eventType, final Object instance, final EventHandler<Object> handler) {
+        final Class<?> eventType, final Object instance, final EventHandler<Object> handler,
+        final AsyncType asyncType, final boolean stable) {
       this.plugin = plugin;
       this.order = order;
       this.eventType = eventType;
       this.instance = instance;
       this.handler = handler;
+      this.asyncType = asyncType;
+      this.stable = stable;
     }
   }
 
@@ -160,6 +182,11 @@ public class VelocityEventManager implements EventManager {
      * The complete event will be handled on an async thread.
      */
     ALWAYS,
+    /**
+     * The event will start on the thread calling the fire method, and may switch over to an async
+     * thread if a handler returns an {@link EventTask} that requires it.
+     */
+    SOMETIMES,
     /**
      * The event will never run async, everything is handled on the netty thread.
      */
@@ -169,9 +196,23 @@ public class VelocityEventManager implements EventManager {
   static final class HandlersCache {
 
     final HandlerRegistration[] handlers;
+    final AsyncType asyncType;
+    final PowerOfTwoHistogram fireTimes;
+    final boolean allStable;
 
-    HandlersCache(final HandlerRegistration[] handlers) {
+    HandlersCache(final HandlerRegistration[] handlers, final PowerOfTwoHistogram fireTimes) {
       this.handlers = handlers;
+      this.fireTimes = fireTimes;
+      AsyncType asyncType = AsyncType.NEVER;
+      boolean allStable = true;
+      for (final HandlerRegistration registration : handlers) {
+        if (registration.asyncType.compareTo(asyncType) < 0) {
+          asyncType = registration.asyncType;
+        }
+        allStable &= registration.stable;
+      }
+      this.asyncType = asyncType;
+      this.allStable = allStable;
     }
   }
 
@@ -193,7 +234,9 @@ public class VelocityEventManager implements EventManager {
     }
 
     baked.sort(handlerComparator);
-    return new HandlersCache(baked.toArray(new HandlerRegistration[0]));
+    // The histogram outlives the cache, which is baked again whenever handlers change.
+    return new HandlersCache(baked.toArray(new HandlerRegistration[0]),
+        fireTimes.computeIfAbsent(eventType, ignored -> new PowerOfTwoHistogram()));
   }
 
   /**
@@ -233,15 +276,17 @@ public class VelocityEventManager implements EventManager {
     final short order;
     final @Nullable String errors;
     final @Nullable Class<?> continuationType;
+    final AsyncType asyncType;
 
     private MethodHandlerInfo(final Method method, final @Nullable Class<?> eventType,
         final short order, final @Nullable String errors,
-        final @Nullable Class<?> continuationType) {
+        final @Nullable Class<?> continuationType, final AsyncType asyncType) {
       this.method = method;
       this.eventType = eventType;
       this.order = order;
       this.errors = errors;
       this.continuationType = continuationType;
+      this.asyncType = asyncType;
     }
   }
 
@@ -309,10 +354,20 @@ public class VelocityEventManager implements EventManager {
           errors.add("method return type must be void or EventTask");
         }
       }
+      final AsyncType asyncType;
+      if (subscribe.async()) {
+        asyncType = AsyncType.ALWAYS;
+      } else if (handlerAdapter != null || continuationType != null
+          || method.getReturnType() == EventTask.class) {
+        // These handlers may hand the event over to another thread
+        asyncType = AsyncType.SOMETIMES;
+      } else {
+        asyncType = AsyncType.NEVER;
+      }
       final short order = (short) subscribe.order().ordinal();
       final String errorsJoined = errors.isEmpty() ? null : String.join(",", errors);
       collected.put(key, new MethodHandlerInfo(method, eventType, order, errorsJoined,
-          continuationType));
+          continuationType, asyncType));
     }
     final Class<?> superclass = targetClass.getSuperclass();
     if (superclass != Object.class) {
@@ -355,7 +410,8 @@ public class VelocityEventManager implements EventManager {
     requireNonNull(handler, "handler");
 
     final HandlerRegistration registration = new HandlerRegistration(pluginContainer,
-        (short) order.ordinal(), eventClass, handler, (EventHandler<Object>) handler);
+        (short) order.ordinal(), eventClass, handler, (EventHandler<Object>) handler,
+        AsyncType.ALWAYS, false);
     register(Collections.singletonList(registration));
   }
 
@@ -385,7 +441,8 @@ public class VelocityEventManager implements EventManager {
 
       final EventHandler<Object> handler = untargetedHandler.buildHandler(listener);
       registrations.add(new HandlerRegistration(pluginContainer, info.order,
-          info.eventType, listener, handler));
+          info.eventType, listener, handler, info.asyncType,
+          info.method.isAnnotationPresent(StablePing.class)));
     }
 
     register(registrations);
@@ -446,6 +503,21 @@ public class VelocityEventManager implements EventManager {
     return handlersCache != null && handlersCache.handlers.length > 0;
   }
 
+  /**
+   * Determines whether every subscriber of the given event class is a listener method annotated
+   * with {@link StablePing}. Handlers registered as an {@link EventHandler} can't be annotated, so
+   * they never qualify. The answer is worked out when the list of event handlers is baked, which
+   * this may do.
+   *
+   * @param eventClass the class of the event to check
+   * @return {@code true} if every subscriber is stable, or there are none, else {@code false}
+   */
+  public boolean areAllSubscribersStable(final Class<?> eventClass) {
+    requireNonNull(eventClass, "eventClass");
+    final HandlersCache handlersCache = this.handlersCache.get(eventClass);
+    return handlersCache == null || handlersCache.allStable;
+  }
+
   @Override
   public void fireAndForget(final Object event) {
     requireNonNull(event, "event");
@@ -472,10 +544,25 @@ public class VelocityEventManager implements EventManager {
 
   private <E> void fire(final @Nullable CompletableFuture<E> future,
       final E event, final HandlersCache handlersCache) {
-    // In Velocity 1.1.0, all events were fired asynchronously. As Velocity 3.0.0 is intended to be
-    // largely (albeit not 100%) compatible with 1.1.x, we also fire events async. This behavior
-    // will go away in Velocity Polymer.
-    asyncExecutor.execute(() -> fire(future, event, 0, true, handlersCache.handlers));
+    final CompletableFuture<E> fireFuture;
+    if (timingEnabled) {
+      final long start = System.nanoTime();
+      final PowerOfTwoHistogram times = handlersCache.fireTimes;
+      fireFuture = future != null ? future : new CompletableFuture<>();
+      fireFuture.whenComplete((ignored, ex) -> times.record(System.nanoTime() - start));
+    } else {
+      fireFuture = future;
+    }
+
+    if (handlersCache.asyncType == AsyncType.ALWAYS) {
+      // In Velocity 1.1.0, all events were fired asynchronously. As Velocity 3.0.0 is intended to
+      // be largely (albeit not 100%) compatible with 1.1.x, we also fire events async unless every
+      // handler opted out. This behavior will go away in Velocity Polymer.
+      asyncExecutor.execute(() -> fire(fireFuture, event, 0, true, handlersCache.handlers));
+    } else {
+      // Every handler is fine with running on the calling thread, don't hop threads for nothing.
+      fire(fireFuture, event, 0, false, handlersCache.handlers);
+    }
   }
 
   private static final int TASK_STATE_DEFAULT = 0;
@@ -530,7 +617,16 @@ public class VelocityEventManager implements EventManager {
 
     @Override
     public void run() {
-      if (execute()) {
+      final Semaphore permits = acquireHandlerPermit(registrations[index]);
+      final boolean next;
+      try {
+        next = execute();
+      } finally {
+        if (permits != null) {
+          permits.release();
+        }
+      }
+      if (next) {
         fire(future, event, index + 1, currentlyAsync, registrations);
       }
     }
@@ -593,6 +689,8 @@ public class VelocityEventManager implements EventManager {
       final int offset, final boolean currentlyAsync, final HandlerRegistration[] registrations) {
     for (int i = offset; i < registrations.length; i++) {
       final HandlerRegistration registration = registrations[i];
+      // Never block the calling thread, it may be a Netty event loop
+      final Semaphore permits = currentlyAsync ? acquireHandlerPermit(registration) : null;
       try {
         final EventTask eventTask = registration.handler.executeAsync(event);
         if (eventTask == null) {
@@ -612,6 +710,10 @@ public class VelocityEventManager implements EventManager {
         return;
       } catch (final Throwable t) {
         logHandlerException(registration, t);
+      } finally {
+        if (permits != null) {
+          permits.release();
+        }
       }
     }
     if (future != null) {
@@ -619,6 +721,24 @@ public class VelocityEventManager implements EventManager {
     }
   }
 
+  /**
+   * Waits until the plugin of the given handler is allowed to run another handler, if the number
+   * of handlers a plugin may run at once is limited.
+   *
+   * @param registration the handler about to run
+   * @return the semaphore to release once the handler returns, or {@code null} if plugins are not
+   *         limited
+   */
+  private @Nullable Semaphore acquireHandlerPermit(final HandlerRegistration registration) {
+    if (!VirtualThreads.isPluginConcurrencyLimited()) {
+      return null;
+    }
+    final Semaphore permits = handlerLimiters.computeIfAbsent(registration.plugin,
+        ignored -> VirtualThreads.newPluginLimiter());
+    permits.acquireUninterruptibly();
+    return permits;
+  }
+
   private static void logHandlerException(
       final HandlerRegistration registration, final Throwable t) {
     logger.error("Couldn't pass {} to {}", registration.eventType.getSimpleName(),
@@ -633,4 +753,26 @@ public class VelocityEventManager implements EventManager {
   public ExecutorService getAsyncExecutor() {
     return asyncExecutor;
   }
+
+  /**
+   * Sets whether to time how long it takes to pass events to all their handlers. Timing costs an
+   * extra future for every event fired without one, so it is only enabled while the metrics are
+   * served.
+   *
+   * @param timingEnabled whether to time events
+   */
+  public void setTimingEnabled(final boolean timingEnabled) {
+    this.timingEnabled = timingEnabled;
+  }
+
+  /**
+   * Returns how long it took to pass events to all their handlers, in nanoseconds, for each type
+   * of event that has handlers. Events are only timed while {@linkplain #setTimingEnabled timing
+   * is enabled}.
+   *
+   * @return the time it took to fire events, by event type
+   */
+  public Map<Class<?>, PowerOfTwoHistogram> getFireTimes() {
+    return Collections.unmodifiableMap(fireTimes);
+  }
 }
\ No newline at end of file
@@ -26,19 +26,33 @@ import com.velocitypowered.api.event.proxy.ListenerCloseEvent;
 import com.velocitypowered.api.network.ListenerType;
 import com.velocitypowered.natives.util.Natives;
 import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.network.metrics.OpenMetricsExporter;
+import com.velocitypowered.proxy.network.metrics.OpenMetricsHttpHandler;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics;
 import com.velocitypowered.proxy.network.netty.SeparatePoolInetNameResolver;
 import com.velocitypowered.proxy.protocol.netty.GameSpyQueryHandler;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.asynchttpclient.AsyncHttpClient;
@@ -56,6 +70,7 @@ public final class ConnectionManager {
   private static final WriteBufferWaterMark SERVER_WRITE_MARK = new WriteBufferWaterMark(1 << 20,
       1 << 21);
   private static final Logger LOGGER = LogManager.getLogger(ConnectionManager.class);
+  private static final boolean REUSE_PORT = Boolean.getBoolean("velocity.reuse-port");
   private final Map<InetSocketAddress, Endpoint> endpoints = new HashMap<>();
   private final TransportType transportType;
   private final EventLoopGroup bossGroup;
@@ -70,6 +85,7 @@ public final class ConnectionManager {
 
   private final SeparatePoolInetNameResolver resolver;
   private final AsyncHttpClient httpClient;
+  private final VelocityNetworkMetrics networkMetrics = new VelocityNetworkMetrics();
 
   /**
    * Initalizes the {@code ConnectionManager}.
@@ -110,12 +126,56 @@ public final class ConnectionManager {
   /**
    * Binds a Minecraft listener to the specified {@code address}.
    *
+   * <p>With the epoll transport and {@code -Dvelocity.reuse-port=true}, one server channel is bound
+   * per boss event loop with {@code SO_REUSEPORT}, so that the kernel spreads incoming connections
+   * over all of them instead of a single thread accepting every connection.</p>
+   *
    * @param address the address to bind to
    */
   public void bind(final InetSocketAddress address) {
+    if (REUSE_PORT && this.transportType != TransportType.EPOLL) {
+      LOGGER.warn("SO_REUSEPORT listeners require the epoll transport, binding {} with a single "
+          + "acceptor", address);
+    }
+    if (!REUSE_PORT || this.transportType != TransportType.EPOLL) {
+      minecraftBootstrap(address, this.bossGroup).bind()
+          .addListener((ChannelFutureListener) future -> {
+            final Channel channel = future.channel();
+            if (future.isSuccess()) {
+              this.endpoints.put(address, new Endpoint(channel, ListenerType.MINECRAFT));
+              LOGGER.info("Listening on {}", channel.localAddress());
+
+              // Fire the proxy bound event after the socket is bound
+              server.getEventManager().fireAndForget(
+                  new ListenerBoundEvent(address, ListenerType.MINECRAFT));
+            } else {
+              LOGGER.error("Can't bind to {}", address, future.cause());
+            }
+          });
+      return;
+    }
+
+    final List<ChannelFuture> binds = new ArrayList<>();
+    for (EventExecutor loop : this.bossGroup) {
+      binds.add(minecraftBootstrap(address, (EventLoop) loop)
+          .option(EpollChannelOption.SO_REUSEPORT, true)
+          .bind());
+    }
+    final AtomicInteger pending = new AtomicInteger(binds.size());
+    for (ChannelFuture bind : binds) {
+      bind.addListener((ChannelFutureListener) future -> {
+        if (pending.decrementAndGet() == 0) {
+          this.reusePortBound(address, binds);
+        }
+      });
+    }
+  }
+
+  private ServerBootstrap minecraftBootstrap(final InetSocketAddress address,
+      final EventLoopGroup parentGroup) {
     final ServerBootstrap bootstrap = new ServerBootstrap()
         .channelFactory(this.transportType.serverSocketChannelFactory)
-        .group(this.bossGroup, this.workerGroup)
+        .group(parentGroup, this.workerGroup)
         .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, SERVER_WRITE_MARK)
         .childHandler(this.serverChannelInitializer.get())
         .childOption(ChannelOption.TCP_NODELAY, true)
@@ -125,21 +185,40 @@ public final class ConnectionManager {
     if (server.getConfiguration().useTcpFastOpen()) {
       bootstrap.option(ChannelOption.TCP_FASTOPEN, 3);
     }
+    if (isSpliceable()) {
+      // The epoll mode can't be changed once the channel is registered.
+      bootstrap.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
+    }
+    return bootstrap;
+  }
 
-    bootstrap.bind()
-        .addListener((ChannelFutureListener) future -> {
-          final Channel channel = future.channel();
-          if (future.isSuccess()) {
-            this.endpoints.put(address, new Endpoint(channel, ListenerType.MINECRAFT));
-            LOGGER.info("Listening on {}", channel.localAddress());
+  private void reusePortBound(final InetSocketAddress address, final List<ChannelFuture> binds) {
+    final List<Channel> channels = new ArrayList<>(binds.size());
+    Throwable cause = null;
+    for (ChannelFuture bind : binds) {
+      if (bind.isSuccess()) {
+        channels.add(bind.channel());
+      } else if (cause == null) {
+        cause = bind.cause();
+      }
+    }
 
-            // Fire the proxy bound event after the socket is bound
-            server.getEventManager().fireAndForget(
-                new ListenerBoundEvent(address, ListenerType.MINECRAFT));
-          } else {
-            LOGGER.error("Can't bind to {}", address, future.cause());
-          }
-        });
+    if (cause != null) {
+      // Either all acceptors are listening or none are, so the endpoint can be closed as one.
+      for (Channel channel : channels) {
+        channel.close();
+      }
+      LOGGER.error("Can't bind to {}", address, cause);
+      return;
+    }
+
+    this.endpoints.put(address, new Endpoint(channels, ListenerType.MINECRAFT));
+    LOGGER.info("Listening on {} with {} acceptors", channels.get(0).localAddress(),
+        channels.size());
+
+    // Fire the proxy bound event after the socket is bound
+    server.getEventManager().fireAndForget(
+        new ListenerBoundEvent(address, ListenerType.MINECRAFT));
   }
 
   /**
@@ -171,6 +250,43 @@ public final class ConnectionManager {
         });
   }
 
+  /**
+   * Binds an HTTP listener serving metrics in the OpenMetrics format to the specified
+   * {@code address}.
+   *
+   * @param address the address to bind to
+   */
+  public void metricsBind(final InetSocketAddress address) {
+    final OpenMetricsExporter exporter = new OpenMetricsExporter(this.server);
+    final ServerBootstrap bootstrap = new ServerBootstrap()
+        .channelFactory(this.transportType.serverSocketChannelFactory)
+        .group(this.bossGroup, this.workerGroup)
+        .childHandler(new ChannelInitializer<Channel>() {
+          @Override
+          protected void initChannel(Channel ch) {
+            ch.pipeline()
+                .addLast(new HttpServerCodec())
+                .addLast(new HttpObjectAggregator(8192))
+                .addLast(new OpenMetricsHttpHandler(exporter));
+          }
+        })
+        .localAddress(address);
+    bootstrap.bind()
+        .addListener((ChannelFutureListener) future -> {
+          final Channel channel = future.channel();
+          if (future.isSuccess()) {
+            this.endpoints.put(address, new Endpoint(channel, ListenerType.METRICS));
+            LOGGER.info("Serving metrics on http://{}/metrics", channel.localAddress());
+
+            // Fire the proxy bound event after the socket is bound
+            server.getEventManager().fireAndForget(
+                new ListenerBoundEvent(address, ListenerType.METRICS));
+          } else {
+            LOGGER.error("Can't bind to {}", address, future.cause());
+          }
+        });
+  }
+
   /**
    * Creates a TCP {@link Bootstrap} using Velocity's event loops.
    *
@@ -188,6 +304,9 @@ public final class ConnectionManager {
     if (server.getConfiguration().useTcpFastOpen()) {
       bootstrap.option(ChannelOption.TCP_FASTOPEN_CONNECT, true);
     }
+    if (isSpliceable()) {
+      bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
+    }
     return bootstrap;
   }
 
@@ -198,12 +317,26 @@ public final class ConnectionManager {
    * @return a new {@link Bootstrap}
    */
   public Bootstrap createDomainWorker(@Nullable EventLoopGroup group) {
-      return new Bootstrap()
-            .channelFactory(this.transportType.domainSocketChannelFactory)
-            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
-                    this.server.getConfiguration().getConnectTimeout())
-            .group(group == null ? this.workerGroup : group)
-            .resolver(this.resolver.asGroup());
+    Bootstrap bootstrap = new Bootstrap()
+        .channelFactory(this.transportType.domainSocketChannelFactory)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+            this.server.getConfiguration().getConnectTimeout())
+        .group(group == null ? this.workerGroup : group)
+        .resolver(this.resolver.asGroup());
+    if (isSpliceable()) {
+      bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
+    }
+    return bootstrap;
+  }
+
+  /**
+   * Returns whether connections may be spliced by {@link SpliceRelay}, in which case they have to
+   * be created in level-triggered mode.
+   *
+   * @return whether connections may be spliced
+   */
+  private boolean isSpliceable() {
+    return SpliceRelay.ENABLED && this.transportType == TransportType.EPOLL;
   }
 
   /**
@@ -222,7 +355,9 @@ public final class ConnectionManager {
 
     Preconditions.checkState(serverChannel != null, "Endpoint %s not registered", oldBind);
     LOGGER.info("Closing endpoint {}", serverChannel.localAddress());
-    serverChannel.close().syncUninterruptibly();
+    for (Channel channel : endpoint.getChannels()) {
+      channel.close().syncUninterruptibly();
+    }
   }
 
   /**
@@ -240,15 +375,17 @@ public final class ConnectionManager {
       server.getEventManager().fire(new ListenerCloseEvent(address, endpoint.getType())).join();
 
       LOGGER.info("Closing endpoint {}", address);
-      if (interrupt) {
-        try {
-          endpoint.getChannel().close().sync();
-        } catch (final InterruptedException e) {
-          LOGGER.info("Interrupted whilst closing endpoint", e);
-          Thread.currentThread().interrupt();
+      for (Channel channel : endpoint.getChannels()) {
+        if (interrupt) {
+          try {
+            channel.close().sync();
+          } catch (final InterruptedException e) {
+            LOGGER.info("Interrupted whilst closing endpoint", e);
+            Thread.currentThread().interrupt();
+          }
+        } else {
+          channel.close().syncUninterruptibly();
         }
-      } else {
-        endpoint.getChannel().close().syncUninterruptibly();
       }
     }
     this.endpoints.clear();
@@ -267,6 +404,10 @@ public final class ConnectionManager {
     return bossGroup;
   }
 
+  public EventLoopGroup getWorkerGroup() {
+    return workerGroup;
+  }
+
   public ServerChannelInitializerHolder getServerChannelInitializer() {
     return this.serverChannelInitializer;
   }
@@ -278,4 +419,8 @@ public final class ConnectionManager {
   public BackendChannelInitializerHolder getBackendChannelInitializer() {
     return this.backendChannelInitializer;
   }
+
+  public VelocityNetworkMetrics getNetworkMetrics() {
+    return networkMetrics;
+  }
 }
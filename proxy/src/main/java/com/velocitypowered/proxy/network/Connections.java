@@ -17,6 +17,10 @@
 
 package com.velocitypowered.proxy.network;
 
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
 /**
  * Constants used for the pipeline.
  */
@@ -36,8 +40,36 @@ public class Connections {
   public static final String MINECRAFT_ENCODER = "minecraft-encoder";
   public static final String READ_TIMEOUT = "read-timeout";
   public static final String PLAY_PACKET_QUEUE = "play-packet-queue";
+  public static final String SPLICE_GUARD = "splice-guard";
+  public static final String POOL_GUARD = "pool-guard";
+
+  private static final AttributeKey<Integer> PIPELINE_VERSION =
+      AttributeKey.valueOf("velocity-pipeline-version");
 
   private Connections() {
     throw new AssertionError();
   }
+
+  /**
+   * Records that Velocity changed the pipeline of the {@code channel}, so handlers that remember
+   * their neighbours look them up again. This must be called from the event loop of the channel.
+   *
+   * @param channel the channel whose pipeline was changed
+   */
+  public static void pipelineChanged(Channel channel) {
+    Attribute<Integer> version = channel.attr(PIPELINE_VERSION);
+    Integer current = version.get();
+    version.set(current == null ? 1 : current + 1);
+  }
+
+  /**
+   * Returns how often Velocity changed the pipeline of the {@code channel}.
+   *
+   * @param channel the channel
+   * @return the version of the pipeline
+   */
+  public static int pipelineVersion(Channel channel) {
+    Integer version = channel.attr(PIPELINE_VERSION).get();
+    return version == null ? 0 : version;
+  }
 }
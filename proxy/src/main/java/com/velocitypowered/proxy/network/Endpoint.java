@@ -18,24 +18,47 @@
 package com.velocitypowered.proxy.network;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.velocitypowered.api.network.ListenerType;
 import io.netty.channel.Channel;
+import java.util.List;
 
 /**
- * Represents a listener endpoint.
+ * Represents a listener endpoint. An endpoint is usually served by a single channel, but may be
+ * served by several channels bound to the same address with {@code SO_REUSEPORT}.
  */
 public final class Endpoint {
 
-  private final Channel channel;
+  private final List<Channel> channels;
   private final ListenerType type;
 
   public Endpoint(Channel channel, ListenerType type) {
-    this.channel = Preconditions.checkNotNull(channel, "channel");
+    this(ImmutableList.of(Preconditions.checkNotNull(channel, "channel")), type);
+  }
+
+  /**
+   * Creates an endpoint served by several channels.
+   *
+   * @param channels the channels, of which there must be at least one
+   * @param type the type of the listener
+   */
+  public Endpoint(List<Channel> channels, ListenerType type) {
+    Preconditions.checkArgument(!channels.isEmpty(), "no channels");
+    this.channels = ImmutableList.copyOf(channels);
     this.type = Preconditions.checkNotNull(type, "type");
   }
 
+  /**
+   * Returns the first channel serving this endpoint.
+   *
+   * @return the channel
+   */
   public Channel getChannel() {
-    return channel;
+    return channels.get(0);
+  }
+
+  public List<Channel> getChannels() {
+    return channels;
   }
 
   public ListenerType getType() {
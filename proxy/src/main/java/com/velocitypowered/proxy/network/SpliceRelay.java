@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.network;
+
+import static com.velocitypowered.proxy.network.Connections.CIPHER_DECODER;
+import static com.velocitypowered.proxy.network.Connections.CIPHER_ENCODER;
+import static com.velocitypowered.proxy.network.Connections.FRAME_DECODER;
+import static com.velocitypowered.proxy.network.Connections.PLAY_PACKET_QUEUE;
+import static com.velocitypowered.proxy.network.Connections.READ_TIMEOUT;
+import static com.velocitypowered.proxy.network.Connections.SPLICE_GUARD;
+
+import com.velocitypowered.proxy.connection.MinecraftConnection;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.netty.MinecraftVarintFrameDecoder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.epoll.AbstractEpollStreamChannel;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Relays the clientbound PLAY stream from a server to a player by splicing the two sockets
+ * together, so the data never has to be copied into the JVM.
+ *
+ * <p>This only works with the epoll transport, when neither side is encrypted and both sides use
+ * the same compression threshold and protocol version, as the bytes are forwarded exactly as they
+ * were received. Once spliced, the proxy no longer sees any packets the server sends and can't
+ * write to the player anymore either. It is therefore meant for hops where the proxy has nothing
+ * to intercept, such as between proxies and servers on a private network, and must be enabled
+ * explicitly with the {@code velocity.splice-relay} system property.
+ *
+ * <p>Serverbound packets still go through the pipeline, so commands typed by the player are run
+ * as usual, but anything they send back to the player is discarded. A spliced player who is
+ * asked to switch servers is disconnected, as the splice can't be undone.
+ */
+public final class SpliceRelay {
+
+  private static final Logger logger = LogManager.getLogger(SpliceRelay.class);
+
+  public static final boolean ENABLED = Boolean.getBoolean("velocity.splice-relay");
+
+  private SpliceRelay() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Splices the clientbound stream of the {@code server} connection to the {@code player}
+   * connection if it is possible to do so right now. This must be called from the event loop of
+   * both connections.
+   *
+   * @param player the player's connection
+   * @param server the connection to the server the player is connected to
+   * @return whether the connections are spliced now
+   */
+  public static boolean trySplice(MinecraftConnection player, MinecraftConnection server) {
+    if (!(player.getChannel() instanceof AbstractEpollStreamChannel)
+        || !(server.getChannel() instanceof AbstractEpollStreamChannel)) {
+      return false;
+    }
+    AbstractEpollStreamChannel playerChannel = (AbstractEpollStreamChannel) player.getChannel();
+    AbstractEpollStreamChannel serverChannel = (AbstractEpollStreamChannel) server.getChannel();
+    if (playerChannel.eventLoop() != serverChannel.eventLoop()
+        || !playerChannel.eventLoop().inEventLoop()) {
+      return false;
+    }
+    // Netty only supports splicing in level-triggered mode, which can't be switched to once the
+    // channel is registered. ConnectionManager creates the channels in that mode.
+    if (playerChannel.config().getEpollMode() != EpollMode.LEVEL_TRIGGERED
+        || serverChannel.config().getEpollMode() != EpollMode.LEVEL_TRIGGERED) {
+      return false;
+    }
+    if (player.getProtocolVersion() != server.getProtocolVersion()
+        || player.getCompressionThreshold() != server.getCompressionThreshold()) {
+      return false;
+    }
+
+    // Writes that were queued but not flushed yet, including coalesced ones, must go out before
+    // the spliced data does.
+    player.flush();
+    if (!canSpliceFrom(server) || !canSpliceTo(player)) {
+      return false;
+    }
+
+    player.markSpliced();
+    // Writes that were submitted from other threads before the connection was marked as spliced
+    // must not end up in the middle of the spliced data.
+    playerChannel.pipeline().addLast(SPLICE_GUARD, DiscardWritesHandler.INSTANCE);
+
+    serverChannel.config().setAutoRead(true);
+    // Spliced data never reaches the pipeline, which would eventually trigger the read timeout.
+    if (serverChannel.pipeline().get(READ_TIMEOUT) != null) {
+      serverChannel.pipeline().remove(READ_TIMEOUT);
+    }
+    Connections.pipelineChanged(playerChannel);
+    Connections.pipelineChanged(serverChannel);
+    splice(serverChannel, playerChannel);
+    logger.debug("Spliced {} to {}", server.getChannel(), player.getChannel());
+    return true;
+  }
+
+  /**
+   * Checks whether the data received by the {@code connection} could be spliced right now.
+   *
+   * @param connection the connection to check
+   * @return whether the connection can be spliced from
+   */
+  static boolean canSpliceFrom(MinecraftConnection connection) {
+    ChannelPipeline pipeline = connection.getChannel().pipeline();
+    if (connection.isClosed() || connection.getState() != StateRegistry.PLAY
+        || pipeline.get(CIPHER_DECODER) != null) {
+      return false;
+    }
+
+    // Data that was read already, but does not make up a complete packet yet, would be lost.
+    ChannelHandler frameDecoder = pipeline.get(FRAME_DECODER);
+    return frameDecoder instanceof MinecraftVarintFrameDecoder
+        && !((MinecraftVarintFrameDecoder) frameDecoder).hasBufferedBytes();
+  }
+
+  /**
+   * Checks whether spliced data could be sent to the {@code connection} right now.
+   *
+   * @param connection the connection to check
+   * @return whether the connection can be spliced to
+   */
+  static boolean canSpliceTo(MinecraftConnection connection) {
+    Channel channel = connection.getChannel();
+    ChannelPipeline pipeline = channel.pipeline();
+    if (connection.isClosed() || connection.isSpliced()
+        || connection.getState() != StateRegistry.PLAY
+        || pipeline.get(CIPHER_ENCODER) != null || pipeline.get(PLAY_PACKET_QUEUE) != null) {
+      return false;
+    }
+
+    // Data that was not written yet, flushed or not, would be overtaken by the spliced data.
+    ChannelOutboundBuffer outbound = channel.unsafe().outboundBuffer();
+    return outbound != null && outbound.totalPendingWriteBytes() == 0;
+  }
+
+  private static void splice(AbstractEpollStreamChannel from, AbstractEpollStreamChannel to) {
+    from.spliceTo(to, Integer.MAX_VALUE).addListener(future -> {
+      if (!future.isSuccess()) {
+        from.close();
+        to.close();
+      } else if (from.isActive() && to.isActive()) {
+        // We spliced 2 GiB of data, keep going.
+        splice(from, to);
+      }
+    });
+  }
+
+  @ChannelHandler.Sharable
+  private static final class DiscardWritesHandler extends ChannelOutboundHandlerAdapter {
+
+    private static final DiscardWritesHandler INSTANCE = new DiscardWritesHandler();
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+      ReferenceCountUtil.release(msg);
+      promise.trySuccess();
+    }
+  }
+}
@@ -41,9 +41,17 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.channel.unix.DomainSocketChannel;
 import io.netty.channel.unix.ServerDomainSocketChannel;
-
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringDatagramChannel;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+import java.util.Locale;
 import java.util.concurrent.ThreadFactory;
 import java.util.function.BiFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Enumerates the supported transports for Velocity.
@@ -66,7 +74,15 @@ public enum TransportType {
       KQueueDatagramChannel::new,
       EpollServerDomainSocketChannel::new,
       EpollDomainSocketChannel::new,
-      (name, type) -> new KQueueEventLoopGroup(0, createThreadFactory(name, type)));
+      (name, type) -> new KQueueEventLoopGroup(0, createThreadFactory(name, type))),
+  IO_URING("io_uring", IOUringServerSocketChannel::new,
+      IOUringSocketChannel::new,
+      IOUringDatagramChannel::new,
+      EpollServerDomainSocketChannel::new,
+      EpollDomainSocketChannel::new,
+      (name, type) -> new IOUringEventLoopGroup(0, createThreadFactory(name, type)));
+
+  private static final Logger logger = LogManager.getLogger(TransportType.class);
 
   final String name;
   final ChannelFactory<? extends ServerSocketChannel> serverSocketChannelFactory;
@@ -106,7 +122,28 @@ public enum TransportType {
   }
 
   /**
-   * Determines the "best" transport to initialize.
+   * Returns whether this transport can be used on this system.
+   *
+   * @return whether the transport is available
+   */
+  public boolean isAvailable() {
+    switch (this) {
+      case EPOLL:
+        return Epoll.isAvailable();
+      case KQUEUE:
+        return KQueue.isAvailable();
+      case IO_URING:
+        return IOUring.isAvailable();
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Determines the "best" transport to initialize. A specific transport can be requested with
+   * {@code -Dvelocity.transport=<nio|epoll|kqueue|io_uring>}, otherwise epoll or kqueue are
+   * preferred over NIO. io_uring is never picked unless requested, since Netty still ships it as an
+   * incubator module.
    *
    * @return the transport to use
    */
@@ -115,6 +152,20 @@ public enum TransportType {
       return NIO;
     }
 
+    String requested = System.getProperty("velocity.transport");
+    if (requested != null && !requested.isEmpty()) {
+      TransportType type = byName(requested);
+      if (type == null) {
+        logger.warn("Unknown transport {} requested, falling back to the default transport",
+            requested);
+      } else if (!type.isAvailable()) {
+        logger.warn("The {} transport was requested but is not available on this system, falling "
+            + "back to the default transport", type);
+      } else {
+        return type;
+      }
+    }
+
     if (Epoll.isAvailable()) {
       return EPOLL;
     }
@@ -126,6 +177,16 @@ public enum TransportType {
     return NIO;
   }
 
+  private static @Nullable TransportType byName(String name) {
+    String normalized = name.toLowerCase(Locale.ROOT).replace('-', '_');
+    for (TransportType type : values()) {
+      if (type.name.toLowerCase(Locale.ROOT).equals(normalized)) {
+        return type;
+      }
+    }
+    return null;
+  }
+
   /**
    * Event loop group types.
    */
@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.velocitypowered.proxy.network.metrics;
+
+import com.velocitypowered.api.network.ConnectionMetrics;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.connection.client.SessionServerClient;
+import com.velocitypowered.proxy.connection.util.StatusResponseCache;
+import com.velocitypowered.proxy.crypto.CryptoExecutor;
+import com.velocitypowered.proxy.crypto.VerifiedKeyCache;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics.LoginStage;
+import com.velocitypowered.proxy.server.VelocityRegisteredServer;
+import com.velocitypowered.proxy.util.concurrent.PinnedThreadMonitor;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.util.internal.PlatformDependent;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Writes the metrics of the proxy in the OpenMetrics text format, which is understood by
+ * Prometheus.
+ */
+public final class OpenMetricsExporter {
+
+  public static final String CONTENT_TYPE =
+      "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+  private static final double NANOS_PER_SECOND = 1e9;
+  // Histogram buckets to expose, as powers of two. Durations are recorded in nanoseconds, so they
+  // range from about a microsecond to a minute. Sizes range from 16 bytes to 4 MiB.
+  private static final int MIN_DURATION_BUCKET = 10;
+  private static final int MAX_DURATION_BUCKET = 36;
+  private static final int MIN_SIZE_BUCKET = 4;
+  private static final int MAX_SIZE_BUCKET = 22;
+
+  private final VelocityServer server;
+
+  public OpenMetricsExporter(VelocityServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Writes the current metrics.
+   *
+   * @return the metrics in the OpenMetrics text format
+   */
+  public String export() {
+    StringBuilder out = new StringBuilder(16384);
+    writePlayers(out);
+    writeBackendPools(out);
+    writeNetwork(out, server.getNetworkMetrics());
+    writeLogin(out, server.getNetworkMetrics());
+    writeSessionServer(out);
+    writeStatusCache(out);
+    writeCrypto(out);
+    writeVerifiedKeys(out);
+    writeEvents(out);
+    writeScheduler(out);
+    writeAllocator(out);
+    writeDirectMemory(out);
+    out.append("# EOF\n");
+    return out.toString();
+  }
+
+  private void writePlayers(StringBuilder out) {
+    family(out, "velocity_players", "gauge", "Players connected to the proxy.");
+    sample(out, "velocity_players", server.getPlayerCount());
+
+    family(out, "velocity_server_players", "gauge", "Players connected to each server.");
+    for (RegisteredServer registered : server.getAllServers()) {
+      sample(out, "velocity_server_players", registered.getPlayersConnected().size(),
+          "server", registered.getServerInfo().getName());
+    }
+  }
+
+  private void writeBackendPools(StringBuilder out) {
+    family(out, "velocity_backend_pool_idle_connections", "gauge",
+        "Idle connections pooled for each server.");
+    for (RegisteredServer registered : server.getAllServers()) {
+      sample(out, "velocity_backend_pool_idle_connections",
+          ((VelocityRegisteredServer) registered).getConnectionPool().getIdleConnections(),
+          "server", registered.getServerInfo().getName());
+    }
+    family(out, "velocity_backend_pool_hits", "counter",
+        "Server connections taken from the connection pool.");
+    for (RegisteredServer registered : server.getAllServers()) {
+      sample(out, "velocity_backend_pool_hits_total",
+          ((VelocityRegisteredServer) registered).getConnectionPool().getHits(),
+          "server", registered.getServerInfo().getName());
+    }
+    family(out, "velocity_backend_pool_misses", "counter",
+        "Server connections opened because the connection pool was empty.");
+    for (RegisteredServer registered : server.getAllServers()) {
+      sample(out, "velocity_backend_pool_misses_total",
+          ((VelocityRegisteredServer) registered).getConnectionPool().getMisses(),
+          "server", registered.getServerInfo().getName());
+    }
+    family(out, "velocity_backend_pool_evictions", "counter",
+        "Idle pooled connections closed because they were not used in time.");
+    for (RegisteredServer registered : server.getAllServers()) {
+      sample(out, "velocity_backend_pool_evictions_total",
+          ((VelocityRegisteredServer) registered).getConnectionPool().getEvictions(),
+          "server", registered.getServerInfo().getName());
+    }
+  }
+
+  private static void writeNetwork(StringBuilder out, VelocityNetworkMetrics metrics) {
+    family(out, "velocity_network_connections", "gauge", "Open Minecraft connections.");
+    sample(out, "velocity_network_connections", metrics.getOpenConnections().size());
+
+    ConnectionMetrics totals = metrics.getTotals();
+    counter(out, "velocity_network_received_packets", "Packets received.",
+        totals.getPacketsReceived());
+    counter(out, "velocity_network_sent_packets", "Packets sent.", totals.getPacketsSent());
+    counter(out, "velocity_network_received_bytes", "Bytes received on the wire.",
+        totals.getBytesReceived());
+    counter(out, "velocity_network_sent_bytes", "Bytes sent on the wire.",
+        totals.getBytesSent());
+    counter(out, "velocity_network_uncompressed_received_bytes",
+        "Bytes received, after decompression.", totals.getUncompressedBytesReceived());
+    counter(out, "velocity_network_uncompressed_sent_bytes", "Bytes sent, before compression.",
+        totals.getUncompressedBytesSent());
+    counter(out, "velocity_network_inflate_seconds", "Time spent decompressing packets.",
+        totals.getInflateNanos() / NANOS_PER_SECOND);
+    counter(out, "velocity_network_deflate_seconds", "Time spent compressing packets.",
+        totals.getDeflateNanos() / NANOS_PER_SECOND);
+    counter(out, "velocity_network_cipher_seconds", "Time spent encrypting and decrypting.",
+        totals.getCipherNanos() / NANOS_PER_SECOND);
+    counter(out, "velocity_network_write_buffer_high_water_mark",
+        "Times a connection stopped being writable.",
+        totals.getWriteBufferHighWaterMarkEvents());
+    counter(out, "velocity_network_flushes", "Flushes of packets sent by the proxy itself.",
+        totals.getFlushes());
+    counter(out, "velocity_network_coalesced_writes",
+        "Packets flushed along with an earlier packet, each saving a flush.",
+        totals.getCoalescedWrites());
+
+    family(out, "velocity_network_received_packet_size_bytes", "histogram",
+        "Size of the packets received, on the wire.");
+    sizeHistogram(out, "velocity_network_received_packet_size_bytes",
+        metrics.getPacketSizesReceived());
+    family(out, "velocity_network_sent_packet_size_bytes", "histogram",
+        "Size of the packets sent, on the wire.");
+    sizeHistogram(out, "velocity_network_sent_packet_size_bytes", metrics.getPacketSizesSent());
+    family(out, "velocity_network_compression_duration_seconds", "histogram",
+        "Time it took to compress or decompress a packet.");
+    durationHistogram(out, "velocity_network_compression_duration_seconds",
+        metrics.getCompressionTimes());
+  }
+
+  private static void writeLogin(StringBuilder out, VelocityNetworkMetrics metrics) {
+    family(out, "velocity_login_stage_duration_seconds", "histogram",
+        "Time players spent in each stage of the login process.");
+    for (LoginStage stage : LoginStage.values()) {
+      durationHistogram(out, "velocity_login_stage_duration_seconds",
+          metrics.getLoginStageTimes(stage), "stage", stage.name().toLowerCase(Locale.ROOT));
+    }
+  }
+
+  private void writeSessionServer(StringBuilder out) {
+    SessionServerClient client = server.getSessionServerClient();
+    counter(out, "velocity_session_server_requests",
+        "Requests sent to the Mojang session server.", client.getRequests());
+    counter(out, "velocity_session_server_fallbacks",
+        "Logins let in with a recently verified profile because the session server failed.",
+        client.getFallbacks());
+  }
+
+  private void writeStatusCache(StringBuilder out) {
+    StatusResponseCache cache = server.getStatusResponseCache();
+    counter(out, "velocity_status_cache_hits",
+        "Server list pings answered with a recently serialized response.", cache.getHits());
+    counter(out, "velocity_status_cache_misses",
+        "Server list pings whose response had to be built.", cache.getMisses());
+  }
+
+  private void writeCrypto(StringBuilder out) {
+    CryptoExecutor crypto = server.getCryptoExecutor();
+    family(out, "velocity_crypto_queued_tasks", "gauge",
+        "Login crypto operations waiting for a crypto thread.");
+    sample(out, "velocity_crypto_queued_tasks", crypto.getQueuedTasks());
+    family(out, "velocity_crypto_active_threads", "gauge",
+        "Crypto threads that are running an operation.");
+    sample(out, "velocity_crypto_active_threads", crypto.getActiveThreads());
+    counter(out, "velocity_crypto_rejected_tasks",
+        "Login crypto operations rejected because the queue was full.",
+        crypto.getRejectedTasks());
+    family(out, "velocity_crypto_queue_duration_seconds", "histogram",
+        "Time login crypto operations waited for a crypto thread.");
+    durationHistogram(out, "velocity_crypto_queue_duration_seconds", crypto.getQueueTimes());
+  }
+
+  private void writeVerifiedKeys(StringBuilder out) {
+    counter(out, "velocity_verified_key_cache_hits",
+        "Player keys whose signature was not checked again because it was verified before.",
+        VerifiedKeyCache.INSTANCE.getHits());
+    counter(out, "velocity_verified_key_cache_misses",
+        "Player keys whose signature was checked.", VerifiedKeyCache.INSTANCE.getMisses());
+  }
+
+  private void writeEvents(StringBuilder out) {
+    family(out, "velocity_event_duration_seconds", "histogram",
+        "Time it took to pass an event to all of its handlers.");
+    for (Map.Entry<Class<?>, PowerOfTwoHistogram> entry
+        : server.getEventManager().getFireTimes().entrySet()) {
+      durationHistogram(out, "velocity_event_duration_seconds", entry.getValue(),
+          "event", entry.getKey().getName());
+    }
+
+    ExecutorService executor = server.getEventManager().getAsyncExecutor();
+    if (executor instanceof ThreadPoolExecutor) {
+      ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+      family(out, "velocity_event_executor_queued_tasks", "gauge",
+          "Tasks waiting for a thread of the event executor.");
+      sample(out, "velocity_event_executor_queued_tasks", pool.getQueue().size());
+      family(out, "velocity_event_executor_active_threads", "gauge",
+          "Threads of the event executor that are running a task.");
+      sample(out, "velocity_event_executor_active_threads", pool.getActiveCount());
+    }
+
+    PinnedThreadMonitor pinnedThreadMonitor = server.getPinnedThreadMonitor();
+    if (pinnedThreadMonitor != null) {
+      family(out, "velocity_virtual_thread_pinned_duration_seconds", "histogram",
+          "Time virtual threads spent pinned to their carrier thread.");
+      durationHistogram(out, "velocity_virtual_thread_pinned_duration_seconds",
+          pinnedThreadMonitor.getPinnedTimes());
+    }
+  }
+
+  private void writeScheduler(StringBuilder out) {
+    family(out, "velocity_scheduler_queued_tasks", "gauge",
+        "Task executions waiting for their delay to pass.");
+    sample(out, "velocity_scheduler_queued_tasks", server.getScheduler().getQueuedTaskCount());
+
+    family(out, "velocity_scheduler_tasks", "gauge", "Tasks scheduled by each plugin.");
+    for (Map.Entry<String, Integer> entry
+        : server.getScheduler().getTaskCountsByPlugin().entrySet()) {
+      sample(out, "velocity_scheduler_tasks", entry.getValue(), "plugin", entry.getKey());
+    }
+  }
+
+  private static void writeAllocator(StringBuilder out) {
+    if (!(ByteBufAllocator.DEFAULT instanceof PooledByteBufAllocator)) {
+      return;
+    }
+    PooledByteBufAllocatorMetric metric = ((PooledByteBufAllocator) ByteBufAllocator.DEFAULT)
+        .metric();
+    family(out, "velocity_netty_allocator_used_bytes", "gauge",
+        "Memory reserved by the pooled allocator.");
+    sample(out, "velocity_netty_allocator_used_bytes", metric.usedHeapMemory(), "type", "heap");
+    sample(out, "velocity_netty_allocator_used_bytes", metric.usedDirectMemory(),
+        "type", "direct");
+
+    family(out, "velocity_netty_allocator_arena_active_allocations", "gauge",
+        "Buffers currently allocated from each arena.");
+    arenas(out, "velocity_netty_allocator_arena_active_allocations", metric.heapArenas(), "heap",
+        false);
+    arenas(out, "velocity_netty_allocator_arena_active_allocations", metric.directArenas(),
+        "direct", false);
+    family(out, "velocity_netty_allocator_arena_active_bytes", "gauge",
+        "Bytes currently allocated from each arena.");
+    arenas(out, "velocity_netty_allocator_arena_active_bytes", metric.heapArenas(), "heap", true);
+    arenas(out, "velocity_netty_allocator_arena_active_bytes", metric.directArenas(), "direct",
+        true);
+  }
+
+  private static void arenas(StringBuilder out, String name, List<PoolArenaMetric> arenas,
+      String type, boolean bytes) {
+    for (int i = 0; i < arenas.size(); i++) {
+      PoolArenaMetric arena = arenas.get(i);
+      sample(out, name, bytes ? arena.numActiveBytes() : arena.numActiveAllocations(),
+          "type", type, "arena", Integer.toString(i));
+    }
+  }
+
+  private static void writeDirectMemory(StringBuilder out) {
+    long used = PlatformDependent.usedDirectMemory();
+    if (used >= 0) {
+      family(out, "velocity_netty_direct_memory_used_bytes", "gauge",
+          "Direct memory allocated by Netty.");
+      sample(out, "velocity_netty_direct_memory_used_bytes", used);
+    }
+    family(out, "velocity_direct_memory_max_bytes", "gauge",
+        "Maximum amount of direct memory the JVM may allocate.");
+    sample(out, "velocity_direct_memory_max_bytes", PlatformDependent.maxDirectMemory());
+
+    List<BufferPoolMXBean> pools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    family(out, "velocity_buffer_pool_used_bytes", "gauge",
+        "Memory used by each of the JVM buffer pools.");
+    for (BufferPoolMXBean pool : pools) {
+      sample(out, "velocity_buffer_pool_used_bytes", pool.getMemoryUsed(), "pool",
+          pool.getName());
+    }
+    family(out, "velocity_buffer_pool_buffers", "gauge",
+        "Buffers in each of the JVM buffer pools.");
+    for (BufferPoolMXBean pool : pools) {
+      sample(out, "velocity_buffer_pool_buffers", pool.getCount(), "pool", pool.getName());
+    }
+  }
+
+  private static void family(StringBuilder out, String name, String type, String help) {
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+  }
+
+  private static void counter(StringBuilder out, String name, String help, long value) {
+    family(out, name, "counter", help);
+    out.append(name).append("_total ").append(value).append('\n');
+  }
+
+  private static void counter(StringBuilder out, String name, String help, double value) {
+    family(out, name, "counter", help);
+    out.append(name).append("_total ").append(value).append('\n');
+  }
+
+  private static void sample(StringBuilder out, String name, long value, String... labels) {
+    out.append(name);
+    labels(out, labels);
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static void labels(StringBuilder out, String... labels) {
+    if (labels.length == 0) {
+      return;
+    }
+    out.append('{');
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        out.append(',');
+      }
+      out.append(labels[i]).append("=\"");
+      escape(out, labels[i + 1]);
+      out.append('"');
+    }
+    out.append('}');
+  }
+
+  private static void escape(StringBuilder out, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        out.append('\\').append(c);
+      } else if (c == '\n') {
+        out.append("\\n");
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  private static void durationHistogram(StringBuilder out, String name,
+      PowerOfTwoHistogram histogram, String... labels) {
+    histogram(out, name, histogram, MIN_DURATION_BUCKET, MAX_DURATION_BUCKET, NANOS_PER_SECOND,
+        labels);
+  }
+
+  private static void sizeHistogram(StringBuilder out, String name,
+      PowerOfTwoHistogram histogram, String... labels) {
+    histogram(out, name, histogram, MIN_SIZE_BUCKET, MAX_SIZE_BUCKET, 1, labels);
+  }
+
+  private static void histogram(StringBuilder out, String name, PowerOfTwoHistogram histogram,
+      int minBucket, int maxBucket, double scale, String... labels) {
+    long[] counts = histogram.getBucketCounts();
+    String[] bucketLabels = new String[labels.length + 2];
+    System.arraycopy(labels, 0, bucketLabels, 0, labels.length);
+    bucketLabels[labels.length] = "le";
+
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      if (i < minBucket || i > maxBucket) {
+        continue;
+      }
+      // Bucket i holds the values that need exactly i bits, so none of them exceeds 2^i - 1.
+      bucketLabels[labels.length + 1] = Double.toString(((1L << i) - 1) / scale);
+      out.append(name).append("_bucket");
+      labels(out, bucketLabels);
+      out.append(' ').append(cumulative).append('\n');
+    }
+    bucketLabels[labels.length + 1] = "+Inf";
+    out.append(name).append("_bucket");
+    labels(out, bucketLabels);
+    out.append(' ').append(cumulative).append('\n');
+
+    out.append(name).append("_count");
+    labels(out, labels);
+    out.append(' ').append(cumulative).append('\n');
+    out.append(name).append("_sum");
+    labels(out, labels);
+    out.append(' ').append(histogram.getSum() / scale).append('\n');
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.velocitypowered.proxy.network.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.nio.charset.StandardCharsets;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Serves the metrics written by an {@link OpenMetricsExporter} at {@code /metrics}.
+ */
+public class OpenMetricsHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+  private static final Logger logger = LogManager.getLogger(OpenMetricsHttpHandler.class);
+  private static final String PATH = "/metrics";
+
+  private final OpenMetricsExporter exporter;
+
+  public OpenMetricsHttpHandler(OpenMetricsExporter exporter) {
+    this.exporter = exporter;
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+    if (!request.decoderResult().isSuccess()) {
+      respond(ctx, request, HttpResponseStatus.BAD_REQUEST, Unpooled.EMPTY_BUFFER, null);
+      return;
+    }
+    if (!PATH.equals(new QueryStringDecoder(request.uri()).path())) {
+      respond(ctx, request, HttpResponseStatus.NOT_FOUND, Unpooled.EMPTY_BUFFER, null);
+      return;
+    }
+    boolean head = HttpMethod.HEAD.equals(request.method());
+    if (!head && !HttpMethod.GET.equals(request.method())) {
+      respond(ctx, request, HttpResponseStatus.METHOD_NOT_ALLOWED, Unpooled.EMPTY_BUFFER, null);
+      return;
+    }
+
+    ByteBuf body = Unpooled.copiedBuffer(exporter.export(), StandardCharsets.UTF_8);
+    if (head) {
+      int length = body.readableBytes();
+      body.release();
+      FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+          HttpResponseStatus.OK);
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, OpenMetricsExporter.CONTENT_TYPE);
+      response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, length);
+      send(ctx, request, response);
+    } else {
+      respond(ctx, request, HttpResponseStatus.OK, body, OpenMetricsExporter.CONTENT_TYPE);
+    }
+  }
+
+  private static void respond(ChannelHandlerContext ctx, FullHttpRequest request,
+      HttpResponseStatus status, ByteBuf body, @Nullable String contentType) {
+    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, body);
+    if (contentType != null) {
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+    }
+    HttpUtil.setContentLength(response, body.readableBytes());
+    send(ctx, request, response);
+  }
+
+  private static void send(ChannelHandlerContext ctx, FullHttpRequest request,
+      FullHttpResponse response) {
+    boolean keepAlive = HttpUtil.isKeepAlive(request)
+        && response.status().equals(HttpResponseStatus.OK);
+    HttpUtil.setKeepAlive(response, keepAlive);
+    if (keepAlive) {
+      ctx.writeAndFlush(response, ctx.voidPromise());
+    } else {
+      ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    logger.error("Error while serving metrics to {}", ctx.channel().remoteAddress(), cause);
+    ctx.close();
+  }
+}
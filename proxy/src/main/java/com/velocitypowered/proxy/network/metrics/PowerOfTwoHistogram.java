@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.network.metrics;
+
+import com.google.common.base.Preconditions;
+import com.velocitypowered.api.network.NetworkMetrics;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram that can be updated concurrently from many threads at little cost. Values are
+ * counted in buckets for every power of two, so only the number of leading zeros of each value
+ * matters.
+ */
+public final class PowerOfTwoHistogram implements NetworkMetrics.Histogram {
+
+  private final LongAdder[] buckets = new LongAdder[Long.SIZE + 1];
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Creates an empty histogram.
+   */
+  public PowerOfTwoHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a value. Negative values are treated as {@code 0}.
+   *
+   * @param value the value to record
+   */
+  public void record(long value) {
+    long clamped = Math.max(value, 0);
+    buckets[Long.SIZE - Long.numberOfLeadingZeros(clamped)].increment();
+    sum.add(clamped);
+    max.accumulate(clamped);
+  }
+
+  /**
+   * Returns the number of values in each bucket. The bucket at index {@code i} counts the values
+   * that are at least {@code 2^(i-1)} and less than {@code 2^i}, while the first bucket counts the
+   * zeros.
+   *
+   * @return the number of values in each bucket
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  @Override
+  public long getCount() {
+    long count = 0;
+    for (LongAdder bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public long getSum() {
+    return sum.sum();
+  }
+
+  @Override
+  public long getMax() {
+    return max.get();
+  }
+
+  @Override
+  public long getValueAtPercentile(double percentile) {
+    Preconditions.checkArgument(percentile >= 0 && percentile <= 100,
+        "percentile must be between 0 and 100");
+    long[] counts = getBucketCounts();
+    long count = 0;
+    for (long bucket : counts) {
+      count += bucket;
+    }
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(count * (percentile / 100)));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        // Bucket i holds the values that need exactly i bits.
+        long upperBound = i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+        return Math.min(upperBound, getMax());
+      }
+    }
+    return getMax();
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.network.metrics;
+
+import com.velocitypowered.api.network.ConnectionMetrics;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Counts the traffic of a single connection. The handlers in the pipeline of the connection look
+ * it up using {@link #get(Channel)}, and record what they process.
+ *
+ * <p>The counters are only updated from the event loop of the connection, so they are not updated
+ * atomically, but they can be read safely from any thread.
+ */
+public final class VelocityConnectionMetrics implements ConnectionMetrics {
+
+  private static final AttributeKey<VelocityConnectionMetrics> ATTRIBUTE =
+      AttributeKey.valueOf("velocity-connection-metrics");
+
+  private static final int PACKETS_RECEIVED = 0;
+  private static final int PACKETS_SENT = 1;
+  private static final int BYTES_RECEIVED = 2;
+  private static final int BYTES_SENT = 3;
+  private static final int UNCOMPRESSED_BYTES_RECEIVED = 4;
+  private static final int UNCOMPRESSED_BYTES_SENT = 5;
+  private static final int INFLATE_NANOS = 6;
+  private static final int DEFLATE_NANOS = 7;
+  private static final int CIPHER_NANOS = 8;
+  private static final int HIGH_WATER_MARK_EVENTS = 9;
+  private static final int FLUSHES = 10;
+  private static final int COALESCED_WRITES = 11;
+  private static final int COUNTERS = 12;
+
+  private final @Nullable VelocityNetworkMetrics network;
+  private final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+
+  VelocityConnectionMetrics(@Nullable VelocityNetworkMetrics network) {
+    this.network = network;
+  }
+
+  /**
+   * Returns the metrics of the connection on the {@code channel}.
+   *
+   * @param channel the channel
+   * @return the metrics, or {@code null} if the channel does not belong to a connection that is
+   *         tracked
+   */
+  public static @Nullable VelocityConnectionMetrics get(Channel channel) {
+    return channel.attr(ATTRIBUTE).get();
+  }
+
+  /**
+   * Returns the metrics of the connection the handler of {@code ctx} belongs to. This is how the
+   * handlers in the pipeline find the metrics to record to.
+   *
+   * @param ctx the context of the handler
+   * @return the metrics, or {@code null} if the channel does not belong to a connection that is
+   *         tracked
+   */
+  public static @Nullable VelocityConnectionMetrics get(ChannelHandlerContext ctx) {
+    return get(ctx.channel());
+  }
+
+  void attach(Channel channel) {
+    channel.attr(ATTRIBUTE).set(this);
+  }
+
+  private void add(int counter, long delta) {
+    // There is only ever one thread writing, so there's no need to pay for an atomic update.
+    counters.lazySet(counter, counters.get(counter) + delta);
+  }
+
+  void addTo(VelocityConnectionMetrics other) {
+    for (int i = 0; i < COUNTERS; i++) {
+      other.counters.addAndGet(i, counters.get(i));
+    }
+  }
+
+  /**
+   * Records a packet received from the network.
+   *
+   * @param frameSize the size of the packet, including its length prefix
+   */
+  public void recordPacketReceived(int frameSize) {
+    add(PACKETS_RECEIVED, 1);
+    add(BYTES_RECEIVED, frameSize);
+    if (network != null) {
+      network.getPacketSizesReceived().record(frameSize);
+    }
+  }
+
+  /**
+   * Records the size of a packet received after it was decompressed.
+   *
+   * @param size the size of the packet after decompression
+   */
+  public void recordUncompressedReceived(int size) {
+    add(UNCOMPRESSED_BYTES_RECEIVED, size);
+  }
+
+  /**
+   * Records a packet written to the network.
+   *
+   * @param frameSize the size of the packet, including its length prefix
+   * @param uncompressedSize the size of the packet before compression
+   */
+  public void recordPacketSent(int frameSize, int uncompressedSize) {
+    add(PACKETS_SENT, 1);
+    add(BYTES_SENT, frameSize);
+    add(UNCOMPRESSED_BYTES_SENT, uncompressedSize);
+    if (network != null) {
+      network.getPacketSizesSent().record(frameSize);
+    }
+  }
+
+  /**
+   * Records the time it took to decompress a packet.
+   *
+   * @param nanos the time spent, in nanoseconds
+   */
+  public void recordInflate(long nanos) {
+    add(INFLATE_NANOS, nanos);
+    if (network != null) {
+      network.getCompressionTimes().record(nanos);
+    }
+  }
+
+  /**
+   * Records the time it took to compress a packet.
+   *
+   * @param nanos the time spent, in nanoseconds
+   */
+  public void recordDeflate(long nanos) {
+    add(DEFLATE_NANOS, nanos);
+    if (network != null) {
+      network.getCompressionTimes().record(nanos);
+    }
+  }
+
+  public void recordCipher(long nanos) {
+    add(CIPHER_NANOS, nanos);
+  }
+
+  public void recordWriteBufferHighWaterMark() {
+    add(HIGH_WATER_MARK_EVENTS, 1);
+  }
+
+  /**
+   * Records a flush of packets that were written to be flushed as soon as possible.
+   *
+   * @param packets the number of packets flushed together
+   */
+  public void recordFlush(int packets) {
+    add(FLUSHES, 1);
+    add(COALESCED_WRITES, packets - 1);
+  }
+
+  @Override
+  public long getPacketsReceived() {
+    return counters.get(PACKETS_RECEIVED);
+  }
+
+  @Override
+  public long getPacketsSent() {
+    return counters.get(PACKETS_SENT);
+  }
+
+  @Override
+  public long getBytesReceived() {
+    return counters.get(BYTES_RECEIVED);
+  }
+
+  @Override
+  public long getBytesSent() {
+    return counters.get(BYTES_SENT);
+  }
+
+  @Override
+  public long getUncompressedBytesReceived() {
+    return counters.get(UNCOMPRESSED_BYTES_RECEIVED);
+  }
+
+  @Override
+  public long getUncompressedBytesSent() {
+    return counters.get(UNCOMPRESSED_BYTES_SENT);
+  }
+
+  @Override
+  public long getInflateNanos() {
+    return counters.get(INFLATE_NANOS);
+  }
+
+  @Override
+  public long getDeflateNanos() {
+    return counters.get(DEFLATE_NANOS);
+  }
+
+  @Override
+  public long getCipherNanos() {
+    return counters.get(CIPHER_NANOS);
+  }
+
+  @Override
+  public long getWriteBufferHighWaterMarkEvents() {
+    return counters.get(HIGH_WATER_MARK_EVENTS);
+  }
+
+  @Override
+  public long getFlushes() {
+    return counters.get(FLUSHES);
+  }
+
+  @Override
+  public long getCoalescedWrites() {
+    return counters.get(COALESCED_WRITES);
+  }
+
+  @Override
+  public String toString() {
+    return "VelocityConnectionMetrics{"
+        + "packetsReceived=" + getPacketsReceived()
+        + ", packetsSent=" + getPacketsSent()
+        + ", bytesReceived=" + getBytesReceived()
+        + ", bytesSent=" + getBytesSent()
+        + '}';
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.network.metrics;
+
+import com.velocitypowered.api.network.ConnectionMetrics;
+import com.velocitypowered.api.network.NetworkMetrics;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.proxy.connection.MinecraftConnection;
+import com.velocitypowered.proxy.connection.backend.VelocityServerConnection;
+import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import io.netty.channel.Channel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps track of the metrics of all connections, and aggregates them.
+ */
+public final class VelocityNetworkMetrics implements NetworkMetrics {
+
+  private final Set<VelocityConnectionMetrics> open = ConcurrentHashMap.newKeySet();
+  private final VelocityConnectionMetrics closed = new VelocityConnectionMetrics(null);
+  private final PowerOfTwoHistogram packetSizesReceived = new PowerOfTwoHistogram();
+  private final PowerOfTwoHistogram packetSizesSent = new PowerOfTwoHistogram();
+  private final PowerOfTwoHistogram compressionTimes = new PowerOfTwoHistogram();
+  private final Map<LoginStage, PowerOfTwoHistogram> loginStageTimes =
+      new EnumMap<>(LoginStage.class);
+
+  /**
+   * Creates the metrics for a proxy that has not handled any connections yet.
+   */
+  public VelocityNetworkMetrics() {
+    for (LoginStage stage : LoginStage.values()) {
+      loginStageTimes.put(stage, new PowerOfTwoHistogram());
+    }
+  }
+
+  /**
+   * Starts tracking the connection on the {@code channel}. The connection is no longer tracked
+   * once the channel is closed, but its metrics still count towards the totals.
+   *
+   * @param channel the channel of the connection
+   * @return the metrics of the connection
+   */
+  public VelocityConnectionMetrics track(Channel channel) {
+    VelocityConnectionMetrics metrics = new VelocityConnectionMetrics(this);
+    metrics.attach(channel);
+    open.add(metrics);
+    channel.closeFuture().addListener(future -> {
+      if (open.remove(metrics)) {
+        metrics.addTo(closed);
+      }
+    });
+    return metrics;
+  }
+
+  /**
+   * Returns the metrics of all connections that are currently open.
+   *
+   * @return the metrics of the open connections
+   */
+  public Collection<VelocityConnectionMetrics> getOpenConnections() {
+    return Collections.unmodifiableSet(open);
+  }
+
+  @Override
+  public ConnectionMetrics getTotals() {
+    VelocityConnectionMetrics totals = new VelocityConnectionMetrics(null);
+    closed.addTo(totals);
+    for (VelocityConnectionMetrics metrics : open) {
+      metrics.addTo(totals);
+    }
+    return totals;
+  }
+
+  @Override
+  public Optional<ConnectionMetrics> getMetrics(Player player) {
+    return metricsOf(((ConnectedPlayer) player).getConnection());
+  }
+
+  @Override
+  public Optional<ConnectionMetrics> getMetrics(ServerConnection connection) {
+    return metricsOf(((VelocityServerConnection) connection).getConnection());
+  }
+
+  private static Optional<ConnectionMetrics> metricsOf(@Nullable MinecraftConnection connection) {
+    if (connection == null || connection.isClosed()) {
+      return Optional.empty();
+    }
+    return Optional.of(connection.getMetrics());
+  }
+
+  @Override
+  public PowerOfTwoHistogram getPacketSizesReceived() {
+    return packetSizesReceived;
+  }
+
+  @Override
+  public PowerOfTwoHistogram getPacketSizesSent() {
+    return packetSizesSent;
+  }
+
+  @Override
+  public PowerOfTwoHistogram getCompressionTimes() {
+    return compressionTimes;
+  }
+
+  /**
+   * Returns how long players took to pass the {@code stage} of the login process, in
+   * nanoseconds.
+   *
+   * @param stage the stage of the login process
+   * @return the time spent in the stage
+   */
+  public PowerOfTwoHistogram getLoginStageTimes(LoginStage stage) {
+    return loginStageTimes.get(stage);
+  }
+
+  /**
+   * The stages of the login process that are timed.
+   */
+  public enum LoginStage {
+    /**
+     * Firing the {@link com.velocitypowered.api.event.connection.PreLoginEvent}.
+     */
+    PRE_LOGIN,
+    /**
+     * Decrypting the shared secret and authenticating the player with Mojang.
+     */
+    AUTHENTICATION,
+    /**
+     * Firing the {@link com.velocitypowered.api.event.player.GameProfileRequestEvent} and the
+     * {@link com.velocitypowered.api.event.permission.PermissionsSetupEvent}.
+     */
+    GAME_PROFILE,
+    /**
+     * Firing the {@link com.velocitypowered.api.event.connection.LoginEvent}.
+     */
+    LOGIN_EVENT
+  }
+}
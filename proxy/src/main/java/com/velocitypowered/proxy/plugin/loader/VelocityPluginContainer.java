@@ -20,6 +20,8 @@ package com.velocitypowered.proxy.plugin.loader;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.PluginDescription;
+import com.velocitypowered.proxy.util.concurrent.ConcurrencyLimitedExecutorService;
+import com.velocitypowered.proxy.util.concurrent.VirtualThreads;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -57,14 +59,22 @@ public class VelocityPluginContainer implements PluginContainer {
       synchronized (this) {
         if (this.service == null) {
           String name = this.description.getName().orElse(this.description.getId());
-          this.service = Executors.unconfigurableExecutorService(
-              Executors.newCachedThreadPool(
-                new ThreadFactoryBuilder().setDaemon(true)
-                    .setNameFormat(name + " - Task Executor #%d")
-                    .setDaemon(true)
-                    .build()
-              )
-          );
+          if (VirtualThreads.isEnabled()) {
+            ExecutorService service =
+                VirtualThreads.newThreadPerTaskExecutor(name + " - Task Executor #");
+            this.service = VirtualThreads.isPluginConcurrencyLimited()
+                ? new ConcurrencyLimitedExecutorService(service, VirtualThreads.newPluginLimiter())
+                : service;
+          } else {
+            this.service = Executors.unconfigurableExecutorService(
+                Executors.newCachedThreadPool(
+                  new ThreadFactoryBuilder().setDaemon(true)
+                      .setNameFormat(name + " - Task Executor #%d")
+                      .setDaemon(true)
+                      .build()
+                )
+            );
+          }
         }
       }
     }
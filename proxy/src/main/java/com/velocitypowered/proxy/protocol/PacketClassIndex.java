@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives every packet class a small, dense index, so that the packet IDs of a protocol registry
+ * can be kept in an array instead of a map keyed by class.
+ *
+ * <p>The index of a class is assigned the first time it is asked for and is cached on the class
+ * itself through a {@link ClassValue}, which is as close as we can get to a static field on every
+ * packet class without touching each of them.</p>
+ */
+final class PacketClassIndex {
+
+  private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+  private static final ClassValue<Integer> INDEX = new ClassValue<>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      return NEXT_INDEX.getAndIncrement();
+    }
+  };
+
+  private PacketClassIndex() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns the index of the specified packet class.
+   *
+   * @param type the packet class
+   * @return the index of the class
+   */
+  static int of(Class<?> type) {
+    return INDEX.get(type);
+  }
+}
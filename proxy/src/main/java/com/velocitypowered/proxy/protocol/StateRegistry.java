@@ -97,13 +97,12 @@ import com.velocitypowered.proxy.protocol.packet.title.TitleSubtitlePacket;
 import com.velocitypowered.proxy.protocol.packet.title.TitleTextPacket;
 import com.velocitypowered.proxy.protocol.packet.title.TitleTimesPacket;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import io.netty.util.collection.IntObjectHashMap;
-import io.netty.util.collection.IntObjectMap;
-import it.unimi.dsi.fastutil.objects.Object2IntMap;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -585,6 +584,15 @@ public enum StateRegistry {
   protected final PacketRegistry clientbound = new PacketRegistry(CLIENTBOUND, this);
   protected final PacketRegistry serverbound = new PacketRegistry(SERVERBOUND, this);
 
+  static {
+    // Enum constants are constructed before the static initializer runs, so every packet has been
+    // registered at this point.
+    for (StateRegistry state : values()) {
+      state.clientbound.compact();
+      state.serverbound.compact();
+    }
+  }
+
   public StateRegistry.PacketRegistry.ProtocolRegistry getProtocolRegistry(Direction direction,
       ProtocolVersion version) {
     return (direction == SERVERBOUND ? serverbound : clientbound).getProtocolRegistry(version);
@@ -595,10 +603,16 @@ public enum StateRegistry {
    */
   public static class PacketRegistry {
 
+    static final int NOT_REGISTERED = -1;
+    @SuppressWarnings("unchecked")
+    private static final Supplier<? extends MinecraftPacket>[] NO_SUPPLIERS = new Supplier[0];
+    private static final int[] NO_IDS = new int[0];
+
     private final Direction direction;
     private final StateRegistry registry;
     private final Map<ProtocolVersion, ProtocolRegistry> versions;
     private boolean fallback = true;
+    private boolean compacted;
 
     PacketRegistry(Direction direction, StateRegistry registry) {
       this.direction = direction;
@@ -627,10 +641,14 @@ public enum StateRegistry {
 
     <P extends MinecraftPacket> void register(Class<P> clazz, Supplier<P> packetSupplier,
                                               PacketMapping... mappings) {
+      if (compacted) {
+        throw new IllegalStateException("Packets can no longer be registered");
+      }
       if (mappings.length == 0) {
         throw new IllegalArgumentException("At least one mapping must be provided.");
       }
 
+      final int classIndex = PacketClassIndex.of(clazz);
       for (int i = 0; i < mappings.length; i++) {
         PacketMapping current = mappings[i];
         PacketMapping next = (i + 1 < mappings.length) ? mappings[i + 1] : current;
@@ -666,7 +684,7 @@ public enum StateRegistry {
                 "Unknown protocol version " + current.protocolVersion);
           }
 
-          if (registry.packetIdToSupplier.containsKey(current.id)) {
+          if (registry.hasId(current.id)) {
             throw new IllegalArgumentException(
                 "Can not register class "
                     + clazz.getSimpleName()
@@ -677,33 +695,106 @@ public enum StateRegistry {
                     + " because another packet is already registered");
           }
 
-          if (registry.packetClassToId.containsKey(clazz)) {
+          if (registry.idForClassIndex(classIndex) != NOT_REGISTERED) {
             throw new IllegalArgumentException(
                 clazz.getSimpleName() + " is already registered for version " + registry.version);
           }
 
-          if (!current.encodeOnly) {
-            registry.packetIdToSupplier.put(current.id, packetSupplier);
-          }
-          registry.packetClassToId.put(clazz, current.id);
+          registry.put(current.id, current.encodeOnly ? null : packetSupplier, classIndex);
         }
       }
     }
 
+    /**
+     * Trims the tables of every protocol version to their final size and shares identical tables
+     * between versions, most of which only change a handful of packets. No packets may be
+     * registered afterwards, as the tables are no longer owned by a single version.
+     */
+    void compact() {
+      List<Supplier<? extends MinecraftPacket>[]> suppliers = new ArrayList<>();
+      List<int[]> ids = new ArrayList<>();
+      for (ProtocolRegistry version : versions.values()) {
+        version.trim();
+        version.packetIdToSupplier = intern(suppliers, version.packetIdToSupplier);
+        version.packetClassToId = intern(ids, version.packetClassToId);
+      }
+      this.compacted = true;
+    }
+
+    private static <T> T[] intern(List<T[]> seen, T[] table) {
+      for (T[] candidate : seen) {
+        if (Arrays.equals(candidate, table)) {
+          return candidate;
+        }
+      }
+      seen.add(table);
+      return table;
+    }
+
+    private static int[] intern(List<int[]> seen, int[] table) {
+      for (int[] candidate : seen) {
+        if (Arrays.equals(candidate, table)) {
+          return candidate;
+        }
+      }
+      seen.add(table);
+      return table;
+    }
+
     /**
      * Protocol registry.
+     *
+     * <p>Packets are looked up in two arrays: the suppliers indexed by packet ID, and the packet
+     * IDs indexed by the {@link PacketClassIndex index} of the packet class.</p>
      */
     public class ProtocolRegistry {
 
       public final ProtocolVersion version;
-      final IntObjectMap<Supplier<? extends MinecraftPacket>> packetIdToSupplier =
-          new IntObjectHashMap<>(16, 0.5f);
-      final Object2IntMap<Class<? extends MinecraftPacket>> packetClassToId =
-          new Object2IntOpenHashMap<>(16, 0.5f);
+      Supplier<? extends MinecraftPacket>[] packetIdToSupplier = NO_SUPPLIERS;
+      int[] packetClassToId = NO_IDS;
 
       ProtocolRegistry(final ProtocolVersion version) {
         this.version = version;
-        this.packetClassToId.defaultReturnValue(Integer.MIN_VALUE);
+      }
+
+      boolean hasId(final int id) {
+        return id < packetIdToSupplier.length && packetIdToSupplier[id] != null;
+      }
+
+      int idForClassIndex(final int classIndex) {
+        final int[] ids = this.packetClassToId;
+        return classIndex < ids.length ? ids[classIndex] : NOT_REGISTERED;
+      }
+
+      void put(final int id, final @Nullable Supplier<? extends MinecraftPacket> supplier,
+          final int classIndex) {
+        if (supplier != null) {
+          if (id >= packetIdToSupplier.length) {
+            packetIdToSupplier = Arrays.copyOf(packetIdToSupplier,
+                Math.max(id + 1, packetIdToSupplier.length * 2));
+          }
+          packetIdToSupplier[id] = supplier;
+        }
+        if (classIndex >= packetClassToId.length) {
+          int oldLength = packetClassToId.length;
+          packetClassToId = Arrays.copyOf(packetClassToId, Math.max(classIndex + 1, oldLength * 2));
+          Arrays.fill(packetClassToId, oldLength, packetClassToId.length, NOT_REGISTERED);
+        }
+        packetClassToId[classIndex] = id;
+      }
+
+      void trim() {
+        int suppliers = packetIdToSupplier.length;
+        while (suppliers > 0 && packetIdToSupplier[suppliers - 1] == null) {
+          suppliers--;
+        }
+        packetIdToSupplier = Arrays.copyOf(packetIdToSupplier, suppliers);
+
+        int ids = packetClassToId.length;
+        while (ids > 0 && packetClassToId[ids - 1] == NOT_REGISTERED) {
+          ids--;
+        }
+        packetClassToId = Arrays.copyOf(packetClassToId, ids);
       }
 
       /**
@@ -713,7 +804,11 @@ public enum StateRegistry {
        * @return the packet instance, or {@code null} if the ID is not registered
        */
       public @Nullable MinecraftPacket createPacket(final int id) {
-        final Supplier<? extends MinecraftPacket> supplier = this.packetIdToSupplier.get(id);
+        final Supplier<? extends MinecraftPacket>[] suppliers = this.packetIdToSupplier;
+        if (id < 0 || id >= suppliers.length) {
+          return null;
+        }
+        final Supplier<? extends MinecraftPacket> supplier = suppliers[id];
         if (supplier == null) {
           return null;
         }
@@ -728,8 +823,8 @@ public enum StateRegistry {
        * @throws IllegalArgumentException if the packet ID is not found
        */
       public int getPacketId(final MinecraftPacket packet) {
-        final int id = this.packetClassToId.getInt(packet.getClass());
-        if (id == Integer.MIN_VALUE) {
+        final int id = idForClassIndex(PacketClassIndex.of(packet.getClass()));
+        if (id == NOT_REGISTERED) {
           throw new IllegalArgumentException(String.format(
               "Unable to find id for packet of type %s in %s protocol %s phase %s",
               packet.getClass().getName(), PacketRegistry.this.direction,
@@ -739,6 +834,17 @@ public enum StateRegistry {
         return id;
       }
 
+      /**
+       * Checks if a packet with the specified {@code id} can be decoded with this registry.
+       *
+       * @param id the packet ID
+       * @return {@code true} if the packet would be decoded, {@code false} otherwise
+       */
+      public boolean canDecode(final int id) {
+        final Supplier<? extends MinecraftPacket>[] suppliers = this.packetIdToSupplier;
+        return id >= 0 && id < suppliers.length && suppliers[id] != null;
+      }
+
       /**
        * Checks if the registry contains a packet with the specified {@code id}.
        *
@@ -746,7 +852,7 @@ public enum StateRegistry {
        * @return {@code true} if the packet is registered, {@code false} otherwise
        */
       public boolean containsPacket(final MinecraftPacket packet) {
-        return this.packetClassToId.containsKey(packet.getClass());
+        return idForClassIndex(PacketClassIndex.of(packet.getClass())) != NOT_REGISTERED;
       }
     }
   }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import com.velocitypowered.proxy.network.Connections;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandler;
+import io.netty.channel.ChannelOutboundHandler;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Support for fusing adjacent stages of the Minecraft codec, enabled with
+ * {@code -Dvelocity.fused-codec=true}.
+ *
+ * <p>Every stage keeps its handler and its name in the pipeline, so plugins can still find and
+ * wrap them. When a stage sees that the next stage is the stock Velocity handler, with nothing in
+ * between, it does the work of that stage itself instead of handing over an intermediate buffer:
+ * {@link MinecraftEncoder} encodes, compresses and length-prefixes a packet into a single output
+ * buffer, and {@link MinecraftCompressDecoder} decodes the packets it inflates. As soon as another
+ * handler is placed in between, the stages go back to running one after another.</p>
+ *
+ * <p>Looking the next stage up walks the pipeline, so it is only done again once the neighbour
+ * was removed or Velocity changed the pipeline (see {@link Connections#pipelineChanged}). Plugins
+ * place their handlers when the channel is initialized, or move them in response to the
+ * {@code VelocityConnectionEvent} fired whenever Velocity changes the pipeline, so their handlers
+ * are noticed before the next packet is handled.</p>
+ */
+final class FusedCodec {
+
+  static final boolean ENABLED = Boolean.getBoolean("velocity.fused-codec");
+
+  private FusedCodec() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns the context of the first outbound handler between {@code ctx} and the head of the
+   * pipeline, if it is of the specified type.
+   */
+  static @Nullable ChannelHandlerContext nextOutbound(ChannelHandlerContext ctx,
+      Class<? extends ChannelHandler> type, Neighbour neighbour) {
+    if (neighbour.isStale(ctx)) {
+      String name = ctx.name();
+      Map.Entry<String, ChannelHandler> next = null;
+      for (Map.Entry<String, ChannelHandler> entry : ctx.pipeline()) {
+        if (entry.getKey().equals(name)) {
+          break;
+        }
+        if (entry.getValue() instanceof ChannelOutboundHandler) {
+          next = entry;
+        }
+      }
+      neighbour.update(ctx, next);
+    }
+    return neighbour.get(type);
+  }
+
+  /**
+   * Returns the context of the first inbound handler between {@code ctx} and the tail of the
+   * pipeline, if it is of the specified type.
+   */
+  static @Nullable ChannelHandlerContext nextInbound(ChannelHandlerContext ctx,
+      Class<? extends ChannelHandler> type, Neighbour neighbour) {
+    if (neighbour.isStale(ctx)) {
+      String name = ctx.name();
+      Map.Entry<String, ChannelHandler> next = null;
+      boolean found = false;
+      for (Map.Entry<String, ChannelHandler> entry : ctx.pipeline()) {
+        if (found) {
+          if (entry.getValue() instanceof ChannelInboundHandler) {
+            next = entry;
+            break;
+          }
+        } else if (entry.getKey().equals(name)) {
+          found = true;
+        }
+      }
+      neighbour.update(ctx, next);
+    }
+    return neighbour.get(type);
+  }
+
+  /**
+   * The neighbour of a handler, as it was looked up last.
+   */
+  static final class Neighbour {
+
+    private @Nullable ChannelHandlerContext ctx;
+    private int version = -1;
+
+    private boolean isStale(ChannelHandlerContext owner) {
+      return version != Connections.pipelineVersion(owner.channel())
+          || ctx != null && ctx.isRemoved();
+    }
+
+    private void update(ChannelHandlerContext owner,
+        Map.@Nullable Entry<String, ChannelHandler> entry) {
+      this.ctx = entry == null ? null : owner.pipeline().context(entry.getKey());
+      this.version = Connections.pipelineVersion(owner.channel());
+    }
+
+    private @Nullable ChannelHandlerContext get(Class<? extends ChannelHandler> type) {
+      ChannelHandlerContext ctx = this.ctx;
+      return ctx != null && type.isInstance(ctx.handler()) ? ctx : null;
+    }
+  }
+}
@@ -20,6 +20,7 @@ package com.velocitypowered.proxy.protocol.netty;
 import com.google.common.base.Preconditions;
 import com.velocitypowered.natives.encryption.VelocityCipher;
 import com.velocitypowered.natives.util.MoreByteBufUtils;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
@@ -40,7 +41,14 @@ public class MinecraftCipherEncoder extends MessageToMessageEncoder<ByteBuf> {
   protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
     ByteBuf compatible = MoreByteBufUtils.ensureCompatible(ctx.alloc(), cipher, msg);
     try {
-      cipher.process(compatible);
+      VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+      if (metrics != null) {
+        long start = System.nanoTime();
+        cipher.process(compatible);
+        metrics.recordCipher(System.nanoTime() - start);
+      } else {
+        cipher.process(compatible);
+      }
       out.add(compatible);
     } catch (Exception e) {
       compatible.release(); // compatible will never be used if we throw an exception
@@ -48,6 +56,10 @@ public class MinecraftCipherEncoder extends MessageToMessageEncoder<ByteBuf> {
     }
   }
 
+  VelocityCipher getCipher() {
+    return cipher;
+  }
+
   @Override
   public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
     cipher.close();
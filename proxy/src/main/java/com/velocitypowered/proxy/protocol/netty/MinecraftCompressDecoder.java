@@ -22,14 +22,33 @@ import static com.velocitypowered.natives.util.MoreByteBufUtils.preferredBuffer;
 import static com.velocitypowered.proxy.protocol.util.NettyPreconditions.checkFrame;
 
 import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Decompresses a Minecraft packet.
+ *
+ * <p>Packets of up to {@value #MAXIMUM_SCRATCH_SIZE} bytes are inflated into a scratch buffer
+ * that is reused for the next packet once nobody holds on to it anymore. Larger packets are
+ * inflated into a buffer of the claimed size, unless they claim to inflate to more than
+ * {@value #MAXIMUM_INFLATE_RATIO} times their compressed size. Those are inflated a chunk at a
+ * time into a composite buffer, allocating a chunk only once the previous one is full, so that a
+ * small packet claiming a large size cannot make the proxy allocate that much memory.</p>
+ *
+ * <p>With the {@linkplain FusedCodec fused codec} enabled, the decompressed packet is handed
+ * straight to the {@link MinecraftDecoder} following this handler, instead of being fired down the
+ * pipeline to it.
  */
 public class MinecraftCompressDecoder extends MessageToMessageDecoder<ByteBuf> {
 
@@ -39,22 +58,85 @@ public class MinecraftCompressDecoder extends MessageToMessageDecoder<ByteBuf> {
   private static final int UNCOMPRESSED_CAP =
       Boolean.getBoolean("velocity.increased-compression-cap")
           ? HARD_MAXIMUM_UNCOMPRESSED_SIZE : VANILLA_MAXIMUM_UNCOMPRESSED_SIZE;
+  static final int MAXIMUM_SCRATCH_SIZE = 64 * 1024;
+  static final int MAXIMUM_INFLATE_RATIO = 128;
+  private static final int CHUNK_SIZE = 64 * 1024;
 
   private int threshold;
   private final VelocityCompressor compressor;
+  private final boolean fused;
+  private StateRegistry.PacketRegistry.@Nullable ProtocolRegistry passthroughRegistry;
+  private @Nullable Inflater inflater;
+  private final byte[] peekedId = new byte[5];
+  private @Nullable ByteBuf scratch;
+  private final FusedCodec.Neighbour decodingStage = new FusedCodec.Neighbour();
 
   public MinecraftCompressDecoder(int threshold, VelocityCompressor compressor) {
+    this(threshold, compressor, FusedCodec.ENABLED);
+  }
+
+  MinecraftCompressDecoder(int threshold, VelocityCompressor compressor, boolean fused) {
     this.threshold = threshold;
     this.compressor = compressor;
+    this.fused = fused;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    try {
+      if (fused && msg instanceof ByteBuf) {
+        ChannelHandlerContext decoderCtx = decoderContext(ctx);
+        if (decoderCtx != null) {
+          readFused(ctx, decoderCtx, (ByteBuf) msg);
+          return;
+        }
+      }
+      super.channelRead(ctx, msg);
+    } finally {
+      // The packet has been handled by now. If a handler still holds on to the scratch buffer,
+      // leave it to them and use a new one for the next packet.
+      ByteBuf scratch = this.scratch;
+      if (scratch != null && scratch.refCnt() != 1) {
+        scratch.release();
+        this.scratch = null;
+      }
+    }
+  }
+
+  private void readFused(ChannelHandlerContext ctx, ChannelHandlerContext decoderCtx, ByteBuf in)
+      throws Exception {
+    Object decompressed;
+    try {
+      decompressed = decompress(ctx, in);
+    } catch (DecoderException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new DecoderException(e);
+    } finally {
+      in.release();
+    }
+    ((MinecraftDecoder) decoderCtx.handler()).channelRead(decoderCtx, decompressed);
+  }
+
+  /**
+   * Returns the context of the decoder the decompressed packets go to, if they can be handed to it
+   * directly.
+   */
+  private @Nullable ChannelHandlerContext decoderContext(ChannelHandlerContext ctx) {
+    // Plugins may place their own handlers in between.
+    return FusedCodec.nextInbound(ctx, MinecraftDecoder.class, decodingStage);
   }
 
   @Override
   protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+    out.add(decompress(ctx, in));
+  }
+
+  private Object decompress(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
     int claimedUncompressedSize = ProtocolUtils.readVarInt(in);
     if (claimedUncompressedSize == 0) {
       // This message is not compressed.
-      out.add(in.retain());
-      return;
+      return in.retain();
     }
 
     checkFrame(claimedUncompressedSize >= threshold, "Uncompressed size %s is less than"
@@ -63,12 +145,60 @@ public class MinecraftCompressDecoder extends MessageToMessageDecoder<ByteBuf> {
         "Uncompressed size %s exceeds hard threshold of %s", claimedUncompressedSize,
         UNCOMPRESSED_CAP);
 
+    if (passthroughRegistry != null && isOpaque(in)) {
+      // Nobody is going to look at this packet, so don't bother inflating it.
+      VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+      if (metrics != null) {
+        metrics.recordUncompressedReceived(claimedUncompressedSize);
+      }
+      return new OpaqueCompressedPacket(in.retain(), claimedUncompressedSize);
+    }
+
+    long start = System.nanoTime();
+    ByteBuf uncompressed;
+    if (claimedUncompressedSize <= MAXIMUM_SCRATCH_SIZE) {
+      uncompressed = inflateIntoScratch(ctx, in, claimedUncompressedSize);
+    } else if (claimedUncompressedSize <= (long) in.readableBytes() * MAXIMUM_INFLATE_RATIO) {
+      uncompressed = inflateWhole(ctx, in, claimedUncompressedSize);
+    } else {
+      uncompressed = inflateInChunks(ctx, in, claimedUncompressedSize);
+    }
+    VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+    if (metrics != null) {
+      metrics.recordInflate(System.nanoTime() - start);
+    }
+    return uncompressed;
+  }
+
+  private ByteBuf inflateIntoScratch(ChannelHandlerContext ctx, ByteBuf in,
+      int claimedUncompressedSize) throws DataFormatException {
+    ByteBuf scratch = this.scratch;
+    if (scratch == null) {
+      scratch = this.scratch = preferredBuffer(ctx.alloc(), compressor, claimedUncompressedSize);
+    }
+    scratch.clear();
+
+    ByteBuf compatibleIn = ensureCompatible(ctx.alloc(), compressor, in);
+    try {
+      compressor.inflate(compatibleIn, scratch, claimedUncompressedSize);
+    } finally {
+      compatibleIn.release();
+    }
+    return scratch.retain();
+  }
+
+  private ByteBuf inflateWhole(ChannelHandlerContext ctx, ByteBuf in,
+      int claimedUncompressedSize) throws DataFormatException {
     ByteBuf compatibleIn = ensureCompatible(ctx.alloc(), compressor, in);
     ByteBuf uncompressed = preferredBuffer(ctx.alloc(), compressor, claimedUncompressedSize);
     try {
       compressor.inflate(compatibleIn, uncompressed, claimedUncompressedSize);
-      out.add(uncompressed);
-    } catch (Exception e) {
+      if (uncompressed.readableBytes() != claimedUncompressedSize) {
+        throw new DataFormatException("Received a deflate stream of "
+            + uncompressed.readableBytes() + " bytes, wanted " + claimedUncompressedSize);
+      }
+      return uncompressed;
+    } catch (DataFormatException | RuntimeException e) {
       uncompressed.release();
       throw e;
     } finally {
@@ -76,12 +206,116 @@ public class MinecraftCompressDecoder extends MessageToMessageDecoder<ByteBuf> {
     }
   }
 
+  /**
+   * Inflates the packet with a streaming {@link Inflater}, allocating each chunk of the output
+   * only once the previous one is full.
+   */
+  private ByteBuf inflateInChunks(ChannelHandlerContext ctx, ByteBuf in,
+      int claimedUncompressedSize) throws DataFormatException {
+    Inflater inflater = inflater();
+    CompositeByteBuf uncompressed = ctx.alloc().compositeBuffer(
+        (claimedUncompressedSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    try {
+      inflater.setInput(in.nioBuffer());
+      int remaining = claimedUncompressedSize;
+      while (!inflater.finished()) {
+        if (remaining == 0) {
+          throw new DataFormatException("Received a deflate stream that was too large, wanted "
+              + claimedUncompressedSize);
+        }
+        int length = Math.min(CHUNK_SIZE, remaining);
+        ByteBuf chunk = preferredBuffer(ctx.alloc(), compressor, length);
+        try {
+          ByteBuffer target = chunk.internalNioBuffer(0, length);
+          while (target.hasRemaining() && !inflater.finished()) {
+            if (inflater.inflate(target) == 0 && (inflater.needsInput()
+                || inflater.needsDictionary())) {
+              throw new DataFormatException("Received a truncated deflate stream");
+            }
+          }
+          chunk.writerIndex(length - target.remaining());
+        } catch (DataFormatException | RuntimeException e) {
+          chunk.release();
+          throw e;
+        }
+        remaining -= chunk.readableBytes();
+        uncompressed.addComponent(true, chunk);
+      }
+      if (remaining != 0) {
+        throw new DataFormatException("Received a deflate stream of " + inflater.getBytesWritten()
+            + " bytes, wanted " + claimedUncompressedSize);
+      }
+      return uncompressed;
+    } catch (DataFormatException | RuntimeException e) {
+      uncompressed.release();
+      throw e;
+    } finally {
+      inflater.reset();
+    }
+  }
+
+  private Inflater inflater() {
+    Inflater inflater = this.inflater;
+    if (inflater == null) {
+      inflater = this.inflater = new Inflater();
+    }
+    return inflater;
+  }
+
+  /**
+   * Inflates just enough of the compressed packet to read its ID, and checks if the proxy would
+   * decode a packet with that ID.
+   */
+  private boolean isOpaque(ByteBuf in) {
+    Inflater inflater = inflater();
+    try {
+      inflater.setInput(in.nioBuffer());
+      int read = inflater.inflate(peekedId);
+      int packetId = 0;
+      for (int i = 0; i < read; i++) {
+        packetId |= (peekedId[i] & 0x7F) << (i * 7);
+        if ((peekedId[i] & 0x80) == 0) {
+          return !passthroughRegistry.canDecode(packetId);
+        }
+      }
+      // Too short or malformed, let the regular path deal with it.
+      return false;
+    } catch (DataFormatException e) {
+      return false;
+    } finally {
+      inflater.reset();
+    }
+  }
+
   @Override
   public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
     compressor.close();
+    if (inflater != null) {
+      inflater.end();
+    }
+    if (scratch != null) {
+      scratch.release();
+      scratch = null;
+    }
   }
 
   public void setThreshold(int threshold) {
     this.threshold = threshold;
   }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Sets the registry used to tell which compressed packets can be forwarded without inflating
+   * them. Packets that cannot be decoded using the registry are emitted as
+   * {@link OpaqueCompressedPacket}s instead of being inflated.
+   *
+   * @param registry the registry to use, or {@code null} to inflate every packet
+   */
+  public void setPassthroughRegistry(
+      StateRegistry.PacketRegistry.@Nullable ProtocolRegistry registry) {
+    this.passthroughRegistry = registry;
+  }
 }
@@ -19,47 +19,364 @@ package com.velocitypowered.proxy.protocol.netty;
 
 import static com.velocitypowered.proxy.protocol.netty.MinecraftVarintLengthEncoder.IS_JAVA_CIPHER;
 
+import com.velocitypowered.natives.compression.BatchingCompressor;
+import com.velocitypowered.natives.compression.DeflateBatch;
+import com.velocitypowered.natives.compression.EncryptingCompressor;
 import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.natives.encryption.VelocityCipher;
 import com.velocitypowered.natives.util.MoreByteBufUtils;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.PromiseNotifier;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.DataFormatException;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Handler for compressing Minecraft packets.
+ *
+ * <p>{@link OpaqueCompressedPacket}s are already compressed and are only prefixed, unless they
+ * were compressed with a lower threshold than the one used for this connection.
+ * {@link PreparedPacket}s are already framed and are passed on as-is.
+ *
+ * <p>If the compressor can run the cipher of the {@link MinecraftCipherEncoder} directly in front
+ * of this handler, packets that need compressing are compressed and encrypted in a single native
+ * call, and the encrypted frame skips the cipher encoder.
+ *
+ * <p>With {@code -Dvelocity.batch-deflate=true}, packets are instead held until the next flush and
+ * then framed into a single buffer, with all of them compressed in one call into the compressor.
+ * This pays off for many small packets just above the compression threshold, where entering native
+ * code costs about as much as compressing the packet.
  */
 public class MinecraftCompressorAndLengthEncoder extends MessageToByteEncoder<ByteBuf> {
 
+  private static final boolean FUSE_CIPHER =
+      Boolean.parseBoolean(System.getProperty("velocity.fused-native-cipher", "true"));
+  private static final boolean BATCH_DEFLATE = Boolean.getBoolean("velocity.batch-deflate");
+  private static final int MAX_BATCHED_PACKETS = 256;
+  private static final int MAX_BATCHED_BYTES = 1024 * 1024;
+
   private int threshold;
   private final VelocityCompressor compressor;
+  private final FusedCodec.Neighbour cipherStage = new FusedCodec.Neighbour();
+  private final @Nullable DeflateBatch batch;
+  private final List<ChannelPromise> batchPromises = new ArrayList<>();
+  private int batchedBytes;
 
   public MinecraftCompressorAndLengthEncoder(int threshold, VelocityCompressor compressor) {
     this.threshold = threshold;
     this.compressor = compressor;
+    this.batch = BATCH_DEFLATE && compressor instanceof BatchingCompressor
+        ? new DeflateBatch() : null;
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    DeflateBatch batch = this.batch;
+    if (batch != null) {
+      if (msg instanceof ByteBuf) {
+        addToBatch(ctx, batch, (ByteBuf) msg, promise);
+        return;
+      }
+      // Anything else has to go out after the packets written before it.
+      writeBatch(ctx);
+    }
+
+    if (msg instanceof OpaqueCompressedPacket) {
+      writeOpaque(ctx, (OpaqueCompressedPacket) msg, promise);
+    } else if (msg instanceof PreparedPacket) {
+      ((PreparedPacket) msg).writeFrame(ctx, threshold, promise);
+    } else if (msg instanceof ByteBuf) {
+      ByteBuf buf = (ByteBuf) msg;
+      ChannelHandlerContext cipherCtx = cipherContext(ctx, buf);
+      if (cipherCtx != null) {
+        try {
+          writeFrame(ctx, cipherCtx, buf, promise);
+        } finally {
+          buf.release();
+        }
+      } else {
+        super.write(ctx, msg, promise);
+      }
+    } else {
+      super.write(ctx, msg, promise);
+    }
+  }
+
+  private void addToBatch(ChannelHandlerContext ctx, DeflateBatch batch, ByteBuf msg,
+      ChannelPromise promise) {
+    ByteBuf compatible;
+    try {
+      compatible = MoreByteBufUtils.ensureCompatible(ctx.alloc(), compressor, msg);
+    } finally {
+      msg.release();
+    }
+
+    int uncompressed = compatible.readableBytes();
+    boolean compress = uncompressed >= threshold;
+    int headerLength = compress
+        ? 3 + ProtocolUtils.varIntBytes(uncompressed)
+        : ProtocolUtils.varIntBytes(uncompressed + 1) + 1;
+    batch.add(compatible, headerLength, compress);
+    if (!promise.isVoid()) {
+      batchPromises.add(promise);
+    }
+    batchedBytes += headerLength + uncompressed;
+    if (batch.size() >= MAX_BATCHED_PACKETS || batchedBytes >= MAX_BATCHED_BYTES) {
+      writeBatch(ctx);
+    }
+  }
+
+  /**
+   * Frames and compresses the packets held back since the last flush and writes them to the next
+   * handler in a single buffer.
+   */
+  private void writeBatch(ChannelHandlerContext ctx) {
+    DeflateBatch batch = this.batch;
+    if (batch == null || batch.size() == 0) {
+      return;
+    }
+
+    ChannelPromise promise;
+    if (batchPromises.isEmpty()) {
+      promise = ctx.voidPromise();
+    } else {
+      promise = ctx.newPromise();
+      promise.addListener(new PromiseNotifier<>(batchPromises.toArray(new ChannelPromise[0])));
+    }
+
+    ByteBuf out = null;
+    try {
+      out = MoreByteBufUtils.preferredBuffer(ctx.alloc(), compressor, batchedBytes);
+      encodeBatch(ctx, batch, out);
+    } catch (Throwable e) {
+      ReferenceCountUtil.release(out);
+      promise.tryFailure(e instanceof EncoderException ? e : new EncoderException(e));
+      return;
+    } finally {
+      for (int i = 0; i < batch.size(); i++) {
+        batch.getSource(i).release();
+      }
+      batch.clear();
+      batchPromises.clear();
+      batchedBytes = 0;
+    }
+    ctx.write(out, promise);
+  }
+
+  private void encodeBatch(ChannelHandlerContext ctx, DeflateBatch batch, ByteBuf out)
+      throws DataFormatException {
+    VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+    int startBatch = out.writerIndex();
+    long start = metrics != null ? System.nanoTime() : 0;
+    ((BatchingCompressor) compressor).deflateBatch(batch, out);
+    if (metrics != null) {
+      metrics.recordDeflate(System.nanoTime() - start);
+    }
+
+    // Now that we know how long each packet turned out, fill in the headers in front of them.
+    int endBatch = out.writerIndex();
+    int startFrame = startBatch;
+    for (int i = 0; i < batch.size(); i++) {
+      int uncompressed = batch.getSource(i).readableBytes();
+      int written = batch.getWrittenLength(i);
+      out.writerIndex(startFrame);
+      if (batch.isCompressed(i)) {
+        int packetLength = ProtocolUtils.varIntBytes(uncompressed) + written;
+        if (packetLength >= 1 << 21) {
+          throw new DataFormatException(
+              "The server sent a very large (over 2MiB compressed) packet.");
+        }
+        ProtocolUtils.write21BitVarInt(out, packetLength);
+        ProtocolUtils.writeVarInt(out, uncompressed);
+      } else {
+        ProtocolUtils.writeVarInt(out, uncompressed + 1);
+        ProtocolUtils.writeVarInt(out, 0);
+      }
+
+      int frameLength = batch.getHeaderLength(i) + written;
+      if (metrics != null) {
+        metrics.recordPacketSent(frameLength, uncompressed);
+      }
+      startFrame += frameLength;
+    }
+    out.writerIndex(endBatch);
+  }
+
+  @Override
+  public void flush(ChannelHandlerContext ctx) throws Exception {
+    writeBatch(ctx);
+    ctx.flush();
+  }
+
+  @Override
+  public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+    writeBatch(ctx);
+    ctx.close(promise);
+  }
+
+  boolean isBatching() {
+    return batch != null;
+  }
+
+  /**
+   * Frames, and compresses if needed, the {@code msg} and writes the frame to the next handler. The
+   * {@code msg} is not released. This is what {@link #write} does for buffers, for callers that
+   * encoded a packet on behalf of this handler.
+   */
+  void writeFrame(ChannelHandlerContext ctx, ByteBuf msg, ChannelPromise promise) {
+    writeFrame(ctx, cipherContext(ctx, msg), msg, promise);
+  }
+
+  private void writeFrame(ChannelHandlerContext ctx, @Nullable ChannelHandlerContext cipherCtx,
+      ByteBuf msg, ChannelPromise promise) {
+    ByteBuf out = null;
+    try {
+      out = allocateBuffer(ctx, msg, true);
+      if (cipherCtx != null) {
+        encodeEncrypted(ctx, ((MinecraftCipherEncoder) cipherCtx.handler()).getCipher(), msg, out);
+      } else {
+        encode(ctx, msg, out);
+      }
+    } catch (EncoderException e) {
+      ReferenceCountUtil.release(out);
+      throw e;
+    } catch (Throwable e) {
+      ReferenceCountUtil.release(out);
+      throw new EncoderException(e);
+    }
+    // An encrypted frame must not be encrypted again, so it skips the cipher encoder.
+    (cipherCtx != null ? cipherCtx : ctx).write(out, promise);
+  }
+
+  /**
+   * Returns the context of the cipher encoder to compress and encrypt {@code msg} for in a single
+   * pass, if that is possible.
+   */
+  private @Nullable ChannelHandlerContext cipherContext(ChannelHandlerContext ctx, ByteBuf msg) {
+    if (!FUSE_CIPHER || msg.readableBytes() < threshold
+        || !(compressor instanceof EncryptingCompressor)) {
+      return null;
+    }
+    // Plugins may place their own handlers in between.
+    ChannelHandlerContext cipherCtx = FusedCodec.nextOutbound(ctx, MinecraftCipherEncoder.class,
+        cipherStage);
+    if (cipherCtx == null || !((EncryptingCompressor) compressor).canFuse(
+        ((MinecraftCipherEncoder) cipherCtx.handler()).getCipher())) {
+      return null;
+    }
+    return cipherCtx;
+  }
+
+  private void encodeEncrypted(ChannelHandlerContext ctx, VelocityCipher cipher, ByteBuf msg,
+      ByteBuf out) throws DataFormatException {
+    int uncompressed = msg.readableBytes();
+    int startFrame = out.writerIndex();
+    ProtocolUtils.write21BitVarInt(out, 0); // Dummy packet length, filled in natively
+    ProtocolUtils.writeVarInt(out, uncompressed);
+    ByteBuf compatibleIn = MoreByteBufUtils.ensureCompatible(ctx.alloc(), compressor, msg);
+    VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+    long start = metrics != null ? System.nanoTime() : 0;
+    try {
+      EncryptingCompressor encrypting = (EncryptingCompressor) compressor;
+      encrypting.deflateAndEncrypt(compatibleIn, out, startFrame, cipher);
+    } finally {
+      compatibleIn.release();
+    }
+    if (metrics != null) {
+      // Compressing and encrypting can't be told apart in a single call, so the call counts
+      // towards both.
+      long nanos = System.nanoTime() - start;
+      metrics.recordDeflate(nanos);
+      metrics.recordCipher(nanos);
+      metrics.recordPacketSent(out.writerIndex() - startFrame, uncompressed);
+    }
+  }
+
+  private void writeOpaque(ChannelHandlerContext ctx, OpaqueCompressedPacket packet,
+      ChannelPromise promise) throws Exception {
+    int uncompressed = packet.getUncompressedSize();
+    if (uncompressed < threshold) {
+      // The other side compresses more eagerly than we do, so we have to inflate it after all.
+      ByteBuf inflated = MoreByteBufUtils.preferredBuffer(ctx.alloc(), compressor, uncompressed);
+      ByteBuf compatibleIn = MoreByteBufUtils.ensureCompatible(ctx.alloc(), compressor,
+          packet.content());
+      try {
+        compressor.inflate(compatibleIn, inflated, uncompressed);
+      } catch (Exception e) {
+        inflated.release();
+        throw e;
+      } finally {
+        compatibleIn.release();
+        packet.release();
+      }
+      super.write(ctx, inflated, promise);
+      return;
+    }
+
+    // The packet is already compressed, so only add the prefixes.
+    ByteBuf compressed = packet.content();
+    int uncompressedSizeLength = ProtocolUtils.varIntBytes(uncompressed);
+    int packetLength = uncompressedSizeLength + compressed.readableBytes();
+    int prefixLength = ProtocolUtils.varIntBytes(packetLength) + uncompressedSizeLength;
+    ByteBuf prefix = IS_JAVA_CIPHER
+        ? ctx.alloc().heapBuffer(prefixLength)
+        : ctx.alloc().directBuffer(prefixLength);
+    ProtocolUtils.writeVarInt(prefix, packetLength);
+    ProtocolUtils.writeVarInt(prefix, uncompressed);
+    VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+    if (metrics != null) {
+      metrics.recordPacketSent(prefix.readableBytes() + compressed.readableBytes(), uncompressed);
+    }
+    ctx.write(prefix, ctx.voidPromise());
+    ctx.write(compressed, promise);
   }
 
   @Override
   protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) throws Exception {
     int uncompressed = msg.readableBytes();
+    int startFrame = out.writerIndex();
+    VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
     if (uncompressed < threshold) {
       // Under the threshold, there is nothing to do.
       ProtocolUtils.writeVarInt(out, uncompressed + 1);
       ProtocolUtils.writeVarInt(out, 0);
       out.writeBytes(msg);
+    } else if (metrics != null) {
+      long start = System.nanoTime();
+      handleCompressed(ctx, msg, out);
+      metrics.recordDeflate(System.nanoTime() - start);
     } else {
       handleCompressed(ctx, msg, out);
     }
+
+    if (metrics != null) {
+      metrics.recordPacketSent(out.writerIndex() - startFrame, uncompressed);
+    }
   }
 
   private void handleCompressed(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out)
       throws DataFormatException {
+    writeCompressed(ctx.alloc(), compressor, msg, out);
+  }
+
+  static void writeCompressed(ByteBufAllocator alloc, VelocityCompressor compressor, ByteBuf msg,
+      ByteBuf out) throws DataFormatException {
     int uncompressed = msg.readableBytes();
 
+    int startFrame = out.writerIndex();
     ProtocolUtils.write21BitVarInt(out, 0); // Dummy packet length
     ProtocolUtils.writeVarInt(out, uncompressed);
-    ByteBuf compatibleIn = MoreByteBufUtils.ensureCompatible(ctx.alloc(), compressor, msg);
+    ByteBuf compatibleIn = MoreByteBufUtils.ensureCompatible(alloc, compressor, msg);
 
     int startCompressed = out.writerIndex();
     try {
@@ -73,8 +390,8 @@ public class MinecraftCompressorAndLengthEncoder extends MessageToByteEncoder<By
     }
 
     int writerIndex = out.writerIndex();
-    int packetLength = out.readableBytes() - 3;
-    out.writerIndex(0);
+    int packetLength = writerIndex - startFrame - 3;
+    out.writerIndex(startFrame);
     ProtocolUtils.write21BitVarInt(out, packetLength); // Rewrite packet length
     out.writerIndex(writerIndex);
   }
@@ -98,6 +415,7 @@ public class MinecraftCompressorAndLengthEncoder extends MessageToByteEncoder<By
 
   @Override
   public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    writeBatch(ctx);
     compressor.close();
   }
 
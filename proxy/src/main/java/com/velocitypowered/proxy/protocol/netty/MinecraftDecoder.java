@@ -19,6 +19,7 @@ package com.velocitypowered.proxy.protocol.netty;
 
 import com.google.common.base.Preconditions;
 import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
 import com.velocitypowered.proxy.protocol.MinecraftPacket;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
 import com.velocitypowered.proxy.protocol.StateRegistry;
@@ -58,6 +59,10 @@ public class MinecraftDecoder extends ChannelInboundHandlerAdapter {
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof ByteBuf) {
       ByteBuf buf = (ByteBuf) msg;
+      VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx);
+      if (metrics != null) {
+        metrics.recordUncompressedReceived(buf.readableBytes());
+      }
       tryDecode(ctx, buf);
     } else {
       ctx.fireChannelRead(msg);
@@ -147,4 +152,8 @@ public class MinecraftDecoder extends ChannelInboundHandlerAdapter {
     this.state = state;
     this.setProtocolVersion(registry.version);
   }
+
+  public ProtocolUtils.Direction getDirection() {
+    return direction;
+  }
 }
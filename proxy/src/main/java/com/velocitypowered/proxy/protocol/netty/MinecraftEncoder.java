@@ -23,17 +23,35 @@ import com.velocitypowered.proxy.protocol.MinecraftPacket;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
 import com.velocitypowered.proxy.protocol.StateRegistry;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.ReferenceCountUtil;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Encodes {@link MinecraftPacket} instances.
+ *
+ * <p>{@link PreparedPacket}s are passed on to the compression or framing handler if they were
+ * prepared for the current state and protocol version and that handler comes right after this
+ * encoder, and encoded from scratch otherwise.
+ *
+ * <p>With the {@linkplain FusedCodec fused codec} enabled, packets are encoded into a scratch
+ * buffer and framed straight into the output buffer by the next handler, without going through
+ * the pipeline in between.
  */
 public class MinecraftEncoder extends MessageToByteEncoder<MinecraftPacket> {
 
+  private static final int MAXIMUM_RETAINED_SCRATCH = 64 * 1024;
+
   private final ProtocolUtils.Direction direction;
+  private final boolean fused;
   private StateRegistry state;
   private StateRegistry.PacketRegistry.ProtocolRegistry registry;
+  private final FusedCodec.Neighbour framingStage = new FusedCodec.Neighbour();
+  private @Nullable ByteBuf scratch;
 
   /**
    * Creates a new {@code MinecraftEncoder} encoding packets for the specified {@code direction}.
@@ -41,12 +59,126 @@ public class MinecraftEncoder extends MessageToByteEncoder<MinecraftPacket> {
    * @param direction the direction to encode to
    */
   public MinecraftEncoder(ProtocolUtils.Direction direction) {
+    this(direction, FusedCodec.ENABLED);
+  }
+
+  MinecraftEncoder(ProtocolUtils.Direction direction, boolean fused) {
     this.direction = Preconditions.checkNotNull(direction, "direction");
+    this.fused = fused;
     this.registry = StateRegistry.HANDSHAKE.getProtocolRegistry(
         direction, ProtocolVersion.MINIMUM_VERSION);
     this.state = StateRegistry.HANDSHAKE;
   }
 
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (msg instanceof PreparedPacket) {
+      PreparedPacket prepared = (PreparedPacket) msg;
+      // Handlers placed in between, such as protocol translators, expect packets to come through
+      // unframed, so the packet is encoded from scratch for them.
+      if (state == StateRegistry.PLAY && direction == ProtocolUtils.Direction.CLIENTBOUND
+          && registry.version == prepared.getVersion() && nextFramer(ctx) != null) {
+        ctx.write(prepared, promise);
+      } else {
+        MinecraftPacket packet = prepared.getPacket();
+        prepared.release();
+        write(ctx, packet, promise);
+      }
+    } else if (fused && msg instanceof MinecraftPacket) {
+      ChannelHandlerContext framingCtx = framingContext(ctx);
+      if (framingCtx != null) {
+        writeFused(ctx, framingCtx, (MinecraftPacket) msg, promise);
+      } else {
+        super.write(ctx, msg, promise);
+      }
+    } else {
+      super.write(ctx, msg, promise);
+    }
+  }
+
+  private void writeFused(ChannelHandlerContext ctx, ChannelHandlerContext framingCtx,
+      MinecraftPacket packet, ChannelPromise promise) {
+    ByteBuf scratch = this.scratch;
+    if (scratch == null) {
+      scratch = this.scratch = ctx.alloc().ioBuffer();
+    }
+    ByteBuf out = null;
+    try {
+      encode(ctx, packet, scratch);
+      ChannelHandler framer = framingCtx.handler();
+      if (framer instanceof MinecraftCompressorAndLengthEncoder) {
+        // Writes the frame itself, so that it can be encrypted along the way.
+        ((MinecraftCompressorAndLengthEncoder) framer).writeFrame(framingCtx, scratch, promise);
+      } else {
+        MinecraftVarintLengthEncoder lengthEncoder = (MinecraftVarintLengthEncoder) framer;
+        out = lengthEncoder.allocateBuffer(framingCtx, scratch, true);
+        lengthEncoder.encode(framingCtx, scratch, out);
+      }
+    } catch (EncoderException e) {
+      ReferenceCountUtil.release(out);
+      throw e;
+    } catch (Throwable e) {
+      ReferenceCountUtil.release(out);
+      throw new EncoderException(e);
+    } finally {
+      ReferenceCountUtil.release(packet);
+      if (scratch.capacity() > MAXIMUM_RETAINED_SCRATCH) {
+        scratch.release();
+        this.scratch = null;
+      } else {
+        scratch.clear();
+      }
+    }
+    if (out != null) {
+      // Skips the framing handler, the cipher and everything else still see the frame.
+      framingCtx.write(out, promise);
+    }
+  }
+
+  /**
+   * Returns the context of the handler framing the packets this encoder produces, if it comes
+   * right after this encoder.
+   */
+  private @Nullable ChannelHandlerContext nextFramer(ChannelHandlerContext ctx) {
+    // Enabling compression swaps the framing handler, and plugins may place their own handlers in
+    // between.
+    ChannelHandlerContext framingCtx = FusedCodec.nextOutbound(ctx, ChannelHandler.class,
+        framingStage);
+    if (framingCtx == null) {
+      return null;
+    }
+    ChannelHandler framer = framingCtx.handler();
+    if (framer instanceof MinecraftCompressorAndLengthEncoder
+        || framer instanceof MinecraftVarintLengthEncoder) {
+      return framingCtx;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the context of the handler framing the packets this encoder produces, if the packets
+   * can be handed to it directly.
+   */
+  private @Nullable ChannelHandlerContext framingContext(ChannelHandlerContext ctx) {
+    ChannelHandlerContext framingCtx = nextFramer(ctx);
+    // A batching compressor holds on to packets until the flush, so they can't be encoded into the
+    // scratch buffer.
+    if (framingCtx != null && framingCtx.handler() instanceof MinecraftCompressorAndLengthEncoder
+        && ((MinecraftCompressorAndLengthEncoder) framingCtx.handler()).isBatching()) {
+      return null;
+    }
+    return framingCtx;
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    if (scratch != null) {
+      scratch.release();
+      scratch = null;
+    }
+  }
+
   @Override
   protected void encode(ChannelHandlerContext ctx, MinecraftPacket msg, ByteBuf out) {
     int packetId = this.registry.getPacketId(msg);
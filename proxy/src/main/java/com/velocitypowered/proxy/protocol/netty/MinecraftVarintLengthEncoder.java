@@ -19,10 +19,12 @@ package com.velocitypowered.proxy.protocol.netty;
 
 import com.velocitypowered.natives.encryption.JavaVelocityCipher;
 import com.velocitypowered.natives.util.Natives;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 /**
@@ -37,10 +39,28 @@ public class MinecraftVarintLengthEncoder extends MessageToByteEncoder<ByteBuf>
   private MinecraftVarintLengthEncoder() {
   }
 
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (msg instanceof PreparedPacket) {
+      ((PreparedPacket) msg).writeFrame(ctx, -1, promise);
+    } else {
+      super.write(ctx, msg, promise);
+    }
+  }
+
   @Override
   protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) throws Exception {
-    ProtocolUtils.writeVarInt(out, msg.readableBytes());
+    int length = msg.readableBytes();
+    int startFrame = out.writerIndex();
+    ProtocolUtils.writeVarInt(out, length);
     out.writeBytes(msg);
+
+    // This handler is shared, so the metrics have to be looked up every time.
+    VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx.channel());
+    if (metrics != null) {
+      metrics.recordPacketSent(out.writerIndex() - startFrame, length);
+    }
   }
 
   @Override
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * A compressed packet that the proxy does not understand and forwards without ever inflating it.
+ * The content is the deflated packet (ID and body), without the length or uncompressed size
+ * prefixes.
+ */
+public final class OpaqueCompressedPacket extends DefaultByteBufHolder {
+
+  private final int uncompressedSize;
+
+  public OpaqueCompressedPacket(ByteBuf compressed, int uncompressedSize) {
+    super(compressed);
+    this.uncompressedSize = uncompressedSize;
+  }
+
+  public int getUncompressedSize() {
+    return uncompressedSize;
+  }
+
+  @Override
+  public OpaqueCompressedPacket replace(ByteBuf content) {
+    return new OpaqueCompressedPacket(content, uncompressedSize);
+  }
+
+  @Override
+  public OpaqueCompressedPacket retain() {
+    super.retain();
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "OpaqueCompressedPacket{"
+        + "uncompressedSize=" + uncompressedSize
+        + ", compressedSize=" + content().readableBytes()
+        + '}';
+  }
+}
@@ -58,6 +58,13 @@ public class PlayPacketQueueHandler extends ChannelDuplexHandler {
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
       throws Exception {
+    if (msg instanceof PreparedPacket) {
+      // Prepared packets are always encoded for the PLAY state.
+      PreparedPacket prepared = (PreparedPacket) msg;
+      msg = prepared.getPacket();
+      prepared.release();
+    }
+
     if (!(msg instanceof MinecraftPacket)) {
       ctx.write(msg, promise);
       return;
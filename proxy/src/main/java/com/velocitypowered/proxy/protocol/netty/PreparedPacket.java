@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import static com.velocitypowered.proxy.protocol.netty.MinecraftVarintLengthEncoder.IS_JAVA_CIPHER;
+
+import com.google.common.base.Preconditions;
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.natives.util.MoreByteBufUtils;
+import com.velocitypowered.proxy.network.Connections;
+import com.velocitypowered.proxy.network.metrics.VelocityConnectionMetrics;
+import com.velocitypowered.proxy.protocol.MinecraftPacket;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandler;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.ReferenceCounted;
+import java.util.zip.DataFormatException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A clientbound PLAY packet that was encoded, compressed and framed ahead of time, so that it can
+ * be sent to many players using the same protocol version and compression threshold without
+ * encoding it again for every one of them.
+ *
+ * <p>The original packet is kept around: if the connection turns out to be in a different state
+ * or protocol version by the time the packet is written, {@link MinecraftEncoder} and
+ * {@link PlayPacketQueueHandler} fall back to it.
+ */
+public final class PreparedPacket extends DefaultByteBufHolder {
+
+  private final MinecraftPacket packet;
+  private final ProtocolVersion version;
+  private final int threshold;
+  private final int uncompressedSize;
+
+  private PreparedPacket(ByteBuf frame, MinecraftPacket packet, ProtocolVersion version,
+      int threshold, int uncompressedSize) {
+    super(frame);
+    this.packet = packet;
+    this.version = version;
+    this.threshold = threshold;
+    this.uncompressedSize = uncompressedSize;
+  }
+
+  /**
+   * Encodes the {@code packet} the same way the outbound pipeline of a client connection in the
+   * PLAY state would, up to (but not including) encryption.
+   *
+   * @param alloc the allocator to use
+   * @param packet the packet to encode, must not be reference counted
+   * @param version the protocol version to encode the packet for
+   * @param threshold the compression threshold, or {@code -1} if compression is disabled
+   * @param compressor the compressor to use, may be {@code null} if {@code threshold} is negative
+   * @return the prepared packet
+   */
+  public static PreparedPacket prepare(ByteBufAllocator alloc, MinecraftPacket packet,
+      ProtocolVersion version, int threshold, @Nullable VelocityCompressor compressor) {
+    Preconditions.checkArgument(!(packet instanceof ReferenceCounted),
+        "reference counted packets can't be prepared");
+    Preconditions.checkArgument(threshold < 0 || compressor != null, "no compressor");
+
+    ByteBuf body = encode(alloc.heapBuffer(), packet, version);
+    ByteBuf frame = null;
+    try {
+      int uncompressed = body.readableBytes();
+      if (threshold < 0) {
+        frame = preferredFrameBuffer(alloc, ProtocolUtils.varIntBytes(uncompressed)
+            + uncompressed);
+        ProtocolUtils.writeVarInt(frame, uncompressed);
+        frame.writeBytes(body);
+      } else if (uncompressed < threshold) {
+        frame = preferredFrameBuffer(alloc, ProtocolUtils.varIntBytes(uncompressed + 1)
+            + uncompressed + 1);
+        ProtocolUtils.writeVarInt(frame, uncompressed + 1);
+        ProtocolUtils.writeVarInt(frame, 0);
+        frame.writeBytes(body);
+      } else {
+        frame = MoreByteBufUtils.preferredBuffer(alloc, compressor,
+            (uncompressed - 1) + 3 + ProtocolUtils.varIntBytes(uncompressed));
+        MinecraftCompressorAndLengthEncoder.writeCompressed(alloc, compressor, body, frame);
+      }
+      PreparedPacket prepared = new PreparedPacket(frame, packet, version, threshold,
+          uncompressed);
+      frame = null;
+      return prepared;
+    } catch (DataFormatException e) {
+      throw new EncoderException(e);
+    } finally {
+      body.release();
+      if (frame != null) {
+        frame.release();
+      }
+    }
+  }
+
+  private static ByteBuf encode(ByteBuf body, MinecraftPacket packet, ProtocolVersion version) {
+    try {
+      StateRegistry.PacketRegistry.ProtocolRegistry registry = StateRegistry.PLAY
+          .getProtocolRegistry(ProtocolUtils.Direction.CLIENTBOUND, version);
+      ProtocolUtils.writeVarInt(body, registry.getPacketId(packet));
+      packet.encode(body, ProtocolUtils.Direction.CLIENTBOUND, version);
+      return body;
+    } catch (Throwable e) {
+      body.release();
+      throw e;
+    }
+  }
+
+  private static ByteBuf preferredFrameBuffer(ByteBufAllocator alloc, int capacity) {
+    return IS_JAVA_CIPHER ? alloc.heapBuffer(capacity) : alloc.directBuffer(capacity);
+  }
+
+  /**
+   * Writes the prepared frame to the next handler of {@code ctx}, which must be the handler that
+   * frames packets for a connection using the specified compression {@code threshold}. The frame
+   * is copied if the connection is encrypted, as ciphers operate in place.
+   *
+   * <p>If the packet was prepared for another threshold, for instance because compression was
+   * enabled for the connection in the meantime, the packet is encoded again and handed to the
+   * framing handler like any other packet.
+   *
+   * @param ctx the context of the framing handler
+   * @param threshold the compression threshold used by the connection, or {@code -1}
+   * @param promise the promise to notify
+   * @throws Exception if the framing handler fails to write the packet encoded again
+   */
+  void writeFrame(ChannelHandlerContext ctx, int threshold, ChannelPromise promise)
+      throws Exception {
+    if (this.threshold != threshold) {
+      ByteBuf body;
+      try {
+        body = encode(ctx.alloc().buffer(uncompressedSize), packet, version);
+      } finally {
+        release();
+      }
+      ((ChannelOutboundHandler) ctx.handler()).write(ctx, body, promise);
+      return;
+    }
+    try {
+      ByteBuf frame = content();
+      VelocityConnectionMetrics metrics = VelocityConnectionMetrics.get(ctx.channel());
+      if (metrics != null) {
+        metrics.recordPacketSent(frame.readableBytes(), uncompressedSize);
+      }
+      if (ctx.pipeline().get(Connections.CIPHER_ENCODER) != null) {
+        ctx.write(frame.copy(), promise);
+      } else {
+        ctx.write(frame.retainedDuplicate(), promise);
+      }
+    } finally {
+      release();
+    }
+  }
+
+  public MinecraftPacket getPacket() {
+    return packet;
+  }
+
+  public ProtocolVersion getVersion() {
+    return version;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  @Override
+  public PreparedPacket replace(ByteBuf content) {
+    return new PreparedPacket(content, packet, version, threshold, uncompressedSize);
+  }
+
+  @Override
+  public PreparedPacket retain() {
+    super.retain();
+    return this;
+  }
+
+  @Override
+  public PreparedPacket retainedDuplicate() {
+    return (PreparedPacket) super.retainedDuplicate();
+  }
+
+  @Override
+  public String toString() {
+    return "PreparedPacket{"
+        + "packet=" + packet
+        + ", version=" + version
+        + ", threshold=" + threshold
+        + ", frameSize=" + content().readableBytes()
+        + '}';
+  }
+}
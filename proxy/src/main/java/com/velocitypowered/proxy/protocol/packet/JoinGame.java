@@ -22,15 +22,16 @@ import com.velocitypowered.api.network.ProtocolVersion;
 import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
 import com.velocitypowered.proxy.connection.registry.DimensionInfo;
 import com.velocitypowered.proxy.protocol.*;
+import com.velocitypowered.proxy.protocol.util.LazyCompoundBinaryTag;
 import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.Pair;
-import net.kyori.adventure.nbt.BinaryTagIO;
 import net.kyori.adventure.nbt.CompoundBinaryTag;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class JoinGame implements MinecraftPacket {
 
-  private static final BinaryTagIO.Reader JOINGAME_READER = BinaryTagIO.reader(4 * 1024 * 1024);
+  private static final int MAX_TAG_BYTES = 4 * 1024 * 1024;
+
   private int entityId;
   private short gamemode;
   private int dimension;
@@ -44,9 +45,9 @@ public class JoinGame implements MinecraftPacket {
   private boolean showRespawnScreen;
   private boolean doLimitedCrafting; // 1.20.2+
   private ImmutableSet<String> levelNames; // 1.16+
-  private CompoundBinaryTag registry; // 1.16+
+  private LazyCompoundBinaryTag registry; // 1.16+
   private DimensionInfo dimensionInfo; // 1.16+
-  private CompoundBinaryTag currentDimensionData; // 1.16.2+
+  private LazyCompoundBinaryTag currentDimensionData; // 1.16.2+
   private short previousGamemode; // 1.16+
   private int simulationDistance; // 1.18+
   private @Nullable Pair<String, Long> lastDeathPosition; // 1.19+
@@ -153,6 +154,10 @@ public class JoinGame implements MinecraftPacket {
   }
 
   public CompoundBinaryTag getCurrentDimensionData() {
+    return currentDimensionData == null ? null : currentDimensionData.get();
+  }
+
+  public LazyCompoundBinaryTag getLazyCurrentDimensionData() {
     return currentDimensionData;
   }
 
@@ -181,6 +186,10 @@ public class JoinGame implements MinecraftPacket {
   }
 
   public CompoundBinaryTag getRegistry() {
+    return registry == null ? null : registry.get();
+  }
+
+  public LazyCompoundBinaryTag getLazyRegistry() {
     return registry;
   }
 
@@ -255,12 +264,12 @@ public class JoinGame implements MinecraftPacket {
     this.previousGamemode = buf.readByte();
 
     this.levelNames = ImmutableSet.copyOf(ProtocolUtils.readStringArray(buf));
-    this.registry = ProtocolUtils.readCompoundTag(buf, version, JOINGAME_READER);
+    this.registry = LazyCompoundBinaryTag.read(buf, version, MAX_TAG_BYTES);
     String dimensionIdentifier;
     String levelName = null;
     if (version.compareTo(ProtocolVersion.MINECRAFT_1_16_2) >= 0
         && version.compareTo(ProtocolVersion.MINECRAFT_1_19) < 0) {
-      this.currentDimensionData = ProtocolUtils.readCompoundTag(buf, version, JOINGAME_READER);
+      this.currentDimensionData = LazyCompoundBinaryTag.read(buf, version, MAX_TAG_BYTES);
       dimensionIdentifier = ProtocolUtils.readString(buf);
     } else {
       dimensionIdentifier = ProtocolUtils.readString(buf);
@@ -390,10 +399,10 @@ public class JoinGame implements MinecraftPacket {
     buf.writeByte(previousGamemode);
 
     ProtocolUtils.writeStringArray(buf, levelNames.toArray(String[]::new));
-    ProtocolUtils.writeBinaryTag(buf, version, this.registry);
+    this.registry.write(buf, version);
     if (version.compareTo(ProtocolVersion.MINECRAFT_1_16_2) >= 0
         && version.compareTo(ProtocolVersion.MINECRAFT_1_19) < 0) {
-      ProtocolUtils.writeBinaryTag(buf, version, currentDimensionData);
+      currentDimensionData.write(buf, version);
       ProtocolUtils.writeString(buf, dimensionInfo.getRegistryIdentifier());
     } else {
       ProtocolUtils.writeString(buf, dimensionInfo.getRegistryIdentifier());
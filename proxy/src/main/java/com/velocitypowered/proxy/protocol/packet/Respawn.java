@@ -22,14 +22,16 @@ import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
 import com.velocitypowered.proxy.connection.registry.DimensionInfo;
 import com.velocitypowered.proxy.protocol.MinecraftPacket;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.util.LazyCompoundBinaryTag;
 import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.Pair;
-import net.kyori.adventure.nbt.BinaryTagIO;
-import net.kyori.adventure.nbt.CompoundBinaryTag;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class Respawn implements MinecraftPacket {
 
+  // The limit of the default reader that was used before the tag was read lazily.
+  private static final int MAX_TAG_BYTES = 2 * 1024 * 1024;
+
   private int dimension;
   private long partialHashedSeed;
   private short difficulty;
@@ -38,7 +40,7 @@ public class Respawn implements MinecraftPacket {
   private byte dataToKeep; // 1.16+
   private DimensionInfo dimensionInfo; // 1.16-1.16.1
   private short previousGamemode; // 1.16+
-  private CompoundBinaryTag currentDimensionData; // 1.16.2+
+  private LazyCompoundBinaryTag currentDimensionData; // 1.16.2+
   private @Nullable Pair<String, Long> lastDeathPosition; // 1.19+
   private int portalCooldown; // 1.20+
 
@@ -47,7 +49,7 @@ public class Respawn implements MinecraftPacket {
 
   public Respawn(int dimension, long partialHashedSeed, short difficulty, short gamemode,
       String levelType, byte dataToKeep, DimensionInfo dimensionInfo,
-      short previousGamemode, CompoundBinaryTag currentDimensionData,
+      short previousGamemode, LazyCompoundBinaryTag currentDimensionData,
       @Nullable Pair<String, Long> lastDeathPosition, int portalCooldown) {
     this.dimension = dimension;
     this.partialHashedSeed = partialHashedSeed;
@@ -66,7 +68,7 @@ public class Respawn implements MinecraftPacket {
     return new Respawn(joinGame.getDimension(), joinGame.getPartialHashedSeed(),
         joinGame.getDifficulty(), joinGame.getGamemode(), joinGame.getLevelType(),
         (byte) 0, joinGame.getDimensionInfo(), joinGame.getPreviousGamemode(),
-        joinGame.getCurrentDimensionData(), joinGame.getLastDeathPosition(), joinGame.getPortalCooldown());
+        joinGame.getLazyCurrentDimensionData(), joinGame.getLastDeathPosition(), joinGame.getPortalCooldown());
   }
 
   public int getDimension() {
@@ -165,7 +167,7 @@ public class Respawn implements MinecraftPacket {
     if (version.compareTo(ProtocolVersion.MINECRAFT_1_16) >= 0) {
       if (version.compareTo(ProtocolVersion.MINECRAFT_1_16_2) >= 0
           && version.compareTo(ProtocolVersion.MINECRAFT_1_19) < 0) {
-        this.currentDimensionData = ProtocolUtils.readCompoundTag(buf, version, BinaryTagIO.reader());
+        this.currentDimensionData = LazyCompoundBinaryTag.read(buf, version, MAX_TAG_BYTES);
         dimensionIdentifier = ProtocolUtils.readString(buf);
       } else {
         dimensionIdentifier = ProtocolUtils.readString(buf);
@@ -210,7 +212,7 @@ public class Respawn implements MinecraftPacket {
     if (version.compareTo(ProtocolVersion.MINECRAFT_1_16) >= 0) {
       if (version.compareTo(ProtocolVersion.MINECRAFT_1_16_2) >= 0
           && version.compareTo(ProtocolVersion.MINECRAFT_1_19) < 0) {
-        ProtocolUtils.writeBinaryTag(buf, version, currentDimensionData);
+        currentDimensionData.write(buf, version);
         ProtocolUtils.writeString(buf, dimensionInfo.getRegistryIdentifier());
       } else {
         ProtocolUtils.writeString(buf, dimensionInfo.getRegistryIdentifier());
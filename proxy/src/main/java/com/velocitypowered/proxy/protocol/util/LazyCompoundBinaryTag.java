@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.util;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import java.io.IOException;
+import net.kyori.adventure.nbt.BinaryTagTypes;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@link CompoundBinaryTag} read from the network that is only parsed once somebody asks for
+ * it. Until then, the proxy only holds on to the encoded tag and writes those exact bytes back
+ * out, which saves building (and later re-serializing) a large tree of tags for packets such as
+ * {@code JoinGame} that are usually forwarded untouched.
+ *
+ * <p>The bytes are copied out of the packet buffer, as packets are not reference counted and may
+ * outlive the buffer they were decoded from.
+ */
+public final class LazyCompoundBinaryTag {
+
+  private static final int MAX_DEPTH = 512;
+
+  private final byte[] payload;
+  private volatile @Nullable CompoundBinaryTag tag;
+
+  private LazyCompoundBinaryTag(byte[] payload) {
+    this.payload = payload;
+  }
+
+  /**
+   * Reads a compound tag from the {@code buf} without parsing it. The tag is validated to be
+   * well-formed, so any errors are still raised while decoding the packet.
+   *
+   * @param buf the buffer to read from
+   * @param version the protocol version the tag was written for
+   * @param maxBytes the most bytes the tag may take up, excluding the root tag type and name
+   * @return the lazily parsed tag
+   */
+  public static LazyCompoundBinaryTag read(ByteBuf buf, ProtocolVersion version, int maxBytes) {
+    int type = buf.readByte();
+    if (type != BinaryTagTypes.COMPOUND.id()) {
+      throw new DecoderException("Expected root tag to be CompoundTag, but is of type " + type);
+    }
+    if (version.compareTo(ProtocolVersion.MINECRAFT_1_20_2) < 0) {
+      buf.skipBytes(buf.readUnsignedShort());
+    }
+    int start = buf.readerIndex();
+    skipPayload(buf, type, 0);
+    if (buf.readerIndex() - start > maxBytes) {
+      throw new DecoderException("BinaryTag of " + (buf.readerIndex() - start)
+          + " bytes exceeds the limit of " + maxBytes + " bytes");
+    }
+    byte[] payload = new byte[buf.readerIndex() - start];
+    buf.getBytes(start, payload);
+    return new LazyCompoundBinaryTag(payload);
+  }
+
+  /**
+   * Writes this tag to the {@code buf}. If the tag was never parsed, the original bytes are
+   * written as-is.
+   *
+   * @param buf the buffer to write to
+   * @param version the protocol version to write the tag for
+   */
+  public void write(ByteBuf buf, ProtocolVersion version) {
+    buf.writeByte(BinaryTagTypes.COMPOUND.id());
+    if (version.compareTo(ProtocolVersion.MINECRAFT_1_20_2) < 0) {
+      // Empty name
+      buf.writeShort(0);
+    }
+    buf.writeBytes(payload);
+  }
+
+  /**
+   * Returns the parsed tag, parsing it if that has not happened yet.
+   *
+   * @return the parsed tag
+   */
+  public CompoundBinaryTag get() {
+    CompoundBinaryTag tag = this.tag;
+    if (tag == null) {
+      try {
+        tag = BinaryTagTypes.COMPOUND.read(
+            new ByteBufInputStream(Unpooled.wrappedBuffer(payload)));
+      } catch (IOException thrown) {
+        throw new DecoderException("Unable to parse BinaryTag, full error: "
+            + thrown.getMessage());
+      }
+      this.tag = tag;
+    }
+    return tag;
+  }
+
+  public boolean isParsed() {
+    return tag != null;
+  }
+
+  /**
+   * Returns the size of the encoded tag, excluding the root tag type and name.
+   *
+   * @return the size of the encoded tag
+   */
+  public int getEncodedSize() {
+    return payload.length;
+  }
+
+  private static void skipPayload(ByteBuf buf, int type, int depth) {
+    if (depth > MAX_DEPTH) {
+      throw new DecoderException("BinaryTag is nested too deeply");
+    }
+    switch (type) {
+      case 1: // byte
+        buf.skipBytes(1);
+        break;
+      case 2: // short
+        buf.skipBytes(2);
+        break;
+      case 3: // int
+      case 5: // float
+        buf.skipBytes(4);
+        break;
+      case 4: // long
+      case 6: // double
+        buf.skipBytes(8);
+        break;
+      case 7: // byte array
+        buf.skipBytes(readLength(buf, 1));
+        break;
+      case 8: // string
+        buf.skipBytes(buf.readUnsignedShort());
+        break;
+      case 9: { // list
+        int elementType = buf.readByte();
+        int length = buf.readInt();
+        if (length < 0) {
+          throw new DecoderException("BinaryTag list length " + length + " is out of bounds");
+        }
+        if (length > 0 && elementType == 0) {
+          throw new DecoderException("Non-empty BinaryTag list of end tags");
+        }
+        for (int i = 0; i < length; i++) {
+          skipPayload(buf, elementType, depth + 1);
+        }
+        break;
+      }
+      case 10: { // compound
+        int entryType;
+        while ((entryType = buf.readByte()) != 0) {
+          buf.skipBytes(buf.readUnsignedShort());
+          skipPayload(buf, entryType, depth + 1);
+        }
+        break;
+      }
+      case 11: // int array
+        buf.skipBytes(readLength(buf, 4));
+        break;
+      case 12: // long array
+        buf.skipBytes(readLength(buf, 8));
+        break;
+      default:
+        throw new DecoderException("Unknown BinaryTag type " + type);
+    }
+  }
+
+  private static int readLength(ByteBuf buf, int elementSize) {
+    int length = buf.readInt();
+    if (length < 0 || (long) length * elementSize > buf.readableBytes()) {
+      throw new DecoderException("BinaryTag array length " + length + " is out of bounds");
+    }
+    return length * elementSize;
+  }
+
+  @Override
+  public String toString() {
+    CompoundBinaryTag tag = this.tag;
+    if (tag != null) {
+      return tag.toString();
+    }
+    return "LazyCompoundBinaryTag{encodedSize=" + payload.length + '}';
+  }
+}
@@ -20,9 +20,6 @@ package com.velocitypowered.proxy.scheduler;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.PluginManager;
@@ -30,19 +27,21 @@ import com.velocitypowered.api.scheduler.ScheduledTask;
 import com.velocitypowered.api.scheduler.Scheduler;
 import com.velocitypowered.api.scheduler.TaskStatus;
 import com.velocitypowered.proxy.plugin.loader.VelocityPluginContainer;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.IdentityHashMap;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
@@ -52,17 +51,25 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 
 /**
- * The Velocity "scheduler", which is actually a thin wrapper around
- * {@link ScheduledExecutorService} and a dynamically-sized {@link ExecutorService}.
- * Many plugins are accustomed to the Bukkit Scheduler model, although it is not relevant
- * in a proxy context.
+ * The Velocity "scheduler", which is actually a thin wrapper around a {@link HashedWheelTimer}
+ * and the {@link ExecutorService} of each plugin. Many plugins are accustomed to the Bukkit
+ * Scheduler model, although it is not relevant in a proxy context.
+ *
+ * <p>Plugins tend to schedule a lot of short per-player timers (cooldowns and the like) which are
+ * often cancelled before they run. The timing wheel schedules and cancels those in constant time,
+ * where a delay queue has to keep a heap in order, at the cost of rounding delays up to the next
+ * tick. Ticks are 10 milliseconds long, so that the timer thread does not wake up a thousand
+ * times a second while there is nothing to run.</p>
  */
 public class VelocityScheduler implements Scheduler {
 
+  private static final long TICK_MILLIS = 10;
+  private static final int TICKS_PER_WHEEL = 1024;
+
   private final PluginManager pluginManager;
-  private final ScheduledExecutorService timerExecutionService;
-  private final Multimap<Object, ScheduledTask> tasksByPlugin = Multimaps.synchronizedMultimap(
-      Multimaps.newSetMultimap(new IdentityHashMap<>(), HashSet::new));
+  private final HashedWheelTimer timer;
+  private final Map<PluginContainer, Set<VelocityTask>> tasksByPlugin =
+      new ConcurrentHashMap<>();
 
   /**
    * Initalizes the scheduler.
@@ -71,9 +78,9 @@ public class VelocityScheduler implements Scheduler {
    */
   public VelocityScheduler(PluginManager pluginManager) {
     this.pluginManager = pluginManager;
-    this.timerExecutionService = Executors
-        .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
-            .setNameFormat("Velocity Task Scheduler Timer").build());
+    this.timer = new HashedWheelTimer(new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("Velocity Task Scheduler Timer").build(),
+        TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL, false);
   }
 
   @Override
@@ -97,11 +104,35 @@ public class VelocityScheduler implements Scheduler {
   @Override
   public @NonNull Collection<ScheduledTask> tasksByPlugin(@NonNull Object plugin) {
     checkNotNull(plugin, "plugin");
-    checkArgument(pluginManager.fromInstance(plugin).isPresent(), "plugin is not registered");
-    final Collection<ScheduledTask> tasks = tasksByPlugin.get(plugin);
-    synchronized (tasksByPlugin) {
-      return Set.copyOf(tasks);
+    final Optional<PluginContainer> container = pluginManager.fromInstance(plugin);
+    checkArgument(container.isPresent(), "plugin is not registered");
+    final Set<VelocityTask> tasks = tasksByPlugin.get(container.get());
+    return tasks == null ? Set.of() : Set.copyOf(tasks);
+  }
+
+  /**
+   * Returns the number of task executions that are waiting for their delay to pass.
+   *
+   * @return the number of queued task executions
+   */
+  public long getQueuedTaskCount() {
+    return timer.pendingTimeouts();
+  }
+
+  /**
+   * Returns the number of tasks each plugin has scheduled that did not finish yet, by plugin ID.
+   *
+   * @return the number of tasks by plugin ID
+   */
+  public Map<String, Integer> getTaskCountsByPlugin() {
+    Map<String, Integer> counts = new HashMap<>();
+    for (Map.Entry<PluginContainer, Set<VelocityTask>> entry : tasksByPlugin.entrySet()) {
+      int count = entry.getValue().size();
+      if (count > 0) {
+        counts.put(entry.getKey().getDescription().getId(), count);
+      }
     }
+    return counts;
   }
 
   /**
@@ -111,14 +142,14 @@ public class VelocityScheduler implements Scheduler {
    * @throws InterruptedException if the current thread was interrupted
    */
   public boolean shutdown() throws InterruptedException {
-    Collection<ScheduledTask> terminating;
-    synchronized (tasksByPlugin) {
-      terminating = ImmutableList.copyOf(tasksByPlugin.values());
+    List<ScheduledTask> terminating = new ArrayList<>();
+    for (Set<VelocityTask> tasks : tasksByPlugin.values()) {
+      terminating.addAll(tasks);
     }
     for (ScheduledTask task : terminating) {
       task.cancel();
     }
-    timerExecutionService.shutdown();
+    timer.stop();
     final List<PluginContainer> plugins = new ArrayList<>(this.pluginManager.getPlugins());
     final Iterator<PluginContainer> pluginIterator = plugins.iterator();
     while (pluginIterator.hasNext()) {
@@ -204,23 +235,40 @@ public class VelocityScheduler implements Scheduler {
     @Override
     public ScheduledTask schedule() {
       VelocityTask task = new VelocityTask(container, runnable, consumer, delay, repeat);
-      tasksByPlugin.put(container.getInstance().get(), task);
+      tasksByPlugin.computeIfAbsent(container, ignored -> ConcurrentHashMap.newKeySet())
+          .add(task);
       task.schedule();
       return task;
     }
   }
 
+  private static final VarHandle TASK_STATUS;
+
+  static {
+    try {
+      TASK_STATUS = MethodHandles.lookup()
+          .findVarHandle(VelocityTask.class, "status", TaskStatus.class);
+    } catch (final ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   @VisibleForTesting
-  class VelocityTask implements Runnable, ScheduledTask {
+  class VelocityTask implements TimerTask, ScheduledTask {
 
     private final PluginContainer container;
     private final Runnable runnable;
     private final Consumer<ScheduledTask> consumer;
     private final long delay;
     private final long repeat;
-    private @Nullable ScheduledFuture<?> future;
+    private long nextRunNanos;
+    private volatile @Nullable Timeout timeout;
     private volatile @Nullable Thread currentTaskThread;
 
+    // This field is modified via a VarHandle, so this field is used and cannot be final.
+    @SuppressWarnings("FieldMayBeFinal")
+    private volatile TaskStatus status = TaskStatus.SCHEDULED;
+
     private VelocityTask(PluginContainer container, Runnable runnable,
         Consumer<ScheduledTask> consumer, long delay, long repeat) {
       this.container = container;
@@ -231,12 +279,8 @@ public class VelocityScheduler implements Scheduler {
     }
 
     void schedule() {
-      if (repeat == 0) {
-        this.future = timerExecutionService.schedule(this, delay, TimeUnit.MILLISECONDS);
-      } else {
-        this.future = timerExecutionService
-            .scheduleAtFixedRate(this, delay, repeat, TimeUnit.MILLISECONDS);
-      }
+      this.nextRunNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+      this.timeout = timer.newTimeout(this, delay, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -247,25 +291,18 @@ public class VelocityScheduler implements Scheduler {
 
     @Override
     public TaskStatus status() {
-      if (future == null) {
-        return TaskStatus.SCHEDULED;
-      }
-
-      if (future.isCancelled()) {
-        return TaskStatus.CANCELLED;
-      }
-
-      if (future.isDone()) {
-        return TaskStatus.FINISHED;
-      }
-
-      return TaskStatus.SCHEDULED;
+      return status;
     }
 
     @Override
     public void cancel() {
-      if (future != null) {
-        future.cancel(false);
+      if (TASK_STATUS.compareAndSet(this, TaskStatus.SCHEDULED, TaskStatus.CANCELLED)) {
+        // run() reads the status after replacing the timeout, so either it sees that the task was
+        // cancelled or we see the new timeout.
+        Timeout current = timeout;
+        if (current != null) {
+          current.cancel();
+        }
 
         Thread cur = currentTaskThread;
         if (cur != null) {
@@ -277,7 +314,20 @@ public class VelocityScheduler implements Scheduler {
     }
 
     @Override
-    public void run() {
+    public void run(Timeout expired) {
+      if (status != TaskStatus.SCHEDULED) {
+        return;
+      }
+      if (repeat != 0) {
+        // Run at a fixed rate, so that the time the timer takes to notice an expired timeout does
+        // not make the task drift.
+        nextRunNanos += TimeUnit.MILLISECONDS.toNanos(repeat);
+        timeout = timer.newTimeout(this, nextRunNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (status != TaskStatus.SCHEDULED) {
+          timeout.cancel();
+        }
+      }
+
       container.getExecutorService().execute(() -> {
         currentTaskThread = Thread.currentThread();
         try {
@@ -298,7 +348,8 @@ public class VelocityScheduler implements Scheduler {
                 e);
           }
         } finally {
-          if (repeat == 0) {
+          if (repeat == 0
+              && TASK_STATUS.compareAndSet(this, TaskStatus.SCHEDULED, TaskStatus.FINISHED)) {
             onFinish();
           }
           currentTaskThread = null;
@@ -307,16 +358,27 @@ public class VelocityScheduler implements Scheduler {
     }
 
     private void onFinish() {
-      tasksByPlugin.remove(plugin(), this);
+      Set<VelocityTask> tasks = tasksByPlugin.get(container);
+      if (tasks != null) {
+        tasks.remove(this);
+      }
+      synchronized (this) {
+        notifyAll();
+      }
     }
 
+    /**
+     * Waits until this task has finished running or was cancelled.
+     */
     public void awaitCompletion() {
-      try {
-        future.get();
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      } catch (ExecutionException e) {
-        throw new RuntimeException(e);
+      synchronized (this) {
+        try {
+          while (status == TaskStatus.SCHEDULED) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
       }
     }
   }
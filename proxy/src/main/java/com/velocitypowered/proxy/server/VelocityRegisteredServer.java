@@ -34,6 +34,7 @@ import com.velocitypowered.api.proxy.server.ServerInfo;
 import com.velocitypowered.api.proxy.server.ServerPing;
 import com.velocitypowered.proxy.VelocityServer;
 import com.velocitypowered.proxy.connection.MinecraftConnection;
+import com.velocitypowered.proxy.connection.backend.BackendConnectionPool;
 import com.velocitypowered.proxy.connection.backend.VelocityServerConnection;
 import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
 import com.velocitypowered.proxy.protocol.ProtocolUtils;
@@ -68,10 +69,19 @@ public class VelocityRegisteredServer implements RegisteredServer, ForwardingAud
   private final @Nullable VelocityServer server;
   private final ServerInfo serverInfo;
   private final Map<UUID, ConnectedPlayer> players = new ConcurrentHashMap<>();
+  private final @Nullable BackendConnectionPool connectionPool;
 
+  /**
+   * Creates a registered server.
+   *
+   * @param server the proxy, or {@code null} if there is no proxy, in which case the server cannot
+   *     be connected to
+   * @param serverInfo the server
+   */
   public VelocityRegisteredServer(@Nullable VelocityServer server, ServerInfo serverInfo) {
     this.server = server;
     this.serverInfo = Preconditions.checkNotNull(serverInfo, "serverInfo");
+    this.connectionPool = server == null ? null : new BackendConnectionPool(server, this);
   }
 
   @Override
@@ -134,6 +144,18 @@ public class VelocityRegisteredServer implements RegisteredServer, ForwardingAud
     return pingFuture;
   }
 
+  /**
+   * Returns the pool of connections to this server.
+   *
+   * @return the connection pool
+   */
+  public BackendConnectionPool getConnectionPool() {
+    if (connectionPool == null) {
+      throw new IllegalStateException("No Velocity proxy instance available");
+    }
+    return connectionPool;
+  }
+
   public void addPlayer(ConnectedPlayer player) {
     players.put(player.getUniqueId(), player);
   }
@@ -19,7 +19,9 @@ package com.velocitypowered.proxy.util.bossbar;
 
 import com.google.common.collect.MapMaker;
 import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.VelocityServer;
 import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import com.velocitypowered.proxy.connection.util.BroadcastPacketCache;
 import com.velocitypowered.proxy.protocol.packet.chat.ComponentHolder;
 import com.velocitypowered.proxy.util.collect.Enum2IntMap;
 import com.velocitypowered.proxy.util.concurrent.Once;
@@ -64,9 +66,11 @@ public class AdventureBossBarManager implements BossBar.Listener {
           .put(Flag.PLAY_BOSS_MUSIC, 0x2)
           .put(Flag.CREATE_WORLD_FOG, 0x4)
           .build();
+  private final VelocityServer server;
   private final Map<BossBar, BossBarHolder> bars;
 
-  public AdventureBossBarManager() {
+  public AdventureBossBarManager(VelocityServer server) {
+    this.server = server;
     this.bars = new MapMaker().weakKeys().makeMap();
   }
 
@@ -126,11 +130,12 @@ public class AdventureBossBarManager implements BossBar.Listener {
     if (holder == null) {
       return;
     }
-    for (ConnectedPlayer player : holder.subscribers) {
-      Component translated = player.translateMessage(newName);
-      com.velocitypowered.proxy.protocol.packet.BossBar packet = holder.createTitleUpdate(
-          translated, player.getProtocolVersion());
-      player.getConnection().write(packet);
+    try (BroadcastPacketCache cache = server.createBroadcastPacketCache()) {
+      for (ConnectedPlayer player : holder.subscribers) {
+        Component translated = player.translateMessage(newName);
+        cache.write(player.getConnection(), translated,
+            version -> holder.createTitleUpdate(translated, version));
+      }
     }
   }
 
@@ -142,9 +147,7 @@ public class AdventureBossBarManager implements BossBar.Listener {
     }
     com.velocitypowered.proxy.protocol.packet.BossBar packet = holder
         .createPercentUpdate(newPercent);
-    for (ConnectedPlayer player : holder.subscribers) {
-      player.getConnection().write(packet);
-    }
+    holder.broadcast(packet);
   }
 
   @Override
@@ -155,9 +158,7 @@ public class AdventureBossBarManager implements BossBar.Listener {
       return;
     }
     com.velocitypowered.proxy.protocol.packet.BossBar packet = holder.createColorUpdate(newColor);
-    for (ConnectedPlayer player : holder.subscribers) {
-      player.getConnection().write(packet);
-    }
+    holder.broadcast(packet);
   }
 
   @Override
@@ -169,9 +170,7 @@ public class AdventureBossBarManager implements BossBar.Listener {
     }
     com.velocitypowered.proxy.protocol.packet.BossBar packet = holder
         .createOverlayUpdate(newOverlay);
-    for (ConnectedPlayer player : holder.subscribers) {
-      player.getConnection().write(packet);
-    }
+    holder.broadcast(packet);
   }
 
   @Override
@@ -182,9 +181,7 @@ public class AdventureBossBarManager implements BossBar.Listener {
       return;
     }
     com.velocitypowered.proxy.protocol.packet.BossBar packet = holder.createFlagsUpdate();
-    for (ConnectedPlayer player : holder.subscribers) {
-      player.getConnection().write(packet);
-    }
+    holder.broadcast(packet);
   }
 
   private class BossBarHolder {
@@ -199,6 +196,14 @@ public class AdventureBossBarManager implements BossBar.Listener {
       this.bar = bar;
     }
 
+    void broadcast(com.velocitypowered.proxy.protocol.packet.BossBar packet) {
+      try (BroadcastPacketCache cache = server.createBroadcastPacketCache()) {
+        for (ConnectedPlayer player : subscribers) {
+          cache.write(player.getConnection(), packet, version -> packet);
+        }
+      }
+    }
+
     void register() {
       registrationOnce.run(() -> this.bar.addListener(AdventureBossBarManager.this));
     }
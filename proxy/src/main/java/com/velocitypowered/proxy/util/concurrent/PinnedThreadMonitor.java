@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.util.concurrent;
+
+import com.velocitypowered.proxy.network.metrics.PowerOfTwoHistogram;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Watches for virtual threads that stay pinned to their carrier thread, usually because they block
+ * inside a {@code synchronized} block or a native method. A pinned virtual thread holds on to one
+ * of the few carrier threads, so a plugin doing this a lot defeats the point of virtual threads.
+ *
+ * <p>Pinning is reported by the JDK through the {@code jdk.VirtualThreadPinned} JFR event. Each
+ * distinct place pinning happens at is logged once, and all of them are counted.</p>
+ */
+public final class PinnedThreadMonitor implements AutoCloseable {
+
+  private static final Logger logger = LogManager.getLogger(PinnedThreadMonitor.class);
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final Duration THRESHOLD = Duration.ofMillis(
+      Long.getLong("velocity.virtual-threads.pinned-threshold-ms", 20));
+
+  private final PowerOfTwoHistogram pinnedTimes = new PowerOfTwoHistogram();
+  private final Set<String> reportedLocations = ConcurrentHashMap.newKeySet();
+  private final RecordingStream stream;
+
+  private PinnedThreadMonitor() {
+    this.stream = new RecordingStream();
+    this.stream.enable(PINNED_EVENT).withThreshold(THRESHOLD).withStackTrace();
+    this.stream.onEvent(PINNED_EVENT, this::onPinned);
+  }
+
+  /**
+   * Starts watching for pinned virtual threads, if virtual threads are enabled.
+   *
+   * @return the monitor, or {@code null} if virtual threads are not enabled or JFR is unavailable
+   */
+  public static @Nullable PinnedThreadMonitor start() {
+    if (!VirtualThreads.isEnabled()) {
+      return null;
+    }
+    try {
+      PinnedThreadMonitor monitor = new PinnedThreadMonitor();
+      monitor.stream.startAsync();
+      return monitor;
+    } catch (RuntimeException | LinkageError e) {
+      logger.warn("Unable to watch for pinned virtual threads", e);
+      return null;
+    }
+  }
+
+  private void onPinned(RecordedEvent event) {
+    pinnedTimes.record(event.getDuration().toNanos());
+
+    String location = describe(event.getStackTrace());
+    if (reportedLocations.add(location)) {
+      logger.warn("A virtual thread was pinned to its carrier thread for {} ms at {}. Avoid "
+              + "blocking while holding a monitor in event handlers and tasks.",
+          event.getDuration().toMillis(), location);
+    }
+  }
+
+  private static String describe(@Nullable RecordedStackTrace stackTrace) {
+    if (stackTrace == null) {
+      return "an unknown location";
+    }
+    // Skip the JDK frames doing the actual parking, they are the same every time.
+    List<RecordedFrame> frames = stackTrace.getFrames();
+    for (RecordedFrame frame : frames) {
+      if (!frame.isJavaFrame() || frame.getMethod() == null) {
+        continue;
+      }
+      String type = frame.getMethod().getType().getName();
+      if (type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.")) {
+        continue;
+      }
+      return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+    return frames.isEmpty() ? "an unknown location" : frames.get(0).toString();
+  }
+
+  /**
+   * Returns for how long virtual threads were pinned, in nanoseconds. Only pinning that lasted
+   * longer than the threshold is recorded.
+   *
+   * @return the pinned times
+   */
+  public PowerOfTwoHistogram getPinnedTimes() {
+    return pinnedTimes;
+  }
+
+  @Override
+  public void close() {
+    stream.close();
+  }
+}
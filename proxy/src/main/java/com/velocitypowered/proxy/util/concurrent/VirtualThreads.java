@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.util.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Support for running event handlers and plugin tasks on virtual threads. Velocity is built for
+ * Java 17, so virtual threads are looked up reflectively and are only used when the proxy runs on
+ * Java 21 or newer and {@code -Dvelocity.virtual-threads=true} is set.
+ *
+ * <p>A virtual thread is cheap to block, so a plugin doing blocking I/O no longer starves the
+ * other handlers. Nothing bounds how many of them a single plugin can keep busy however, which is
+ * why each plugin gets at most {@code velocity.plugin-concurrency-limit} (64 by default, 0 to
+ * disable) handlers or tasks running at once while virtual threads are enabled.</p>
+ */
+public final class VirtualThreads {
+
+  private static final Logger logger = LogManager.getLogger(VirtualThreads.class);
+
+  private static final @Nullable Method OF_VIRTUAL;
+  private static final @Nullable Method BUILDER_NAME;
+  private static final @Nullable Method BUILDER_FACTORY;
+  private static final @Nullable Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  private static final boolean ENABLED;
+  private static final int PLUGIN_CONCURRENCY_LIMIT =
+      Integer.getInteger("velocity.plugin-concurrency-limit", 64);
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    try {
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builder.getMethod("name", String.class, long.class);
+      builderFactory = builder.getMethod("factory");
+      newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+          ThreadFactory.class);
+    } catch (ReflectiveOperationException e) {
+      // Not available on this version of Java.
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+
+    boolean enabled = Boolean.getBoolean("velocity.virtual-threads");
+    if (enabled && !isSupported()) {
+      logger.warn("Virtual threads were requested, but they require Java 21 or newer. Falling "
+          + "back to platform threads.");
+      enabled = false;
+    }
+    ENABLED = enabled;
+  }
+
+  private VirtualThreads() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Returns whether virtual threads are available on the running version of Java.
+   *
+   * @return whether virtual threads are available
+   */
+  public static boolean isSupported() {
+    if (OF_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      // Virtual threads were a preview feature before Java 21, in which case this throws.
+      OF_VIRTUAL.invoke(null);
+      return true;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns whether event handlers and plugin tasks should run on virtual threads.
+   *
+   * @return whether virtual threads are enabled
+   */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  /**
+   * Creates a {@link ThreadFactory} for virtual threads named {@code prefix} followed by a counter.
+   *
+   * @param prefix the prefix of the thread names
+   * @return the thread factory
+   * @throws UnsupportedOperationException if virtual threads are not available
+   */
+  public static ThreadFactory newThreadFactory(String prefix) {
+    if (OF_VIRTUAL == null || BUILDER_NAME == null || BUILDER_FACTORY == null) {
+      throw new UnsupportedOperationException("Virtual threads are not available");
+    }
+    try {
+      Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+      return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new UnsupportedOperationException("Virtual threads are not available", e);
+    }
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task.
+   *
+   * @param prefix the prefix of the thread names
+   * @return the executor
+   * @throws UnsupportedOperationException if virtual threads are not available
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+    if (NEW_THREAD_PER_TASK_EXECUTOR == null) {
+      throw new UnsupportedOperationException("Virtual threads are not available");
+    }
+    try {
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null,
+          newThreadFactory(prefix));
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new UnsupportedOperationException("Virtual threads are not available", e);
+    }
+  }
+
+  /**
+   * Returns whether the handlers and tasks of each plugin are limited in how many may run at once.
+   * Platform thread pools are bounded on their own, so this is only the case when virtual threads
+   * are enabled.
+   *
+   * @return whether plugins are limited
+   */
+  public static boolean isPluginConcurrencyLimited() {
+    return ENABLED && PLUGIN_CONCURRENCY_LIMIT > 0;
+  }
+
+  /**
+   * Creates the semaphore that bounds how many handlers or tasks of a single plugin may run at
+   * once.
+   *
+   * @return the semaphore
+   */
+  public static Semaphore newPluginLimiter() {
+    return new Semaphore(PLUGIN_CONCURRENCY_LIMIT);
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.connection.client.ConnectedPlayer;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MinecraftConnectionTest {
+
+  private static final int MAX_COALESCED_WRITES = 64;
+
+  private VelocityServer server;
+  private EmbeddedChannel channel;
+  private MinecraftConnection connection;
+
+  @BeforeEach
+  void setUp() {
+    server = mock(VelocityServer.class);
+    when(server.getNetworkMetrics()).thenReturn(new VelocityNetworkMetrics());
+    channel = new EmbeddedChannel();
+    connection = new MinecraftConnection(channel, server);
+    channel.pipeline().addLast(connection);
+  }
+
+  @AfterEach
+  void tearDown() {
+    connection.close();
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void writesAreFlushedTogether() {
+    for (int i = 0; i < 3; i++) {
+      connection.write(packet(i));
+    }
+    assertTrue(channel.outboundMessages().isEmpty(), "Nothing is flushed before the loop is idle");
+
+    channel.runPendingTasks();
+    assertPackets(0, 3);
+    assertEquals(1, connection.getMetrics().getFlushes());
+    assertEquals(2, connection.getMetrics().getCoalescedWrites());
+  }
+
+  @Test
+  void burstIsFlushedOnceTheCapIsReached() {
+    for (int i = 0; i < MAX_COALESCED_WRITES - 1; i++) {
+      connection.write(packet(i));
+    }
+    assertTrue(channel.outboundMessages().isEmpty());
+
+    connection.write(packet(MAX_COALESCED_WRITES - 1));
+    assertPackets(0, MAX_COALESCED_WRITES);
+    assertEquals(1, connection.getMetrics().getFlushes());
+
+    // The flush scheduled for the first write has nothing left to do.
+    channel.runPendingTasks();
+    assertEquals(1, connection.getMetrics().getFlushes());
+  }
+
+  @Test
+  void flushDelayDependsOnPing() {
+    ConnectedPlayer player = mock(ConnectedPlayer.class);
+    connection.setAssociation(player);
+
+    when(player.getPing()).thenReturn(-1L);
+    assertEquals(0, connection.flushDelayNanos(), "Unknown ping");
+    when(player.getPing()).thenReturn(50L);
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(500), connection.flushDelayNanos());
+    when(player.getPing()).thenReturn(1000L);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(2), connection.flushDelayNanos(), "Capped");
+  }
+
+  @Test
+  void delayedFlushRunsAfterTheDelay() throws Exception {
+    ConnectedPlayer player = mock(ConnectedPlayer.class);
+    when(player.getPing()).thenReturn(1000L);
+    connection.setAssociation(player);
+
+    connection.write(packet(0));
+    Thread.sleep(5);
+    channel.runPendingTasks();
+    assertPackets(0, 1);
+  }
+
+  @Test
+  void closeFlushesPendingWrites() {
+    connection.write(packet(0));
+    connection.write(packet(1));
+    connection.close();
+
+    assertFalse(channel.isActive());
+    assertPackets(0, 2);
+  }
+
+  @Test
+  void explicitFlushKeepsOrderWithDelayedWrites() {
+    connection.delayedWrite(packet(0));
+    connection.write(packet(1));
+    connection.delayedWrite(packet(2));
+    connection.flush();
+    assertPackets(0, 3);
+
+    connection.write(packet(3));
+    channel.runPendingTasks();
+    assertPackets(3, 4);
+  }
+
+  @Test
+  void writesFromOtherThreadsKeepTheirOrder() throws Exception {
+    DefaultEventLoopGroup group = new DefaultEventLoopGroup(1);
+    BlockingQueue<ByteBuf> received = new LinkedBlockingQueue<>();
+    LocalAddress address = new LocalAddress(MinecraftConnectionTest.class);
+    Channel serverChannel = new ServerBootstrap()
+        .group(group)
+        .channel(LocalServerChannel.class)
+        .childHandler(new ChannelInboundHandlerAdapter() {
+          @Override
+          public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            received.add((ByteBuf) msg);
+          }
+        })
+        .bind(address).sync().channel();
+    Channel client = new Bootstrap()
+        .group(group)
+        .channel(LocalChannel.class)
+        .handler(new ChannelInboundHandlerAdapter())
+        .connect(address).sync().channel();
+    try {
+      MinecraftConnection remote = new MinecraftConnection(client, server);
+      assertFalse(client.eventLoop().inEventLoop());
+      for (int i = 0; i < MAX_COALESCED_WRITES * 2; i++) {
+        remote.write(packet(i));
+      }
+      for (int i = 0; i < MAX_COALESCED_WRITES * 2; i++) {
+        ByteBuf packet = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(packet, "Packet " + i + " was not flushed");
+        assertEquals((byte) i, packet.getByte(0));
+        packet.release();
+      }
+    } finally {
+      client.close().sync();
+      serverChannel.close().sync();
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  private static ByteBuf packet(int id) {
+    return Unpooled.wrappedBuffer(new byte[] {(byte) id});
+  }
+
+  private void assertPackets(int from, int to) {
+    for (int i = from; i < to; i++) {
+      ByteBuf packet = channel.readOutbound();
+      assertNotNull(packet, "Packet " + i + " was not flushed");
+      assertEquals((byte) i, packet.getByte(0));
+      packet.release();
+    }
+    assertNull(channel.readOutbound());
+  }
+}
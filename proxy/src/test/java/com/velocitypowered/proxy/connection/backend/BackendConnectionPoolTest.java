@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.backend;
+
+import static com.velocitypowered.proxy.network.Connections.POOL_GUARD;
+import static com.velocitypowered.proxy.network.Connections.READ_TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.config.VelocityConfiguration;
+import com.velocitypowered.proxy.server.VelocityRegisteredServer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BackendConnectionPoolTest {
+
+  private static final int POOL_SIZE = 2;
+
+  private final Queue<Channel> accepted = new ConcurrentLinkedQueue<>();
+  private DefaultEventLoopGroup group;
+  private EventLoop loop;
+  private Channel backend;
+  private VelocityConfiguration configuration;
+  private BackendConnectionPool pool;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    group = new DefaultEventLoopGroup(1);
+    loop = group.next();
+    LocalAddress address = new LocalAddress(BackendConnectionPoolTest.class);
+    backend = new ServerBootstrap()
+        .group(group)
+        .channel(LocalServerChannel.class)
+        .childHandler(new ChannelInboundHandlerAdapter() {
+          @Override
+          public void channelActive(ChannelHandlerContext ctx) {
+            accepted.add(ctx.channel());
+          }
+        })
+        .bind(address).sync().channel();
+
+    configuration = mock(VelocityConfiguration.class);
+    when(configuration.getBackendConnectionPoolSize()).thenReturn(POOL_SIZE);
+    when(configuration.getBackendConnectionPoolIdleTimeout()).thenReturn(60_000);
+    when(configuration.getReadTimeout()).thenReturn(30_000);
+
+    VelocityServer server = mock(VelocityServer.class);
+    when(server.getConfiguration()).thenReturn(configuration);
+    when(server.createBootstrap(any(EventLoopGroup.class))).thenAnswer(invocation ->
+        new Bootstrap().group(invocation.getArgument(0)).channel(LocalChannel.class));
+    when(server.getBackendChannelInitializer()).thenReturn(new ChannelInitializer<>() {
+      @Override
+      protected void initChannel(Channel ch) {
+        ch.pipeline().addLast(READ_TIMEOUT, new ReadTimeoutHandler(30, TimeUnit.SECONDS));
+      }
+    });
+
+    VelocityRegisteredServer registeredServer = mock(VelocityRegisteredServer.class);
+    when(registeredServer.getServerInfo()).thenReturn(new ServerInfo("backend", address));
+    pool = new BackendConnectionPool(server, registeredServer);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    pool.close();
+    backend.close().sync();
+    group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+  }
+
+  @Test
+  void leasedConnectionIsTakenFromThePoolAndReplaced() throws Exception {
+    Channel first = pool.acquire(loop).get(10, TimeUnit.SECONDS);
+    assertTrue(first.isActive());
+    assertFalse(BackendConnectionPool.isPooled(first));
+    assertEquals(1, pool.getMisses());
+    awaitUntil(() -> pool.getIdleConnections() == POOL_SIZE);
+
+    Channel second = pool.acquire(loop).get(10, TimeUnit.SECONDS);
+    assertTrue(second.isActive());
+    assertTrue(BackendConnectionPool.isPooled(second),
+        "A pooled connection must be announced to its session handler by hand");
+    assertEquals(1, pool.getHits());
+    assertNull(second.pipeline().get(POOL_GUARD), "A leased connection is no longer guarded");
+    awaitUntil(() -> pool.getIdleConnections() == POOL_SIZE);
+    awaitUntil(() -> accepted.size() == 1 + POOL_SIZE + 1);
+  }
+
+  @Test
+  void idleConnectionsAreEvicted() throws Exception {
+    when(configuration.getBackendConnectionPoolIdleTimeout()).thenReturn(50);
+    pool.acquire(loop).get(10, TimeUnit.SECONDS);
+    awaitUntil(() -> pool.getEvictions() == POOL_SIZE);
+
+    assertEquals(0, pool.getIdleConnections());
+    awaitUntil(() -> accepted.stream().filter(Channel::isActive).count() == 1);
+  }
+
+  @Test
+  void deadConnectionsAreDiscarded() throws Exception {
+    pool.acquire(loop).get(10, TimeUnit.SECONDS);
+    awaitUntil(() -> pool.getIdleConnections() == POOL_SIZE);
+
+    // The backend drops every connection, as it would when restarting.
+    for (Channel channel : accepted) {
+      channel.close().sync();
+    }
+    awaitUntil(() -> pool.getIdleConnections() == 0);
+    assertEquals(0, pool.getEvictions());
+
+    Channel next = pool.acquire(loop).get(10, TimeUnit.SECONDS);
+    assertTrue(next.isActive());
+    assertEquals(0, pool.getHits());
+    assertEquals(2, pool.getMisses());
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() < deadline, "Timed out");
+      Thread.sleep(5);
+    }
+  }
+}
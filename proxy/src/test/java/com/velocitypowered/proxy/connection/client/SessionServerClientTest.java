@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.client;
+
+import static org.asynchttpclient.Dsl.asyncHttpClient;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.stream.JsonReader;
+import com.sun.net.httpserver.HttpServer;
+import com.velocitypowered.api.util.GameProfile;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.asynchttpclient.AsyncHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SessionServerClientTest {
+
+  private static final String PROFILE = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\","
+      + "\"name\":\"Notch\",\"properties\":[{\"name\":\"textures\",\"value\":\"dGV4dHVyZXM=\","
+      + "\"signature\":\"c2lnbmF0dXJl\"}],\"profileActions\":[]}";
+
+  private final AtomicInteger requests = new AtomicInteger();
+  private volatile int statusCode = 200;
+  private ExecutorService standInExecutor;
+  private HttpServer standIn;
+  private AsyncHttpClient httpClient;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    standIn = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    standInExecutor = Executors.newCachedThreadPool();
+    standIn.setExecutor(standInExecutor);
+    standIn.createContext("/hasJoined", exchange -> {
+      requests.incrementAndGet();
+      if (statusCode == 200) {
+        byte[] body = PROFILE.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      } else {
+        exchange.sendResponseHeaders(statusCode, -1);
+        exchange.close();
+      }
+    });
+    standIn.start();
+    httpClient = asyncHttpClient();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    httpClient.close();
+    standIn.stop(0);
+    standInExecutor.shutdownNow();
+  }
+
+  private SessionServerClient client(boolean fallback) {
+    String endpoint = "http://" + standIn.getAddress().getHostString() + ":"
+        + standIn.getAddress().getPort() + "/hasJoined";
+    return new SessionServerClient(httpClient, endpoint, false, Duration.ofMinutes(1), fallback);
+  }
+
+  @Test
+  void readsProfile() throws Exception {
+    GameProfile profile = SessionServerClient.readProfile(new JsonReader(
+        new StringReader(PROFILE)));
+    assertEquals("Notch", profile.getName());
+    assertEquals("069a79f444e94726a5befca90e38aaf5", profile.getUndashedId());
+    assertEquals(1, profile.getProperties().size());
+    assertEquals("c2lnbmF0dXJl", profile.getProperties().get(0).getSignature());
+  }
+
+  @Test
+  void asksSessionServerForEveryLogin() throws Exception {
+    SessionServerClient client = client(true);
+    assertFalse(client.hasJoined("Notch", "abc", "127.0.0.1").get(10, TimeUnit.SECONDS)
+        .isCached());
+    assertFalse(client.hasJoined("Notch", "abc", "127.0.0.1").get(10, TimeUnit.SECONDS)
+        .isCached());
+    assertEquals(2, requests.get());
+    assertEquals(2, client.getRequests());
+  }
+
+  @Test
+  void fallsBackToVerifiedProfile() throws Exception {
+    SessionServerClient client = client(true);
+    client.hasJoined("Notch", "abc", "127.0.0.1").get(10, TimeUnit.SECONDS);
+
+    statusCode = 503;
+    SessionServerClient.Result result = client.hasJoined("Notch", "def", "127.0.0.1")
+        .get(10, TimeUnit.SECONDS);
+    assertNotNull(result.getProfile());
+    assertTrue(result.isCached());
+    assertEquals(1, client.getFallbacks());
+
+    result = client.hasJoined("Notch", "ghi", "127.0.0.2").get(10, TimeUnit.SECONDS);
+    assertNull(result.getProfile(), "Another address must not fall back");
+    assertEquals(503, result.getStatusCode());
+  }
+
+  @Test
+  void doesNotFallBackWhenDisabled() throws Exception {
+    SessionServerClient client = client(false);
+    client.hasJoined("Notch", "abc", "127.0.0.1").get(10, TimeUnit.SECONDS);
+
+    statusCode = 503;
+    SessionServerClient.Result result = client.hasJoined("Notch", "def", "127.0.0.1")
+        .get(10, TimeUnit.SECONDS);
+    assertNull(result.getProfile());
+    assertEquals(503, result.getStatusCode());
+  }
+
+  @Test
+  void doesNotFallBackWhenNotVerified() throws Exception {
+    SessionServerClient client = client(true);
+    client.hasJoined("Notch", "abc", "127.0.0.1").get(10, TimeUnit.SECONDS);
+
+    statusCode = 204;
+    SessionServerClient.Result result = client.hasJoined("Notch", "def", "127.0.0.1")
+        .get(10, TimeUnit.SECONDS);
+    assertNull(result.getProfile());
+    assertEquals(204, result.getStatusCode());
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.server.PingOptions;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerInfo;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.config.VelocityConfiguration;
+import com.velocitypowered.proxy.server.VelocityRegisteredServer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BackendPingPollerTest {
+
+  private static final ProtocolVersion VERSION = ProtocolVersion.MINECRAFT_1_20_3;
+
+  private DefaultEventLoopGroup group;
+  private EventLoop loop;
+  private VelocityServer server;
+  private VelocityRegisteredServer target;
+  private BackendPingPoller poller;
+
+  @BeforeEach
+  void setUp() {
+    group = new DefaultEventLoopGroup(1);
+    loop = group.next();
+
+    // Polls are run by the tests, the interval is long enough for the poller to never get to it.
+    VelocityConfiguration configuration = mock(VelocityConfiguration.class);
+    when(configuration.getPingPassthroughInterval()).thenReturn(3_600_000);
+    server = mock(VelocityServer.class);
+    when(server.getConfiguration()).thenReturn(configuration);
+
+    target = mock(VelocityRegisteredServer.class);
+    when(target.getServerInfo()).thenReturn(
+        new ServerInfo("lobby", InetSocketAddress.createUnresolved("localhost", 25565)));
+    when(server.getServer("lobby")).thenReturn(Optional.<RegisteredServer>of(target));
+
+    poller = new BackendPingPoller(server, group);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+  }
+
+  @Test
+  void firstPingIsShared() {
+    CompletableFuture<ServerPing> first = new CompletableFuture<>();
+    when(target.ping(any(), any(PingOptions.class))).thenReturn(first);
+
+    assertSame(first, poller.ping(target, VERSION, loop));
+    assertSame(first, poller.ping(target, VERSION, loop));
+    verify(target, times(1)).ping(any(), any(PingOptions.class));
+  }
+
+  @Test
+  void previousPingIsKeptUntilTheRefreshCompletes() throws Exception {
+    CompletableFuture<ServerPing> first = CompletableFuture.completedFuture(
+        mock(ServerPing.class));
+    CompletableFuture<ServerPing> second = new CompletableFuture<>();
+    when(target.ping(any(), any(PingOptions.class))).thenReturn(first, second);
+    poller.ping(target, VERSION, loop);
+
+    poll(System.nanoTime());
+    verify(target, times(2)).ping(any(), any(PingOptions.class));
+    assertSame(first, poller.ping(target, VERSION, loop));
+
+    second.complete(mock(ServerPing.class));
+    // The refresh is swapped in on the poller's loop.
+    loop.submit(() -> { }).get(10, TimeUnit.SECONDS);
+    assertSame(second, poller.ping(target, VERSION, loop));
+  }
+
+  @Test
+  void idleServersAreForgotten() throws Exception {
+    CompletableFuture<ServerPing> first = CompletableFuture.completedFuture(
+        mock(ServerPing.class));
+    when(target.ping(any(), any(PingOptions.class)))
+        .thenReturn(first, CompletableFuture.completedFuture(mock(ServerPing.class)));
+    poller.ping(target, VERSION, loop);
+
+    poll(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+    verify(target, times(1)).ping(any(), any(PingOptions.class));
+
+    // Asking again starts over with a fresh ping.
+    assertNotSame(first, poller.ping(target, VERSION, loop));
+    verify(target, times(2)).ping(any(), any(PingOptions.class));
+  }
+
+  @Test
+  void unregisteredServersAreForgotten() throws Exception {
+    CompletableFuture<ServerPing> first = CompletableFuture.completedFuture(
+        mock(ServerPing.class));
+    when(target.ping(any(), any(PingOptions.class)))
+        .thenReturn(first, CompletableFuture.completedFuture(mock(ServerPing.class)));
+    poller.ping(target, VERSION, loop);
+
+    when(server.getServer("lobby")).thenReturn(Optional.empty());
+    poll(System.nanoTime());
+    verify(target, times(1)).ping(any(), any(PingOptions.class));
+    assertNotSame(first, poller.ping(target, VERSION, loop));
+  }
+
+  @Test
+  void replacedServersAreForgotten() throws Exception {
+    CompletableFuture<ServerPing> first = CompletableFuture.completedFuture(
+        mock(ServerPing.class));
+    when(target.ping(any(), any(PingOptions.class)))
+        .thenReturn(first, CompletableFuture.completedFuture(mock(ServerPing.class)));
+    poller.ping(target, VERSION, loop);
+
+    // Another server was registered under the same name.
+    when(server.getServer("lobby"))
+        .thenReturn(Optional.<RegisteredServer>of(mock(VelocityRegisteredServer.class)));
+    poll(System.nanoTime());
+    verify(target, times(1)).ping(any(), any(PingOptions.class));
+    assertNotSame(first, poller.ping(target, VERSION, loop));
+  }
+
+  private void poll(long now) throws Exception {
+    loop.submit(() -> poller.poll(now)).get(10, TimeUnit.SECONDS);
+  }
+}
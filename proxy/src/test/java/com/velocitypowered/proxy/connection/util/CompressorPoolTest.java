@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.velocitypowered.natives.compression.JavaVelocityCompressor;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import org.junit.jupiter.api.Test;
+
+class CompressorPoolTest {
+
+  @Test
+  void reusesCompressorForSameLevel() {
+    try (CompressorPool pool = new CompressorPool(JavaVelocityCompressor.FACTORY)) {
+      VelocityCompressor compressor = pool.acquire(6);
+      pool.release(compressor, 6);
+      assertSame(compressor, pool.acquire(6));
+      pool.release(compressor, 6);
+    }
+  }
+
+  @Test
+  void doesNotReuseCompressorForAnotherLevel() {
+    try (CompressorPool pool = new CompressorPool(JavaVelocityCompressor.FACTORY)) {
+      VelocityCompressor compressor = pool.acquire(6);
+      pool.release(compressor, 6);
+      VelocityCompressor other = pool.acquire(9);
+      assertNotSame(compressor, other);
+      pool.release(other, 9);
+    }
+  }
+
+  @Test
+  void doesNotKeepCompressorsAfterClose() {
+    CompressorPool pool = new CompressorPool(JavaVelocityCompressor.FACTORY);
+    VelocityCompressor compressor = pool.acquire(6);
+    pool.close();
+    pool.release(compressor, 6);
+    VelocityCompressor created = pool.acquire(6);
+    assertNotSame(compressor, created);
+    created.close();
+  }
+}
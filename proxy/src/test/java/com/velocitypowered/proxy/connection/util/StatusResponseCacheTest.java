@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.connection.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class StatusResponseCacheTest {
+
+  private static final String JSON = "{\"description\":\"A Velocity Server\"}";
+
+  @Test
+  void reusesResponseForSameVersionAndHost() {
+    StatusResponseCache cache = new StatusResponseCache(Duration.ofMinutes(1), () -> true);
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_20_2, "play.example.com", 5));
+    cache.put(ProtocolVersion.MINECRAFT_1_20_2, "play.example.com", 5, JSON);
+
+    assertEquals(JSON, cache.get(ProtocolVersion.MINECRAFT_1_20_2, "Play.Example.com", 5));
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_19_4, "play.example.com", 5));
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_20_2, "lobby.example.com", 5));
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_20_2, null, 5));
+    assertEquals(1, cache.getHits());
+    assertEquals(4, cache.getMisses());
+  }
+
+  @Test
+  void refreshesWhenPlayerCountChanges() {
+    StatusResponseCache cache = new StatusResponseCache(Duration.ofMinutes(1), () -> true);
+    cache.put(ProtocolVersion.MINECRAFT_1_20_2, null, 5, JSON);
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_20_2, null, 6));
+  }
+
+  @Test
+  void keepsNothingWhileListenersAreNotStable() {
+    StatusResponseCache cache = new StatusResponseCache(Duration.ofMinutes(1), () -> false);
+    cache.put(ProtocolVersion.MINECRAFT_1_20_2, null, 5, JSON);
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_20_2, null, 5));
+  }
+
+  @Test
+  void keepsNothingWhenDisabled() {
+    StatusResponseCache cache = new StatusResponseCache(Duration.ZERO, () -> true);
+    cache.put(ProtocolVersion.MINECRAFT_1_20_2, null, 5, JSON);
+    assertNull(cache.get(ProtocolVersion.MINECRAFT_1_20_2, null, 5));
+  }
+}
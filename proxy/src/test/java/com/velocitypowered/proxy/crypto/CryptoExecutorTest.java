@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import org.junit.jupiter.api.Test;
+
+class CryptoExecutorTest {
+
+  @Test
+  void decryptsOnCryptoThread() throws Exception {
+    KeyPair keyPair = EncryptionUtils.createRsaKeyPair(1024);
+    Cipher cipher = Cipher.getInstance("RSA");
+    cipher.init(Cipher.ENCRYPT_MODE, keyPair.getPublic());
+    byte[] secret = "shared secret".getBytes(StandardCharsets.UTF_8);
+    byte[] encrypted = cipher.doFinal(secret);
+
+    CryptoExecutor executor = new CryptoExecutor(1, 4);
+    try {
+      assertArrayEquals(secret, executor.submit(() -> EncryptionUtils.decryptRsa(keyPair,
+          encrypted)).get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void rejectsTasksWhenQueueIsFull() throws Exception {
+    CryptoExecutor executor = new CryptoExecutor(1, 1);
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      CompletableFuture<Object> blocking = executor.submit(() -> {
+        running.countDown();
+        release.await();
+        return null;
+      });
+      running.await(10, TimeUnit.SECONDS);
+      CompletableFuture<Object> queued = executor.submit(() -> null);
+      CompletableFuture<Object> rejected = executor.submit(() -> null);
+
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> rejected.get(10, TimeUnit.SECONDS));
+      assertInstanceOf(RejectedExecutionException.class, e.getCause());
+      assertEquals(1, executor.getRejectedTasks());
+      assertEquals(1, executor.getQueuedTasks());
+
+      release.countDown();
+      blocking.get(10, TimeUnit.SECONDS);
+      queued.get(10, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+}
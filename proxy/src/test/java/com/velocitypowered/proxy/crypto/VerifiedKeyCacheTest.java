@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.velocitypowered.api.proxy.crypto.IdentifiedKey.Revision;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class VerifiedKeyCacheTest {
+
+  private static final byte[] KEY = {1, 2, 3, 4};
+  private static final byte[] SIGNATURE = {5, 6, 7, 8};
+  private static final UUID HOLDER = new UUID(1, 2);
+
+  private final long expiry = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+  private final AtomicInteger checks = new AtomicInteger();
+
+  private boolean verify(VerifiedKeyCache cache, byte[] signature, UUID holder, long expiry,
+      boolean valid) {
+    return cache.verify(Revision.LINKED_V2, KEY.clone(), expiry, signature.clone(), holder, () -> {
+      checks.incrementAndGet();
+      return valid;
+    });
+  }
+
+  @Test
+  void verifiedKeyIsNotCheckedAgain() {
+    VerifiedKeyCache cache = new VerifiedKeyCache(16);
+    assertTrue(verify(cache, SIGNATURE, HOLDER, expiry, true));
+    assertTrue(verify(cache, SIGNATURE, HOLDER, expiry, true));
+    assertEquals(1, checks.get());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void invalidKeyIsNotRemembered() {
+    VerifiedKeyCache cache = new VerifiedKeyCache(16);
+    assertFalse(verify(cache, SIGNATURE, HOLDER, expiry, false));
+    assertFalse(verify(cache, SIGNATURE, HOLDER, expiry, false));
+    assertEquals(2, checks.get());
+  }
+
+  @Test
+  void differentSignatureOrHolderIsCheckedAgain() {
+    VerifiedKeyCache cache = new VerifiedKeyCache(16);
+    assertTrue(verify(cache, SIGNATURE, HOLDER, expiry, true));
+    assertFalse(verify(cache, new byte[] {9, 9, 9, 9}, HOLDER, expiry, false));
+    assertFalse(verify(cache, SIGNATURE, new UUID(3, 4), expiry, false));
+    assertEquals(3, checks.get());
+  }
+
+  @Test
+  void expiredKeyIsNotRemembered() {
+    VerifiedKeyCache cache = new VerifiedKeyCache(16);
+    long expired = System.currentTimeMillis() - 1;
+    assertTrue(verify(cache, SIGNATURE, HOLDER, expired, true));
+    assertTrue(verify(cache, SIGNATURE, HOLDER, expired, true));
+    assertEquals(2, checks.get());
+  }
+}
@@ -18,6 +18,7 @@
 package com.velocitypowered.proxy.event;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.google.common.reflect.TypeToken;
@@ -26,7 +27,9 @@ import com.velocitypowered.api.event.Continuation;
 import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.StablePing;
 import com.velocitypowered.proxy.testutil.FakePluginManager;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
@@ -282,6 +285,101 @@ public class EventTest {
     }
   }
 
+  @Test
+  void testNeverAsync() throws Exception {
+    final NeverAsyncListener listener = new NeverAsyncListener();
+    eventManager.register(FakePluginManager.PLUGIN_A, listener);
+    try {
+      final CompletableFuture<TestEvent> future = eventManager.fire(new TestEvent());
+      // Handlers that opted out of async execution run on the calling thread
+      assertTrue(future.isDone());
+      future.get();
+    } finally {
+      eventManager.unregisterListeners(FakePluginManager.PLUGIN_A);
+    }
+    assertEquals(Thread.currentThread(), listener.threadA);
+    assertEquals(Thread.currentThread(), listener.threadB);
+    assertEquals(2, listener.result);
+  }
+
+  static final class NeverAsyncListener {
+
+    @MonotonicNonNull Thread threadA;
+    @MonotonicNonNull Thread threadB;
+    int result;
+
+    @Subscribe(async = false)
+    void first(TestEvent event) {
+      threadA = Thread.currentThread();
+      result++;
+    }
+
+    @Subscribe(order = PostOrder.LATE, async = false)
+    void second(TestEvent event) {
+      threadB = Thread.currentThread();
+      result++;
+    }
+  }
+
+  @Test
+  void testSometimesAsync() throws Exception {
+    final SometimesAsyncListener listener = new SometimesAsyncListener();
+    handleMethodListener(listener);
+    assertEquals(Thread.currentThread(), listener.threadA);
+    assertAsyncThread(listener.threadB);
+    assertAsyncThread(listener.threadC);
+    assertEquals(3, listener.result);
+  }
+
+  static final class SometimesAsyncListener {
+
+    @MonotonicNonNull Thread threadA;
+    @MonotonicNonNull Thread threadB;
+    @MonotonicNonNull Thread threadC;
+    int result;
+
+    @Subscribe(order = PostOrder.EARLY, async = false)
+    EventTask first(TestEvent event) {
+      threadA = Thread.currentThread();
+      result++;
+      return EventTask.async(() -> {
+        threadB = Thread.currentThread();
+        result++;
+      });
+    }
+
+    @Subscribe(order = PostOrder.LATE, async = false)
+    void second(TestEvent event) {
+      threadC = Thread.currentThread();
+      result++;
+    }
+  }
+
+  @Test
+  void testMixedAsync() throws Exception {
+    final MixedAsyncListener listener = new MixedAsyncListener();
+    handleMethodListener(listener);
+    // A single handler requiring async execution makes the whole event async
+    assertAsyncThread(listener.threadA);
+    assertAsyncThread(listener.threadB);
+  }
+
+  static final class MixedAsyncListener {
+
+    @MonotonicNonNull Thread threadA;
+    @MonotonicNonNull Thread threadB;
+
+    @Subscribe(async = false)
+    void first(TestEvent event) {
+      threadA = Thread.currentThread();
+    }
+
+    @Subscribe(order = PostOrder.LATE)
+    void second(TestEvent event) {
+      threadB = Thread.currentThread();
+    }
+  }
+
   interface FancyContinuation {
 
     void resume();
@@ -349,4 +447,29 @@ public class EventTest {
       continuation.resume();
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  void subscribersStableOnlyIfAllAre() {
+    assertTrue(eventManager.areAllSubscribersStable(TestEvent.class));
+
+    eventManager.register(FakePluginManager.PLUGIN_A, new StableListener());
+    try {
+      assertTrue(eventManager.areAllSubscribersStable(TestEvent.class));
+
+      eventManager.register(FakePluginManager.PLUGIN_B, TestEvent.class, event -> {
+      });
+      assertFalse(eventManager.areAllSubscribersStable(TestEvent.class));
+    } finally {
+      eventManager.unregisterListeners(FakePluginManager.PLUGIN_A);
+      eventManager.unregisterListeners(FakePluginManager.PLUGIN_B);
+    }
+  }
+
+  static final class StableListener {
+
+    @Subscribe
+    @StablePing
+    void stable(TestEvent event) {
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.network;
+
+import static com.velocitypowered.proxy.network.Connections.FRAME_DECODER;
+import static com.velocitypowered.proxy.network.Connections.HANDLER;
+import static com.velocitypowered.proxy.network.Connections.MINECRAFT_DECODER;
+import static com.velocitypowered.proxy.network.Connections.MINECRAFT_ENCODER;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.VelocityServer;
+import com.velocitypowered.proxy.connection.MinecraftConnection;
+import com.velocitypowered.proxy.connection.MinecraftSessionHandler;
+import com.velocitypowered.proxy.network.metrics.VelocityNetworkMetrics;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.netty.MinecraftDecoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftEncoder;
+import com.velocitypowered.proxy.protocol.netty.MinecraftVarintFrameDecoder;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SpliceRelayTest {
+
+  private VelocityServer server;
+  private EmbeddedChannel channel;
+  private MinecraftConnection connection;
+
+  @BeforeEach
+  void setUp() {
+    server = mock(VelocityServer.class);
+    when(server.getNetworkMetrics()).thenReturn(new VelocityNetworkMetrics());
+    channel = new EmbeddedChannel();
+    connection = install(channel, ProtocolUtils.Direction.SERVERBOUND);
+  }
+
+  private MinecraftConnection install(Channel ch, ProtocolUtils.Direction inbound) {
+    MinecraftConnection installed = new MinecraftConnection(ch, server);
+    ProtocolUtils.Direction outbound = inbound == ProtocolUtils.Direction.SERVERBOUND
+        ? ProtocolUtils.Direction.CLIENTBOUND : ProtocolUtils.Direction.SERVERBOUND;
+    ch.pipeline()
+        .addLast(FRAME_DECODER, new MinecraftVarintFrameDecoder())
+        .addLast(MINECRAFT_DECODER, new MinecraftDecoder(inbound))
+        .addLast(MINECRAFT_ENCODER, new MinecraftEncoder(outbound))
+        .addLast(HANDLER, installed);
+    installed.setProtocolVersion(ProtocolVersion.MAXIMUM_VERSION);
+    installed.setState(StateRegistry.PLAY);
+    return installed;
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void idleConnectionIsSpliceable() {
+    assertTrue(SpliceRelay.canSpliceFrom(connection));
+    assertTrue(SpliceRelay.canSpliceTo(connection));
+  }
+
+  @Test
+  void splicedConnectionIsNotSplicedTwice() {
+    connection.markSpliced();
+    assertFalse(SpliceRelay.canSpliceTo(connection));
+  }
+
+  @Test
+  void unflushedWriteIsNotOvertaken() {
+    connection.delayedWrite(Unpooled.wrappedBuffer(new byte[] {1, 2, 3}));
+    assertFalse(SpliceRelay.canSpliceTo(connection),
+        "A write that was not flushed yet would end up after the spliced data");
+
+    connection.flush();
+    assertTrue(SpliceRelay.canSpliceTo(connection));
+  }
+
+  @Test
+  void coalescedWriteIsNotOvertaken() {
+    connection.write(Unpooled.wrappedBuffer(new byte[] {1, 2, 3}));
+    assertFalse(SpliceRelay.canSpliceTo(connection));
+
+    connection.flush();
+    assertTrue(SpliceRelay.canSpliceTo(connection));
+  }
+
+  @Test
+  void partiallyReadPacketIsNotLost() {
+    // A packet claiming 5 bytes of which only 1 arrived so far.
+    channel.writeInbound(Unpooled.wrappedBuffer(new byte[] {5, 0}));
+    assertFalse(SpliceRelay.canSpliceFrom(connection));
+  }
+
+  @Test
+  void splicesServerToPlayer() throws Exception {
+    assumeTrue(Epoll.isAvailable(), "Splicing requires epoll");
+
+    EventLoopGroup group = new EpollEventLoopGroup(1);
+    try {
+      BlockingQueue<Channel> players = new LinkedBlockingQueue<>();
+      Channel proxyListener = new ServerBootstrap()
+          .channel(EpollServerSocketChannel.class)
+          .group(group)
+          .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED)
+          .childHandler(collectInto(players))
+          .bind(InetAddress.getLoopbackAddress(), 0).syncUninterruptibly().channel();
+      BlockingQueue<Channel> backends = new LinkedBlockingQueue<>();
+      Channel backendListener = new ServerBootstrap()
+          .channel(EpollServerSocketChannel.class)
+          .group(group)
+          .childHandler(collectInto(backends))
+          .bind(InetAddress.getLoopbackAddress(), 0).syncUninterruptibly().channel();
+
+      BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+      Channel client = new Bootstrap()
+          .channel(EpollSocketChannel.class)
+          .group(group)
+          .handler(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+              ByteBuf buf = (ByteBuf) msg;
+              received.add(ByteBufUtil.getBytes(buf));
+              buf.release();
+            }
+          })
+          .connect(proxyListener.localAddress()).syncUninterruptibly().channel();
+      Channel playerChannel = players.poll(5, TimeUnit.SECONDS);
+      Channel serverChannel = new Bootstrap()
+          .channel(EpollSocketChannel.class)
+          .group(group)
+          .option(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED)
+          .handler(new ChannelInboundHandlerAdapter())
+          .connect(backendListener.localAddress()).syncUninterruptibly().channel();
+      Channel backend = backends.poll(5, TimeUnit.SECONDS);
+      assertNotNull(playerChannel);
+      assertNotNull(backend);
+
+      BlockingQueue<byte[]> serverbound = new LinkedBlockingQueue<>();
+      MinecraftConnection player = onLoop(group, () -> {
+        MinecraftConnection installed = install(playerChannel,
+            ProtocolUtils.Direction.SERVERBOUND);
+        installed.setActiveSessionHandler(StateRegistry.PLAY, new MinecraftSessionHandler() {
+          @Override
+          public void handleUnknown(ByteBuf buf) {
+            serverbound.add(ByteBufUtil.getBytes(buf));
+          }
+        });
+        return installed;
+      });
+      MinecraftConnection backendConnection = onLoop(group,
+          () -> install(serverChannel, ProtocolUtils.Direction.CLIENTBOUND));
+
+      // The coalesced write is not flushed yet, but must still reach the player first.
+      assertTrue(onLoop(group, () -> {
+        player.write(Unpooled.wrappedBuffer(new byte[] {1, 2}));
+        return SpliceRelay.trySplice(player, backendConnection);
+      }));
+      backend.writeAndFlush(Unpooled.wrappedBuffer(new byte[] {3, 4}));
+      assertArrayEquals(new byte[] {1, 2, 3, 4}, read(received, 4));
+
+      // Nothing the proxy writes may end up in the middle of the spliced data.
+      onLoop(group, () -> {
+        player.write(Unpooled.wrappedBuffer(new byte[] {9}));
+        playerChannel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] {9}));
+        return null;
+      });
+      backend.writeAndFlush(Unpooled.wrappedBuffer(new byte[] {5, 6}));
+      assertArrayEquals(new byte[] {5, 6}, read(received, 2));
+
+      // Serverbound packets still go through the pipeline.
+      client.writeAndFlush(Unpooled.wrappedBuffer(new byte[] {2, 0x7f, 42}));
+      assertArrayEquals(new byte[] {0x7f, 42}, serverbound.poll(5, TimeUnit.SECONDS));
+    } finally {
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+  }
+
+  private static ChannelInitializer<Channel> collectInto(BlockingQueue<Channel> channels) {
+    return new ChannelInitializer<>() {
+      @Override
+      protected void initChannel(Channel ch) {
+        channels.add(ch);
+      }
+    };
+  }
+
+  private static <T> T onLoop(EventLoopGroup group, Callable<T> task) throws Exception {
+    return group.next().submit(task).get(5, TimeUnit.SECONDS);
+  }
+
+  private static byte[] read(BlockingQueue<byte[]> received, int length) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    while (bytes.size() < length) {
+      byte[] chunk = received.poll(5, TimeUnit.SECONDS);
+      if (chunk == null) {
+        break;
+      }
+      bytes.write(chunk);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.network.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PowerOfTwoHistogramTest {
+
+  @Test
+  void emptyHistogramReportsZero() {
+    PowerOfTwoHistogram histogram = new PowerOfTwoHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+
+  @Test
+  void percentilesAreBoundedByBucket() {
+    PowerOfTwoHistogram histogram = new PowerOfTwoHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(10);
+    }
+    histogram.record(5000);
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(99 * 10 + 5000, histogram.getSum());
+    assertEquals(5000, histogram.getMax());
+    // 10 needs 4 bits, so it is counted in the bucket for 8 to 15.
+    assertEquals(15, histogram.getValueAtPercentile(50));
+    assertEquals(15, histogram.getValueAtPercentile(99));
+    // The largest bucket is capped at the maximum value recorded.
+    assertEquals(5000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void zeroAndNegativeValuesShareTheFirstBucket() {
+    PowerOfTwoHistogram histogram = new PowerOfTwoHistogram();
+    histogram.record(0);
+    histogram.record(-5);
+    assertEquals(2, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(100));
+  }
+}
@@ -33,6 +33,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.velocitypowered.api.network.ProtocolVersion;
@@ -155,4 +156,24 @@ class PacketRegistryTest {
     assertEquals(Handshake.class,
         registry.getProtocolRegistry(MINECRAFT_1_14_2).createPacket(0x02).getClass());
   }
-}
\ No newline at end of file
+
+  @Test
+  void compactedRegistryStillResolvesPackets() {
+    StateRegistry.PacketRegistry registry = setupRegistry();
+    registry.compact();
+
+    assertSame(registry.getProtocolRegistry(MINECRAFT_1_12).packetIdToSupplier,
+        registry.getProtocolRegistry(MINECRAFT_1_14_2).packetIdToSupplier,
+        "Identical versions should share their tables");
+    assertEquals(Handshake.class,
+        registry.getProtocolRegistry(MINECRAFT_1_12_1).createPacket(0x00).getClass());
+    assertEquals(1, registry.getProtocolRegistry(MINECRAFT_1_11).getPacketId(new Handshake()));
+    assertNull(registry.getProtocolRegistry(MINECRAFT_1_16_2).createPacket(0x00));
+    assertNull(registry.getProtocolRegistry(MINECRAFT_1_12).createPacket(-1));
+    assertThrows(IllegalArgumentException.class,
+        () -> registry.getProtocolRegistry(MINECRAFT_1_16_2).getPacketId(new StatusPing()));
+    assertThrows(IllegalStateException.class,
+        () -> registry.register(StatusPing.class, StatusPing::new,
+            new StateRegistry.PacketMapping(0x05, MINECRAFT_1_8, null, false)));
+  }
+}
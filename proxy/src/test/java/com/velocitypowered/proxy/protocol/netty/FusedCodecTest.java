@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.natives.compression.JavaVelocityCompressor;
+import com.velocitypowered.proxy.network.Connections;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.packet.KeepAlive;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the fused codec stages produce the same result as the stages run one after another,
+ * and that they stop fusing once another handler is placed in between and the pipeline change is
+ * recorded.
+ */
+class FusedCodecTest {
+
+  private static final int THRESHOLD = 1;
+  private static final ProtocolVersion VERSION = ProtocolVersion.MAXIMUM_VERSION;
+
+  @Test
+  void fusedEncoderProducesSameFrames() {
+    assertEquals(encodeUnfused(1), encode(outboundChannel(true), 1));
+    assertEquals(encodeUnfused(2), encode(outboundChannel(true), 2));
+  }
+
+  @Test
+  void encoderStopsFusingWhenHandlerIsAddedInBetween() {
+    EmbeddedChannel channel = outboundChannel(true);
+    // Resolves the framing handler before the inspector is added.
+    assertEquals(encodeUnfused(1), encode(channel, 1));
+
+    Inspector inspector = new Inspector();
+    String encoderName = channel.pipeline().context(MinecraftEncoder.class).name();
+    channel.pipeline().addBefore(encoderName, "inspector", inspector);
+    Connections.pipelineChanged(channel);
+    assertEquals(encodeUnfused(2), encode(channel, 2));
+    assertEquals(1, inspector.written.size(), "The packet skipped the inspector");
+    assertInstanceOf(ByteBuf.class, inspector.written.get(0));
+
+    // Removing the neighbour is noticed without the pipeline version changing.
+    channel.pipeline().remove(inspector);
+    assertEquals(encodeUnfused(3), encode(channel, 3));
+    assertEquals(1, inspector.written.size());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void fusedDecoderDecodesPackets() {
+    EmbeddedChannel channel = inboundChannel(true);
+    channel.writeInbound(encodeUnfused(42));
+    KeepAlive decoded = channel.readInbound();
+    assertEquals(42, decoded.getRandomId());
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void decoderStopsFusingWhenHandlerIsAddedInBetween() {
+    EmbeddedChannel channel = inboundChannel(true);
+    channel.writeInbound(encodeUnfused(1));
+    assertInstanceOf(KeepAlive.class, channel.readInbound());
+
+    Inspector inspector = new Inspector();
+    String decoderName = channel.pipeline().context(MinecraftCompressDecoder.class).name();
+    channel.pipeline().addAfter(decoderName, "inspector", inspector);
+    Connections.pipelineChanged(channel);
+    channel.writeInbound(encodeUnfused(2));
+    KeepAlive decoded = channel.readInbound();
+    assertEquals(2, decoded.getRandomId());
+    assertEquals(1, inspector.read.size(), "The packet skipped the inspector");
+    assertInstanceOf(ByteBuf.class, inspector.read.get(0));
+    channel.finishAndReleaseAll();
+  }
+
+  private static EmbeddedChannel outboundChannel(boolean fused) {
+    MinecraftEncoder encoder = new MinecraftEncoder(ProtocolUtils.Direction.SERVERBOUND, fused);
+    encoder.setState(StateRegistry.PLAY);
+    encoder.setProtocolVersion(VERSION);
+    return new EmbeddedChannel(new MinecraftCompressorAndLengthEncoder(THRESHOLD,
+        JavaVelocityCompressor.FACTORY.create(-1)), encoder);
+  }
+
+  private static EmbeddedChannel inboundChannel(boolean fused) {
+    MinecraftDecoder decoder = new MinecraftDecoder(ProtocolUtils.Direction.SERVERBOUND);
+    decoder.setState(StateRegistry.PLAY);
+    decoder.setProtocolVersion(VERSION);
+    return new EmbeddedChannel(new MinecraftVarintFrameDecoder(),
+        new MinecraftCompressDecoder(THRESHOLD, JavaVelocityCompressor.FACTORY.create(-1), fused),
+        decoder);
+  }
+
+  private static ByteBuf encodeUnfused(long id) {
+    EmbeddedChannel channel = outboundChannel(false);
+    ByteBuf frame = encode(channel, id);
+    channel.finishAndReleaseAll();
+    return frame;
+  }
+
+  private static ByteBuf encode(EmbeddedChannel channel, long id) {
+    KeepAlive packet = new KeepAlive();
+    packet.setRandomId(id);
+    channel.writeOutbound(packet);
+    ByteBuf frame = channel.alloc().buffer();
+    ByteBuf part;
+    while ((part = channel.readOutbound()) != null) {
+      frame.writeBytes(part);
+      part.release();
+    }
+    return frame;
+  }
+
+  private static final class Inspector extends ChannelDuplexHandler {
+
+    private final List<Object> written = new ArrayList<>();
+    private final List<Object> read = new ArrayList<>();
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+      written.add(msg);
+      ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      read.add(msg);
+      ctx.fireChannelRead(msg);
+    }
+  }
+}
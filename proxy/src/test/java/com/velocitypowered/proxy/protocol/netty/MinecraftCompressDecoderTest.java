@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.natives.compression.JavaVelocityCompressor;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.packet.KeepAlive;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MinecraftCompressDecoderTest {
+
+  private static final int THRESHOLD = 64;
+  private static final StateRegistry.PacketRegistry.ProtocolRegistry REGISTRY =
+      StateRegistry.PLAY.getProtocolRegistry(ProtocolUtils.Direction.CLIENTBOUND,
+          ProtocolVersion.MINECRAFT_1_20_3);
+
+  private EmbeddedChannel decoder;
+
+  @BeforeEach
+  void setUp() {
+    MinecraftCompressDecoder compressDecoder = new MinecraftCompressDecoder(THRESHOLD,
+        JavaVelocityCompressor.FACTORY.create(-1));
+    compressDecoder.setPassthroughRegistry(REGISTRY);
+    decoder = new EmbeddedChannel(new MinecraftVarintFrameDecoder(), compressDecoder);
+  }
+
+  @AfterEach
+  void tearDown() {
+    decoder.finishAndReleaseAll();
+  }
+
+  @Test
+  void unknownPacketIsNotInflated() {
+    int packetId = 0;
+    while (REGISTRY.canDecode(packetId)) {
+      packetId++;
+    }
+    ByteBuf wire = compress(THRESHOLD, packet(packetId, 1024));
+    byte[] expected = ByteBufUtil.getBytes(wire);
+
+    decoder.writeInbound(wire);
+    Object decoded = decoder.readInbound();
+    assertInstanceOf(OpaqueCompressedPacket.class, decoded);
+    assertEquals(1024 + 1, ((OpaqueCompressedPacket) decoded).getUncompressedSize());
+
+    // Writing it out with the same threshold must produce the exact same bytes
+    EmbeddedChannel encoder = new EmbeddedChannel(
+        new MinecraftCompressorAndLengthEncoder(THRESHOLD,
+            JavaVelocityCompressor.FACTORY.create(-1)));
+    encoder.writeOutbound(decoded);
+    ByteBuf reencoded = Unpooled.buffer();
+    ByteBuf part;
+    while ((part = encoder.readOutbound()) != null) {
+      reencoded.writeBytes(part);
+      part.release();
+    }
+    encoder.finishAndReleaseAll();
+    assertEquals(Unpooled.wrappedBuffer(expected), reencoded);
+    reencoded.release();
+  }
+
+  @Test
+  void knownPacketIsInflated() {
+    int packetId = REGISTRY.getPacketId(new KeepAlive());
+    decoder.writeInbound(compress(THRESHOLD, packet(packetId, 128)));
+    Object decoded = decoder.readInbound();
+    assertInstanceOf(ByteBuf.class, decoded);
+    assertEquals(128 + 1, ((ByteBuf) decoded).readableBytes());
+    ((ByteBuf) decoded).release();
+    assertNull(decoder.readInbound());
+  }
+
+  @Test
+  void largePacketIsInflatedAtOnce() {
+    int packetId = REGISTRY.getPacketId(new KeepAlive());
+    ByteBuf packet = packet(packetId, 200_000);
+    byte[] expected = ByteBufUtil.getBytes(packet);
+
+    decoder.writeInbound(compress(THRESHOLD, packet));
+    ByteBuf decoded = decoder.readInbound();
+    assertFalse(decoded instanceof CompositeByteBuf);
+    assertEquals(Unpooled.wrappedBuffer(expected), decoded);
+    decoded.release();
+  }
+
+  @Test
+  void highlyCompressedPacketIsInflatedInChunks() {
+    int packetId = REGISTRY.getPacketId(new KeepAlive());
+    ByteBuf packet = Unpooled.buffer();
+    ProtocolUtils.writeVarInt(packet, packetId);
+    packet.writeZero(200_000);
+    byte[] expected = ByteBufUtil.getBytes(packet);
+
+    decoder.writeInbound(compress(THRESHOLD, packet));
+    ByteBuf decoded = decoder.readInbound();
+    assertInstanceOf(CompositeByteBuf.class, decoded);
+    assertEquals(Unpooled.wrappedBuffer(expected), decoded);
+    decoded.release();
+  }
+
+  @Test
+  void inflatedSizeMustMatchClaimedSize() {
+    int packetId = REGISTRY.getPacketId(new KeepAlive());
+    byte[] deflated = deflate(ByteBufUtil.getBytes(packet(packetId, 100_000)));
+    ByteBuf body = Unpooled.buffer();
+    ProtocolUtils.writeVarInt(body, 150_000);
+    body.writeBytes(deflated);
+    ByteBuf wire = Unpooled.buffer();
+    ProtocolUtils.writeVarInt(wire, body.readableBytes());
+    wire.writeBytes(body);
+    body.release();
+
+    assertThrows(DecoderException.class, () -> decoder.writeInbound(wire));
+  }
+
+  @Test
+  void heldPacketIsNotOverwritten() {
+    int packetId = REGISTRY.getPacketId(new KeepAlive());
+    ByteBuf first = packet(packetId, 128);
+    byte[] expected = ByteBufUtil.getBytes(first);
+
+    ByteBuf second = Unpooled.buffer();
+    ProtocolUtils.writeVarInt(second, packetId);
+    second.writeZero(128);
+
+    decoder.writeInbound(compress(THRESHOLD, first));
+    decoder.writeInbound(compress(THRESHOLD, second));
+    ByteBuf decodedFirst = decoder.readInbound();
+    ByteBuf decodedSecond = decoder.readInbound();
+    assertEquals(Unpooled.wrappedBuffer(expected), decodedFirst);
+    decodedFirst.release();
+    decodedSecond.release();
+  }
+
+  private static byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] out = new byte[data.length + 1024];
+    int length = deflater.deflate(out);
+    deflater.end();
+    return Arrays.copyOf(out, length);
+  }
+
+  private static ByteBuf packet(int packetId, int bodyLength) {
+    byte[] body = new byte[bodyLength];
+    new Random(packetId).nextBytes(body);
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeVarInt(buf, packetId);
+    buf.writeBytes(body);
+    return buf;
+  }
+
+  private static ByteBuf compress(int threshold, ByteBuf packet) {
+    EmbeddedChannel encoder = new EmbeddedChannel(
+        new MinecraftCompressorAndLengthEncoder(threshold,
+            JavaVelocityCompressor.FACTORY.create(-1)));
+    encoder.writeOutbound(packet);
+    ByteBuf wire = encoder.readOutbound();
+    encoder.finishAndReleaseAll();
+    return wire;
+  }
+}
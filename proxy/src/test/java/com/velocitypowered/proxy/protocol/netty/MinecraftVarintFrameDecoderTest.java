@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.util.except.QuietDecoderException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MinecraftVarintFrameDecoderTest {
+
+  private EmbeddedChannel channel;
+  private MinecraftVarintFrameDecoder decoder;
+
+  @BeforeEach
+  void setUp() {
+    decoder = new MinecraftVarintFrameDecoder();
+    channel = new EmbeddedChannel(decoder);
+  }
+
+  @AfterEach
+  void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  void emitsEveryFrameOfARead() {
+    ByteBuf wire = Unpooled.buffer();
+    byte[][] bodies = {body(1), body(127), body(128), body(300), body(70_000)};
+    for (byte[] body : bodies) {
+      frame(wire, body);
+    }
+
+    channel.writeInbound(wire);
+    for (byte[] body : bodies) {
+      assertFrame(body);
+    }
+    assertNull(channel.readInbound());
+    assertFalse(decoder.hasBufferedBytes());
+  }
+
+  @Test
+  void reassemblesFramesSplitAcrossReads() {
+    ByteBuf wire = Unpooled.buffer();
+    byte[] small = body(200);
+    byte[] large = body(MinecraftVarintFrameDecoder.COMPOSITE_THRESHOLD * 4);
+    frame(wire, small);
+    frame(wire, large);
+    frame(wire, small);
+
+    // A byte at a time through the length prefixes, then in larger reads.
+    for (int i = 0; i < 8; i++) {
+      channel.writeInbound(wire.readRetainedSlice(1));
+    }
+    while (wire.isReadable()) {
+      channel.writeInbound(wire.readRetainedSlice(Math.min(1460, wire.readableBytes())));
+    }
+    wire.release();
+
+    assertFrame(small);
+    assertFrame(large);
+    assertFrame(small);
+    assertNull(channel.readInbound());
+  }
+
+  @Test
+  void holdsIncompleteFrames() {
+    ByteBuf wire = Unpooled.buffer();
+    byte[] body = body(1000);
+    frame(wire, body);
+
+    channel.writeInbound(wire.readRetainedSlice(500));
+    assertNull(channel.readInbound());
+    assertTrue(decoder.hasBufferedBytes());
+
+    channel.writeInbound(wire);
+    assertFrame(body);
+    assertFalse(decoder.hasBufferedBytes());
+  }
+
+  @Test
+  void skipsZeroesAndEmptyFrames() {
+    ByteBuf wire = Unpooled.buffer();
+    byte[] body = body(10);
+    wire.writeZero(5);
+    // A zero length written with a redundant continuation byte
+    wire.writeByte(0x80).writeByte(0x00);
+    frame(wire, body);
+    wire.writeZero(3);
+
+    channel.writeInbound(wire);
+    assertFrame(body);
+    assertNull(channel.readInbound());
+    assertFalse(decoder.hasBufferedBytes());
+  }
+
+  @Test
+  void rejectsLengthsLongerThanThreeBytes() {
+    ByteBuf wire = Unpooled.buffer().writeByte(0xFF).writeByte(0xFF).writeByte(0xFF)
+        .writeByte(0x01);
+    assertThrows(QuietDecoderException.class, () -> channel.writeInbound(wire));
+  }
+
+  private void assertFrame(byte[] expected) {
+    ByteBuf frame = channel.readInbound();
+    assertEquals(Unpooled.wrappedBuffer(expected), frame);
+    frame.release();
+  }
+
+  private static void frame(ByteBuf wire, byte[] body) {
+    ProtocolUtils.writeVarInt(wire, body.length);
+    wire.writeBytes(body);
+  }
+
+  private static byte[] body(int length) {
+    byte[] body = new byte[length];
+    new Random(length).nextBytes(body);
+    return body;
+  }
+}
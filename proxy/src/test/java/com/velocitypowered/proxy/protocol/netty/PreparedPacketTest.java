@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.netty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.natives.compression.JavaVelocityCompressor;
+import com.velocitypowered.natives.compression.VelocityCompressor;
+import com.velocitypowered.proxy.protocol.MinecraftPacket;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import com.velocitypowered.proxy.protocol.StateRegistry;
+import com.velocitypowered.proxy.protocol.packet.KeepAlive;
+import com.velocitypowered.proxy.protocol.packet.chat.ChatType;
+import com.velocitypowered.proxy.protocol.packet.chat.ComponentHolder;
+import com.velocitypowered.proxy.protocol.packet.chat.SystemChat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Test;
+
+class PreparedPacketTest {
+
+  private static final ProtocolVersion VERSION = ProtocolVersion.MINECRAFT_1_20_3;
+  private static final int THRESHOLD = 256;
+
+  @Test
+  void preparedPacketMatchesRegularEncoding() {
+    for (MinecraftPacket packet : new MinecraftPacket[] {keepAlive(), largeChat()}) {
+      for (int threshold : new int[] {-1, THRESHOLD}) {
+        ByteBuf regular = encode(StateRegistry.PLAY, threshold, packet);
+        ByteBuf prepared = encode(StateRegistry.PLAY, threshold, prepare(packet, threshold));
+        assertEquals(regular, prepared, packet + " with threshold " + threshold);
+        regular.release();
+        prepared.release();
+      }
+    }
+  }
+
+  @Test
+  void preparedPacketFallsBackOutsideOfPlay() {
+    KeepAlive packet = keepAlive();
+    ByteBuf regular = encode(StateRegistry.CONFIG, THRESHOLD, packet);
+    ByteBuf prepared = encode(StateRegistry.CONFIG, THRESHOLD, prepare(packet, THRESHOLD));
+    assertEquals(regular, prepared);
+    regular.release();
+    prepared.release();
+  }
+
+  @Test
+  void preparedPacketFallsBackForAnotherThreshold() {
+    for (MinecraftPacket packet : new MinecraftPacket[] {keepAlive(), largeChat()}) {
+      for (int threshold : new int[] {-1, THRESHOLD}) {
+        int preparedFor = threshold < 0 ? THRESHOLD : -1;
+        ByteBuf regular = encode(StateRegistry.PLAY, threshold, packet);
+        ByteBuf prepared = encode(StateRegistry.PLAY, threshold, prepare(packet, preparedFor));
+        assertEquals(regular, prepared, packet + " with threshold " + threshold);
+        regular.release();
+        prepared.release();
+      }
+    }
+  }
+
+  @Test
+  void preparedPacketIsEncodedForHandlersInBetween() {
+    KeepAlive packet = keepAlive();
+    MinecraftEncoder encoder = new MinecraftEncoder(ProtocolUtils.Direction.CLIENTBOUND);
+    encoder.setState(StateRegistry.PLAY);
+    encoder.setProtocolVersion(VERSION);
+    // Stands in for a protocol translator, which only understands unframed packets.
+    List<Object> seen = new ArrayList<>();
+    ChannelOutboundHandlerAdapter translator = new ChannelOutboundHandlerAdapter() {
+      @Override
+      public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        seen.add(msg);
+        ctx.write(msg, promise);
+      }
+    };
+    EmbeddedChannel channel = new EmbeddedChannel(MinecraftVarintLengthEncoder.INSTANCE,
+        translator, encoder);
+    channel.writeOutbound(prepare(packet, -1));
+
+    assertEquals(1, seen.size());
+    assertFalse(seen.get(0) instanceof PreparedPacket);
+    ByteBuf regular = encode(StateRegistry.PLAY, -1, packet);
+    ByteBuf written = channel.readOutbound();
+    assertEquals(regular, written);
+    regular.release();
+    written.release();
+    channel.finishAndReleaseAll();
+  }
+
+  private static KeepAlive keepAlive() {
+    KeepAlive keepAlive = new KeepAlive();
+    keepAlive.setRandomId(0x56454c4fL);
+    return keepAlive;
+  }
+
+  private static SystemChat largeChat() {
+    return new SystemChat(new ComponentHolder(VERSION, Component.text("Velocity ".repeat(100))),
+        ChatType.SYSTEM);
+  }
+
+  private static PreparedPacket prepare(MinecraftPacket packet, int threshold) {
+    VelocityCompressor compressor = JavaVelocityCompressor.FACTORY.create(-1);
+    try {
+      return PreparedPacket.prepare(ByteBufAllocator.DEFAULT, packet, VERSION, threshold,
+          compressor);
+    } finally {
+      compressor.close();
+    }
+  }
+
+  private static ByteBuf encode(StateRegistry state, int threshold, Object msg) {
+    MinecraftEncoder encoder = new MinecraftEncoder(ProtocolUtils.Direction.CLIENTBOUND);
+    encoder.setState(state);
+    encoder.setProtocolVersion(VERSION);
+    ChannelHandler framer = threshold < 0 ? MinecraftVarintLengthEncoder.INSTANCE
+        : new MinecraftCompressorAndLengthEncoder(threshold,
+            JavaVelocityCompressor.FACTORY.create(-1));
+    EmbeddedChannel channel = new EmbeddedChannel(framer, encoder);
+    channel.writeOutbound(msg);
+
+    ByteBuf out = Unpooled.buffer();
+    ByteBuf part;
+    while ((part = channel.readOutbound()) != null) {
+      out.writeBytes(part);
+      part.release();
+    }
+    channel.finishAndReleaseAll();
+    return out;
+  }
+}
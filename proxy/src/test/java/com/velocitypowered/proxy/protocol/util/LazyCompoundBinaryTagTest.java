@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2023 Velocity Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.velocitypowered.proxy.protocol.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.proxy.protocol.ProtocolUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.kyori.adventure.nbt.BinaryTagIO;
+import net.kyori.adventure.nbt.CompoundBinaryTag;
+import net.kyori.adventure.nbt.IntBinaryTag;
+import net.kyori.adventure.nbt.ListBinaryTag;
+import net.kyori.adventure.nbt.StringBinaryTag;
+import org.junit.jupiter.api.Test;
+
+class LazyCompoundBinaryTagTest {
+
+  private static final int MAX_BYTES = 1024;
+
+  private static final CompoundBinaryTag TAG = CompoundBinaryTag.builder()
+      .putString("name", "minecraft:overworld")
+      .putByte("natural", (byte) 1)
+      .putDouble("coordinate_scale", 1.0)
+      .putLongArray("longs", new long[] {1, 2, 3})
+      .putIntArray("ints", new int[] {4, 5})
+      .putByteArray("bytes", new byte[] {6})
+      .put("list", ListBinaryTag.builder()
+          .add(StringBinaryTag.stringBinaryTag("a"))
+          .add(StringBinaryTag.stringBinaryTag("b"))
+          .build())
+      .put("nested", CompoundBinaryTag.builder()
+          .put("value", IntBinaryTag.intBinaryTag(42))
+          .put("empty", ListBinaryTag.empty())
+          .build())
+      .build();
+
+  @Test
+  void untouchedTagIsWrittenVerbatim() {
+    for (ProtocolVersion version : new ProtocolVersion[] {
+        ProtocolVersion.MINECRAFT_1_16_4, ProtocolVersion.MINECRAFT_1_20_2}) {
+      ByteBuf eager = Unpooled.buffer();
+      ProtocolUtils.writeBinaryTag(eager, version, TAG);
+      eager.writeByte(0x7f);
+
+      LazyCompoundBinaryTag lazy = LazyCompoundBinaryTag.read(eager.duplicate(), version,
+          MAX_BYTES);
+      assertFalse(lazy.isParsed());
+
+      ByteBuf written = Unpooled.buffer();
+      lazy.write(written, version);
+      written.writeByte(0x7f);
+      assertEquals(eager, written);
+      assertFalse(lazy.isParsed());
+
+      eager.release();
+      written.release();
+    }
+  }
+
+  @Test
+  void readStopsAtEndOfTag() {
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeBinaryTag(buf, ProtocolVersion.MINECRAFT_1_16_4, TAG);
+    buf.writeByte(0x7f);
+
+    LazyCompoundBinaryTag.read(buf, ProtocolVersion.MINECRAFT_1_16_4, MAX_BYTES);
+    assertEquals(1, buf.readableBytes());
+    assertEquals(0x7f, buf.readByte());
+    buf.release();
+  }
+
+  @Test
+  void parsedTagMatchesEagerlyDecodedTag() {
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeBinaryTag(buf, ProtocolVersion.MINECRAFT_1_16_4, TAG);
+    CompoundBinaryTag eager = ProtocolUtils.readCompoundTag(buf.duplicate(),
+        ProtocolVersion.MINECRAFT_1_16_4, BinaryTagIO.reader());
+
+    LazyCompoundBinaryTag lazy = LazyCompoundBinaryTag.read(buf,
+        ProtocolVersion.MINECRAFT_1_16_4, MAX_BYTES);
+    assertEquals(eager, lazy.get());
+    assertEquals(TAG, lazy.get());
+    assertTrue(lazy.isParsed());
+    buf.release();
+  }
+
+  @Test
+  void truncatedTagIsRejected() {
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeBinaryTag(buf, ProtocolVersion.MINECRAFT_1_16_4, TAG);
+    ByteBuf truncated = buf.slice(0, buf.readableBytes() - 8);
+    assertThrows(RuntimeException.class,
+        () -> LazyCompoundBinaryTag.read(truncated, ProtocolVersion.MINECRAFT_1_16_4,
+            MAX_BYTES));
+    buf.release();
+  }
+
+  @Test
+  void nonCompoundRootIsRejected() {
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeBinaryTag(buf, ProtocolVersion.MINECRAFT_1_16_4,
+        IntBinaryTag.intBinaryTag(1));
+    assertThrows(DecoderException.class,
+        () -> LazyCompoundBinaryTag.read(buf, ProtocolVersion.MINECRAFT_1_16_4, MAX_BYTES));
+    buf.release();
+  }
+
+  @Test
+  void tagOverTheLimitIsRejected() {
+    ByteBuf buf = Unpooled.buffer();
+    ProtocolUtils.writeBinaryTag(buf, ProtocolVersion.MINECRAFT_1_16_4, TAG);
+    int size = LazyCompoundBinaryTag.read(buf.duplicate(), ProtocolVersion.MINECRAFT_1_16_4,
+        MAX_BYTES).getEncodedSize();
+    assertThrows(DecoderException.class,
+        () -> LazyCompoundBinaryTag.read(buf, ProtocolVersion.MINECRAFT_1_16_4, size - 1));
+    buf.release();
+  }
+
+  @Test
+  void negativeListLengthIsRejected() {
+    ByteBuf buf = Unpooled.buffer();
+    buf.writeByte(10); // compound
+    buf.writeShort(0); // root name
+    buf.writeByte(9); // list
+    buf.writeShort(0); // entry name
+    buf.writeByte(0); // of end tags
+    buf.writeInt(-1);
+    buf.writeByte(0); // end of compound
+    assertThrows(DecoderException.class,
+        () -> LazyCompoundBinaryTag.read(buf, ProtocolVersion.MINECRAFT_1_16_4, MAX_BYTES));
+    buf.release();
+  }
+}
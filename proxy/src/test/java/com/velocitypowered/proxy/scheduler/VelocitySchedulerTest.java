@@ -18,12 +18,15 @@
 package com.velocitypowered.proxy.scheduler;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.velocitypowered.api.scheduler.ScheduledTask;
 import com.velocitypowered.api.scheduler.TaskStatus;
 import com.velocitypowered.proxy.scheduler.VelocityScheduler.VelocityTask;
 import com.velocitypowered.proxy.testutil.FakePluginManager;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -68,6 +71,26 @@ class VelocitySchedulerTest {
     task.cancel();
   }
 
+  @Test
+  void cancelledTasksAreForgotten() throws Exception {
+    VelocityScheduler scheduler = new VelocityScheduler(new FakePluginManager());
+    List<ScheduledTask> tasks = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      tasks.add(scheduler.buildTask(FakePluginManager.PLUGIN_A, () -> { })
+          .delay(100, TimeUnit.SECONDS)
+          .schedule());
+    }
+    assertEquals(1000, scheduler.tasksByPlugin(FakePluginManager.PLUGIN_A).size());
+    assertEquals(1000, scheduler.getTaskCountsByPlugin().get("a"));
+
+    for (ScheduledTask task : tasks) {
+      task.cancel();
+      assertEquals(TaskStatus.CANCELLED, task.status());
+    }
+    assertEquals(0, scheduler.tasksByPlugin(FakePluginManager.PLUGIN_A).size());
+    assertTrue(scheduler.shutdown());
+  }
+
   @Test
   void obtainTasksFromPlugin() throws Exception {
     VelocityScheduler scheduler = new VelocityScheduler(new FakePluginManager());
@@ -27,6 +27,7 @@ sequenceOf(
     "api",
     "native",
     "proxy",
+    "benchmarks",
 ).forEach {
     val project = ":velocity-$it"
     include(project)